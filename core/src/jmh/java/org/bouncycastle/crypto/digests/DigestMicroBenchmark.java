@@ -0,0 +1,100 @@
+package org.bouncycastle.crypto.digests;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing of a complete message, from update() through to doFinal().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DigestMicroBenchmark
+{
+    @Param({"SHA-1", "SHA-256", "SHA-512", "SHA3-256", "SHAKE256", "Blake2b", "Blake2s", "Blake3", "SM3"})
+    private String digest;
+
+    @Param({"64", "1024", "16384", "65536"})
+    private int size;
+
+    private Digest engine;
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+    {
+        engine = createDigest(digest);
+
+        input = new byte[size];
+        new SecureRandom().nextBytes(input);
+        output = new byte[engine.getDigestSize()];
+    }
+
+    @Benchmark
+    public byte[] hash()
+    {
+        engine.update(input, 0, input.length);
+        engine.doFinal(output, 0);
+
+        return output;
+    }
+
+    static Digest createDigest(String name)
+    {
+        if (name.equals("SHA-1"))
+        {
+            return new SHA1Digest();
+        }
+        if (name.equals("SHA-256"))
+        {
+            return SHA256Digest.newInstance();
+        }
+        if (name.equals("SHA-512"))
+        {
+            return new SHA512Digest();
+        }
+        if (name.equals("SHA3-256"))
+        {
+            return new SHA3Digest(256);
+        }
+        if (name.equals("SHAKE256"))
+        {
+            return new SHAKEDigest(256);
+        }
+        if (name.equals("Blake2b"))
+        {
+            return new Blake2bDigest(512);
+        }
+        if (name.equals("Blake2s"))
+        {
+            return new Blake2sDigest(256);
+        }
+        if (name.equals("Blake3"))
+        {
+            return new Blake3Digest(256);
+        }
+        if (name.equals("SM3"))
+        {
+            return new SM3Digest();
+        }
+
+        throw new IllegalArgumentException("unknown digest: " + name);
+    }
+}
@@ -0,0 +1,130 @@
+package org.bouncycastle.crypto.engines;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.MultiBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw (ECB) block cipher throughput. Engines implementing {@link MultiBlockCipher} are driven through
+ * processBlocks(), the others one block at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockCipherMicroBenchmark
+{
+    @Param({"AES", "ARIA", "Camellia", "DESede", "Serpent", "SM4", "Twofish"})
+    private String cipher;
+
+    @Param({"16", "1024", "16384"})
+    private int size;
+
+    private BlockCipher encryptor;
+    private BlockCipher decryptor;
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+
+        encryptor = createCipher(cipher);
+        decryptor = createCipher(cipher);
+
+        byte[] key = new byte[encryptor instanceof DESedeEngine ? 24 : 16];
+        random.nextBytes(key);
+
+        encryptor.init(true, new KeyParameter(key));
+        decryptor.init(false, new KeyParameter(key));
+
+        // round up to whole blocks for the 64 bit block ciphers
+        int blockSize = encryptor.getBlockSize();
+        input = new byte[(size + blockSize - 1) / blockSize * blockSize];
+        output = new byte[input.length];
+        random.nextBytes(input);
+    }
+
+    @Benchmark
+    public byte[] encrypt()
+    {
+        return process(encryptor);
+    }
+
+    @Benchmark
+    public byte[] decrypt()
+    {
+        return process(decryptor);
+    }
+
+    private byte[] process(BlockCipher engine)
+    {
+        int blockSize = engine.getBlockSize();
+        int blockCount = input.length / blockSize;
+
+        if (engine instanceof MultiBlockCipher)
+        {
+            ((MultiBlockCipher)engine).processBlocks(input, 0, blockCount, output, 0);
+        }
+        else
+        {
+            for (int off = 0; off < input.length; off += blockSize)
+            {
+                engine.processBlock(input, off, output, off);
+            }
+        }
+
+        return output;
+    }
+
+    static BlockCipher createCipher(String name)
+    {
+        if (name.equals("AES"))
+        {
+            return AESEngine.newInstance();
+        }
+        if (name.equals("ARIA"))
+        {
+            return new ARIAEngine();
+        }
+        if (name.equals("Camellia"))
+        {
+            return new CamelliaEngine();
+        }
+        if (name.equals("DESede"))
+        {
+            return new DESedeEngine();
+        }
+        if (name.equals("Serpent"))
+        {
+            return new SerpentEngine();
+        }
+        if (name.equals("SM4"))
+        {
+            return new SM4Engine();
+        }
+        if (name.equals("Twofish"))
+        {
+            return new TwofishEngine();
+        }
+
+        throw new IllegalArgumentException("unknown cipher: " + name);
+    }
+}
@@ -0,0 +1,99 @@
+package org.bouncycastle.crypto.fpe;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.params.FPEParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SP 800-38G format preserving encryption (FF1 and FF3-1 over AES-128) of short strings, such as card
+ * numbers (radix 10) and binary identifiers (radix 256).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SP80038GMicroBenchmark
+{
+    @Param({"FF1", "FF3-1"})
+    private String mode;
+
+    @Param({"10", "256"})
+    private int radix;
+
+    @Param({"8", "16", "24"})
+    private int length;
+
+    private FPEEngine encryptor;
+    private FPEEngine decryptor;
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+
+        byte[] key = new byte[16];
+        byte[] tweak = new byte[mode.equals("FF1") ? 8 : 7];
+        random.nextBytes(key);
+        random.nextBytes(tweak);
+
+        encryptor = createEngine(mode);
+        decryptor = createEngine(mode);
+        encryptor.init(true, new FPEParameters(new KeyParameter(key), radix, tweak));
+        decryptor.init(false, new FPEParameters(new KeyParameter(key), radix, tweak));
+
+        input = new byte[length];
+        for (int i = 0; i != input.length; i++)
+        {
+            input[i] = (byte)random.nextInt(radix);
+        }
+        output = new byte[length];
+    }
+
+    @Benchmark
+    public byte[] encrypt()
+    {
+        encryptor.processBlock(input, 0, input.length, output, 0);
+
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decrypt()
+    {
+        decryptor.processBlock(input, 0, input.length, output, 0);
+
+        return output;
+    }
+
+    static FPEEngine createEngine(String name)
+    {
+        if (name.equals("FF1"))
+        {
+            return new FPEFF1Engine(AESEngine.newInstance());
+        }
+        if (name.equals("FF3-1"))
+        {
+            return new FPEFF3_1Engine(AESEngine.newInstance());
+        }
+
+        throw new IllegalArgumentException("unknown mode: " + name);
+    }
+}
@@ -0,0 +1,129 @@
+package org.bouncycastle.crypto.macs;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Pack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MAC calculation over a complete message. GMAC needs a fresh nonce for every message, so it is
+ * re-initialised on each call; the other MACs are keyed once and reused.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MacMicroBenchmark
+{
+    @Param({"HMac-SHA256", "HMac-SHA512", "CMac-AES", "GMac-AES", "Poly1305", "Poly1305-AES", "SipHash", "KMAC128"})
+    private String mac;
+
+    @Param({"64", "1024", "16384", "65536"})
+    private int size;
+
+    private Mac engine;
+    private KeyParameter key;
+    private byte[] nonce;
+    private long counter;
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+
+        engine = createMac(mac);
+
+        byte[] keyBytes = new byte[mac.startsWith("Poly1305") ? 32 : 16];
+        random.nextBytes(keyBytes);
+        key = new KeyParameter(keyBytes);
+
+        if (mac.equals("GMac-AES") || mac.equals("Poly1305-AES"))
+        {
+            nonce = new byte[mac.equals("GMac-AES") ? 12 : 16];
+            engine.init(new ParametersWithIV(key, nonce));
+        }
+        else
+        {
+            engine.init(key);
+        }
+
+        input = new byte[size];
+        random.nextBytes(input);
+        output = new byte[engine.getMacSize()];
+    }
+
+    @Benchmark
+    public byte[] calculate()
+    {
+        if (nonce != null)
+        {
+            Pack.longToBigEndian(++counter, nonce, 4);
+            engine.init(new ParametersWithIV(key, nonce));
+        }
+
+        engine.update(input, 0, input.length);
+        engine.doFinal(output, 0);
+
+        return output;
+    }
+
+    static Mac createMac(String name)
+    {
+        if (name.equals("HMac-SHA256"))
+        {
+            return new HMac(SHA256Digest.newInstance());
+        }
+        if (name.equals("HMac-SHA512"))
+        {
+            return new HMac(new SHA512Digest());
+        }
+        if (name.equals("CMac-AES"))
+        {
+            return new CMac(AESEngine.newInstance());
+        }
+        if (name.equals("GMac-AES"))
+        {
+            return new GMac(GCMBlockCipher.newInstance(AESEngine.newInstance()));
+        }
+        if (name.equals("Poly1305"))
+        {
+            return new Poly1305();
+        }
+        if (name.equals("Poly1305-AES"))
+        {
+            return new Poly1305(AESEngine.newInstance());
+        }
+        if (name.equals("SipHash"))
+        {
+            return new SipHash();
+        }
+        if (name.equals("KMAC128"))
+        {
+            return new KMAC(128, null);
+        }
+
+        throw new IllegalArgumentException("unknown mac: " + name);
+    }
+}
@@ -0,0 +1,127 @@
+package org.bouncycastle.crypto.modes;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Pack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One-shot AEAD encryption and decryption of a message with a small amount of associated data, the
+ * block cipher modes running over AES-128. Encryption uses a fresh nonce on each call, as it has to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AEADMicroBenchmark
+{
+    private static final int MAC_SIZE = 128;
+
+    @Param({"GCM", "GCM-SIV", "CCM", "ChaCha20Poly1305"})
+    private String mode;
+
+    @Param({"64", "1024", "16384", "65536"})
+    private int size;
+
+    private AEADCipher encryptor;
+    private AEADCipher decryptor;
+    private KeyParameter key;
+    private byte[] nonce;
+    private long counter;
+    private byte[] aad;
+    private byte[] plainText;
+    private byte[] cipherText;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+        throws InvalidCipherTextException
+    {
+        SecureRandom random = new SecureRandom();
+
+        encryptor = createCipher(mode);
+        decryptor = createCipher(mode);
+
+        byte[] keyBytes = new byte[mode.equals("ChaCha20Poly1305") ? 32 : 16];
+        random.nextBytes(keyBytes);
+        key = new KeyParameter(keyBytes);
+
+        nonce = new byte[12];
+        aad = new byte[16];
+        plainText = new byte[size];
+        random.nextBytes(aad);
+        random.nextBytes(plainText);
+
+        encryptor.init(true, new AEADParameters(key, MAC_SIZE, nonce, aad));
+        cipherText = new byte[encryptor.getOutputSize(size)];
+        int len = encryptor.processBytes(plainText, 0, size, cipherText, 0);
+        encryptor.doFinal(cipherText, len);
+
+        output = new byte[cipherText.length];
+    }
+
+    @Benchmark
+    public byte[] encrypt()
+        throws InvalidCipherTextException
+    {
+        Pack.longToBigEndian(++counter, nonce, 4);
+
+        encryptor.init(true, new AEADParameters(key, MAC_SIZE, nonce, aad));
+        int len = encryptor.processBytes(plainText, 0, plainText.length, output, 0);
+        encryptor.doFinal(output, len);
+
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decrypt()
+        throws InvalidCipherTextException
+    {
+        Pack.longToBigEndian(0L, nonce, 4);
+
+        decryptor.init(false, new AEADParameters(key, MAC_SIZE, nonce, aad));
+        int len = decryptor.processBytes(cipherText, 0, cipherText.length, output, 0);
+        decryptor.doFinal(output, len);
+
+        return output;
+    }
+
+    static AEADCipher createCipher(String name)
+    {
+        if (name.equals("GCM"))
+        {
+            return GCMBlockCipher.newInstance(AESEngine.newInstance());
+        }
+        if (name.equals("GCM-SIV"))
+        {
+            return new GCMSIVBlockCipher(AESEngine.newInstance());
+        }
+        if (name.equals("CCM"))
+        {
+            return CCMBlockCipher.newInstance(AESEngine.newInstance());
+        }
+        if (name.equals("ChaCha20Poly1305"))
+        {
+            return new ChaCha20Poly1305();
+        }
+
+        throw new IllegalArgumentException("unknown mode: " + name);
+    }
+}
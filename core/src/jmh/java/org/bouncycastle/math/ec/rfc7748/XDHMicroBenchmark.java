@@ -0,0 +1,94 @@
+package org.bouncycastle.math.ec.rfc7748;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * X25519 and X448: public key generation (fixed base) and agreement (variable base).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class XDHMicroBenchmark
+{
+    @Param({"X25519", "X448"})
+    private String curve;
+
+    private boolean isX25519;
+    private byte[] privateKey;
+    private byte[] peerPublicKey;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+
+        isX25519 = curve.equals("X25519");
+        if (isX25519)
+        {
+            X25519.precompute();
+
+            byte[] peerPrivateKey = new byte[X25519.SCALAR_SIZE];
+            privateKey = new byte[X25519.SCALAR_SIZE];
+            peerPublicKey = new byte[X25519.POINT_SIZE];
+            X25519.generatePrivateKey(random, privateKey);
+            X25519.generatePrivateKey(random, peerPrivateKey);
+            X25519.generatePublicKey(peerPrivateKey, 0, peerPublicKey, 0);
+            output = new byte[X25519.POINT_SIZE];
+        }
+        else
+        {
+            X448.precompute();
+
+            byte[] peerPrivateKey = new byte[X448.SCALAR_SIZE];
+            privateKey = new byte[X448.SCALAR_SIZE];
+            peerPublicKey = new byte[X448.POINT_SIZE];
+            X448.generatePrivateKey(random, privateKey);
+            X448.generatePrivateKey(random, peerPrivateKey);
+            X448.generatePublicKey(peerPrivateKey, 0, peerPublicKey, 0);
+            output = new byte[X448.POINT_SIZE];
+        }
+    }
+
+    @Benchmark
+    public byte[] generatePublicKey()
+    {
+        if (isX25519)
+        {
+            X25519.generatePublicKey(privateKey, 0, output, 0);
+        }
+        else
+        {
+            X448.generatePublicKey(privateKey, 0, output, 0);
+        }
+
+        return output;
+    }
+
+    @Benchmark
+    public boolean calculateAgreement()
+    {
+        if (isX25519)
+        {
+            return X25519.calculateAgreement(privateKey, 0, peerPublicKey, 0, output, 0);
+        }
+
+        return X448.calculateAgreement(privateKey, 0, peerPublicKey, 0, output, 0);
+    }
+}
@@ -0,0 +1,117 @@
+package org.bouncycastle.math.ec.rfc8032;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ed25519 and Ed448 (pure, empty context): public key generation, signing and verification.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EdDSAMicroBenchmark
+{
+    private static final byte[] EMPTY_CONTEXT = new byte[0];
+
+    @Param({"Ed25519", "Ed448"})
+    private String curve;
+
+    @Param({"32", "1024", "16384"})
+    private int size;
+
+    private boolean isEd25519;
+    private byte[] privateKey;
+    private byte[] publicKey;
+    private byte[] message;
+    private byte[] signature;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+
+        message = new byte[size];
+        random.nextBytes(message);
+
+        isEd25519 = curve.equals("Ed25519");
+        if (isEd25519)
+        {
+            Ed25519.precompute();
+
+            privateKey = new byte[Ed25519.SECRET_KEY_SIZE];
+            publicKey = new byte[Ed25519.PUBLIC_KEY_SIZE];
+            signature = new byte[Ed25519.SIGNATURE_SIZE];
+            Ed25519.generatePrivateKey(random, privateKey);
+            Ed25519.generatePublicKey(privateKey, 0, publicKey, 0);
+        }
+        else
+        {
+            Ed448.precompute();
+
+            privateKey = new byte[Ed448.SECRET_KEY_SIZE];
+            publicKey = new byte[Ed448.PUBLIC_KEY_SIZE];
+            signature = new byte[Ed448.SIGNATURE_SIZE];
+            Ed448.generatePrivateKey(random, privateKey);
+            Ed448.generatePublicKey(privateKey, 0, publicKey, 0);
+        }
+
+        sign();
+    }
+
+    @Benchmark
+    public byte[] generatePublicKey()
+    {
+        byte[] pk = new byte[publicKey.length];
+        if (isEd25519)
+        {
+            Ed25519.generatePublicKey(privateKey, 0, pk, 0);
+        }
+        else
+        {
+            Ed448.generatePublicKey(privateKey, 0, pk, 0);
+        }
+
+        return pk;
+    }
+
+    @Benchmark
+    public byte[] sign()
+    {
+        if (isEd25519)
+        {
+            Ed25519.sign(privateKey, 0, publicKey, 0, message, 0, message.length, signature, 0);
+        }
+        else
+        {
+            Ed448.sign(privateKey, 0, publicKey, 0, EMPTY_CONTEXT, message, 0, message.length, signature, 0);
+        }
+
+        return signature;
+    }
+
+    @Benchmark
+    public boolean verify()
+    {
+        if (isEd25519)
+        {
+            return Ed25519.verify(signature, 0, publicKey, 0, message, 0, message.length);
+        }
+
+        return Ed448.verify(signature, 0, publicKey, 0, EMPTY_CONTEXT, message, 0, message.length);
+    }
+}
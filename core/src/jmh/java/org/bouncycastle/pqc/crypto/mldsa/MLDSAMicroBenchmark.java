@@ -0,0 +1,125 @@
+package org.bouncycastle.pqc.crypto.mldsa;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.CryptoException;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ML-DSA key generation, signing and verification of a 1 KiB message, with plain keys and with keys
+ * carrying their precomputed expanded form.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MLDSAMicroBenchmark
+{
+    @Param({"ml-dsa-44", "ml-dsa-65", "ml-dsa-87"})
+    private String parameterSet;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private MLDSAKeyPairGenerator keyPairGenerator;
+    private MLDSASigner signer;
+    private MLDSASigner precomputedSigner;
+    private MLDSASigner verifier;
+    private MLDSASigner precomputedVerifier;
+    private byte[] message;
+    private byte[] signature;
+
+    @Setup
+    public void setup()
+        throws CryptoException
+    {
+        keyPairGenerator = new MLDSAKeyPairGenerator();
+        keyPairGenerator.init(new MLDSAKeyGenerationParameters(random, getParameters(parameterSet)));
+
+        AsymmetricCipherKeyPair keyPair = keyPairGenerator.generateKeyPair();
+        MLDSAPublicKeyParameters publicKey = (MLDSAPublicKeyParameters)keyPair.getPublic();
+        MLDSAPrivateKeyParameters privateKey = (MLDSAPrivateKeyParameters)keyPair.getPrivate();
+
+        signer = new MLDSASigner();
+        signer.init(true, new ParametersWithRandom(privateKey, random));
+        precomputedSigner = new MLDSASigner();
+        precomputedSigner.init(true, new ParametersWithRandom(privateKey.withPrecomputation(), random));
+        verifier = new MLDSASigner();
+        verifier.init(false, publicKey);
+        precomputedVerifier = new MLDSASigner();
+        precomputedVerifier.init(false, publicKey.withPrecomputation());
+
+        message = new byte[1024];
+        random.nextBytes(message);
+        signature = sign();
+    }
+
+    @Benchmark
+    public AsymmetricCipherKeyPair generateKeyPair()
+    {
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    @Benchmark
+    public byte[] sign()
+        throws CryptoException
+    {
+        signer.update(message, 0, message.length);
+        return signer.generateSignature();
+    }
+
+    @Benchmark
+    public byte[] signPrecomputed()
+        throws CryptoException
+    {
+        precomputedSigner.update(message, 0, message.length);
+        return precomputedSigner.generateSignature();
+    }
+
+    @Benchmark
+    public boolean verify()
+    {
+        verifier.update(message, 0, message.length);
+        return verifier.verifySignature(signature);
+    }
+
+    @Benchmark
+    public boolean verifyPrecomputed()
+    {
+        precomputedVerifier.update(message, 0, message.length);
+        return precomputedVerifier.verifySignature(signature);
+    }
+
+    static MLDSAParameters getParameters(String name)
+    {
+        MLDSAParameters[] candidates = new MLDSAParameters[]{
+            MLDSAParameters.ml_dsa_44,
+            MLDSAParameters.ml_dsa_65,
+            MLDSAParameters.ml_dsa_87
+        };
+
+        for (int i = 0; i != candidates.length; i++)
+        {
+            if (candidates[i].getName().equals(name))
+            {
+                return candidates[i];
+            }
+        }
+
+        throw new IllegalArgumentException("unknown parameter set: " + name);
+    }
+}
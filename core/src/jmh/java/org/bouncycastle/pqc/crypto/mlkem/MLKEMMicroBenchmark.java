@@ -0,0 +1,114 @@
+package org.bouncycastle.pqc.crypto.mlkem;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.SecretWithEncapsulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ML-KEM key generation, encapsulation and decapsulation. The "fresh" variants decode the key from its
+ * encoding on every call, the others reuse a key object whose expanded form is cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MLKEMMicroBenchmark
+{
+    @Param({"ML-KEM-512", "ML-KEM-768", "ML-KEM-1024"})
+    private String parameterSet;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private MLKEMParameters parameters;
+    private MLKEMKeyPairGenerator keyPairGenerator;
+    private MLKEMPublicKeyParameters publicKey;
+    private MLKEMPrivateKeyParameters privateKey;
+    private byte[] publicKeyEncoding;
+    private byte[] privateKeyEncoding;
+    private MLKEMGenerator generator;
+    private MLKEMExtractor extractor;
+    private byte[] encapsulation;
+
+    @Setup
+    public void setup()
+    {
+        parameters = getParameters(parameterSet);
+
+        keyPairGenerator = new MLKEMKeyPairGenerator();
+        keyPairGenerator.init(new MLKEMKeyGenerationParameters(random, parameters));
+
+        AsymmetricCipherKeyPair keyPair = keyPairGenerator.generateKeyPair();
+        publicKey = (MLKEMPublicKeyParameters)keyPair.getPublic();
+        privateKey = (MLKEMPrivateKeyParameters)keyPair.getPrivate();
+        publicKeyEncoding = publicKey.getEncoded();
+        privateKeyEncoding = privateKey.getEncoded();
+
+        generator = new MLKEMGenerator(random);
+        extractor = new MLKEMExtractor(privateKey);
+        encapsulation = generator.generateEncapsulated(publicKey).getEncapsulation();
+    }
+
+    @Benchmark
+    public AsymmetricCipherKeyPair generateKeyPair()
+    {
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    @Benchmark
+    public SecretWithEncapsulation encapsulate()
+    {
+        return generator.generateEncapsulated(publicKey);
+    }
+
+    @Benchmark
+    public SecretWithEncapsulation encapsulateFreshKey()
+    {
+        return generator.generateEncapsulated(new MLKEMPublicKeyParameters(parameters, publicKeyEncoding));
+    }
+
+    @Benchmark
+    public byte[] decapsulate()
+    {
+        return extractor.extractSecret(encapsulation);
+    }
+
+    @Benchmark
+    public byte[] decapsulateFreshKey()
+    {
+        return new MLKEMExtractor(new MLKEMPrivateKeyParameters(parameters, privateKeyEncoding)).extractSecret(encapsulation);
+    }
+
+    static MLKEMParameters getParameters(String name)
+    {
+        MLKEMParameters[] candidates = new MLKEMParameters[]{
+            MLKEMParameters.ml_kem_512,
+            MLKEMParameters.ml_kem_768,
+            MLKEMParameters.ml_kem_1024
+        };
+
+        for (int i = 0; i != candidates.length; i++)
+        {
+            if (candidates[i].getName().equals(name))
+            {
+                return candidates[i];
+            }
+        }
+
+        throw new IllegalArgumentException("unknown parameter set: " + name);
+    }
+}
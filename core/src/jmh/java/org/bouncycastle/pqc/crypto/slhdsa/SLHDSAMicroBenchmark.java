@@ -0,0 +1,98 @@
+package org.bouncycastle.pqc.crypto.slhdsa;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SLH-DSA key generation, signing and verification of a 1 KiB message. Signing with the "s" parameter
+ * sets takes a large fraction of a second, so timings are in milliseconds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SLHDSAMicroBenchmark
+{
+    @Param({"sha2-128f", "sha2-128s", "shake-128f", "sha2-256f"})
+    private String parameterSet;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private SLHDSAKeyPairGenerator keyPairGenerator;
+    private SLHDSASigner signer;
+    private SLHDSASigner verifier;
+    private byte[] message;
+    private byte[] signature;
+
+    @Setup
+    public void setup()
+    {
+        keyPairGenerator = new SLHDSAKeyPairGenerator();
+        keyPairGenerator.init(new SLHDSAKeyGenerationParameters(random, getParameters(parameterSet)));
+
+        AsymmetricCipherKeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        signer = new SLHDSASigner();
+        signer.init(true, new ParametersWithRandom(keyPair.getPrivate(), random));
+        verifier = new SLHDSASigner();
+        verifier.init(false, keyPair.getPublic());
+
+        message = new byte[1024];
+        random.nextBytes(message);
+        signature = sign();
+    }
+
+    @Benchmark
+    public AsymmetricCipherKeyPair generateKeyPair()
+    {
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    @Benchmark
+    public byte[] sign()
+    {
+        return signer.generateSignature(message);
+    }
+
+    @Benchmark
+    public boolean verify()
+    {
+        return verifier.verifySignature(message, signature);
+    }
+
+    static SLHDSAParameters getParameters(String name)
+    {
+        SLHDSAParameters[] candidates = new SLHDSAParameters[]{
+            SLHDSAParameters.sha2_128f,
+            SLHDSAParameters.sha2_128s,
+            SLHDSAParameters.shake_128f,
+            SLHDSAParameters.sha2_256f
+        };
+
+        for (int i = 0; i != candidates.length; i++)
+        {
+            if (candidates[i].getName().equals(name))
+            {
+                return candidates[i];
+            }
+        }
+
+        throw new IllegalArgumentException("unknown parameter set: " + name);
+    }
+}
@@ -0,0 +1,172 @@
+package org.bouncycastle.crypto.digests;
+
+import org.bouncycastle.util.Pack;
+
+/**
+ * Computes a batch of independent SHA-256 hashes over inputs of the same length, optionally all following
+ * a common prefix.
+ * <p>
+ * This is intended for the hash-based signature schemes, which make very large numbers of short,
+ * independent hash calls, usually keyed by a block-sized prefix (such as the padded public seed in
+ * SLH-DSA). The prefix is compressed once, in {@link #init(byte[], int, int)}, and each input is then
+ * compressed straight from the caller's buffer starting from that midstate, avoiding the buffering, state
+ * copying and allocation of going through {@link SHA256Digest} once per hash. The outputs are exactly
+ * those of {@link SHA256Digest} over prefix || input, truncated if requested.
+ * </p>
+ * <p>
+ * Instances are not thread safe, but can be reused for any number of batches.
+ * </p>
+ */
+public final class SHA256Batch
+{
+    private static final int[] IV = { 0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c,
+        0x1f83d9ab, 0x5be0cd19 };
+
+    private final int[] midState = new int[8];
+    private final int[] state = new int[8];
+    private final int[] X = new int[64];
+    private long prefixLen;
+
+    public SHA256Batch()
+    {
+        System.arraycopy(IV, 0, midState, 0, 8);
+    }
+
+    /**
+     * Set the prefix each input in subsequent batches is hashed after.
+     *
+     * @param prefix buffer holding the prefix.
+     * @param off offset of the prefix.
+     * @param len length of the prefix, which must be a multiple of the 64 byte block size.
+     */
+    public void init(byte[] prefix, int off, int len)
+    {
+        if ((len & 63) != 0)
+        {
+            throw new IllegalArgumentException("prefix length must be a multiple of 64");
+        }
+
+        System.arraycopy(IV, 0, state, 0, 8);
+        for (int pos = 0; pos < len; pos += 64)
+        {
+            Pack.bigEndianToInt(prefix, off + pos, X, 0, 16);
+            processBlock();
+        }
+        System.arraycopy(state, 0, midState, 0, 8);
+        prefixLen = len;
+    }
+
+    /**
+     * Hash count inputs of inLen bytes each, stored one after the other in in, writing outLen bytes of output
+     * for each one after the other into out.
+     *
+     * @param in the concatenated inputs.
+     * @param inOff offset of the first input.
+     * @param inLen length of each input.
+     * @param count number of inputs.
+     * @param out the buffer to write the concatenated outputs to.
+     * @param outOff offset to write the first output at.
+     * @param outLen length of output to keep for each input, at most 32.
+     */
+    public void hash(byte[] in, int inOff, int inLen, int count, byte[] out, int outOff, int outLen)
+    {
+        if (outLen > 32)
+        {
+            throw new IllegalArgumentException("outLen cannot exceed 32");
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            hash(in, inOff + i * inLen, inLen, out, outOff + i * outLen, outLen);
+        }
+    }
+
+    private void hash(byte[] in, int inOff, int inLen, byte[] out, int outOff, int outLen)
+    {
+        int[] s = state, x = X;
+        long bitLength = (prefixLen + inLen) << 3;
+
+        System.arraycopy(midState, 0, s, 0, 8);
+
+        while (inLen >= 64)
+        {
+            Pack.bigEndianToInt(in, inOff, x, 0, 16);
+            processBlock();
+            inOff += 64;
+            inLen -= 64;
+        }
+
+        // final block(s): remaining input, the 0x80 byte, zeros, then the bit length
+        int words = inLen >>> 2;
+        Pack.bigEndianToInt(in, inOff, x, 0, words);
+        int last = 0x80 << (24 - ((inLen & 3) << 3));
+        for (int j = 0; j < (inLen & 3); j++)
+        {
+            last |= (in[inOff + (words << 2) + j] & 0xFF) << (24 - (j << 3));
+        }
+        x[words] = last;
+        for (int w = words + 1; w < 16; w++)
+        {
+            x[w] = 0;
+        }
+        if (words > 13)
+        {
+            processBlock();
+            for (int w = 0; w < 14; w++)
+            {
+                x[w] = 0;
+            }
+        }
+        x[14] = (int)(bitLength >>> 32);
+        x[15] = (int)bitLength;
+        processBlock();
+
+        int outWords = outLen >>> 2;
+        Pack.intToBigEndian(s, 0, outWords, out, outOff);
+        for (int j = outWords << 2; j < outLen; j++)
+        {
+            out[outOff + j] = (byte)(s[j >>> 2] >>> (24 - ((j & 3) << 3)));
+        }
+    }
+
+    private void processBlock()
+    {
+        int[] x = X, s = state, k = SHA256Digest.K;
+
+        for (int t = 16; t <= 63; t++)
+        {
+            int x2 = x[t - 2], x15 = x[t - 15];
+            x[t] = (((x2 >>> 17) | (x2 << 15)) ^ ((x2 >>> 19) | (x2 << 13)) ^ (x2 >>> 10))
+                + x[t - 7]
+                + (((x15 >>> 7) | (x15 << 25)) ^ ((x15 >>> 18) | (x15 << 14)) ^ (x15 >>> 3))
+                + x[t - 16];
+        }
+
+        int a = s[0], b = s[1], c = s[2], d = s[3], e = s[4], f = s[5], g = s[6], h = s[7];
+
+        for (int t = 0; t < 64; t++)
+        {
+            int t1 = h + (((e >>> 6) | (e << 26)) ^ ((e >>> 11) | (e << 21)) ^ ((e >>> 25) | (e << 7)))
+                + ((e & f) ^ (~e & g)) + k[t] + x[t];
+            int t2 = (((a >>> 2) | (a << 30)) ^ ((a >>> 13) | (a << 19)) ^ ((a >>> 22) | (a << 10)))
+                + ((a & b) | (c & (a ^ b)));
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+
+        s[0] += a;
+        s[1] += b;
+        s[2] += c;
+        s[3] += d;
+        s[4] += e;
+        s[5] += f;
+        s[6] += g;
+        s[7] += h;
+    }
+}
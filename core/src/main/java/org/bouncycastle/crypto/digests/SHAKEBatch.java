@@ -0,0 +1,117 @@
+package org.bouncycastle.crypto.digests;
+
+import org.bouncycastle.util.Pack;
+
+/**
+ * Computes a batch of independent SHAKE hashes over inputs of the same length.
+ * <p>
+ * This is intended for the hash-based signature schemes, which make very large numbers of short,
+ * independent hash calls (WOTS+ chains, tree hashing). Each input is absorbed straight into a single
+ * Keccak state and squeezed straight out again, avoiding the buffering, and the object and parameter
+ * checking, of going through {@link SHAKEDigest} once per hash. The outputs are exactly those of
+ * {@link SHAKEDigest} over the same inputs.
+ * </p>
+ * <p>
+ * Instances are not thread safe, but can be reused for any number of batches.
+ * </p>
+ */
+public final class SHAKEBatch
+{
+    private final int rate;
+    private final long[] state = new long[25];
+
+    /**
+     * Create a batch hasher for SHAKE128 or SHAKE256.
+     *
+     * @param bitStrength 128 or 256.
+     */
+    public SHAKEBatch(int bitStrength)
+    {
+        if (bitStrength != 128 && bitStrength != 256)
+        {
+            throw new IllegalArgumentException("'bitStrength' " + bitStrength + " not supported for SHAKE");
+        }
+
+        this.rate = (1600 - (bitStrength << 1)) >>> 3;
+    }
+
+    /**
+     * Hash count inputs of inLen bytes each, stored one after the other in in, writing outLen bytes of output
+     * for each one after the other into out.
+     *
+     * @param in the concatenated inputs.
+     * @param inOff offset of the first input.
+     * @param inLen length of each input.
+     * @param count number of inputs.
+     * @param out the buffer to write the concatenated outputs to.
+     * @param outOff offset to write the first output at.
+     * @param outLen length of output to produce for each input.
+     */
+    public void hash(byte[] in, int inOff, int inLen, int count, byte[] out, int outOff, int outLen)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            hash(in, inOff + i * inLen, inLen, out, outOff + i * outLen, outLen);
+        }
+    }
+
+    private void hash(byte[] in, int inOff, int inLen, byte[] out, int outOff, int outLen)
+    {
+        long[] s = state;
+
+        for (int i = 0; i < 25; i++)
+        {
+            s[i] = 0;
+        }
+
+        // absorb the full blocks, then the padded final one
+        while (inLen >= rate)
+        {
+            absorb(in, inOff, rate);
+            KeccakDigest.KeccakPermutation(s);
+            inOff += rate;
+            inLen -= rate;
+        }
+
+        absorb(in, inOff, inLen);
+        s[inLen >>> 3] ^= 0x1FL << ((inLen & 7) << 3);
+        s[(rate - 1) >>> 3] ^= 0x80L << (((rate - 1) & 7) << 3);
+        KeccakDigest.KeccakPermutation(s);
+
+        // squeeze
+        for (;;)
+        {
+            int len = Math.min(rate, outLen);
+            int words = len >>> 3;
+
+            Pack.longToLittleEndian(s, 0, words, out, outOff);
+            for (int j = words << 3; j < len; j++)
+            {
+                out[outOff + j] = (byte)(s[j >>> 3] >>> ((j & 7) << 3));
+            }
+
+            outLen -= len;
+            if (outLen == 0)
+            {
+                break;
+            }
+            outOff += len;
+            KeccakDigest.KeccakPermutation(s);
+        }
+    }
+
+    private void absorb(byte[] in, int inOff, int len)
+    {
+        long[] s = state;
+        int words = len >>> 3;
+
+        for (int w = 0; w < words; w++)
+        {
+            s[w] ^= Pack.littleEndianToLong(in, inOff + (w << 3));
+        }
+        for (int j = words << 3; j < len; j++)
+        {
+            s[j >>> 3] ^= (in[inOff + j] & 0xFFL) << ((j & 7) << 3);
+        }
+    }
+}
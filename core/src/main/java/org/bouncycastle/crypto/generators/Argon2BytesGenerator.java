@@ -1,5 +1,9 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.Blake2bDigest;
 import org.bouncycastle.crypto.params.Argon2Parameters;
@@ -36,6 +40,8 @@
 
     private static final byte[] ZERO_BYTES = new byte[4];
 
+    private final Executor executor;
+
     private Argon2Parameters parameters;
     private Block[] memory;
     private int segmentLength;
@@ -43,6 +49,23 @@
 
     public Argon2BytesGenerator()
     {
+        this(null);
+    }
+
+    /**
+     * Create a generator which fills the lanes of each slice concurrently using the passed in executor.
+     * <p>
+     * Lanes only reference blocks in other lanes that were completed in earlier slices, so the segments
+     * of a slice are independent and the result is identical to the sequential computation. The calling
+     * thread fills one lane itself and waits for the others at the end of each slice, so the executor
+     * needs to be able to run at least lanes - 1 tasks for the full benefit.
+     * </p>
+     *
+     * @param executor executor to run segment fills on, null to fill all lanes on the calling thread.
+     */
+    public Argon2BytesGenerator(Executor executor)
+    {
+        this.executor = executor;
     }
 
     /**
@@ -149,6 +172,12 @@ private void reset()
 
     private void fillMemoryBlocks()
     {
+        if (executor != null && parameters.getLanes() > 1)
+        {
+            fillMemoryBlocksConcurrently();
+            return;
+        }
+
         FillBlock filler = new FillBlock();
         Position position = new Position();
         for (int pass = 0; pass < parameters.getIterations(); ++pass)
@@ -169,6 +198,72 @@ private void fillMemoryBlocks()
         }
     }
 
+    private void fillMemoryBlocksConcurrently()
+    {
+        int lanes = parameters.getLanes();
+
+        FillBlock[] fillers = new FillBlock[lanes];
+        Position[] positions = new Position[lanes];
+        for (int lane = 0; lane < lanes; ++lane)
+        {
+            fillers[lane] = new FillBlock();
+            positions[lane] = new Position();
+            positions[lane].lane = lane;
+        }
+
+        for (int pass = 0; pass < parameters.getIterations(); ++pass)
+        {
+            for (int slice = 0; slice < ARGON2_SYNC_POINTS; ++slice)
+            {
+                CountDownLatch latch = new CountDownLatch(lanes - 1);
+                SegmentTask[] tasks = new SegmentTask[lanes];
+
+                for (int lane = 0; lane < lanes; ++lane)
+                {
+                    positions[lane].pass = pass;
+                    positions[lane].slice = slice;
+
+                    tasks[lane] = new SegmentTask(fillers[lane], positions[lane], latch);
+                }
+
+                // the calling thread takes the first lane itself
+                for (int lane = 1; lane < lanes; ++lane)
+                {
+                    try
+                    {
+                        executor.execute(tasks[lane]);
+                    }
+                    catch (RejectedExecutionException e)
+                    {
+                        tasks[lane].run();
+                    }
+                }
+
+                fillSegment(fillers[0], positions[0]);
+
+                try
+                {
+                    latch.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while filling memory blocks");
+                }
+
+                for (int lane = 1; lane < lanes; ++lane)
+                {
+                    Throwable failure = tasks[lane].failure;
+                    if (failure != null)
+                    {
+                        throw new IllegalStateException("unable to fill memory blocks: " + failure.getMessage(),
+                            failure);
+                    }
+                }
+            }
+        }
+    }
+
     private void fillSegment(FillBlock filler, Position position)
     {
         Block addressBlock = null, inputBlock = null;
@@ -682,6 +777,39 @@ public Block clear()
         }
     }
 
+    private class SegmentTask
+        implements Runnable
+    {
+        private final FillBlock filler;
+        private final Position position;
+        private final CountDownLatch latch;
+
+        private volatile Throwable failure;
+
+        SegmentTask(FillBlock filler, Position position, CountDownLatch latch)
+        {
+            this.filler = filler;
+            this.position = position;
+            this.latch = latch;
+        }
+
+        public void run()
+        {
+            try
+            {
+                fillSegment(filler, position);
+            }
+            catch (Throwable t)
+            {
+                failure = t;
+            }
+            finally
+            {
+                latch.countDown();
+            }
+        }
+    }
+
     private static class Position
     {
         int pass;
@@ -1,5 +1,10 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.bouncycastle.crypto.PBEParametersGenerator;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.engines.Salsa20Engine;
@@ -35,6 +40,33 @@ private SCrypt()
      * @return the generated key.
      */
     public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    {
+        return generate(P, S, N, r, p, dkLen, null, 1);
+    }
+
+    /**
+     * Generate a key using the scrypt key derivation function, running the p independent SMix
+     * computations on up to maxThreads threads.
+     * <p>
+     * The calling thread takes part in the computation and up to maxThreads - 1 further workers are
+     * passed to the executor. Each worker allocates its scratch memory (around <code>128 * r * N</code>
+     * bytes) once and reuses it for every block it processes, so peak memory is bounded by
+     * <code>min(p, maxThreads) * 128 * r * N</code> bytes rather than growing with p.
+     * </p>
+     *
+     * @param P     the bytes of the pass phrase.
+     * @param S     the salt to use for this invocation.
+     * @param N     CPU/Memory cost parameter. Must be larger than 1, a power of 2 and less than
+     *              <code>2^(128 * r / 8)</code>.
+     * @param r     the block size, must be &gt;= 1.
+     * @param p     Parallelization parameter. Must be a positive integer less than or equal to
+     *              <code>Integer.MAX_VALUE / (128 * r * 8)</code>.
+     * @param dkLen the length of the key to generate.
+     * @param executor executor to run additional workers on, null to use the calling thread only.
+     * @param maxThreads the maximum number of SMix computations to run at once, must be &gt;= 1.
+     * @return the generated key.
+     */
+    public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor, int maxThreads)
     {
         if (P == null)
         {
@@ -67,10 +99,14 @@ public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen
         {
             throw new IllegalArgumentException("Generated key length dkLen must be >= 1.");
         }
-        return MFcrypt(P, S, N, r, p, dkLen);
+        if (maxThreads < 1)
+        {
+            throw new IllegalArgumentException("Thread count maxThreads must be >= 1.");
+        }
+        return MFcrypt(P, S, N, r, p, dkLen, executor, maxThreads);
     }
 
-    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor, int maxThreads)
     {
         int MFLenBytes = r * 128;
         byte[] bytes = SingleIterationPBKDF2(P, S, p * MFLenBytes);
@@ -96,10 +132,25 @@ private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen
             }
 
             int MFLenWords = MFLenBytes >>> 2;
-            for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+            int workers = Math.min(p, maxThreads);
+            if (executor == null || workers < 2)
+            {
+                SMixer mixer = new SMixer(N, d, r);
+                try
+                {
+                    for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+                    {
+                        mixer.SMix(B, BOff);
+                    }
+                }
+                finally
+                {
+                    mixer.clear();
+                }
+            }
+            else
             {
-                // TODO These can be done in parallel threads
-                SMix(B, BOff, N, d, r);
+                SMixConcurrently(executor, workers, B, p, MFLenWords, N, d, r);
             }
 
             Pack.intToLittleEndian(B, bytes, 0);
@@ -121,29 +172,96 @@ private static byte[] SingleIterationPBKDF2(byte[] P, byte[] S, int dkLen)
         return key.getKey();
     }
 
-    private static void SMix(int[] B, int BOff, int N, int d, int r)
+    private static void SMixConcurrently(Executor executor, int workers, int[] B, int p, int MFLenWords, int N,
+        int d, int r)
     {
-        int powN = Integers.numberOfTrailingZeros(N);
-        int blocksPerChunk = N >>> d;
-        int chunkCount = 1 << d, chunkMask = blocksPerChunk - 1, chunkPow = powN - d;
+        AtomicInteger nextBlock = new AtomicInteger(0);
+        CountDownLatch latch = new CountDownLatch(workers - 1);
+        SMixWorker[] tasks = new SMixWorker[workers];
 
-        int BCount = r * 32;
+        for (int i = 0; i < workers; ++i)
+        {
+            tasks[i] = new SMixWorker(nextBlock, latch, B, p, MFLenWords, N, d, r);
+        }
 
-        int[] blockX1 = new int[16];
-        int[] blockX2 = new int[16];
-        int[] blockY = new int[BCount];
+        // the calling thread acts as the first worker
+        for (int i = 1; i < workers; ++i)
+        {
+            try
+            {
+                executor.execute(tasks[i]);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // the remaining workers will pick up the blocks this one would have processed
+                latch.countDown();
+            }
+        }
 
-        int[] X = new int[BCount];
-        int[][] VV = new int[chunkCount][];
+        tasks[0].mixBlocks();
 
         try
         {
-            System.arraycopy(B, BOff, X, 0, BCount);
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for SMix workers");
+        }
+
+        for (int i = 1; i < workers; ++i)
+        {
+            Throwable failure = tasks[i].failure;
+            if (failure != null)
+            {
+                throw new IllegalStateException("SMix worker failed: " + failure.getMessage(), failure);
+            }
+        }
+    }
+
+    /**
+     * Holds the scratch memory for SMix so that it can be reused across the blocks handled by one thread.
+     */
+    private static final class SMixer
+    {
+        private final int N, r, BCount, blocksPerChunk, chunkMask, chunkPow;
+
+        private final int[] blockX1 = new int[16];
+        private final int[] blockX2 = new int[16];
+        private final int[] blockY;
+        private final int[] X;
+        private final int[][] VV;
+
+        SMixer(int N, int d, int r)
+        {
+            int powN = Integers.numberOfTrailingZeros(N);
+            int chunkCount = 1 << d;
+
+            this.N = N;
+            this.r = r;
+            this.BCount = r * 32;
+            this.blocksPerChunk = N >>> d;
+            this.chunkMask = blocksPerChunk - 1;
+            this.chunkPow = powN - d;
+
+            this.blockY = new int[BCount];
+            this.X = new int[BCount];
+            this.VV = new int[chunkCount][];
 
             for (int c = 0; c < chunkCount; ++c)
             {
-                int[] V = new int[blocksPerChunk * BCount];
-                VV[c] = V;
+                VV[c] = new int[blocksPerChunk * BCount];
+            }
+        }
+
+        void SMix(int[] B, int BOff)
+        {
+            System.arraycopy(B, BOff, X, 0, BCount);
+
+            for (int c = 0; c < VV.length; ++c)
+            {
+                int[] V = VV[c];
 
                 int off = 0;
                 for (int i = 0; i < blocksPerChunk; i += 2)
@@ -170,13 +288,77 @@ private static void SMix(int[] B, int BOff, int N, int d, int r)
 
             System.arraycopy(X, 0, B, BOff, BCount);
         }
-        finally
+
+        void clear()
         {
             ClearAll(VV);
             ClearAll(new int[][]{X, blockX1, blockX2, blockY});
         }
     }
 
+    private static final class SMixWorker
+        implements Runnable
+    {
+        private final AtomicInteger nextBlock;
+        private final CountDownLatch latch;
+        private final int[] B;
+        private final int p, MFLenWords, N, d, r;
+
+        private volatile Throwable failure;
+
+        SMixWorker(AtomicInteger nextBlock, CountDownLatch latch, int[] B, int p, int MFLenWords, int N, int d, int r)
+        {
+            this.nextBlock = nextBlock;
+            this.latch = latch;
+            this.B = B;
+            this.p = p;
+            this.MFLenWords = MFLenWords;
+            this.N = N;
+            this.d = d;
+            this.r = r;
+        }
+
+        public void run()
+        {
+            try
+            {
+                mixBlocks();
+            }
+            catch (Throwable t)
+            {
+                failure = t;
+            }
+            finally
+            {
+                latch.countDown();
+            }
+        }
+
+        void mixBlocks()
+        {
+            // scratch memory is only allocated once there is a block left to process
+            int block = nextBlock.getAndIncrement();
+            if (block >= p)
+            {
+                return;
+            }
+
+            SMixer mixer = new SMixer(N, d, r);
+            try
+            {
+                do
+                {
+                    mixer.SMix(B, block * MFLenWords);
+                }
+                while ((block = nextBlock.getAndIncrement()) < p);
+            }
+            finally
+            {
+                mixer.clear();
+            }
+        }
+    }
+
     private static void BlockMix(int[] B, int[] X1, int[] X2, int[] Y, int r)
     {
         System.arraycopy(B, B.length - 16, X1, 0, 16);
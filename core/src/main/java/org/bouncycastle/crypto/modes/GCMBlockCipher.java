@@ -4,12 +4,14 @@
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.gcm.BasicGCMExponentiator;
+import org.bouncycastle.crypto.modes.gcm.GCMAggregatedMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMExponentiator;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMUtil;
-import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables16kGCMMultiplier;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
@@ -24,6 +26,9 @@
     implements GCMModeCipher
 {
     private static final int BLOCK_SIZE = 16;
+    // blocks handled per pass of the bulk encrypt/decrypt path
+    private static final int BULK_BLOCKS = 8;
+    private static final int BULK_SIZE = BULK_BLOCKS * BLOCK_SIZE;
 
     // not final due to a compiler bug
     private BlockCipher   cipher;
@@ -53,6 +58,10 @@
     private long        atLength;
     private long        atLengthPre;
 
+    // scratch space for the bulk path
+    private byte[]      ctrBlocks;
+    private byte[]      keyStream;
+
     /**
      * Return a new GCM mode cipher based on the passed in base cipher
      *
@@ -102,7 +111,7 @@ public GCMBlockCipher(BlockCipher c, GCMMultiplier m)
 
         if (m == null)
         {
-            m = new Tables4kGCMMultiplier();
+            m = new Tables16kGCMMultiplier();
         }
 
         this.cipher = c;
@@ -318,6 +327,14 @@ public void processAADBytes(byte[] in, int inOff, int len)
 
         int inLimit = inOff + len - BLOCK_SIZE;
 
+        int blockCount = (inLimit - inOff) / BLOCK_SIZE + 1;
+        if (blockCount > 1)
+        {
+            gHASHBlocks(S_at, in, inOff, blockCount);
+            atLength += blockCount * BLOCK_SIZE;
+            inOff += blockCount * BLOCK_SIZE;
+        }
+
         while (inOff <= inLimit)
         {
             gHASHBlock(S_at, in, inOff);
@@ -407,6 +424,14 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
             }
 
             int inLimit = inOff + len - BLOCK_SIZE;
+            int bulkLimit = inLimit - (BULK_SIZE - BLOCK_SIZE);
+
+            while (inOff <= bulkLimit && canProcessBulk())
+            {
+                encryptBlocks(in, inOff, out, outOff + resultLen);
+                inOff += BULK_SIZE;
+                resultLen += BULK_SIZE;
+            }
 
             while (inOff <= inLimit)
             {
@@ -452,6 +477,15 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
             resultLen += BLOCK_SIZE;
             //bufOff = 0;
 
+            int bulkLimit = inLimit - (BULK_SIZE - BLOCK_SIZE);
+
+            while (inOff <= bulkLimit && canProcessBulk())
+            {
+                decryptBlocks(in, inOff, out, outOff + resultLen);
+                inOff += BULK_SIZE;
+                resultLen += BULK_SIZE;
+            }
+
             while (inOff <= inLimit)
             {
                 decryptBlock(in, inOff, out, outOff + resultLen);
@@ -674,6 +708,57 @@ private void encryptBlock(byte[] buf, int bufOff, byte[] out, int outOff)
         totalLength += BLOCK_SIZE;
     }
 
+    private boolean canProcessBulk()
+    {
+        // blocksRemaining is unsigned, the bulk path must not run past the block limit
+        return (blocksRemaining & 0xFFFFFFFFL) >= BULK_BLOCKS;
+    }
+
+    private void decryptBlocks(byte[] buf, int bufOff, byte[] out, int outOff)
+    {
+        if ((out.length - outOff) < BULK_SIZE)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks();
+
+        gHASHBlocks(S, buf, bufOff, BULK_BLOCKS);
+        for (int i = 0; i < BULK_SIZE; i += BLOCK_SIZE)
+        {
+            GCMUtil.xor(keyStream, i, buf, bufOff + i, out, outOff + i);
+        }
+
+        totalLength += BULK_SIZE;
+    }
+
+    private void encryptBlocks(byte[] buf, int bufOff, byte[] out, int outOff)
+    {
+        if ((out.length - outOff) < BULK_SIZE)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks();
+
+        for (int i = 0; i < BULK_SIZE; i += BLOCK_SIZE)
+        {
+            GCMUtil.xor(keyStream, i, buf, bufOff + i, keyStream, i);
+        }
+        gHASHBlocks(S, keyStream, 0, BULK_BLOCKS);
+        System.arraycopy(keyStream, 0, out, outOff, BULK_SIZE);
+
+        totalLength += BULK_SIZE;
+    }
+
     private void processPartial(byte[] buf, int off, int len, byte[] out, int outOff)
     {
         byte[] ctrBlock = new byte[BLOCK_SIZE];
@@ -715,6 +800,29 @@ private void gHASHBlock(byte[] Y, byte[] b, int off)
         multiplier.multiplyH(Y);
     }
 
+    private void gHASHBlocks(byte[] Y, byte[] b, int off, int blockCount)
+    {
+        if (multiplier instanceof GCMAggregatedMultiplier)
+        {
+            GCMAggregatedMultiplier aggregated = (GCMAggregatedMultiplier)multiplier;
+            int aggregatedSize = aggregated.getBlockCount() * BLOCK_SIZE;
+            int limit = off + blockCount * BLOCK_SIZE - aggregatedSize;
+
+            while (off <= limit)
+            {
+                aggregated.multiplyBlocksH(Y, b, off);
+                off += aggregatedSize;
+                blockCount -= aggregated.getBlockCount();
+            }
+        }
+
+        while (blockCount-- > 0)
+        {
+            gHASHBlock(Y, b, off);
+            off += BLOCK_SIZE;
+        }
+    }
+
     private void gHASHPartial(byte[] Y, byte[] b, int off, int len)
     {
         GCMUtil.xor(Y, b, off, len);
@@ -738,6 +846,43 @@ private void getNextCTRBlock(byte[] block)
         cipher.processBlock(counter, 0, block, 0);
     }
 
+    /**
+     * Generate the next BULK_BLOCKS counter blocks into ctrBlocks and their encryption into keyStream.
+     */
+    private void getNextCTRBlocks()
+    {
+        if (ctrBlocks == null)
+        {
+            ctrBlocks = new byte[BULK_SIZE];
+            keyStream = new byte[BULK_SIZE];
+        }
+
+        blocksRemaining -= BULK_BLOCKS;
+
+        for (int off = 0; off < BULK_SIZE; off += BLOCK_SIZE)
+        {
+            int c = 1;
+            c += counter[15] & 0xFF; counter[15] = (byte)c; c >>>= 8;
+            c += counter[14] & 0xFF; counter[14] = (byte)c; c >>>= 8;
+            c += counter[13] & 0xFF; counter[13] = (byte)c; c >>>= 8;
+            c += counter[12] & 0xFF; counter[12] = (byte)c;
+
+            System.arraycopy(counter, 0, ctrBlocks, off, BLOCK_SIZE);
+        }
+
+        if (cipher instanceof MultiBlockCipher)
+        {
+            ((MultiBlockCipher)cipher).processBlocks(ctrBlocks, 0, BULK_BLOCKS, keyStream, 0);
+        }
+        else
+        {
+            for (int off = 0; off < BULK_SIZE; off += BLOCK_SIZE)
+            {
+                cipher.processBlock(ctrBlocks, off, keyStream, off);
+            }
+        }
+    }
+
     private void checkStatus()
     {
         if (!initialised)
@@ -3,10 +3,12 @@
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.StreamBlockCipher;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Bytes;
 import org.bouncycastle.util.Pack;
 
 /**
@@ -17,6 +19,9 @@
     extends StreamBlockCipher
     implements CTRModeCipher
 {
+    // counter blocks generated per pass of the bulk keystream path
+    private static final int BULK_BLOCKS = 8;
+
     private final BlockCipher     cipher;
     private final int             blockSize;
 
@@ -24,6 +29,8 @@
     private byte[]          counter;
     private byte[]          counterOut;
     private int             byteCount;
+    private byte[]          counterBlocks;
+    private byte[]          keyStream;
 
     /**
      * Return a new SIC/CTR mode cipher based on the passed in base cipher
@@ -142,6 +149,14 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         {
             byte next;
 
+            if (byteCount == 0 && len - i >= blockSize)
+            {
+                int processed = processBulk(in, inOff + i, (len - i) / blockSize, out, outOff + i);
+
+                i += processed - 1;     // the loop adds the last one
+                continue;
+            }
+
             if (byteCount == 0)
             {
                 checkLastIncrement();
@@ -164,6 +179,57 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         return len;
     }
 
+    /**
+     * Process up to blockCount whole blocks starting on a block boundary, generating the counter blocks in
+     * batches so the underlying cipher can encrypt several at once.
+     *
+     * @return the number of bytes processed.
+     */
+    private int processBulk(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+    {
+        if (counterBlocks == null)
+        {
+            counterBlocks = new byte[BULK_BLOCKS * blockSize];
+            keyStream = new byte[BULK_BLOCKS * blockSize];
+        }
+
+        int count = Math.min(blockCount, BULK_BLOCKS);
+        for (int i = 0; i < count; ++i)
+        {
+            // stop at an out of range counter, the per byte path will report it
+            if (IV.length < blockSize && counter[IV.length - 1] != IV[IV.length - 1])
+            {
+                count = i;
+                break;
+            }
+
+            System.arraycopy(counter, 0, counterBlocks, i * blockSize, blockSize);
+            incrementCounter();
+        }
+
+        if (cipher instanceof MultiBlockCipher)
+        {
+            ((MultiBlockCipher)cipher).processBlocks(counterBlocks, 0, count, keyStream, 0);
+        }
+        else
+        {
+            for (int off = 0; off < count * blockSize; off += blockSize)
+            {
+                cipher.processBlock(counterBlocks, off, keyStream, off);
+            }
+        }
+
+        int len = count * blockSize;
+        Bytes.xor(len, in, inOff, keyStream, 0, out, outOff);
+
+        if (count == 0)
+        {
+            checkLastIncrement();
+        }
+
+        return len;
+    }
+
     protected byte calculateByte(byte in)
           throws DataLengthException, IllegalStateException
     {
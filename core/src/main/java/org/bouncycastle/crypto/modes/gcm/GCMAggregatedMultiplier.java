@@ -0,0 +1,26 @@
+package org.bouncycastle.crypto.modes.gcm;
+
+/**
+ * A GCM multiplier that can also absorb several blocks into the GHASH state in one call, using the
+ * powers of H so that the blocks do not need to be multiplied by H one after the other.
+ */
+public interface GCMAggregatedMultiplier
+    extends GCMMultiplier
+{
+    /**
+     * Return the number of blocks absorbed by each call to multiplyBlocksH().
+     *
+     * @return the aggregation width, in blocks.
+     */
+    int getBlockCount();
+
+    /**
+     * Absorb getBlockCount() consecutive blocks into the GHASH state x, giving the same result as
+     * xor-ing each block into x in turn and calling multiplyH(x) after each one.
+     *
+     * @param x the GHASH state, updated in place.
+     * @param blocks array holding the blocks to absorb.
+     * @param blocksOff offset of the first block in blocks.
+     */
+    void multiplyBlocksH(byte[] x, byte[] blocks, int blocksOff);
+}
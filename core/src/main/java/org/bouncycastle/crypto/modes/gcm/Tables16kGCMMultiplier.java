@@ -0,0 +1,117 @@
+package org.bouncycastle.crypto.modes.gcm;
+
+import org.bouncycastle.util.Pack;
+
+/**
+ * A 4-way aggregated version of the Tables4kGCMMultiplier. A 4k table is kept for each of H, H^2, H^3
+ * and H^4, so four blocks can be absorbed into the GHASH state as
+ * (x + B0).H^4 + B1.H^3 + B2.H^2 + B3.H, the four table lookups for each byte position sharing a
+ * single shift and reduction step.
+ */
+public class Tables16kGCMMultiplier
+    implements GCMAggregatedMultiplier
+{
+    private static final int BLOCK_COUNT = 4;
+
+    private byte[] H;
+    // T[k] holds the 256 entries of the table for H^(k + 1), two longs per entry
+    private long[][] T;
+
+    public void init(byte[] H)
+    {
+        if (T == null)
+        {
+            T = new long[BLOCK_COUNT][512];
+        }
+        else if (0 != GCMUtil.areEqual(this.H, H))
+        {
+            return;
+        }
+
+        this.H = new byte[GCMUtil.SIZE_BYTES];
+        GCMUtil.copy(H, this.H);
+
+        long[] h = GCMUtil.asLongs(this.H);
+        long[] hPow = GCMUtil.asLongs(this.H);
+        long[] t1 = new long[2], tn = new long[2];
+
+        for (int k = 0; k < BLOCK_COUNT; ++k)
+        {
+            if (k > 0)
+            {
+                GCMUtil.multiply(hPow, h);
+            }
+
+            long[] t = T[k];
+
+            // t[0] = 0
+
+            // t[1] = H^(k + 1).p^7
+            GCMUtil.multiplyP7(hPow, t1);
+            t[2] = t1[0];
+            t[3] = t1[1];
+
+            for (int n = 2; n < 256; n += 2)
+            {
+                // t[2.n] = t[n].p^-1
+                tn[0] = t[n];
+                tn[1] = t[n + 1];
+                GCMUtil.divideP(tn, tn);
+                t[2 * n] = tn[0];
+                t[2 * n + 1] = tn[1];
+
+                // t[2.n + 1] = t[2.n] + t[1]
+                t[2 * n + 2] = tn[0] ^ t1[0];
+                t[2 * n + 3] = tn[1] ^ t1[1];
+            }
+        }
+    }
+
+    public int getBlockCount()
+    {
+        return BLOCK_COUNT;
+    }
+
+    public void multiplyH(byte[] x)
+    {
+        long[] t = T[0];
+
+        int j = (x[15] & 0xFF) << 1;
+        long z0 = t[j], z1 = t[j + 1];
+
+        for (int i = 14; i >= 0; --i)
+        {
+            j = (x[i] & 0xFF) << 1;
+
+            long c = z1 << 56;
+            z1 = t[j + 1] ^ ((z1 >>> 8) | (z0 << 56));
+            z0 = t[j] ^ (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+        }
+
+        Pack.longToBigEndian(z0, x, 0);
+        Pack.longToBigEndian(z1, x, 8);
+    }
+
+    public void multiplyBlocksH(byte[] x, byte[] blocks, int blocksOff)
+    {
+        long[] t1 = T[0], t2 = T[1], t3 = T[2], t4 = T[3];
+        int b0 = blocksOff, b1 = blocksOff + 16, b2 = blocksOff + 32, b3 = blocksOff + 48;
+
+        long z0 = 0, z1 = 0;
+
+        for (int i = 15; i >= 0; --i)
+        {
+            int j4 = ((x[i] ^ blocks[b0 + i]) & 0xFF) << 1;
+            int j3 = (blocks[b1 + i] & 0xFF) << 1;
+            int j2 = (blocks[b2 + i] & 0xFF) << 1;
+            int j1 = (blocks[b3 + i] & 0xFF) << 1;
+
+            long c = z1 << 56;
+            z1 = t4[j4 + 1] ^ t3[j3 + 1] ^ t2[j2 + 1] ^ t1[j1 + 1] ^ ((z1 >>> 8) | (z0 << 56));
+            z0 = t4[j4] ^ t3[j3] ^ t2[j2] ^ t1[j1] ^ (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+        }
+
+        Pack.longToBigEndian(z0, x, 0);
+        Pack.longToBigEndian(z1, x, 8);
+    }
+}
@@ -172,6 +172,14 @@ public boolean verifySignature(
 
         ECPoint point = ECAlgorithms.sumOfTwoMultiplies(G, u1, Q, u2);
 
+        return checkSignaturePoint(point, r, n);
+    }
+
+    /**
+     * Check that the x coordinate of the point calculated during verification reduces to r.
+     */
+    boolean checkSignaturePoint(ECPoint point, BigInteger r, BigInteger n)
+    {
         // components must be bogus.
         if (point.isInfinity())
         {
@@ -0,0 +1,222 @@
+package org.bouncycastle.crypto.signers;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECConstants;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.bouncycastle.math.ec.WNafUtil;
+import org.bouncycastle.util.BigIntegers;
+
+/**
+ * A reusable context for verifying many EC-DSA signatures made with the same public key.
+ * <p>
+ * On creation the public point is imported into the domain curve, normalized, and marked as a long-lived
+ * point, so the fixed-point precomputation for it (and for the base point) is built once and then
+ * reused by every verification, no matter how many times the same key is decoded elsewhere. The context
+ * is immutable once constructed, and the precomputations it relies on are safe for concurrent use, so a
+ * single instance may be shared between threads.
+ * </p>
+ */
+public class ECDSAVerificationContext
+    implements ECConstants
+{
+    private final ECPublicKeyParameters key;
+    private final ECDSASigner helper = new ECDSASigner();
+
+    /**
+     * Create a verification context for the given public key.
+     *
+     * @param key the public key signatures will be checked against.
+     */
+    public ECDSAVerificationContext(ECPublicKeyParameters key)
+    {
+        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties("ECDSA", key, false));
+
+        ECDomainParameters ec = key.getParameters();
+        ECPoint G = ec.getG();
+        ECPoint Q = ec.getCurve().importPoint(key.getQ()).normalize();
+
+        WNafUtil.configureBasepoint(G);
+        WNafUtil.configureBasepoint(Q);
+        FixedPointUtil.precompute(G);
+        FixedPointUtil.precompute(Q);
+
+        this.key = new ECPublicKeyParameters(Q, ec);
+    }
+
+    /**
+     * Return the canonical public key this context verifies against. Passing this, rather than a freshly
+     * decoded key, to {@link ECDSASigner#init(boolean, org.bouncycastle.crypto.CipherParameters)} lets
+     * the signer share this context's precomputation.
+     *
+     * @return the canonical public key.
+     */
+    public ECPublicKeyParameters getPublicKey()
+    {
+        return key;
+    }
+
+    /**
+     * Verify a single signature, as for {@link ECDSASigner#verifySignature(byte[], BigInteger, BigInteger)}.
+     *
+     * @param message the message (normally a hash of the real message) that was signed.
+     * @param r the r value of the signature.
+     * @param s the s value of the signature.
+     * @return true if the signature is valid, false otherwise.
+     */
+    public boolean verifySignature(byte[] message, BigInteger r, BigInteger s)
+    {
+        BigInteger n = key.getParameters().getN();
+
+        if (!isInRange(r, n) || !isInRange(s, n))
+        {
+            return false;
+        }
+
+        BigInteger c = BigIntegers.modOddInverseVar(n, s);
+
+        return helper.checkSignaturePoint(calculatePoint(message, r, c), r, n);
+    }
+
+    /**
+     * Verify a batch of signatures. The modular inversions of the s values are shared across the whole
+     * batch, and where the curve's coordinate system doesn't allow the final x coordinate check to be
+     * made projectively, the computed points are also normalized together.
+     *
+     * @param messages the messages (normally hashes of the real messages) that were signed.
+     * @param rs the r values of the corresponding signatures.
+     * @param ss the s values of the corresponding signatures.
+     * @param results if non-null, receives the verification result for each signature.
+     * @return true if every signature in the batch is valid, otherwise false.
+     */
+    public boolean verifyBatch(byte[][] messages, BigInteger[] rs, BigInteger[] ss, boolean[] results)
+    {
+        int count = messages.length;
+        if (rs.length != count || ss.length != count || (results != null && results.length < count))
+        {
+            throw new IllegalArgumentException("batch arrays must have matching lengths");
+        }
+
+        ECDomainParameters ec = key.getParameters();
+        BigInteger n = ec.getN();
+
+        // Filter out-of-range values, then invert the remaining s values with a single modular inversion
+        boolean[] valid = new boolean[count];
+        BigInteger[] cs = new BigInteger[count];
+        int validCount = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            if (isInRange(rs[i], n) && isInRange(ss[i], n))
+            {
+                valid[i] = true;
+                cs[validCount++] = ss[i];
+            }
+        }
+
+        if (validCount > 0)
+        {
+            invertAll(n, cs, validCount);
+        }
+
+        ECPoint[] points = new ECPoint[count];
+        for (int i = 0, j = 0; i < count; ++i)
+        {
+            if (valid[i])
+            {
+                points[i] = calculatePoint(messages[i], rs[i], cs[j++]);
+            }
+        }
+
+        ECCurve curve = ec.getCurve();
+        if (needsNormalization(curve))
+        {
+            curve.normalizeAll(points);
+        }
+
+        boolean all = true;
+        for (int i = 0; i < count; ++i)
+        {
+            boolean ok = valid[i] && helper.checkSignaturePoint(points[i], rs[i], n);
+
+            all &= ok;
+            if (results != null)
+            {
+                results[i] = ok;
+            }
+        }
+        return all;
+    }
+
+    private ECPoint calculatePoint(byte[] message, BigInteger r, BigInteger c)
+    {
+        ECDomainParameters ec = key.getParameters();
+        BigInteger n = ec.getN();
+        BigInteger e = helper.calculateE(n, message);
+
+        BigInteger u1 = e.multiply(c).mod(n);
+        BigInteger u2 = r.multiply(c).mod(n);
+
+        return ECAlgorithms.sumOfTwoMultiplies(ec.getG(), u1, key.getQ(), u2);
+    }
+
+    private boolean needsNormalization(ECCurve curve)
+    {
+        // Mirrors the conditions under which ECDSASigner can check the x coordinate projectively
+        BigInteger cofactor = curve.getCofactor();
+        if (cofactor == null || cofactor.compareTo(EIGHT) > 0)
+        {
+            return true;
+        }
+
+        switch (curve.getCoordinateSystem())
+        {
+        case ECCurve.COORD_HOMOGENEOUS:
+        case ECCurve.COORD_LAMBDA_PROJECTIVE:
+        case ECCurve.COORD_SKEWED:
+        case ECCurve.COORD_JACOBIAN:
+        case ECCurve.COORD_JACOBIAN_CHUDNOVSKY:
+        case ECCurve.COORD_JACOBIAN_MODIFIED:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private static boolean isInRange(BigInteger x, BigInteger n)
+    {
+        return x != null && x.compareTo(ONE) >= 0 && x.compareTo(n) < 0;
+    }
+
+    /*
+     * Montgomery's trick: invert len values modulo (prime) n with a single modular inversion.
+     */
+    private static void invertAll(BigInteger n, BigInteger[] xs, int len)
+    {
+        BigInteger[] c = new BigInteger[len];
+        c[0] = xs[0];
+
+        int i = 0;
+        while (++i < len)
+        {
+            c[i] = c[i - 1].multiply(xs[i]).mod(n);
+        }
+
+        BigInteger u = BigIntegers.modOddInverseVar(n, c[--i]);
+
+        while (i > 0)
+        {
+            BigInteger tmp = xs[i];
+            xs[i] = c[i - 1].multiply(u).mod(n);
+            u = u.multiply(tmp).mod(n);
+            --i;
+        }
+
+        xs[0] = u;
+    }
+}
@@ -11,6 +11,9 @@
 
 public class ECAlgorithms
 {
+    // At this many points, Pippenger's bucket method beats interleaved WNAF
+    private static final int PIPPENGER_MIN_POINTS = 256;
+
     public static boolean isF2mCurve(ECCurve c)
     {
         return isF2mField(c.getField());
@@ -60,6 +63,11 @@ public static ECPoint sumOfMultiplies(ECPoint[] ps, BigInteger[] ks)
             imported[i] = importPoint(c, ps[i]);
         }
 
+        if (count >= PIPPENGER_MIN_POINTS)
+        {
+            return implCheckResult(PippengerMultiplier.implSumOfMultiplies(imported, ks));
+        }
+
         ECEndomorphism endomorphism = c.getEndomorphism();
         if (endomorphism instanceof GLVEndomorphism)
         {
@@ -0,0 +1,327 @@
+package org.bouncycastle.math.ec;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.math.raw.Nat;
+
+/**
+ * Class implementing Pippenger's "bucket" method for multi-scalar multiplication, i.e. calculating
+ * k<sub>0</sub>P<sub>0</sub> + k<sub>1</sub>P<sub>1</sub> + ... for many points at once.
+ * <p>
+ * The scalars are recoded into signed base-2<sup>c</sup> digits. Working from the most significant digit
+ * position down, each point is added into the bucket for its digit at that position, then the buckets are
+ * combined as 1.B<sub>1</sub> + 2.B<sub>2</sub> + ... using only additions, so the total cost grows roughly
+ * as n / log(n) additions per point. The input points are normalized together first (a single field
+ * inversion, via {@link ECAlgorithms#montgomeryTrick(ECFieldElement[], int, int)}), so that bucket
+ * additions can use the cheaper mixed formulae where the curve's coordinate system has them.
+ * <p>
+ * This is variable-time, and is intended for use with public data (such as in signature verification).
+ */
+public class PippengerMultiplier extends AbstractECMultiplier
+{
+    /**
+     * Calculate the sum of the products ks[i] * ps[i].
+     *
+     * @param ps the points, which must all be on the same curve.
+     * @param ks the corresponding scalars.
+     * @return the sum of the ks[i] * ps[i].
+     */
+    public ECPoint sumOfMultiplies(ECPoint[] ps, BigInteger[] ks)
+    {
+        if (ps == null || ks == null || ps.length != ks.length || ps.length < 1)
+        {
+            throw new IllegalArgumentException("point and scalar arrays should be non-null, and of equal, non-zero, length");
+        }
+
+        int count = ps.length;
+        ECCurve c = ps[0].getCurve();
+
+        ECPoint[] imported = new ECPoint[count];
+        imported[0] = ps[0];
+        for (int i = 1; i < count; ++i)
+        {
+            imported[i] = ECAlgorithms.importPoint(c, ps[i]);
+        }
+
+        return checkResult(implSumOfMultiplies(imported, ks));
+    }
+
+    protected ECPoint multiplyPositive(ECPoint p, BigInteger k)
+    {
+        return implSumOfMultiplies(new ECPoint[]{ p }, new BigInteger[]{ k });
+    }
+
+    /**
+     * Choose the window width that minimises the approximate number of point additions: for each of the
+     * (bits / width) windows, one addition per point plus two per bucket to combine the buckets.
+     */
+    static int getWindowWidth(int count, int bits)
+    {
+        int width = 2;
+        long bestCost = Long.MAX_VALUE;
+        for (int w = 2; w <= 16; ++w)
+        {
+            long cost = (long)((bits + w + 1) / w) * (count + (1L << w));
+            if (cost < bestCost)
+            {
+                bestCost = cost;
+                width = w;
+            }
+        }
+        return width;
+    }
+
+    static ECPoint implSumOfMultiplies(ECPoint[] ps, BigInteger[] ks)
+    {
+        int count = ps.length;
+        ECCurve curve = ps[0].getCurve();
+        ECPoint infinity = curve.getInfinity();
+
+        int bits = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            bits = Math.max(bits, ks[i].bitLength());
+        }
+        if (bits == 0)
+        {
+            return infinity;
+        }
+
+        int width = getWindowWidth(count, bits);
+        int windows = (bits + width + 1) / width;
+        int bucketCount = 1 << (width - 1);
+
+        int[] digits = new int[count * windows];
+        for (int i = 0; i < count; ++i)
+        {
+            BigInteger k = ks[i];
+            int[] n = Nat.fromBigInteger(bits, k.abs());
+            generateSignedDigits(n, width, windows, k.signum() < 0, digits, i * windows);
+        }
+
+        ECPoint[] pos = new ECPoint[count];
+        System.arraycopy(ps, 0, pos, 0, count);
+        curve.normalizeAll(pos);
+
+        ECPoint[] neg = new ECPoint[count];
+        for (int i = 0; i < count; ++i)
+        {
+            neg[i] = pos[i].negate();
+        }
+
+        AffineBuckets affine = ECAlgorithms.isFpCurve(curve) ? new AffineBuckets(curve, bucketCount, count) : null;
+        ECPoint[] buckets = new ECPoint[bucketCount];
+        ECPoint R = infinity;
+        int zeroes = 0;
+
+        for (int w = windows - 1; w >= 0; --w)
+        {
+            boolean any;
+            if (affine != null)
+            {
+                any = affine.fill(pos, neg, digits, windows, w, buckets);
+            }
+            else
+            {
+                any = fill(pos, neg, digits, windows, w, buckets, infinity);
+            }
+
+            if (any)
+            {
+                // 1.B_1 + 2.B_2 + ..., via running sums from the top bucket down
+                ECPoint running = infinity, sum = infinity;
+                for (int j = bucketCount - 1; j >= 0; --j)
+                {
+                    running = running.add(buckets[j]);
+                    sum = sum.add(running);
+                }
+
+                R = R.timesPow2(zeroes).add(sum);
+                zeroes = 0;
+            }
+
+            if (w > 0)
+            {
+                zeroes += width;
+            }
+        }
+
+        return R.timesPow2(zeroes);
+    }
+
+    private static boolean fill(ECPoint[] pos, ECPoint[] neg, int[] digits, int windows, int w, ECPoint[] buckets,
+        ECPoint infinity)
+    {
+        for (int j = 0; j < buckets.length; ++j)
+        {
+            buckets[j] = infinity;
+        }
+
+        boolean any = false;
+        for (int i = 0; i < pos.length; ++i)
+        {
+            int digit = digits[i * windows + w];
+            if (digit != 0)
+            {
+                int index = Math.abs(digit) - 1;
+                buckets[index] = buckets[index].add(digit < 0 ? neg[i] : pos[i]);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    private static void generateSignedDigits(int[] n, int width, int windows, boolean negate, int[] ds, int dsOff)
+    {
+        int half = 1 << (width - 1), mask = (1 << width) - 1, carry = 0;
+
+        for (int w = 0; w < windows; ++w)
+        {
+            int bit = w * width, word = bit >>> 5, shift = bit & 31;
+
+            int v = 0;
+            if (word < n.length)
+            {
+                v = n[word] >>> shift;
+                if (shift + width > 32 && word + 1 < n.length)
+                {
+                    v |= n[word + 1] << (32 - shift);
+                }
+            }
+
+            v = (v & mask) + carry;
+            carry = (v + half) >>> width;
+
+            int digit = v - (carry << width);
+            ds[dsOff + w] = negate ? -digit : digit;
+        }
+    }
+
+    /**
+     * Bucket filling for prime field curves, with the buckets held in affine coordinates. The additions into
+     * the buckets are done in rounds, each round adding at most one point into each bucket, so that all the
+     * field inversions for a round can be shared via
+     * {@link ECAlgorithms#montgomeryTrick(ECFieldElement[], int, int)}. An affine addition then costs about
+     * 6 multiplications, compared to about 11 for a mixed Jacobian-affine addition.
+     */
+    private static class AffineBuckets
+    {
+        private final ECCurve curve;
+        private final ECFieldElement[] bx, by;
+        private final int[] busy;
+        private final int[] pending, deferred;
+        private final int[] batchPoint, batchBucket;
+        private final ECFieldElement[] batchInv;
+        private int round;
+
+        AffineBuckets(ECCurve curve, int bucketCount, int count)
+        {
+            this.curve = curve;
+            this.bx = new ECFieldElement[bucketCount];
+            this.by = new ECFieldElement[bucketCount];
+            this.busy = new int[bucketCount];
+            this.pending = new int[count];
+            this.deferred = new int[count];
+            this.batchPoint = new int[Math.min(count, bucketCount)];
+            this.batchBucket = new int[batchPoint.length];
+            this.batchInv = new ECFieldElement[batchPoint.length];
+        }
+
+        boolean fill(ECPoint[] pos, ECPoint[] neg, int[] digits, int windows, int w, ECPoint[] buckets)
+        {
+            int bucketCount = bx.length;
+            for (int j = 0; j < bucketCount; ++j)
+            {
+                bx[j] = null;
+                by[j] = null;
+            }
+
+            int pendingCount = 0;
+            for (int i = 0; i < pos.length; ++i)
+            {
+                if (digits[i * windows + w] != 0 && !pos[i].isInfinity())
+                {
+                    pending[pendingCount++] = i;
+                }
+            }
+
+            if (pendingCount == 0)
+            {
+                return false;
+            }
+
+            int[] queue = pending, next = deferred;
+            while (pendingCount > 0)
+            {
+                ++round;
+
+                int batchCount = 0, nextCount = 0;
+                for (int q = 0; q < pendingCount; ++q)
+                {
+                    int i = queue[q];
+                    int digit = digits[i * windows + w];
+                    int index = Math.abs(digit) - 1;
+                    ECPoint p = digit < 0 ? neg[i] : pos[i];
+
+                    if (busy[index] == round)
+                    {
+                        next[nextCount++] = i;
+                        continue;
+                    }
+
+                    ECFieldElement x = p.getXCoord(), y = p.getYCoord();
+                    if (bx[index] == null)
+                    {
+                        bx[index] = x;
+                        by[index] = y;
+                        continue;
+                    }
+
+                    ECFieldElement dx = x.subtract(bx[index]);
+                    if (dx.isZero())
+                    {
+                        // Doubling or cancellation; rare enough to just use the point formulae
+                        ECPoint b = curve.createRawPoint(bx[index], by[index]).add(p).normalize();
+                        bx[index] = b.isInfinity() ? null : b.getXCoord();
+                        by[index] = b.isInfinity() ? null : b.getYCoord();
+                        continue;
+                    }
+
+                    busy[index] = round;
+                    batchPoint[batchCount] = digit < 0 ? ~i : i;
+                    batchBucket[batchCount] = index;
+                    batchInv[batchCount++] = dx;
+                }
+
+                if (batchCount > 0)
+                {
+                    ECAlgorithms.montgomeryTrick(batchInv, 0, batchCount);
+
+                    for (int j = 0; j < batchCount; ++j)
+                    {
+                        int i = batchPoint[j], index = batchBucket[j];
+                        ECPoint p = i < 0 ? neg[~i] : pos[i];
+
+                        ECFieldElement x1 = bx[index], y1 = by[index];
+                        ECFieldElement L = p.getYCoord().subtract(y1).multiply(batchInv[j]);
+                        ECFieldElement x3 = L.square().subtract(x1).subtract(p.getXCoord());
+                        ECFieldElement y3 = L.multiply(x1.subtract(x3)).subtract(y1);
+
+                        bx[index] = x3;
+                        by[index] = y3;
+                    }
+                }
+
+                int[] t = queue; queue = next; next = t;
+                pendingCount = nextCount;
+            }
+
+            ECPoint infinity = curve.getInfinity();
+            for (int j = 0; j < bucketCount; ++j)
+            {
+                buckets[j] = bx[j] == null ? infinity : curve.createRawPoint(bx[j], by[j]);
+            }
+            return true;
+        }
+    }
+}
@@ -2,6 +2,7 @@
 
 import java.security.SecureRandom;
 
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.math.ec.rfc7748.X25519;
@@ -89,6 +90,9 @@ private static class F extends X25519Field {};
     private static final int WNAF_WIDTH_128 = 4;
     private static final int WNAF_WIDTH_BASE = 6;
 
+    // Below this many signatures, verifyBatch just verifies each one separately
+    private static final int BATCH_MIN = 16;
+
     // scalarMultBase is hard-coded for these values of blocks, teeth, spacing so they can't be freely changed
     private static final int PRECOMP_BLOCKS = 8;
     private static final int PRECOMP_TEETH = 4;
@@ -646,6 +650,190 @@ private static boolean implVerify(byte[] sig, int sigOff, PublicPoint publicPoin
         return normalizeToNeutralElementVar(pZ);
     }
 
+    private static boolean implVerifyBatch(byte[][] sigs, byte[][] pks, PublicPoint[] publicPoints, byte[] ctx,
+        byte phflag, byte[][] ms, boolean[] results)
+    {
+        if (!checkContextVar(ctx, phflag))
+        {
+            throw new IllegalArgumentException("ctx");
+        }
+
+        int count = sigs.length;
+        if (ms.length != count || (pks != null ? pks.length : publicPoints.length) != count
+            || (results != null && results.length < count))
+        {
+            throw new IllegalArgumentException("batch arrays must have matching lengths");
+        }
+
+        boolean[] valid = new boolean[count];
+
+        if (count < BATCH_MIN)
+        {
+            return implVerifyEach(sigs, pks, publicPoints, ctx, phflag, ms, null, results);
+        }
+
+        /*
+         * Each signature is checked as in implVerify, but instead of each equation being tested separately, a
+         * random linear combination of them (with 127-bit multipliers z_i) is tested in one go:
+         *
+         *   [8]([sum(z_i.S_i)]B - sum([z_i.k_i]A_i) - sum([z_i]R_i)) == 0
+         *
+         * Inputs that fail the encoding checks are rejected immediately and left out of the batch.
+         */
+        SecureRandom random = CryptoServicesRegistrar.getSecureRandom();
+        Digest d = createDigest();
+        byte[] h = new byte[64];
+        byte[] zBytes = new byte[16];
+
+        PointAffine[] points = new PointAffine[count * 2];
+        int[][] scalars = new int[count * 2][];
+        int[] sumS = new int[SCALAR_INTS];
+        int pointCount = 0;
+
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] R = copy(sigs[i], 0, POINT_BYTES);
+            byte[] S = copy(sigs[i], POINT_BYTES, SCALAR_BYTES);
+
+            if (!checkPointVar(R))
+            {
+                continue;
+            }
+
+            int[] nS = new int[SCALAR_INTS];
+            if (!Scalar25519.checkVar(S, nS))
+            {
+                continue;
+            }
+
+            byte[] A;
+            PointAffine pA = new PointAffine();
+            if (pks != null)
+            {
+                A = copy(pks[i], 0, PUBLIC_KEY_SIZE);
+
+                if (!checkPointFullVar(A))
+                {
+                    continue;
+                }
+            }
+            else
+            {
+                F.negate(publicPoints[i].data, pA.x);
+                F.copy(publicPoints[i].data, F.SIZE, pA.y, 0);
+
+                A = new byte[PUBLIC_KEY_SIZE];
+                encodePublicPoint(publicPoints[i], A, 0);
+            }
+
+            PointAffine pR = new PointAffine();
+            if (!decodePointVar(R, true, pR))
+            {
+                continue;
+            }
+
+            if (pks != null && !decodePointVar(A, true, pA))
+            {
+                continue;
+            }
+
+            if (ctx != null)
+            {
+                dom2(d, phflag, ctx);
+            }
+            d.update(R, 0, POINT_BYTES);
+            d.update(A, 0, POINT_BYTES);
+            d.update(ms[i], 0, ms[i].length);
+            d.doFinal(h, 0);
+
+            byte[] k = Scalar25519.reduce512(h);
+
+            int[] nA = new int[SCALAR_INTS];
+            Scalar25519.decode(k, nA);
+
+            int[] z = new int[4];
+            random.nextBytes(zBytes);
+            Codec.decode32(zBytes, 0, z, 0, 4);
+            z[3] &= 0x7FFFFFFF;
+
+            Scalar25519.multiply128Var(nS, z, nS);
+            Scalar25519.addVar(sumS, nS, sumS);
+            Scalar25519.multiply128Var(nA, z, nA);
+
+            points[pointCount] = pA;
+            scalars[pointCount++] = nA;
+            points[pointCount] = pR;
+            scalars[pointCount++] = z;
+
+            valid[i] = true;
+        }
+
+        if (pointCount > 0)
+        {
+            PointAccum pZ = new PointAccum();
+            scalarMultMultiVar(pointCount, scalars, points, pZ);
+
+            byte[] s = new byte[SCALAR_BYTES];
+            Codec.encode32(sumS, 0, SCALAR_INTS, s, 0);
+
+            PointAccum pB = new PointAccum();
+            scalarMultBase(s, pB);
+
+            PointExtended e = new PointExtended();
+            PointPrecompZ q = new PointPrecompZ();
+            pointCopy(pB, e);
+            pointCopy(e, q);
+            pointAddVar(false, q, pZ, new PointTemp());
+
+            // NOTE: Clears the cofactor of 8
+            pointDouble(pZ);
+            pointDouble(pZ);
+            pointDouble(pZ);
+
+            if (!normalizeToNeutralElementVar(pZ))
+            {
+                // At least one signature in the batch is bad; find out which
+                return implVerifyEach(sigs, pks, publicPoints, ctx, phflag, ms, valid, results);
+            }
+        }
+
+        boolean all = true;
+        for (int i = 0; i < count; ++i)
+        {
+            all &= valid[i];
+        }
+        if (results != null)
+        {
+            System.arraycopy(valid, 0, results, 0, count);
+        }
+        return all;
+    }
+
+    private static boolean implVerifyEach(byte[][] sigs, byte[][] pks, PublicPoint[] publicPoints, byte[] ctx,
+        byte phflag, byte[][] ms, boolean[] candidates, boolean[] results)
+    {
+        int count = sigs.length;
+
+        boolean all = true;
+        for (int i = 0; i < count; ++i)
+        {
+            boolean ok = false;
+            if (candidates == null || candidates[i])
+            {
+                ok = pks != null
+                    ?   implVerify(sigs[i], 0, pks[i], 0, ctx, phflag, ms[i], 0, ms[i].length)
+                    :   implVerify(sigs[i], 0, publicPoints[i], ctx, phflag, ms[i], 0, ms[i].length);
+            }
+
+            all &= ok;
+            if (results != null)
+            {
+                results[i] = ok;
+            }
+        }
+        return all;
+    }
+
     private static void invertDoubleZs(PointExtended[] points)
     {
         int count = points.length;
@@ -1017,6 +1205,14 @@ private static void pointSetNeutral(PointAccum p)
         F.one(p.v);
     }
 
+    private static void pointSetNeutral(PointExtended p)
+    {
+        F.zero(p.x);
+        F.one(p.y);
+        F.one(p.z);
+        F.zero(p.t);
+    }
+
     public static void precompute()
     {
         synchronized (PRECOMP_LOCK)
@@ -1307,6 +1503,144 @@ public static void scalarMultBaseYZ(X25519.Friend friend, byte[] k, int kOff, in
         F.copy(p.z, 0, z, 0);
     }
 
+    private static int getPippengerWidth(int count)
+    {
+        // Each window costs an addition per point, plus two per bucket to sum the buckets
+        int width = 2;
+        long bestCost = Long.MAX_VALUE;
+        for (int c = 2; c <= 16; ++c)
+        {
+            long cost = (long)((256 + c - 1) / c) * (count + (1 << c));
+            if (cost < bestCost)
+            {
+                bestCost = cost;
+                width = c;
+            }
+        }
+        return width;
+    }
+
+    private static void getSignedDigitsVar(int[] n, int width, int windows, int[] ds, int dsOff)
+    {
+        int half = 1 << (width - 1), mask = (1 << width) - 1, carry = 0;
+
+        for (int w = 0; w < windows; ++w)
+        {
+            int bit = w * width, word = bit >>> 5, shift = bit & 31;
+
+            int v = 0;
+            if (word < n.length)
+            {
+                v = n[word] >>> shift;
+                if (shift + width > 32 && word + 1 < n.length)
+                {
+                    v |= n[word + 1] << (32 - shift);
+                }
+            }
+
+            v = (v & mask) + carry;
+            carry = (v + half) >>> width;
+            ds[dsOff + w] = v - (carry << width);
+        }
+
+//        assert carry == 0;
+    }
+
+    private static void scalarMultMultiVar(int count, int[][] ns, PointAffine[] ps, PointAccum r)
+    {
+//        assert each ns[i] is a reduced scalar (less than 2^253)
+
+        /*
+         * Pippenger's bucket method: the scalars are recoded into signed base-2^c digits, and for each digit
+         * position (from the most significant down), the points are sorted into buckets by their digit, after
+         * which the buckets are summed as sum(j.bucket_j) using only additions.
+         */
+        int width = getPippengerWidth(count);
+        int windows = (256 + width - 1) / width;
+        int bucketCount = 1 << (width - 1);
+
+        int[] ds = new int[count * windows];
+        PointPrecompZ[] qs = new PointPrecompZ[count];
+        PointExtended e = new PointExtended();
+
+        for (int i = 0; i < count; ++i)
+        {
+            getSignedDigitsVar(ns[i], width, windows, ds, i * windows);
+
+            qs[i] = new PointPrecompZ();
+            pointCopy(ps[i], e);
+            pointCopy(e, qs[i]);
+        }
+
+        PointAccum[] buckets = new PointAccum[bucketCount];
+        for (int j = 0; j < bucketCount; ++j)
+        {
+            buckets[j] = new PointAccum();
+        }
+        boolean[] used = new boolean[bucketCount];
+
+        PointExtended running = new PointExtended(), sum = new PointExtended();
+        PointPrecompZ q = new PointPrecompZ();
+        PointTemp t = new PointTemp();
+
+        pointSetNeutral(r);
+
+        for (int w = windows - 1; w >= 0; --w)
+        {
+            if (w < windows - 1)
+            {
+                for (int j = 0; j < width; ++j)
+                {
+                    pointDouble(r);
+                }
+            }
+
+            boolean any = false;
+            for (int i = 0; i < count; ++i)
+            {
+                int digit = ds[i * windows + w];
+                if (digit != 0)
+                {
+                    int index = (digit ^ (digit >> 31)) - (digit >> 31) - 1;
+                    if (!used[index])
+                    {
+                        pointSetNeutral(buckets[index]);
+                        used[index] = true;
+                    }
+                    pointAddVar(digit < 0, qs[i], buckets[index], t);
+                    any = true;
+                }
+            }
+
+            if (!any)
+            {
+                continue;
+            }
+
+            // sum = 1.bucket_0 + 2.bucket_1 + ..., via running sums from the top bucket down
+            pointSetNeutral(running);
+            pointSetNeutral(sum);
+            boolean started = false;
+            for (int j = bucketCount - 1; j >= 0; --j)
+            {
+                if (used[j])
+                {
+                    pointCopy(buckets[j], e);
+                    pointAdd(running, e, running, t);
+                    used[j] = false;
+                    started = true;
+                }
+                if (started)
+                {
+                    pointAdd(sum, running, sum, t);
+                }
+            }
+
+            pointCopy(sum, q);
+            pointAddVar(false, q, r, t);
+        }
+    }
+
     private static void scalarMultOrderVar(PointAffine p, PointAccum r)
     {
         byte[] ws_p = new byte[253];
@@ -1589,6 +1923,51 @@ public static boolean verify(byte[] sig, int sigOff, PublicPoint publicPoint, by
         return implVerify(sig, sigOff, publicPoint, ctx, phflag, m, mOff, mLen);
     }
 
+    /**
+     * Verify a batch of Ed25519 signatures, each over a complete message. This is considerably faster than
+     * verifying the signatures one at a time, particularly for large batches.
+     * <p>
+     * The signatures are checked together using a randomized linear combination of the verification
+     * equations. Should the batch as a whole fail, each signature is then re-checked individually.
+     * </p>
+     *
+     * @param sigs the signatures.
+     * @param pks the corresponding public keys.
+     * @param ms the corresponding messages.
+     * @param results if non-null, receives the verification result for each signature.
+     * @return true if every signature in the batch is valid, otherwise false.
+     */
+    public static boolean verifyBatch(byte[][] sigs, byte[][] pks, byte[][] ms, boolean[] results)
+    {
+        byte[] ctx = null;
+        byte phflag = 0x00;
+
+        return implVerifyBatch(sigs, pks, null, ctx, phflag, ms, results);
+    }
+
+    public static boolean verifyBatch(byte[][] sigs, PublicPoint[] publicPoints, byte[][] ms, boolean[] results)
+    {
+        byte[] ctx = null;
+        byte phflag = 0x00;
+
+        return implVerifyBatch(sigs, null, publicPoints, ctx, phflag, ms, results);
+    }
+
+    public static boolean verifyBatch(byte[][] sigs, byte[][] pks, byte[] ctx, byte[][] ms, boolean[] results)
+    {
+        byte phflag = 0x00;
+
+        return implVerifyBatch(sigs, pks, null, ctx, phflag, ms, results);
+    }
+
+    public static boolean verifyBatch(byte[][] sigs, PublicPoint[] publicPoints, byte[] ctx, byte[][] ms,
+        boolean[] results)
+    {
+        byte phflag = 0x00;
+
+        return implVerifyBatch(sigs, null, publicPoints, ctx, phflag, ms, results);
+    }
+
     public static boolean verifyPrehash(byte[] sig, int sigOff, byte[] pk, int pkOff, byte[] ctx, byte[] ph, int phOff)
     {
         byte phflag = 0x01;
@@ -2,6 +2,7 @@
 
 import java.security.SecureRandom;
 
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.Xof;
 import org.bouncycastle.crypto.digests.SHAKEDigest;
 import org.bouncycastle.math.ec.rfc7748.X448;
@@ -76,6 +77,9 @@ private static class F extends X448Field {};
     private static final int WNAF_WIDTH_225 = 5;
     private static final int WNAF_WIDTH_BASE = 7;
 
+    // Below this many signatures, verifyBatch just verifies each one separately
+    private static final int BATCH_MIN = 24;
+
     // scalarMultBase supports varying blocks, teeth, spacing so long as their product is in range [449, 479]
     private static final int PRECOMP_BLOCKS = 5;
     private static final int PRECOMP_TEETH = 5;
@@ -587,6 +591,181 @@ private static boolean implVerify(byte[] sig, int sigOff, PublicPoint publicPoin
         return normalizeToNeutralElementVar(pZ);
     }
 
+    private static boolean implVerifyBatch(byte[][] sigs, byte[][] pks, PublicPoint[] publicPoints, byte[] ctx,
+        byte phflag, byte[][] ms, boolean[] results)
+    {
+        if (!checkContextVar(ctx))
+        {
+            throw new IllegalArgumentException("ctx");
+        }
+
+        int count = sigs.length;
+        if (ms.length != count || (pks != null ? pks.length : publicPoints.length) != count
+            || (results != null && results.length < count))
+        {
+            throw new IllegalArgumentException("batch arrays must have matching lengths");
+        }
+
+        if (count < BATCH_MIN)
+        {
+            return implVerifyEach(sigs, pks, publicPoints, ctx, phflag, ms, null, results);
+        }
+
+        /*
+         * Each signature is checked as in implVerify, but instead of each equation being tested separately, a
+         * random linear combination of them (with 128-bit multipliers z_i) is tested in one go:
+         *
+         *   [4]([sum(z_i.S_i)]B - sum([z_i.k_i]A_i) - sum([z_i]R_i)) == 0
+         *
+         * Inputs that fail the encoding checks are rejected immediately and left out of the batch.
+         */
+        SecureRandom random = CryptoServicesRegistrar.getSecureRandom();
+        Xof d = createXof();
+        byte[] h = new byte[SCALAR_BYTES * 2];
+        byte[] zBytes = new byte[16];
+
+        boolean[] valid = new boolean[count];
+        PointAffine[] points = new PointAffine[count * 2];
+        int[][] scalars = new int[count * 2][];
+        int[] sumS = new int[SCALAR_INTS];
+        int pointCount = 0;
+
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] R = copy(sigs[i], 0, POINT_BYTES);
+            byte[] S = copy(sigs[i], POINT_BYTES, SCALAR_BYTES);
+
+            if (!checkPointVar(R))
+            {
+                continue;
+            }
+
+            int[] nS = new int[SCALAR_INTS];
+            if (!Scalar448.checkVar(S, nS))
+            {
+                continue;
+            }
+
+            byte[] A;
+            PointAffine pA = new PointAffine();
+            if (pks != null)
+            {
+                A = copy(pks[i], 0, PUBLIC_KEY_SIZE);
+
+                if (!checkPointFullVar(A))
+                {
+                    continue;
+                }
+            }
+            else
+            {
+                F.negate(publicPoints[i].data, pA.x);
+                F.copy(publicPoints[i].data, F.SIZE, pA.y, 0);
+
+                A = new byte[PUBLIC_KEY_SIZE];
+                encodePublicPoint(publicPoints[i], A, 0);
+            }
+
+            PointAffine pR = new PointAffine();
+            if (!decodePointVar(R, true, pR))
+            {
+                continue;
+            }
+
+            if (pks != null && !decodePointVar(A, true, pA))
+            {
+                continue;
+            }
+
+            dom4(d, phflag, ctx);
+            d.update(R, 0, POINT_BYTES);
+            d.update(A, 0, POINT_BYTES);
+            d.update(ms[i], 0, ms[i].length);
+            d.doFinal(h, 0, h.length);
+
+            byte[] k = Scalar448.reduce912(h);
+
+            int[] nA = new int[SCALAR_INTS];
+            Scalar448.decode(k, nA);
+
+            int[] z = new int[8];
+            random.nextBytes(zBytes);
+            Codec.decode32(zBytes, 0, z, 0, 4);
+
+            Scalar448.multiply225Var(nS, z, nS);
+            Scalar448.addVar(sumS, nS, sumS);
+            Scalar448.multiply225Var(nA, z, nA);
+
+            points[pointCount] = pA;
+            scalars[pointCount++] = nA;
+            points[pointCount] = pR;
+            scalars[pointCount++] = z;
+
+            valid[i] = true;
+        }
+
+        if (pointCount > 0)
+        {
+            PointProjective pZ = new PointProjective();
+            scalarMultMultiVar(pointCount, scalars, points, pZ);
+
+            byte[] s = new byte[SCALAR_BYTES];
+            Codec.encode32(sumS, 0, SCALAR_INTS, s, 0);
+
+            PointProjective pB = new PointProjective();
+            scalarMultBase(s, pB);
+
+            PointTemp t = new PointTemp();
+            pointAdd(pB, pZ, t);
+
+            // NOTE: Clears the cofactor of 4
+            pointDouble(pZ, t);
+            pointDouble(pZ, t);
+
+            if (!normalizeToNeutralElementVar(pZ))
+            {
+                // At least one signature in the batch is bad; find out which
+                return implVerifyEach(sigs, pks, publicPoints, ctx, phflag, ms, valid, results);
+            }
+        }
+
+        boolean all = true;
+        for (int i = 0; i < count; ++i)
+        {
+            all &= valid[i];
+        }
+        if (results != null)
+        {
+            System.arraycopy(valid, 0, results, 0, count);
+        }
+        return all;
+    }
+
+    private static boolean implVerifyEach(byte[][] sigs, byte[][] pks, PublicPoint[] publicPoints, byte[] ctx,
+        byte phflag, byte[][] ms, boolean[] candidates, boolean[] results)
+    {
+        int count = sigs.length;
+
+        boolean all = true;
+        for (int i = 0; i < count; ++i)
+        {
+            boolean ok = false;
+            if (candidates == null || candidates[i])
+            {
+                ok = pks != null
+                    ?   implVerify(sigs[i], 0, pks[i], 0, ctx, phflag, ms[i], 0, ms[i].length)
+                    :   implVerify(sigs[i], 0, publicPoints[i], ctx, phflag, ms[i], 0, ms[i].length);
+            }
+
+            all &= ok;
+            if (results != null)
+            {
+                results[i] = ok;
+            }
+        }
+        return all;
+    }
+
     private static void invertZs(PointProjective[] points)
     {
         int count = points.length;
@@ -1198,6 +1377,134 @@ public static void scalarMultBaseXY(X448.Friend friend, byte[] k, int kOff, int[
         F.copy(p.y, 0, y, 0);
     }
 
+    private static int getPippengerWidth(int count)
+    {
+        // Each window costs an addition per point, plus two per bucket to sum the buckets
+        int width = 2;
+        long bestCost = Long.MAX_VALUE;
+        for (int c = 2; c <= 16; ++c)
+        {
+            long cost = (long)((448 + c - 1) / c) * (count + (1 << c));
+            if (cost < bestCost)
+            {
+                bestCost = cost;
+                width = c;
+            }
+        }
+        return width;
+    }
+
+    private static void getSignedDigitsVar(int[] n, int width, int windows, int[] ds, int dsOff)
+    {
+        int half = 1 << (width - 1), mask = (1 << width) - 1, carry = 0;
+
+        for (int w = 0; w < windows; ++w)
+        {
+            int bit = w * width, word = bit >>> 5, shift = bit & 31;
+
+            int v = 0;
+            if (word < n.length)
+            {
+                v = n[word] >>> shift;
+                if (shift + width > 32 && word + 1 < n.length)
+                {
+                    v |= n[word + 1] << (32 - shift);
+                }
+            }
+
+            v = (v & mask) + carry;
+            carry = (v + half) >>> width;
+            ds[dsOff + w] = v - (carry << width);
+        }
+
+//        assert carry == 0;
+    }
+
+    private static void scalarMultMultiVar(int count, int[][] ns, PointAffine[] ps, PointProjective r)
+    {
+//        assert each ns[i] is a reduced scalar (less than 2^446)
+
+        /*
+         * Pippenger's bucket method: the scalars are recoded into signed base-2^c digits, and for each digit
+         * position (from the most significant down), the points are sorted into buckets by their digit, after
+         * which the buckets are summed as sum(j.bucket_j) using only additions.
+         */
+        int width = getPippengerWidth(count);
+        int windows = (448 + width - 1) / width;
+        int bucketCount = 1 << (width - 1);
+
+        int[] ds = new int[count * windows];
+        for (int i = 0; i < count; ++i)
+        {
+            getSignedDigitsVar(ns[i], width, windows, ds, i * windows);
+        }
+
+        PointProjective[] buckets = new PointProjective[bucketCount];
+        for (int j = 0; j < bucketCount; ++j)
+        {
+            buckets[j] = new PointProjective();
+        }
+        boolean[] used = new boolean[bucketCount];
+
+        PointProjective running = new PointProjective(), sum = new PointProjective();
+        PointTemp t = new PointTemp();
+
+        pointSetNeutral(r);
+
+        for (int w = windows - 1; w >= 0; --w)
+        {
+            if (w < windows - 1)
+            {
+                for (int j = 0; j < width; ++j)
+                {
+                    pointDouble(r, t);
+                }
+            }
+
+            boolean any = false;
+            for (int i = 0; i < count; ++i)
+            {
+                int digit = ds[i * windows + w];
+                if (digit != 0)
+                {
+                    int index = (digit ^ (digit >> 31)) - (digit >> 31) - 1;
+                    if (!used[index])
+                    {
+                        pointSetNeutral(buckets[index]);
+                        used[index] = true;
+                    }
+                    pointAddVar(digit < 0, ps[i], buckets[index], t);
+                    any = true;
+                }
+            }
+
+            if (!any)
+            {
+                continue;
+            }
+
+            // sum = 1.bucket_0 + 2.bucket_1 + ..., via running sums from the top bucket down
+            pointSetNeutral(running);
+            pointSetNeutral(sum);
+            boolean started = false;
+            for (int j = bucketCount - 1; j >= 0; --j)
+            {
+                if (used[j])
+                {
+                    pointAdd(buckets[j], running, t);
+                    used[j] = false;
+                    started = true;
+                }
+                if (started)
+                {
+                    pointAdd(running, sum, t);
+                }
+            }
+
+            pointAdd(sum, r, t);
+        }
+    }
+
     private static void scalarMultOrderVar(PointAffine p, PointProjective r)
     {
         byte[] ws_p = new byte[447];
@@ -1449,6 +1756,36 @@ public static boolean verify(byte[] sig, int sigOff, PublicPoint publicPoint, by
         return implVerify(sig, sigOff, publicPoint, ctx, phflag, m, mOff, mLen);
     }
 
+    /**
+     * Verify a batch of Ed448 signatures, each over a complete message. This is considerably faster than
+     * verifying the signatures one at a time, particularly for large batches.
+     * <p>
+     * The signatures are checked together using a randomized linear combination of the verification
+     * equations. Should the batch as a whole fail, each signature is then re-checked individually.
+     * </p>
+     *
+     * @param sigs the signatures.
+     * @param pks the corresponding public keys.
+     * @param ctx the context, common to the whole batch.
+     * @param ms the corresponding messages.
+     * @param results if non-null, receives the verification result for each signature.
+     * @return true if every signature in the batch is valid, otherwise false.
+     */
+    public static boolean verifyBatch(byte[][] sigs, byte[][] pks, byte[] ctx, byte[][] ms, boolean[] results)
+    {
+        byte phflag = 0x00;
+
+        return implVerifyBatch(sigs, pks, null, ctx, phflag, ms, results);
+    }
+
+    public static boolean verifyBatch(byte[][] sigs, PublicPoint[] publicPoints, byte[] ctx, byte[][] ms,
+        boolean[] results)
+    {
+        byte phflag = 0x00;
+
+        return implVerifyBatch(sigs, null, publicPoints, ctx, phflag, ms, results);
+    }
+
     public static boolean verifyPrehash(byte[] sig, int sigOff, byte[] pk, int pkOff, byte[] ctx, byte[] ph, int phOff)
     {
         byte phflag = 0x01;
@@ -40,6 +40,18 @@
     private static final int L4_6 = 0x08EEC492;     // L4_6:27/24
     private static final int L4_7 = 0x20CD7705;     // L4_7:29/24
 
+    static void addVar(int[] x, int[] y, int[] z)
+    {
+//        assert !Nat.gte(SIZE, x, L);
+//        assert !Nat.gte(SIZE, y, L);
+
+        Nat.add(SIZE, x, y, z);
+        if (Nat.gte(SIZE, z, L))
+        {
+            Nat.subFrom(SIZE, L, z);
+        }
+    }
+
     static boolean checkVar(byte[] s, int[] n)
     {
         if (s[SCALAR_BYTES - 1] != 0x00)
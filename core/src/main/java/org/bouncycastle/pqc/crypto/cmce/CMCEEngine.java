@@ -1,13 +1,19 @@
 package org.bouncycastle.pqc.crypto.cmce;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bouncycastle.crypto.Xof;
 import org.bouncycastle.crypto.digests.SHAKEDigest;
+import org.bouncycastle.pqc.crypto.util.ParallelJobs;
 import org.bouncycastle.util.Arrays;
 
 class CMCEEngine
 {
+    private static final int MAX_SEED_JOBS = 8;
+    private static final int STRIPE_WORDS = 4;
+
     private int SYS_N;       // = 3488;
     private int SYS_T;       // = 64;
     private int GFBITS;      // = 12;
@@ -118,7 +124,7 @@ public byte[] generate_public_key_from_private_key(byte[] sk)
         {
             perm[i] = Utils.load4(hash, hash_idx + i * 4);
         }
-        pk_gen(pk, sk, perm, pi, pivots);
+        pk_gen(pk, sk, perm, pi, pivots, null);
         return pk;
     }
 
@@ -178,7 +184,7 @@ public byte[] decompress_private_key(byte[] sk)
             if (usePivots)
             {
                 long[] pivots = {0};
-                pk_gen(null, reg_sk, perm, pi, pivots);
+                pk_gen(null, reg_sk, perm, pi, pivots, null);
             }
             else
             {
@@ -211,123 +217,198 @@ public byte[] decompress_private_key(byte[] sk)
 
     public void kem_keypair(byte[] pk, byte[] sk, SecureRandom random)
     {
+        kem_keypair(pk, sk, random, null);
+    }
 
+    /*
+     * If an executor is passed in, several seeds are tried at once, and the public key matrix is reduced
+     * in column stripes run as separate jobs. The seeds are still taken in order, so the key pair is the
+     * same as it would be without the executor.
+     */
+    public void kem_keypair(byte[] pk, byte[] sk, SecureRandom random, Executor executor)
+    {
         // 1. Generate a uniform random l-bit string δ. (This is called a seed.)
-        byte[] seed_a = new byte[1];
         byte[] seed_b = new byte[32];
-        seed_a[0] = 64;
         random.nextBytes(seed_b);
 
         //2. Output SeededKeyGen(δ).
-        // SeededKeyGen
-        byte[] E = new byte[(SYS_N / 8) + ((1 << GFBITS) * 4) + (SYS_T * 2) + 32];
-        int seedIndex, skIndex = 0;
-        byte[] prev_sk = seed_b;
-        long[] pivots = {0};
+        if (executor != null)
+        {
+            seeded_keygen_concurrent(pk, sk, seed_b, executor);
+            return;
+        }
 
-        Xof digest = new SHAKEDigest(256);
+        byte[] E = new byte[(SYS_N / 8) + ((1 << GFBITS) * 4) + (SYS_T * 2) + 32];
         while (true)
         {
             // SeededKeyGen - 1. Compute E = G(δ), a string of n + σ2q + σ1t + l bits. (3488 + 32*4096 + 16*64 + 256)
-            digest.update(seed_a, 0, seed_a.length);
-            digest.update(seed_b, 0, seed_b.length);
-            digest.doFinal(E, 0, E.length);
-            // Store the seeds generated
+            expand_seed(E, seed_b);
+
+            if (seeded_keygen(pk, sk, seed_b, E, null))
+            {
+                break;
+            }
 
             // SeededKeyGen - 2. Define δ′ as the last l bits of E.
-            // Update seed using the last 32 bytes (l) of E
             // If anything fails, this set δ = δ′ (the next last 32 bytes of E) and restart the algorithm.
-            seedIndex = E.length - 32;
-            seed_b = Arrays.copyOfRange(E, seedIndex, seedIndex + 32);
+            seed_b = Arrays.copyOfRange(E, E.length - 32, E.length);
+        }
+    }
+
+    private void expand_seed(byte[] E, byte[] seed)
+    {
+        Xof digest = new SHAKEDigest(256);
+        digest.update((byte)64);
+        digest.update(seed, 0, seed.length);
+        digest.doFinal(E, 0, E.length);
+    }
 
-            // store the previous last 32 bytes used as δ
-            System.arraycopy(prev_sk, 0, sk, 0, 32);
-            prev_sk = Arrays.copyOfRange(seed_b, 0, 32);
+    /*
+     * SeededKeyGen steps 3 to 9 for the seed δ, with E = G(δ). Returns false if δ has to be
+     * replaced by δ′ and the algorithm restarted.
+     */
+    private boolean seeded_keygen(byte[] pk, byte[] sk, byte[] delta, byte[] E, Executor executor)
+    {
+        int seedIndex, skIndex;
+        long[] pivots = {0};
 
-            // (step 5 and 4 are swapped)
-            // SeededKeyGen - 5. Compute g from the next σ1t bits of E by the Irreducible algorithm. If this fails,
-            // set δ = δ′ and restart the algorithm.
+        // store the δ used
+        System.arraycopy(delta, 0, sk, 0, 32);
 
-            // Create Field which is an element in gf2^mt
+        // (step 5 and 4 are swapped)
+        // SeededKeyGen - 5. Compute g from the next σ1t bits of E by the Irreducible algorithm. If this fails,
+        // set δ = δ′ and restart the algorithm.
 
-            // 2.4.1 Irreducible-polynomial generation
-            short[] field = new short[SYS_T];
-            int sigma1_t = E.length - 32 - (2 * SYS_T);
-            seedIndex = sigma1_t;
+        // Create Field which is an element in gf2^mt
 
+        // 2.4.1 Irreducible-polynomial generation
+        short[] field = new short[SYS_T];
+        int sigma1_t = E.length - 32 - (2 * SYS_T);
+        seedIndex = sigma1_t;
 
-            // Irreducible 2.4.1 - 1. Define βj = ∑m−1
-            // i=0 dσ1j+izi for each j ∈ {0,1,...,t −1}. (Within each group of σ1
-            // input bits, this uses only the first m bits.
-            for (int i = 0; i < SYS_T; i++)
-            {
-                field[i] = Utils.load_gf(E, sigma1_t + i * 2, GFMASK);
-            }
 
-            if (generate_irr_poly(field) == -1)
-            {
-                continue;
-            }
+        // Irreducible 2.4.1 - 1. Define βj = ∑m−1
+        // i=0 dσ1j+izi for each j ∈ {0,1,...,t −1}. (Within each group of σ1
+        // input bits, this uses only the first m bits.
+        for (int i = 0; i < SYS_T; i++)
+        {
+            field[i] = Utils.load_gf(E, sigma1_t + i * 2, GFMASK);
+        }
 
-            // storing poly to sk
-            skIndex = 32 + 8;
-            for (int i = 0; i < SYS_T; i++)
-            {
-                Utils.store_gf(sk, skIndex + i * 2, field[i]);
-            }
+        if (generate_irr_poly(field) == -1)
+        {
+            return false;
+        }
 
-            // SeededKeyGen - 4. Compute α1,...,αq from the next σ2q bits of E by the FieldOrdering algorithm.
-            // If this fails, set δ = δ′ and restart the algorithm.
+        // storing poly to sk
+        skIndex = 32 + 8;
+        for (int i = 0; i < SYS_T; i++)
+        {
+            Utils.store_gf(sk, skIndex + i * 2, field[i]);
+        }
 
-            // Generate permutation
-            int[] perm = new int[(1 << GFBITS)];
-            seedIndex -= (1 << GFBITS) * 4;
+        // SeededKeyGen - 4. Compute α1,...,αq from the next σ2q bits of E by the FieldOrdering algorithm.
+        // If this fails, set δ = δ′ and restart the algorithm.
 
-            // FieldOrdering 2.4.2 - 1. Take the first σ2 input bits b0,b1,...,bσ2−1 as a σ2-bit integer a0 =
-            // b0 + 2b1 + ··· + 2σ2−1bσ2−1, take the next σ2 bits as a σ2-bit integer a1, and so on through aq−1.
+        // Generate permutation
+        int[] perm = new int[(1 << GFBITS)];
+        seedIndex -= (1 << GFBITS) * 4;
 
+        // FieldOrdering 2.4.2 - 1. Take the first σ2 input bits b0,b1,...,bσ2−1 as a σ2-bit integer a0 =
+        // b0 + 2b1 + ··· + 2σ2−1bσ2−1, take the next σ2 bits as a σ2-bit integer a1, and so on through aq−1.
 
-            for (int i = 0; i < (1 << GFBITS); i++)
-            {
-                perm[i] = Utils.load4(E, seedIndex + i * 4);
-            }
-            // generating public key
-            short[] pi = new short[1 << GFBITS];
 
+        for (int i = 0; i < (1 << GFBITS); i++)
+        {
+            perm[i] = Utils.load4(E, seedIndex + i * 4);
+        }
+        // generating public key
+        short[] pi = new short[1 << GFBITS];
 
-            //8. Write Γ′ as (g,α′1,α′2,...,α′n)
-            if (pk_gen(pk, sk, perm, pi, pivots) == -1)
-            {
-//                System.out.println("FAILED GENERATING PUBLIC KEY");
-                continue;
-            }
 
-            // computing c using Nassimi-Sahni algorithm which is a
-            // parallel algorithms to set up the Benes permutation network
+        //8. Write Γ′ as (g,α′1,α′2,...,α′n)
+        if (pk_gen(pk, sk, perm, pi, pivots, executor) == -1)
+        {
+//            System.out.println("FAILED GENERATING PUBLIC KEY");
+            return false;
+        }
 
-            byte[] out = new byte[COND_BYTES];
-            controlbitsfrompermutation(out, pi, GFBITS, 1 << GFBITS);
+        // computing c using Nassimi-Sahni algorithm which is a
+        // parallel algorithms to set up the Benes permutation network
 
-            //copy the controlbits from the permutation to the private key
-            System.arraycopy(out, 0, sk, IRR_BYTES + 40, out.length);
+        byte[] out = new byte[COND_BYTES];
+        controlbitsfrompermutation(out, pi, GFBITS, 1 << GFBITS);
+
+        //copy the controlbits from the permutation to the private key
+        System.arraycopy(out, 0, sk, IRR_BYTES + 40, out.length);
+
+        // storing the random string s
+        seedIndex -= SYS_N / 8;
+        System.arraycopy(E, seedIndex, sk, sk.length - SYS_N / 8, SYS_N / 8);
+
+        // This part is reserved for compression which is not implemented and is not required
+        if (!usePivots)
+        {
+            Utils.store8(sk, 32, 0xFFFFFFFFL);
+        }
+        else
+        {
+            Utils.store8(sk, 32, pivots[0]);
+        }
 
-            // storing the random string s
-            seedIndex -= SYS_N / 8;
-            System.arraycopy(E, seedIndex, sk, sk.length - SYS_N / 8, SYS_N / 8);
+        // 9. Output T as public key and (δ,c,g,α,s) as private key, where c = (cn−k−μ+1,...,cn−k)
+        // and α = (α′1,...,α′n,αn+1,...,αq
+        return true;
+    }
+
+    /*
+     * SeededKeyGen for a run of successive seeds at a time, the attempts for a run being made
+     * concurrently, each into its own buffers. Of the attempts that succeed, the one for the earliest
+     * seed is kept, so the result is the one the sequential loop would give.
+     */
+    private void seeded_keygen_concurrent(byte[] pk, byte[] sk, byte[] seed, final Executor executor)
+    {
+        final int width = Math.min(MAX_SEED_JOBS, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        final byte[][] deltas = new byte[width][];
+        final byte[][] Es = new byte[width][(SYS_N / 8) + ((1 << GFBITS) * 4) + (SYS_T * 2) + 32];
+        final byte[][] pks = new byte[width][pk.length];
+        final byte[][] sks = new byte[width][sk.length];
+        final AtomicInteger first = new AtomicInteger();
 
-            // This part is reserved for compression which is not implemented and is not required
-            if (!usePivots)
+        while (true)
+        {
+            // each δ′ is taken from the E before it, but the expansions are cheap next to an attempt
+            for (int a = 0; a < width; a++)
             {
-                Utils.store8(sk, 32, 0xFFFFFFFFL);
+                deltas[a] = seed;
+                expand_seed(Es[a], seed);
+                seed = Arrays.copyOfRange(Es[a], Es[a].length - 32, Es[a].length);
             }
-            else
+
+            first.set(width);
+            new ParallelJobs<Object>(width, "generating CMCE key pair")
             {
-                Utils.store8(sk, 32, pivots[0]);
-            }
+                protected void runJob(Object state, int a)
+                {
+                    // not worth finishing if an earlier seed has already worked
+                    if (a < first.get() && seeded_keygen(pks[a], sks[a], deltas[a], Es[a], executor))
+                    {
+                        int f = first.get();
+                        while (a < f && !first.compareAndSet(f, a))
+                        {
+                            f = first.get();
+                        }
+                    }
+                }
+            }.run(executor);
 
-            // 9. Output T as public key and (δ,c,g,α,s) as private key, where c = (cn−k−μ+1,...,cn−k)
-            // and α = (α′1,...,α′n,αn+1,...,αq
-            break;
+            int a = first.get();
+            if (a < width)
+            {
+                System.arraycopy(pks[a], 0, pk, 0, pk.length);
+                System.arraycopy(sks[a], 0, sk, 0, sk.length);
+                return;
+            }
         }
     }
 
@@ -875,10 +956,10 @@ private void synd(short[] out, short[] f, short[] L, byte[] r)
 
     private int mov_columns(byte[][] mat, short[] pi, long[] pivots)
     {
-        int i, j, k, s, block_idx, row, tail;
+        int i, j, k, block_idx, row, tail;
         long[] buf = new long[64],
             ctz_list = new long[32];
-        long t, d, mask, one = 1;
+        long t;
 
         byte[] tmp = new byte[9]; // Used for padding
 
@@ -912,6 +993,64 @@ private int mov_columns(byte[][] mat, short[] pi, long[] pivots)
         }
 
 
+        if (find_pivots(buf, ctz_list, pi, pivots, row) != 0)
+        {
+            return -1; // return if buf is not full rank
+        }
+
+        // moving columns of mat according to the column indices of pivots
+
+        for (i = 0; i < PK_NROWS; i++)
+        {
+            if (usePadding)
+            {
+                for (k = 0; k < 9; k++)
+                {
+                    tmp[k] = mat[i][block_idx + k];
+                }
+                for (k = 0; k < 8; k++)
+                {
+                    tmp[k] = (byte)(((tmp[k] & 0xff) >> tail) | (tmp[k + 1] << (8 - tail)));
+                }
+                t = Utils.load8(tmp, 0);
+            }
+            else
+            {
+                t = Utils.load8(mat[i], block_idx);
+            }
+
+            t = move_pivots(t, ctz_list);
+
+            if (usePadding)
+            {
+                Utils.store8(tmp, 0, t);
+
+                mat[i][block_idx + 8] = (byte)(((mat[i][block_idx + 8] & 0xff) >>> tail << tail) | ((tmp[7] & 0xff) >>> (8 - tail)));
+                mat[i][block_idx + 0] = (byte)(((tmp[0] & 0xff) << tail) | (mat[i][block_idx] & ((1 << tail) - 1)));
+
+                for (k = 7; k >= 1; k--)
+                {
+                    mat[i][block_idx + k] = (byte)(((tmp[k] & 0xff) << tail) | ((tmp[k - 1] & 0xff) >>> (8 - tail)));
+                }
+            }
+            else
+            {
+                Utils.store8(mat[i], block_idx, t);
+            }
+        }
+
+        return 0;
+    }
+
+    /*
+     * Gaussian elimination on the 32x64 matrix in buf, to find the pivot column
+     * indices, which are stored in ctz_list, then update the permutation to match.
+     */
+    private int find_pivots(long[] buf, long[] ctz_list, short[] pi, long[] pivots, int row)
+    {
+        int i, j, k, s;
+        long t, d, mask, one = 1;
+
         // compute the column indices of pivots by Gaussian elimination.
         // the indices are stored in ctz_list
 
@@ -927,7 +1066,7 @@ private int mov_columns(byte[][] mat, short[] pi, long[] pivots)
 
             if (t == 0)
             {
-                return -1; // return if buf is not full rank
+                return -1;
             }
 
             ctz_list[i] = s = ctz(t);
@@ -960,57 +1099,83 @@ private int mov_columns(byte[][] mat, short[] pi, long[] pivots)
             }
         }
 
-        // moving columns of mat according to the column indices of pivots
+        return 0;
+    }
 
-        for (i = 0; i < PK_NROWS; i++)
+    /*
+     * Move the pivot columns of the 64 columns in t into place.
+     */
+    private static long move_pivots(long t, long[] ctz_list)
+    {
+        long d;
+
+        for (int j = 0; j < 32; j++)
         {
-            if (usePadding)
-            {
-                for (k = 0; k < 9; k++)
-                {
-                    tmp[k] = mat[i][block_idx + k];
-                }
-                for (k = 0; k < 8; k++)
-                {
-                    tmp[k] = (byte)(((tmp[k] & 0xff) >> tail) | (tmp[k + 1] << (8 - tail)));
-                }
-                t = Utils.load8(tmp, 0);
-            }
-            else
-            {
-                t = Utils.load8(mat[i], block_idx);
-            }
+            d = t >> j;
+            d ^= t >> ctz_list[j];
+            d &= 1;
 
-            for (j = 0; j < 32; j++)
-            {
-                d = t >> j;
-                d ^= t >> ctz_list[j];
-                d &= 1;
+            t ^= d << ctz_list[j];
+            t ^= d << j;
+        }
+        return t;
+    }
 
-                t ^= d << ctz_list[j];
-                t ^= d << j;
-            }
-            if (usePadding)
-            {
-                Utils.store8(tmp, 0, t);
+    /*
+     * mov_columns() for rows packed into longs.
+     */
+    private int mov_columns(long[][] mat, short[] pi, long[] pivots)
+    {
+        int i, row = PK_NROWS - 32;
+        long[] buf = new long[64],
+            ctz_list = new long[32];
 
-                mat[i][block_idx + 8] = (byte)(((mat[i][block_idx + 8] & 0xff) >>> tail << tail) | ((tmp[7] & 0xff) >>> (8 - tail)));
-                mat[i][block_idx + 0] = (byte)(((tmp[0] & 0xff) << tail) | ((mat[i][block_idx] & 0xff) << (8 - tail) >>> (8 - tail)));
+        // extract the 32x64 matrix
+        for (i = 0; i < 32; i++)
+        {
+            buf[i] = load_bits(mat[row + i], row);
+        }
 
-                for (k = 7; k >= 1; k--)
-                {
-                    mat[i][block_idx + k] = (byte)(((tmp[k] & 0xff) << tail) | ((tmp[k - 1] & 0xff) >>> (8 - tail)));
-                }
-            }
-            else
-            {
-                Utils.store8(mat[i], block_idx, t);
-            }
+        if (find_pivots(buf, ctz_list, pi, pivots, row) != 0)
+        {
+            return -1; // return if buf is not full rank
+        }
+
+        // moving columns of mat according to the column indices of pivots
+        for (i = 0; i < PK_NROWS; i++)
+        {
+            store_bits(mat[i], row, move_pivots(load_bits(mat[i], row), ctz_list));
         }
 
         return 0;
     }
 
+    /* the 64 bits of the packed row r starting from bit off */
+    private static long load_bits(long[] r, int off)
+    {
+        int w = off >>> 6, s = off & 63;
+        long t = r[w] >>> s;
+        if (s != 0 && w + 1 < r.length)
+        {
+            t |= r[w + 1] << (64 - s);
+        }
+        return t;
+    }
+
+    private static void store_bits(long[] r, int off, long t)
+    {
+        int w = off >>> 6, s = off & 63;
+        if (s == 0)
+        {
+            r[w] = t;
+        }
+        else
+        {
+            r[w] = (r[w] & ((1L << s) - 1)) | (t << s);
+            r[w + 1] = (r[w + 1] & (-1L << s)) | (t >>> (64 - s));
+        }
+    }
+
     /* return number of trailing zeros of the non-zero input in */
     private static int ctz(long in)
     {
@@ -1372,7 +1537,7 @@ static void cbrecursion(byte[] out, long pos, long step, short[] pi, int qIndex,
         cbrecursion(out, pos + step, step * 2, null, (int)((n + n / 4) * 2 + n / 2), w - 1, n / 2, temp);
     }
 
-    private int pk_gen(byte[] pk, byte[] sk, int[] perm, short[] pi, long[] pivots)
+    private int pk_gen(byte[] pk, byte[] sk, int[] perm, short[] pi, long[] pivots, Executor executor)
     {
         short[] g = new short[SYS_T + 1]; // Goppa polynomial
         int i, j, k;
@@ -1428,6 +1593,12 @@ private int pk_gen(byte[] pk, byte[] sk, int[] perm, short[] pi, long[] pivots)
         {
             inv[i] = gf.gf_inv(inv[i]);
         }
+
+        if (executor != null)
+        {
+            return pk_gen_striped(pk, pi, pivots, inv, L, executor);
+        }
+
         byte[][] mat = new byte[PK_NROWS][(SYS_N / 8)];
         byte b;
         for (i = 0; i < PK_NROWS; i++)
@@ -1571,6 +1742,150 @@ private int pk_gen(byte[] pk, byte[] sk, int[] perm, short[] pi, long[] pivots)
     }
 
 
+    /*
+     * The matrix part of pk_gen() with the rows packed into longs. Which rows get added to which on
+     * the way to systematic form depends only on the leading columns, so the elimination is first
+     * done on those alone, on the calling thread, with the row operations recorded as masks. The
+     * operations are then applied to the rest of the matrix in column stripes, which don't depend on
+     * each other and so are run as separate jobs. The operations, and so the public key, are the same
+     * as for the byte-wise version.
+     */
+    private int pk_gen_striped(byte[] pk, short[] pi, long[] pivots, short[] inv, short[] L, Executor executor)
+    {
+        int i, j, k, c, row;
+        long mask;
+
+        final int words = (SYS_N + 63) >>> 6;
+        // the leading words cover the pivot columns, and the window mov_columns() works in
+        final int lead = Math.min(words, (PK_NROWS + (usePivots ? 32 : 0) + 63) >>> 6);
+        final long[][] mat = new long[PK_NROWS][words];
+        final long[][] add_to = new long[PK_NROWS][(PK_NROWS + 63) >>> 6];
+        final long[][] add_from = new long[PK_NROWS][(PK_NROWS + 63) >>> 6];
+
+        // filling matrix
+        for (i = 0; i < SYS_T; i++)
+        {
+            for (k = 0; k < GFBITS; k++)
+            {
+                long[] r = mat[i * GFBITS + k];
+                for (j = 0; j < SYS_N; j++)
+                {
+                    r[j >>> 6] |= (long)((inv[j] >>> k) & 1) << j;
+                }
+            }
+
+            for (j = 0; j < SYS_N; j++)
+            {
+                inv[j] = gf.gf_mul(inv[j], L[j]);
+            }
+        }
+
+        // gaussian elimination on the leading columns; the columns before row's are already reduced
+        for (row = 0; row < PK_NROWS; row++)
+        {
+            i = row >>> 6;
+            j = row & 63;
+
+            if (usePivots)
+            {
+                if (row == PK_NROWS - 32)
+                {
+                    if (mov_columns(mat, pi, pivots) != 0)
+                    {
+                        return -1;
+                    }
+                }
+            }
+
+            long[] r = mat[row];
+            for (k = row + 1; k < PK_NROWS; k++)
+            {
+                mask = -(((r[i] ^ mat[k][i]) >>> j) & 1);
+                add_to[row][k >>> 6] |= mask & (1L << k);
+
+                for (c = i; c < lead; c++)
+                {
+                    r[c] ^= mat[k][c] & mask;
+                }
+            }
+            if (((r[i] >>> j) & 1) == 0) // return if not systematic
+            {
+                return -1;
+            }
+
+            for (k = 0; k < PK_NROWS; k++)
+            {
+                if (k != row)
+                {
+                    mask = -((mat[k][i] >>> j) & 1);
+                    add_from[row][k >>> 6] |= mask & (1L << k);
+
+                    for (c = i; c < lead; c++)
+                    {
+                        mat[k][c] ^= r[c] & mask;
+                    }
+                }
+            }
+        }
+
+        int stripes = (words - lead + STRIPE_WORDS - 1) / STRIPE_WORDS;
+        new ParallelJobs<Object>(stripes, "generating CMCE key pair")
+        {
+            protected void runJob(Object state, int stripe)
+            {
+                int from = lead + stripe * STRIPE_WORDS;
+                apply_row_ops(mat, add_to, add_from, from, Math.min(words, from + STRIPE_WORDS));
+            }
+        }.run(executor);
+
+        if (pk != null)
+        {
+            // each row of T is the bit string of the row from column PK_NROWS on
+            int row_bytes = pk.length / PK_NROWS;
+            for (i = 0; i < PK_NROWS; i++)
+            {
+                for (j = 0; j < row_bytes; j++)
+                {
+                    pk[i * row_bytes + j] = (byte)load_bits(mat[i], PK_NROWS + j * 8);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /*
+     * Apply the recorded row operations to the words [from, to) of each row.
+     */
+    private void apply_row_ops(long[][] mat, long[][] add_to, long[][] add_from, int from, int to)
+    {
+        int row, k, c;
+        long mask;
+
+        for (row = 0; row < PK_NROWS; row++)
+        {
+            long[] r = mat[row];
+            for (k = row + 1; k < PK_NROWS; k++)
+            {
+                mask = -((add_to[row][k >>> 6] >>> k) & 1);
+                for (c = from; c < to; c++)
+                {
+                    r[c] ^= mat[k][c] & mask;
+                }
+            }
+            for (k = 0; k < PK_NROWS; k++)
+            {
+                if (k != row)
+                {
+                    mask = -((add_from[row][k >>> 6] >>> k) & 1);
+                    for (c = from; c < to; c++)
+                    {
+                        mat[k][c] ^= r[c] & mask;
+                    }
+                }
+            }
+        }
+    }
+
     private short eval(short[] f, short a)
     {
         short r = f[SYS_T];
@@ -1803,4 +2118,4 @@ private static void sort64(long[] temp, int from, int to)
         }
 
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.cmce;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
@@ -9,6 +10,7 @@
 public class CMCEKeyPairGenerator
     implements AsymmetricCipherKeyPairGenerator
 {
+    private final Executor executor;
 
     private CMCEKeyGenerationParameters cmceParams;
 
@@ -20,6 +22,30 @@
 
     private SecureRandom random;
 
+    /**
+     * Base constructor.
+     */
+    public CMCEKeyPairGenerator()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a generator which uses the passed in executor for the expensive part of key generation.
+     * <p>
+     * Several candidate seeds are tried at once, and the reduction of the public key matrix to
+     * systematic form is split into column stripes run as separate jobs, the calling thread also taking
+     * jobs. Seeds are still accepted in the order the specification tries them, so for a given source of
+     * randomness the key pair is the same as the one produced without an executor.
+     * </p>
+     *
+     * @param executor executor to run key generation jobs on, null to do all the work on the calling thread.
+     */
+    public CMCEKeyPairGenerator(Executor executor)
+    {
+        this.executor = executor;
+    }
+
     private void initialize(
             KeyGenerationParameters param)
     {
@@ -36,7 +62,7 @@ private AsymmetricCipherKeyPair genKeyPair()
         CMCEEngine engine = cmceParams.getParameters().getEngine();
         byte[] sk = new byte[engine.getPrivateKeySize()];
         byte[] pk = new byte[engine.getPublicKeySize()];
-        engine.kem_keypair(pk, sk, random);
+        engine.kem_keypair(pk, sk, random, executor);
 
         CMCEPublicKeyParameters pubKey = new CMCEPublicKeyParameters(cmceParams.getParameters(), pk);
         CMCEPrivateKeyParameters privKey = new CMCEPrivateKeyParameters(cmceParams.getParameters(), sk);
@@ -0,0 +1,35 @@
+package org.bouncycastle.pqc.crypto.falcon;
+
+/**
+ * A Falcon private key held together with its expanded form: the FFT representation of the basis
+ * [[g, -f], [G, -F]] and the normalized ffLDL tree derived from it. Expanding a key is several times the
+ * cost of the sampling done for a signature, so where a key is used for more than a handful of signatures
+ * it is worth doing once up front. The expanded form is only read while signing, so one instance can be
+ * used by any number of signers, including concurrently.
+ */
+public class FalconExpandedPrivateKeyParameters
+    extends FalconPrivateKeyParameters
+{
+    private final FalconFPR[] expandedKey;
+
+    /**
+     * Expand the passed in private key.
+     *
+     * @param privateKey the private key to expand.
+     */
+    public FalconExpandedPrivateKeyParameters(FalconPrivateKeyParameters privateKey)
+    {
+        super(privateKey.getParameters(), privateKey.getSpolyf(), privateKey.getG(), privateKey.getSpolyF(),
+            privateKey.getPublicKey());
+
+        FalconParameters parameters = privateKey.getParameters();
+        FalconNIST nist = new FalconNIST(parameters.getLogN(), parameters.getNonceLength(), null);
+
+        this.expandedKey = nist.expand_privkey(getEncoded(), 0);
+    }
+
+    FalconFPR[] getExpandedKey()
+    {
+        return expandedKey;
+    }
+}
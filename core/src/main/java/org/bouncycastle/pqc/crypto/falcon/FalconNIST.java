@@ -18,6 +18,13 @@
 
     private FalconCodec codec;
 
+    // work buffers for signing with an expanded key, allocated on first use
+    private FalconSign sign;
+    private SHAKE256 sign_sc;
+    private short[] sign_sig;
+    private short[] sign_hm;
+    private FalconFPR[] sign_tmp;
+
     FalconNIST(int logn, int noncelen, SecureRandom random)
     {
         codec = new FalconCodec();
@@ -140,19 +147,90 @@ byte[] crypto_sign(boolean attached, byte[] srcsm,
         short[] sig = new short[N];
         short[] hm = new short[N];
 
-        byte[] seed = new byte[48],
-            nonce = new byte[NONCELEN];
-
+        byte[] nonce = new byte[NONCELEN];
 
         SHAKE256 sc = new SHAKE256();
-        int u, v, sig_len;
         FalconSign sign = new FalconSign();
-        FalconVrfy vrfy = new FalconVrfy();
         FalconCommon common = new FalconCommon();
 
         /*
          * Decode the private key.
          */
+        decode_privkey(f, g, F, G, srcsk, sk);
+
+        hash_message(sc, common, hm, nonce, srcm, m, mlen);
+
+//        savcw = set_fpu_cw(2);
+
+        /*
+         * Compute the signature.
+         */
+//        Zf(sign_dyn)(r.sig, &sc, f, g, F, G, r.hm, 10, tmp.b);
+        sign.sign_dyn(sig, 0, sc, f, 0, g, 0, F, 0, G, 0, hm, 0, LOGN, new FalconFPR[10 * N], 0);
+
+//        set_fpu_cw(savcw);
+
+        return encode_signature(attached, srcsm, nonce, sig);
+    }
+
+    /*
+     * Expand a private key (f, g, F) into the B0 matrix and the ffLDL tree,
+     * as used by crypto_sign() with an expanded key. The expanded key is
+     * never modified when signing, so it can be shared.
+     */
+    FalconFPR[] expand_privkey(byte[] srcsk, int sk)
+    {
+        byte[] f = new byte[N],
+               g = new byte[N],
+               F = new byte[N],
+               G = new byte[N];
+
+        decode_privkey(f, g, F, G, srcsk, sk);
+
+        FalconFPR[] expanded_key = new FalconFPR[(LOGN + 5) << LOGN];
+
+//        Zf(expand_privkey)(expanded_key, f, g, F, G, logn, tmp.b);
+        new FalconSign().expand_privkey(expanded_key, 0, f, 0, g, 0, F, 0, G, 0, LOGN, new FalconFPR[6 * N], 0);
+
+        return expanded_key;
+    }
+
+    /*
+     * Sign using an expanded private key. Unlike the dynamic variant, the
+     * work buffers are allocated on first use and then kept, so repeated
+     * signatures cost little more than the sampling itself.
+     */
+    byte[] crypto_sign(boolean attached, byte[] srcsm,
+                       byte[] srcm, int m, int mlen,
+                       FalconFPR[] expanded_key)
+    {
+        if (sign == null)
+        {
+            sign = new FalconSign();
+            sign_sc = new SHAKE256();
+            sign_sig = new short[N];
+            sign_hm = new short[N];
+            sign_tmp = new FalconFPR[6 * N];
+        }
+
+        byte[] nonce = new byte[NONCELEN];
+
+        hash_message(sign_sc, sign.common, sign_hm, nonce, srcm, m, mlen);
+
+        /*
+         * Compute the signature.
+         */
+//        Zf(sign_tree)(r.sig, &sc, expanded_key, r.hm, 10, tmp.b);
+        sign.sign_tree(sign_sig, 0, sign_sc, expanded_key, 0, sign_hm, 0, LOGN, sign_tmp, 0);
+
+        return encode_signature(attached, srcsm, nonce, sign_sig);
+    }
+
+    private void decode_privkey(byte[] f, byte[] g, byte[] F, byte[] G, byte[] srcsk, int sk)
+    {
+        int u, v;
+        FalconVrfy vrfy = new FalconVrfy();
+
 //        if (srcsk[sk + 0] != (byte)(0x50 + LOGN))
 //        {
 //            throw new IllegalArgumentException("private key header incorrect");
@@ -188,6 +266,16 @@ byte[] crypto_sign(boolean attached, byte[] srcsm,
         {
             throw new IllegalStateException("complete_private failed");
         }
+    }
+
+    /*
+     * Pick a fresh nonce, hash nonce + message into hm[], and then leave
+     * sc seeded from fresh randomness for the sampler.
+     */
+    private void hash_message(SHAKE256 sc, FalconCommon common, short[] hm, byte[] nonce,
+                              byte[] srcm, int m, int mlen)
+    {
+        byte[] seed = new byte[48];
 
         /*
          * Create a random nonce (40 bytes).
@@ -221,16 +309,11 @@ byte[] crypto_sign(boolean attached, byte[] srcsm,
         sc.inner_shake256_init();
         sc.inner_shake256_inject(seed, 0, seed.length);
         sc.i_shake256_flip();
+    }
 
-//        savcw = set_fpu_cw(2);
-
-        /*
-         * Compute the signature.
-         */
-//        Zf(sign_dyn)(r.sig, &sc, f, g, F, G, r.hm, 10, tmp.b);
-        sign.sign_dyn(sig, 0, sc, f, 0, g, 0, F, 0, G, 0, hm, 0, LOGN, new FalconFPR[10 * N], 0);
-
-//        set_fpu_cw(savcw);
+    private byte[] encode_signature(boolean attached, byte[] srcsm, byte[] nonce, short[] sig)
+    {
+        int sig_len;
 
         byte[] esig = new byte[CRYPTO_BYTES - 2 - NONCELEN];
         if (attached)
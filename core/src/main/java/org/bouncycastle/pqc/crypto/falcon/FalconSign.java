@@ -755,7 +755,7 @@ int do_sign_tree(SamplerZ samp, SamplerCtx samp_ctx, short[] srcs2, int s2,
 //            memcpy(s2, s2tmp, n * sizeof *s2);
             System.arraycopy(s2tmp, 0, srcs2, s2, n);
 //            memcpy(tmp, s1tmp, n * sizeof *s1tmp);
-            System.arraycopy(s1tmp, 0, srctmp, tmp, n);
+//            System.arraycopy(s1tmp, 0, srctmp, tmp, n);
             return 1;
         }
         return 0;
@@ -995,6 +995,15 @@ void sign_tree(short[] srcsig, int sig, SHAKE256 rng,
         int ftmp;
 
         ftmp = tmp;
+
+        /*
+         * The sampler state is fully reset by prng_init(), so one
+         * instance does for every attempt.
+         */
+        SamplerCtx spc = new SamplerCtx();
+        SamplerZ samp = new SamplerZ();
+        SamplerCtx samp_ctx;
+
         for (; ; )
         {
             /*
@@ -1007,9 +1016,6 @@ void sign_tree(short[] srcsig, int sig, SHAKE256 rng,
              * (the verifier recomputes s1 from s2, the hashed message,
              * and the public key).
              */
-            SamplerCtx spc = new SamplerCtx();
-            SamplerZ samp = new SamplerZ();
-            SamplerCtx samp_ctx;
 
             /*
              * Normal sampling. We use a fast PRNG seeded from our
@@ -1,5 +1,7 @@
 package org.bouncycastle.pqc.crypto.falcon;
 
+import java.security.SecureRandom;
+
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
@@ -10,33 +12,46 @@
     implements MessageSigner
 {
     private byte[] encodedkey;
+    private FalconFPR[] expandedkey;
     private FalconNIST nist;
 
     public void init(boolean forSigning, CipherParameters param)
     {
         if (forSigning)
         {
+            FalconPrivateKeyParameters skparam;
+            SecureRandom random;
             if (param instanceof ParametersWithRandom)
             {
-                FalconPrivateKeyParameters skparam = ((FalconPrivateKeyParameters)((ParametersWithRandom)param).getParameters());
-                encodedkey = skparam.getEncoded();
-                nist = new FalconNIST(skparam.getParameters().getLogN(),
-                    skparam.getParameters().getNonceLength(),
-                    ((ParametersWithRandom)param).getRandom());
+                skparam = (FalconPrivateKeyParameters)((ParametersWithRandom)param).getParameters();
+                random = ((ParametersWithRandom)param).getRandom();
+            }
+            else
+            {
+                skparam = (FalconPrivateKeyParameters)param;
+                random = CryptoServicesRegistrar.getSecureRandom();
+            }
+
+            encodedkey = null;
+            nist = new FalconNIST(skparam.getParameters().getLogN(),
+                skparam.getParameters().getNonceLength(),
+                random);
+
+            // the expanded key is reused for every signature made after this init
+            if (skparam instanceof FalconExpandedPrivateKeyParameters)
+            {
+                expandedkey = ((FalconExpandedPrivateKeyParameters)skparam).getExpandedKey();
             }
             else
             {
-                FalconPrivateKeyParameters skparam = (FalconPrivateKeyParameters)param;
-                encodedkey = ((FalconPrivateKeyParameters)param).getEncoded();
-                nist = new FalconNIST(skparam.getParameters().getLogN(),
-                    skparam.getParameters().getNonceLength(),
-                    CryptoServicesRegistrar.getSecureRandom());
+                expandedkey = nist.expand_privkey(skparam.getEncoded(), 0);
             }
         }
         else
         {
             FalconPublicKeyParameters pkparam = (FalconPublicKeyParameters)param;
             encodedkey = pkparam.getH();
+            expandedkey = null;
             nist = new FalconNIST(pkparam.getParameters().getLogN(),
                 pkparam.getParameters().getNonceLength(),
                 CryptoServicesRegistrar.getSecureRandom());
@@ -47,7 +62,7 @@ public byte[] generateSignature(byte[] message)
     {
         byte[] sm = new byte[nist.CRYPTO_BYTES];
 
-        return nist.crypto_sign(false, sm, message, 0, message.length, encodedkey, 0);
+        return nist.crypto_sign(false, sm, message, 0, message.length, expandedkey);
     }
 
     public boolean verifySignature(byte[] message, byte[] signature)
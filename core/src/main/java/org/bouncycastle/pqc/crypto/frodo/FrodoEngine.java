@@ -11,7 +11,7 @@
     // constant parameters
     static final int nbar = 8;
 
-    private static final int mbar = 8;
+    static final int mbar = 8;
     private static final int len_seedA = 128;
     private static final int len_z = 128;
     private static final int len_chi = 16;
@@ -20,6 +20,9 @@
     private static final int len_z_bytes = len_z / 8;
     private static final int len_chi_bytes = len_chi / 8;
 
+    // rows of A generated at a time; n is a multiple of 8 for all parameter sets
+    private static final int A_ROWS = 4;
+
     // parameters for Frodo{n}
     private final int D;
     private final int q;
@@ -157,6 +160,72 @@ private short[] matrix_mul(short[] X, int Xrow, int Xcol, short[] Y, int Yrow, i
         return res;
     }
 
+    /*
+     * A * S for A = Frodo.Gen(seedA), with S passed in as S^T. A is generated A_ROWS rows at a time into a
+     * small buffer, each block of rows being used as soon as it is generated.
+     */
+    short[] mul_A_S(byte[] seedA, short[] S_T)
+    {
+        int qMask = q - 1;
+        short[] res = new short[n * nbar];
+        short[] A = new short[A_ROWS * n];
+        FrodoMatrixGenerator.RowGenerator rows = gen.getRowGenerator(seedA);
+
+        for (int i = 0; i < n; i += A_ROWS)
+        {
+            rows.genRows(i, A_ROWS, A);
+            for (int r = 0; r < A_ROWS; r++)
+            {
+                for (int j = 0; j < nbar; j++)
+                {
+                    int accum = 0;
+                    for (int k = 0; k < n; k++)
+                    {
+                        accum += A[r * n + k] * S_T[j * n + k];
+                    }
+                    res[(i + r) * nbar + j] = (short)(accum & qMask);
+                }
+            }
+        }
+        return res;
+    }
+
+    /*
+     * S' * A for A = Frodo.Gen(seedA), with A generated a block of rows at a time as for mul_A_S(). Each
+     * block of rows adds its part into every entry of the result, so the sums are carried in the result
+     * itself; q divides 2^16, so only reducing at the end gives the same answer.
+     */
+    short[] mul_S_A(short[] Sprime, byte[] seedA)
+    {
+        int qMask = q - 1;
+        short[] res = new short[mbar * n];
+        short[] A = new short[A_ROWS * n];
+        FrodoMatrixGenerator.RowGenerator rows = gen.getRowGenerator(seedA);
+
+        for (int k = 0; k < n; k += A_ROWS)
+        {
+            rows.genRows(k, A_ROWS, A);
+            for (int i = 0; i < mbar; i++)
+            {
+                for (int j = 0; j < n; j++)
+                {
+                    int accum = res[i * n + j];
+                    for (int r = 0; r < A_ROWS; r++)
+                    {
+                        accum += Sprime[i * n + k + r] * A[r * n + j];
+                    }
+                    res[i * n + j] = (short)accum;
+                }
+            }
+        }
+
+        for (int i = 0; i < res.length; i++)
+        {
+            res[i] = (short)(res[i] & qMask);
+        }
+        return res;
+    }
+
     private short[] matrix_add(short[] X, short[] Y, int n1, int m1)
     {
         int qMask = q - 1;
@@ -228,9 +297,6 @@ public void kem_keypair(byte[] pk, byte[] sk, SecureRandom random)
         digest.update(z, 0, z.length);
         digest.doFinal(seedA, 0, seedA.length);
 
-        // 3. A = Frodo.Gen(seedA)
-        short[] A = gen.genMatrix(seedA);
-
         // 4. r = SHAKE(0x5F || seedSE, 2*n*nbar*len_chi) (length in bits), parsed as 2*n*nbar len_chi-bit integers in little-endian byte order
         byte[] rbytes = new byte[2 * n * nbar * len_chi_bytes];
 
@@ -244,13 +310,13 @@ public void kem_keypair(byte[] pk, byte[] sk, SecureRandom random)
 
         // 5. S^T = Frodo.SampleMatrix(r[0 .. n*nbar-1], nbar, n)
         short[] S_T = sample_matrix(r, 0, nbar, n);
-        short[] S = matrix_transpose(S_T, nbar, n);
 
         // 6. E = Frodo.SampleMatrix(r[n*nbar .. 2*n*nbar-1], n, nbar)
         short[] E = sample_matrix(r, n * nbar, n, nbar);
 
+        // 3. A = Frodo.Gen(seedA)
         // 7. B = A * S + E
-        short[] B = matrix_add(matrix_mul(A, n, n, S, n, nbar), E, n, nbar);
+        short[] B = matrix_add(mul_A_S(seedA, S_T), E, n, nbar);
 
         // 8. b = Pack(B)
         byte[] b = pack(B);
@@ -390,10 +456,8 @@ public void kem_enc(byte[] ct, byte[] ss, byte[] pk, SecureRandom random)
         short[] Eprime = sample_matrix(r, mbar * n, mbar, n);
 
         // 7. A = Frodo.Gen(seedA)
-        short[] A = gen.genMatrix(seedA);
-
         // 8. B' = S' A + E'
-        short[] Bprime = matrix_add(matrix_mul(Sprime, mbar, n, A, n, n), Eprime, mbar, n);
+        short[] Bprime = matrix_add(mul_S_A(Sprime, seedA), Eprime, mbar, n);
 
         // 9. c1 = Frodo.Pack(B')
         byte[] c1 = pack(Bprime);
@@ -572,10 +636,8 @@ public void kem_dec(byte[] ss, byte[] ct, byte[] sk)
         short[] Eprime = sample_matrix(r, mbar * n, mbar, n);
 
         // 10. A = Frodo.Gen(seedA)
-        short[] A = gen.genMatrix(seedA);
-
         // 11. B'' = S' A + E'
-        short[] Bprimeprime = matrix_add(matrix_mul(Sprime, mbar, n, A, n, n), Eprime, mbar, n);
+        short[] Bprimeprime = matrix_add(mul_S_A(Sprime, seedA), Eprime, mbar, n);
 
         // 12. E'' = Frodo.SampleMatrix(r[2*mbar*n .. 2*mbar*n + mbar*nbar-1], mbar, n)
         short[] Eprimeprime = sample_matrix(r, 2 * mbar * n, mbar, nbar);
@@ -1,6 +1,6 @@
 package org.bouncycastle.pqc.crypto.frodo;
 
-import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.Xof;
 import org.bouncycastle.crypto.digests.SHAKEDigest;
 import org.bouncycastle.crypto.engines.AESEngine;
@@ -18,7 +18,20 @@ public FrodoMatrixGenerator(int n, int q)
         this.q = q;
     }
 
-    abstract short[] genMatrix(byte[] seedA);
+    /**
+     * Return a generator for the rows of A = Frodo.Gen(seedA), so that A can be produced a few rows at a
+     * time rather than all at once. The generator holds the working buffers, so it should only be used for
+     * one operation, by one thread.
+     */
+    abstract RowGenerator getRowGenerator(byte[] seedA);
+
+    abstract class RowGenerator
+    {
+        /**
+         * Generate rows [row, row + rowCount) of A into the start of A.
+         */
+        abstract void genRows(int row, int rowCount, short[] A);
+    }
 
     static class Shake128MatrixGenerator
             extends FrodoMatrixGenerator
@@ -28,30 +41,33 @@ public Shake128MatrixGenerator(int n, int q)
             super(n, q);
         }
 
-        short[] genMatrix(byte[] seedA)
+        RowGenerator getRowGenerator(byte[] seedA)
         {
-            short[] A = new short[n*n];
-            short i, j;
-            byte[] tmp = new byte[(16 * n) / 8];
-            byte[] b = new byte[2 + seedA.length];
+            final byte[] tmp = new byte[(16 * n) / 8];
+            final byte[] b = new byte[2 + seedA.length];
             System.arraycopy(seedA, 0, b, 2, seedA.length);
 
-            Xof digest = new SHAKEDigest(128);
+            final Xof digest = new SHAKEDigest(128);
 
-            for (i = 0; i < n; i++)
+            return new RowGenerator()
             {
-                // 1. b = i || seedA in {0,1}^{16 + len_seedA}, where i is encoded as a 16-bit integer in little-endian byte order
-                Pack.shortToLittleEndian(i, b, 0);
-
-                // 2. c_{i,0} || c_{i,1} || ... || c_{i,n-1} = SHAKE128(b, 16n) (length in bits) where each c_{i,j} is parsed as a 16-bit integer in little-endian byte order format
-                digest.update(b, 0, b.length);
-                digest.doFinal(tmp, 0, tmp.length);
-                for (j = 0; j < n; j++)
+                void genRows(int row, int rowCount, short[] A)
                 {
-                    A[i*n+j] = (short) (Pack.littleEndianToShort(tmp, 2 * j) & (q - 1));
+                    for (int r = 0; r < rowCount; r++)
+                    {
+                        // 1. b = i || seedA in {0,1}^{16 + len_seedA}, where i is encoded as a 16-bit integer in little-endian byte order
+                        Pack.shortToLittleEndian((short)(row + r), b, 0);
+
+                        // 2. c_{i,0} || c_{i,1} || ... || c_{i,n-1} = SHAKE128(b, 16n) (length in bits) where each c_{i,j} is parsed as a 16-bit integer in little-endian byte order format
+                        digest.update(b, 0, b.length);
+                        digest.doFinal(tmp, 0, tmp.length);
+                        for (int j = 0; j < n; j++)
+                        {
+                            A[r*n+j] = (short) (Pack.littleEndianToShort(tmp, 2 * j) & (q - 1));
+                        }
+                    }
                 }
-            }
-            return A;
+            };
         }
     }
 
@@ -63,37 +79,48 @@ public Aes128MatrixGenerator(int n, int q)
             super(n, q);
         }
 
-        short[] genMatrix(byte[] seedA)
+        RowGenerator getRowGenerator(byte[] seedA)
         {
             // """Generate matrix A using AES-128 (FrodoKEM specification, Algorithm 7)"""
-            // A = [[None for j in range(self.n)] for i in range(self.n)]
-            short[] A = new short[n*n];
-            byte[] b = new byte[16];
-            byte[] c = new byte[16];
+            // the n/8 input blocks b for a row are laid out one after the other, so a whole
+            // row can be passed to the cipher in one go.
+            final byte[] b = new byte[2 * n];
+            final byte[] c = new byte[2 * n];
 
-            BlockCipher cipher = new AESEngine();
+            final MultiBlockCipher cipher = AESEngine.newInstance();
             cipher.init(true, new KeyParameter(seedA));
 
-            // 1. for i = 0; i < n; i += 1
-            for (int i = 0; i < n; i++)
+            // 2. for j = 0; j < n; j += 8
+            for (int j = 0; j < n; j += 8)
+            {
+                // 3. b = i || j || 0 || ... || 0 in {0,1}^128, where i and j are encoded as 16-bit integers in little-endian byte order
+                Pack.shortToLittleEndian((short)j, b, 2 * j + 2);
+            }
+
+            return new RowGenerator()
             {
-                Pack.shortToLittleEndian((short)i, b, 0);
-                // 2. for j = 0; j < n; j += 8
-                for (int j = 0; j < n; j+=8)
+                void genRows(int row, int rowCount, short[] A)
                 {
-                    // 3. b = i || j || 0 || ... || 0 in {0,1}^128, where i and j are encoded as 16-bit integers in little-endian byte order
-                    Pack.shortToLittleEndian((short)j, b, 2);
-                    // 4. c = AES128(seedA, b)
-                    cipher.processBlock(b, 0, c, 0);
-                    // 5. for k = 0; k < 8; k += 1
-                    for (int k = 0; k < 8; k++)
+                    // 1. for i = 0; i < n; i += 1
+                    for (int r = 0; r < rowCount; r++)
                     {
+                        for (int j = 0; j < n; j += 8)
+                        {
+                            Pack.shortToLittleEndian((short)(row + r), b, 2 * j);
+                        }
+
+                        // 4. c = AES128(seedA, b)
+                        cipher.processBlocks(b, 0, n / 8, c, 0);
+
+                        // 5. for k = 0; k < 8; k += 1
                         // 6. A[i][j+k] = c[k] where c is treated as a sequence of 8 16-bit integers each in little-endian byte order
-                        A[i*n+ j + k] = (short) (Pack.littleEndianToShort(c, 2 * k) & (q - 1));
+                        for (int j = 0; j < n; j++)
+                        {
+                            A[r*n+j] = (short) (Pack.littleEndianToShort(c, 2 * j) & (q - 1));
+                        }
                     }
                 }
-            }
-            return A;
+            };
         }
     }
 }
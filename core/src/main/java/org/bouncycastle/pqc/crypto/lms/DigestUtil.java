@@ -3,7 +3,9 @@
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Batch;
 import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHAKEBatch;
 import org.bouncycastle.crypto.digests.SHAKEDigest;
 
 /**
@@ -21,6 +23,22 @@ static Digest getDigest(LMSigParameters sigParameters)
         return createDigest(sigParameters.getDigestOID(), sigParameters.getM());
     }
 
+    static BatchDigest getBatchDigest(LMOtsParameters otsParameters)
+    {
+        ASN1ObjectIdentifier oid = otsParameters.getDigestOID();
+
+        if (oid.equals(NISTObjectIdentifiers.id_sha256))
+        {
+            return new BatchDigest(new SHA256Batch(), null, otsParameters.getN());
+        }
+        if (oid.equals(NISTObjectIdentifiers.id_shake256_len))
+        {
+            return new BatchDigest(null, new SHAKEBatch(256), otsParameters.getN());
+        }
+
+        throw new IllegalArgumentException("unrecognized digest OID: " + oid);
+    }
+
     private static Digest createDigest(ASN1ObjectIdentifier oid, int length)
     {
         Digest digest = createDigest(oid);
@@ -48,6 +66,41 @@ private static Digest createDigest(ASN1ObjectIdentifier oid)
         throw new IllegalArgumentException("unrecognized digest OID: " + oid);
     }
 
+    /**
+     * Batch form of the OTS digest, hashing a number of same length inputs in one call, each output
+     * truncated to the digest size of the parameter set.
+     */
+    static class BatchDigest
+    {
+        private final SHA256Batch sha256;
+        private final SHAKEBatch shake;
+        private final int length;
+
+        BatchDigest(SHA256Batch sha256, SHAKEBatch shake, int length)
+        {
+            this.sha256 = sha256;
+            this.shake = shake;
+            this.length = length;
+        }
+
+        int getDigestSize()
+        {
+            return length;
+        }
+
+        void hash(byte[] in, int inOff, int inLen, int count, byte[] out, int outOff)
+        {
+            if (sha256 != null)
+            {
+                sha256.hash(in, inOff, inLen, count, out, outOff, length);
+            }
+            else
+            {
+                shake.hash(in, inOff, inLen, count, out, outOff, length);
+            }
+        }
+    }
+
     static class WrapperDigest
         implements Digest
     {
@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.lms;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.pqc.crypto.ExhaustedPrivateKeyException;
 
@@ -8,6 +9,11 @@
 {
 
     public static HSSPrivateKeyParameters generateHSSKeyPair(HSSKeyGenerationParameters parameters)
+    {
+        return generateHSSKeyPair(parameters, null);
+    }
+
+    static HSSPrivateKeyParameters generateHSSKeyPair(HSSKeyGenerationParameters parameters, Executor executor)
     {
         //
         // LmsPrivateKey can derive and hold the public key so we just use an array of those.
@@ -41,6 +47,7 @@ public static HSSPrivateKeyParameters generateHSSKeyPair(HSSKeyGenerationParamet
                     I,
                     1 << parameters.getLmsParameters()[t].getLMSigParam().getH(),
                     rootSeed);
+                keys[t].initTraversal(executor);
             }
             else
             {
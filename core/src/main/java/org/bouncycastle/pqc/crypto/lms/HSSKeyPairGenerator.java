@@ -1,5 +1,7 @@
 package org.bouncycastle.pqc.crypto.lms;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
 import org.bouncycastle.crypto.KeyGenerationParameters;
@@ -7,8 +9,29 @@
 public class HSSKeyPairGenerator
     implements AsymmetricCipherKeyPairGenerator
 {
+    private final Executor executor;
+
     HSSKeyGenerationParameters param;
 
+    /**
+     * Base constructor.
+     */
+    public HSSKeyPairGenerator()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a generator which computes the leaves of the top level LMS tree concurrently using the passed
+     * in executor. The trees on the lower levels are built when they are first needed.
+     *
+     * @param executor executor to run tree building jobs on, null to build the tree on the calling thread.
+     */
+    public HSSKeyPairGenerator(Executor executor)
+    {
+        this.executor = executor;
+    }
+
     public void init(KeyGenerationParameters param)
     {
         this.param = (HSSKeyGenerationParameters)param;
@@ -16,7 +39,7 @@ public void init(KeyGenerationParameters param)
 
     public AsymmetricCipherKeyPair generateKeyPair()
     {
-        HSSPrivateKeyParameters privKey = HSS.generateHSSKeyPair(param);
+        HSSPrivateKeyParameters privKey = HSS.generateHSSKeyPair(param, executor);
 
         return new AsymmetricCipherKeyPair(privKey.getPublicKey(), privKey);
     }
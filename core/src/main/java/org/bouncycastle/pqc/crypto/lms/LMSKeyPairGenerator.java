@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.lms;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
@@ -9,8 +10,33 @@
 public class LMSKeyPairGenerator
     implements AsymmetricCipherKeyPairGenerator
 {
+    private final Executor executor;
+
     LMSKeyGenerationParameters param;
 
+    /**
+     * Base constructor.
+     */
+    public LMSKeyPairGenerator()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a generator which computes the leaves of the LMS tree concurrently using the passed in executor.
+     * <p>
+     * The tree is split into subtrees which are built as separate jobs, the calling thread also taking jobs.
+     * The pass over the tree gives both the public key and the authentication path state the private key
+     * uses for signing.
+     * </p>
+     *
+     * @param executor executor to run tree building jobs on, null to build the tree on the calling thread.
+     */
+    public LMSKeyPairGenerator(Executor executor)
+    {
+        this.executor = executor;
+    }
+
     public void init(KeyGenerationParameters param)
     {
         this.param = (LMSKeyGenerationParameters)param;
@@ -29,6 +55,8 @@ public AsymmetricCipherKeyPair generateKeyPair()
 
         LMSPrivateKeyParameters privKey = LMS.generateKeys(sigParameter, param.getParameters().getLMOTSParam(), 0, I, rootSecret);
 
+        privKey.initTraversal(executor);
+
         return new AsymmetricCipherKeyPair(privKey.getPublicKey(), privKey);
     }
 }
@@ -4,10 +4,8 @@
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
 
-import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.pqc.crypto.ExhaustedPrivateKeyException;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.io.Streams;
@@ -16,26 +14,11 @@
     extends LMSKeyParameters
     implements LMSContextBasedSigner
 {
-    private static CacheKey T1 = new CacheKey(1);
-    private static CacheKey[] internedKeys = new CacheKey[129];
-
-    static
-    {
-        internedKeys[1] = T1;
-        for (int i = 2; i < internedKeys.length; i++)
-        {
-            internedKeys[i] = new CacheKey(i);
-        }
-    }
-
     private final byte[] I;
     private final LMSigParameters parameters;
     private final LMOtsParameters otsParameters;
     private final int maxQ;
     private final byte[] masterSecret;
-    private final Map<CacheKey, byte[]> tCache;
-    private final int maxCacheR;
-    private final Digest tDigest;
 
     private int q;
 
@@ -45,6 +28,11 @@
     //
     private LMSPublicKeyParameters publicKey;
 
+    //
+    // Authentication path state for the next q, persisted if it is in step with q.
+    //
+    private LMSTraversal traversal;
+
 
     public LMSPrivateKeyParameters(LMSigParameters lmsParameter, LMOtsParameters otsParameters, int q, byte[] I, int maxQ, byte[] masterSecret)
     {
@@ -55,9 +43,6 @@ public LMSPrivateKeyParameters(LMSigParameters lmsParameter, LMOtsParameters ots
         this.I = Arrays.clone(I);
         this.maxQ = maxQ;
         this.masterSecret = Arrays.clone(masterSecret);
-        this.maxCacheR = 1 << (parameters.getH() + 1);
-        this.tCache = new WeakHashMap<CacheKey, byte[]>();
-        this.tDigest = DigestUtil.getDigest(lmsParameter);
     }
 
     private LMSPrivateKeyParameters(LMSPrivateKeyParameters parent, int q, int maxQ)
@@ -69,9 +54,6 @@ private LMSPrivateKeyParameters(LMSPrivateKeyParameters parent, int q, int maxQ)
         this.I = parent.I;
         this.maxQ = maxQ;
         this.masterSecret = parent.masterSecret;
-        this.maxCacheR = 1 << parameters.getH();
-        this.tCache = parent.tCache;
-        this.tDigest = DigestUtil.getDigest(parameters);
         this.publicKey = parent.publicKey;
     }
 
@@ -97,7 +79,7 @@ else if (src instanceof DataInputStream)
             DataInputStream dIn = (DataInputStream)src;
 
             /*
-            .u32str(0) // version
+            .u32str(0) // version, 1 if traversal state follows
             .u32str(parameters.getType()) // type
             .u32str(otsParameters.getType()) // ots type
             .bytes(I) // I at 16 bytes
@@ -105,13 +87,14 @@ else if (src instanceof DataInputStream)
             .u32str(maxQ) // maximum q
             .u32str(masterSecret.length) // length of master secret.
             .bytes(masterSecret) // the master secret
+            [traversal state]
             .build();
              */
 
-
-            if (dIn.readInt() != 0)
+            int version = dIn.readInt();
+            if (version != 0 && version != 1)
             {
-                throw new IllegalStateException("expected version 0 lms private key");
+                throw new IllegalStateException("expected version 0 or 1 lms private key");
             }
 
             LMSigParameters parameter = LMSigParameters.getParametersForType(dIn.readInt());
@@ -133,8 +116,18 @@ else if (src instanceof DataInputStream)
             byte[] masterSecret = new byte[l];
             dIn.readFully(masterSecret);
 
-            return new LMSPrivateKeyParameters(parameter, otsParameter, q, I, maxQ, masterSecret);
+            LMSPrivateKeyParameters key = new LMSPrivateKeyParameters(parameter, otsParameter, q, I, maxQ, masterSecret);
+
+            if (version == 1)
+            {
+                key.traversal = LMSTraversal.parse(dIn, parameter, otsParameter, key.I, key.masterSecret);
+                if (key.traversal.getIndex() != q)
+                {
+                    throw new IOException("lms traversal state does not match key index");
+                }
+            }
 
+            return key;
         }
         else if (src instanceof byte[])
         {
@@ -190,27 +183,48 @@ synchronized void incIndex()
 
     public LMSContext generateLMSContext()
     {
-        // Step 1.
-        LMSigParameters lmsParameter = this.getSigParameters();
+        LMOtsPrivateKey otsPk;
+        byte[][] path;
 
-        // Step 2
-        int h = lmsParameter.getH();
-        int q = getIndex();
-        LMOtsPrivateKey otsPk = getNextOtsPrivateKey();
+        synchronized (this)
+        {
+            otsPk = getNextOtsPrivateKey();
 
-        int i = 0;
-        int r = (1 << h) + q;
-        byte[][] path = new byte[h][];
+            // the path for this q, then move the traversal on ready for the next one.
+            LMSTraversal traversal = getTraversal(otsPk.getQ());
+            path = traversal.getAuthPath();
+            traversal.advanceTo(otsPk.getQ() + 1);
+        }
 
-        while (i < h)
+        return otsPk.getSignatureContext(this.getSigParameters(), path);
+    }
+
+    /**
+     * Set up the authentication path state for the current index, if it is not already present, computing
+     * the leaves of the tree concurrently on the passed in executor.
+     *
+     * @param executor executor to compute the leaves on, null to compute them on the calling thread.
+     */
+    synchronized void initTraversal(Executor executor)
+    {
+        if (traversal == null || !traversal.canAdvanceTo(q))
         {
-            int tmp = (r / (1 << i)) ^ 1;
+            traversal = LMSTraversal.build(this, q, executor);
+        }
+    }
 
-            path[i] = this.findT(tmp);
-            i++;
+    private LMSTraversal getTraversal(int index)
+    {
+        if (traversal == null || !traversal.canAdvanceTo(index))
+        {
+            traversal = LMSTraversal.build(this, index, null);
+        }
+        else
+        {
+            traversal.advanceTo(index);
         }
 
-        return otsPk.getSignatureContext(this.getSigParameters(), path);
+        return traversal;
     }
 
     public byte[] generateSignature(LMSContext context)
@@ -258,6 +272,10 @@ public LMSPrivateKeyParameters extractKeyShard(int usageCount)
                 throw new IllegalArgumentException("usageCount exceeds usages remaining");
             }
             LMSPrivateKeyParameters keyParameters = new LMSPrivateKeyParameters(this, q, q + usageCount);
+            if (traversal != null && traversal.getIndex() == q)
+            {
+                keyParameters.traversal = traversal.copy();
+            }
             q += usageCount;
 
             return keyParameters;
@@ -295,81 +313,12 @@ public LMSPublicKeyParameters getPublicKey()
         {
             if (publicKey == null)
             {
-                publicKey = new LMSPublicKeyParameters(parameters, otsParameters, this.findT(T1), I);
+                publicKey = new LMSPublicKeyParameters(parameters, otsParameters, getTraversal(q).getRoot(), I);
             }
             return publicKey;
         }
     }
 
-    byte[] findT(int r)
-    {
-        if (r < maxCacheR)
-        {
-            return findT(r < internedKeys.length ? internedKeys[r] : new CacheKey(r));
-        }
-
-        return calcT(r);
-    }
-
-    private byte[] findT(CacheKey key)
-    {
-        synchronized (tCache)
-        {
-            byte[] t = tCache.get(key);
-
-            if (t != null)
-            {
-                return t;
-            }
-
-            t = calcT(key.index);
-            tCache.put(key, t);
-
-            return t;
-        }
-    }
-
-    private byte[] calcT(int r)
-    {
-        int h = this.getSigParameters().getH();
-
-        int twoToh = 1 << h;
-
-        byte[] T;
-
-        // r is a base 1 index.
-
-        if (r >= twoToh)
-        {
-            LmsUtils.byteArray(this.getI(), tDigest);
-            LmsUtils.u32str(r, tDigest);
-            LmsUtils.u16str(LMS.D_LEAF, tDigest);
-            //
-            // These can be pre generated at the time of key generation and held within the private key.
-            // However it will cost memory to have them stick around.
-            //
-            byte[] K = LM_OTS.lms_ots_generatePublicKey(this.getOtsParameters(), this.getI(), (r - twoToh), this.getMasterSecret());
-
-            LmsUtils.byteArray(K, tDigest);
-            T = new byte[tDigest.getDigestSize()];
-            tDigest.doFinal(T, 0);
-            return T;
-        }
-
-        byte[] t2r = findT(2 * r);
-        byte[] t2rPlus1 = findT((2 * r + 1));
-
-        LmsUtils.byteArray(this.getI(), tDigest);
-        LmsUtils.u32str(r, tDigest);
-        LmsUtils.u16str(LMS.D_INTR, tDigest);
-        LmsUtils.byteArray(t2r, tDigest);
-        LmsUtils.byteArray(t2rPlus1, tDigest);
-        T = new byte[tDigest.getDigestSize()];
-        tDigest.doFinal(T, 0);
-
-        return T;
-    }
-
     @Override
     public boolean equals(Object o)
     {
@@ -424,8 +373,30 @@ public int hashCode()
         return result;
     }
 
+    /**
+     * Return the encoding of this key. If the authentication path traversal state is in step with the key's
+     * index, as it is for a freshly generated key or one that has been used to sign, the state is included
+     * and the encoding is written as version 1, so signing can carry on after decoding without rebuilding
+     * the tree. Releases before version 1 was introduced only accept version 0 encodings, which
+     * {@link #getEncoded(boolean)} can produce.
+     *
+     * @return the key encoding.
+     */
     public byte[] getEncoded()
         throws IOException
+    {
+        return getEncoded(true);
+    }
+
+    /**
+     * Return the encoding of this key.
+     *
+     * @param withTraversalState true to include the traversal state if it is in step with the key's index
+     *                           (version 1), false for the version 0 encoding of earlier releases.
+     * @return the key encoding.
+     */
+    public synchronized byte[] getEncoded(boolean withTraversalState)
+        throws IOException
     {
         //
         // NB there is no formal specification for the encoding of private keys.
@@ -440,42 +411,25 @@ public byte[] getEncoded()
         //     maxQ u32
         //     master secret Length u32
         //     master secret u8[]
+        //     traversal state (version 1 only)
         //
+        boolean withTraversal = withTraversalState && traversal != null && traversal.getIndex() == q;
 
-        return Composer.compose()
-            .u32str(0) // version
+        Composer composer = Composer.compose()
+            .u32str(withTraversal ? 1 : 0) // version
             .u32str(parameters.getType()) // type
             .u32str(otsParameters.getType()) // ots type
             .bytes(I) // I at 16 bytes
             .u32str(q) // q
             .u32str(maxQ) // maximum q
             .u32str(masterSecret.length) // length of master secret.
-            .bytes(masterSecret) // the master secret
-            .build();
-    }
+            .bytes(masterSecret); // the master secret
 
-    private static class CacheKey
-    {
-        private final int index;
-
-        CacheKey(int index)
+        if (withTraversal)
         {
-            this.index = index;
+            traversal.encode(composer);
         }
 
-        public int hashCode()
-        {
-            return index;
-        }
-
-        public boolean equals(Object o)
-        {
-            if (o instanceof CacheKey)
-            {
-                return ((CacheKey)o).index == this.index;
-            }
-
-            return false;
-        }
+        return composer.build();
     }
 }
@@ -0,0 +1,806 @@
+package org.bouncycastle.pqc.crypto.lms;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Executor;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.pqc.crypto.util.ParallelJobs;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * BDS authentication path traversal for an LMS tree, as used for XMSS by
+ * {@link org.bouncycastle.pqc.crypto.xmss.BDS}.
+ * <p>
+ * The state holds the authentication path for the next leaf, together with the nodes (treehash instances,
+ * retained and kept nodes) needed to move it on a leaf at a time, so each signature costs about
+ * (h - k) / 2 + 1 leaf computations rather than a recomputation of the sibling subtrees. Nodes are identified
+ * by their LMS node number r, so the state can be set up at any leaf: the traversal is run forward on node
+ * numbers alone, and the node values it ends up holding are then filled in by a single pass over the whole
+ * tree, which also gives the root. The leaves for that pass can be computed concurrently.
+ * </p>
+ * <p>
+ * Instances are not thread safe; LMSPrivateKeyParameters only uses them while holding its own lock.
+ * </p>
+ */
+class LMSTraversal
+{
+    private static final int MIN_JOB_HEIGHT = 4;
+    private static final int MAX_JOBS_LOG2 = 8;
+
+    private final LMSigParameters parameters;
+    private final LMOtsParameters otsParameters;
+    private final byte[] I;
+    private final byte[] masterSecret;
+    private final Digest digest;
+
+    private final int h;
+    private final int k;
+    private byte[] root;
+    private final Node[] authPath;
+    private final Node[] keep;
+    private final List<LinkedList<Node>> retain;
+    private final Stack<Node> stack;
+    private final TreeHash[] treeHash;
+    private int index;
+
+    private boolean symbolic;
+
+    private LMSTraversal(LMSigParameters parameters, LMOtsParameters otsParameters, byte[] I, byte[] masterSecret,
+        int k)
+    {
+        this.parameters = parameters;
+        this.otsParameters = otsParameters;
+        this.I = I;
+        this.masterSecret = masterSecret;
+        this.digest = DigestUtil.getDigest(parameters);
+
+        this.h = parameters.getH();
+        this.k = k;
+        this.authPath = new Node[h];
+        this.keep = new Node[h];
+        this.retain = new ArrayList<LinkedList<Node>>();
+        for (int height = h - k; height <= h - 2; height++)
+        {
+            retain.add(new LinkedList<Node>());
+        }
+        this.stack = new Stack<Node>();
+        this.treeHash = new TreeHash[h - k];
+        for (int height = 0; height < treeHash.length; height++)
+        {
+            treeHash[height] = new TreeHash(height);
+        }
+    }
+
+    /**
+     * Build the traversal state for the given leaf index.
+     *
+     * @param key the key the tree belongs to.
+     * @param index the index of the next leaf to be used.
+     * @param executor executor to compute the leaves on, null to compute them all on the calling thread.
+     * @return a traversal ready to provide the authentication path for leaf index.
+     */
+    static LMSTraversal build(LMSPrivateKeyParameters key, int index, Executor executor)
+    {
+        int h = key.getSigParameters().getH();
+
+        LMSTraversal traversal = new LMSTraversal(key.getSigParameters(), key.getOtsParameters(), key.getI(),
+            key.getMasterSecret(), getK(h));
+
+        traversal.initialize();
+
+        // move forward on node numbers alone, then fill in the values in one pass over the tree
+        traversal.symbolic = true;
+        int last = Math.min(index, (1 << h) - 1);
+        while (traversal.index < last)
+        {
+            traversal.nextAuthPath();
+        }
+        traversal.symbolic = false;
+
+        traversal.fill(executor);
+
+        return traversal;
+    }
+
+    /**
+     * The BDS parameter k: the top k - 1 levels of retained nodes are precomputed, and (h - k) must be even.
+     */
+    private static int getK(int h)
+    {
+        return (h & 1) == 0 ? 2 : 3;
+    }
+
+    LMSTraversal copy()
+    {
+        LMSTraversal t = new LMSTraversal(parameters, otsParameters, I, masterSecret, k);
+
+        t.root = root;
+        System.arraycopy(authPath, 0, t.authPath, 0, h);
+        System.arraycopy(keep, 0, t.keep, 0, h);
+        for (int i = 0; i != retain.size(); i++)
+        {
+            t.retain.get(i).addAll(retain.get(i));
+        }
+        t.stack.addAll(stack);
+        for (int height = 0; height != treeHash.length; height++)
+        {
+            t.treeHash[height] = treeHash[height].copy();
+        }
+        t.index = index;
+
+        return t;
+    }
+
+    int getIndex()
+    {
+        return index;
+    }
+
+    byte[] getRoot()
+    {
+        return root;
+    }
+
+    byte[][] getAuthPath()
+    {
+        byte[][] path = new byte[h][];
+        for (int i = 0; i != h; i++)
+        {
+            path[i] = authPath[i].value;
+        }
+        return path;
+    }
+
+    /**
+     * Return true if moving forward to the given leaf index costs less than building a new traversal there.
+     */
+    boolean canAdvanceTo(int target)
+    {
+        if (target < index)
+        {
+            return false;
+        }
+
+        long leaves = (long)(target - index) * (((h - k) >> 1) + 1);
+
+        return leaves < (1L << h);
+    }
+
+    void advanceTo(int target)
+    {
+        int last = Math.min(target, (1 << h) - 1);
+        while (index < last)
+        {
+            nextAuthPath();
+        }
+    }
+
+    private void initialize()
+    {
+        // the state for leaf 0 only depends on the shape of the tree
+        for (int height = 0; height < h; height++)
+        {
+            authPath[height] = new Node(nodeNumber(height, 1));
+        }
+        for (int height = 0; height < treeHash.length; height++)
+        {
+            treeHash[height].setNode(new Node(nodeNumber(height, 3)));
+        }
+        for (int height = h - k; height <= h - 2; height++)
+        {
+            LinkedList<Node> queue = retain.get(height - (h - k));
+            for (int i = 3; i < (1 << (h - height)); i += 2)
+            {
+                queue.add(new Node(nodeNumber(height, i)));
+            }
+        }
+        index = 0;
+    }
+
+    private void nextAuthPath()
+    {
+        if (index >= (1 << h) - 1)
+        {
+            throw new IllegalStateException("index out of bounds");
+        }
+
+        /* determine tau */
+        int tau = 0;
+        while (((index >>> tau) & 1) != 0)
+        {
+            tau++;
+        }
+
+        /* parent of leaf on height tau+1 is a left node */
+        if (((index >> (tau + 1)) & 1) == 0 && (tau < (h - 1)))
+        {
+            keep[tau] = authPath[tau];
+        }
+
+        /* leaf is a left node */
+        if (tau == 0)
+        {
+            authPath[0] = leaf(index);
+        }
+        else
+        {
+            /* add new left node on height tau to authentication path */
+            authPath[tau] = parent(authPath[tau - 1], keep[tau - 1]);
+            keep[tau - 1] = null;
+
+            /* add new right nodes to authentication path */
+            for (int height = 0; height < tau; height++)
+            {
+                if (height < (h - k))
+                {
+                    authPath[height] = treeHash[height].getTailNode();
+                }
+                else
+                {
+                    authPath[height] = retain.get(height - (h - k)).removeFirst();
+                }
+            }
+
+            /* reinitialize treehash instances */
+            int minHeight = Math.min(tau, h - k);
+            for (int height = 0; height < minHeight; height++)
+            {
+                int startIndex = index + 1 + (3 * (1 << height));
+                if (startIndex < (1 << h))
+                {
+                    treeHash[height].initialize(startIndex);
+                }
+            }
+        }
+
+        /* update treehash instances */
+        for (int i = 0; i < (h - k) >> 1; i++)
+        {
+            TreeHash instance = getTreeHashForUpdate();
+            if (instance != null)
+            {
+                instance.update();
+            }
+        }
+
+        index++;
+    }
+
+    private TreeHash getTreeHashForUpdate()
+    {
+        TreeHash ret = null;
+        for (int i = 0; i != treeHash.length; i++)
+        {
+            TreeHash instance = treeHash[i];
+            if (instance.finished || !instance.initialized)
+            {
+                continue;
+            }
+            if (ret == null || instance.height < ret.height
+                || (instance.height == ret.height && instance.nextIndex < ret.nextIndex))
+            {
+                ret = instance;
+            }
+        }
+        return ret;
+    }
+
+    private int nodeNumber(int height, int i)
+    {
+        return (1 << (h - height)) + i;
+    }
+
+    private int height(Node node)
+    {
+        return h - (31 - Integer.numberOfLeadingZeros(node.r));
+    }
+
+    private Node leaf(int q)
+    {
+        int r = (1 << h) + q;
+        Node node = new Node(r);
+        if (!symbolic)
+        {
+            node.value = calcLeaf(digest, r);
+        }
+        return node;
+    }
+
+    private Node parent(Node left, Node right)
+    {
+//        assert right.r == (left.r ^ 1);
+        int r = left.r >>> 1;
+        Node node = new Node(r);
+        if (!symbolic)
+        {
+            node.value = calcParent(digest, r, left.value, right.value);
+        }
+        return node;
+    }
+
+    private byte[] calcLeaf(Digest d, int r)
+    {
+        byte[] K = LM_OTS.lms_ots_generatePublicKey(otsParameters, I, r - (1 << h), masterSecret);
+
+        LmsUtils.byteArray(I, d);
+        LmsUtils.u32str(r, d);
+        LmsUtils.u16str(LMS.D_LEAF, d);
+        LmsUtils.byteArray(K, d);
+        byte[] T = new byte[d.getDigestSize()];
+        d.doFinal(T, 0);
+        return T;
+    }
+
+    private byte[] calcParent(Digest d, int r, byte[] left, byte[] right)
+    {
+        LmsUtils.byteArray(I, d);
+        LmsUtils.u32str(r, d);
+        LmsUtils.u16str(LMS.D_INTR, d);
+        LmsUtils.byteArray(left, d);
+        LmsUtils.byteArray(right, d);
+        byte[] T = new byte[d.getDigestSize()];
+        d.doFinal(T, 0);
+        return T;
+    }
+
+    /**
+     * Compute the values of all the nodes the state refers to, and the root, in one pass over the tree.
+     */
+    private void fill(Executor executor)
+    {
+        Map<Integer, List<Node>> needed = new HashMap<Integer, List<Node>>();
+        for (Iterator<Node> it = nodes().iterator(); it.hasNext();)
+        {
+            Node node = it.next();
+            if (node.value == null)
+            {
+                Integer key = Integer.valueOf(node.r);
+                List<Node> list = needed.get(key);
+                if (list == null)
+                {
+                    list = new ArrayList<Node>(1);
+                    needed.put(key, list);
+                }
+                list.add(node);
+            }
+        }
+
+        // split the tree into independent subtrees, then hash their roots together
+        int jobHeight = Math.max(Math.min(h, MIN_JOB_HEIGHT), h - MAX_JOBS_LOG2);
+        SubtreeJobs jobs = new SubtreeJobs(needed, jobHeight);
+        jobs.run(executor);
+
+        byte[][] level = jobs.roots;
+        for (int height = jobHeight; height < h; height++)
+        {
+            byte[][] next = new byte[level.length >>> 1][];
+            for (int i = 0; i != next.length; i++)
+            {
+                int r = nodeNumber(height + 1, i);
+                next[i] = calcParent(digest, r, level[2 * i], level[2 * i + 1]);
+                record(needed, r, next[i]);
+            }
+            level = next;
+        }
+
+        root = level[0];
+    }
+
+    private byte[] calcSubtree(Digest d, Map<Integer, List<Node>> needed, int r)
+    {
+        byte[] T;
+        if (r >= (1 << h))
+        {
+            T = calcLeaf(d, r);
+        }
+        else
+        {
+            T = calcParent(d, r, calcSubtree(d, needed, 2 * r), calcSubtree(d, needed, 2 * r + 1));
+        }
+        record(needed, r, T);
+        return T;
+    }
+
+    private static void record(Map<Integer, List<Node>> needed, int r, byte[] value)
+    {
+        List<Node> list = needed.get(Integer.valueOf(r));
+        if (list != null)
+        {
+            for (int i = 0; i != list.size(); i++)
+            {
+                list.get(i).value = value;
+            }
+        }
+    }
+
+    private List<Node> nodes()
+    {
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = 0; i != h; i++)
+        {
+            nodes.add(authPath[i]);
+            if (keep[i] != null)
+            {
+                nodes.add(keep[i]);
+            }
+        }
+        for (int i = 0; i != retain.size(); i++)
+        {
+            nodes.addAll(retain.get(i));
+        }
+        nodes.addAll(stack);
+        for (int i = 0; i != treeHash.length; i++)
+        {
+            if (treeHash[i].tailNode != null)
+            {
+                nodes.add(treeHash[i].tailNode);
+            }
+        }
+        return nodes;
+    }
+
+    void encode(Composer composer)
+    {
+        //
+        // Format:
+        //     index u32
+        //     k u32
+        //     root u8[m]
+        //     authentication path node[h]
+        //     keep count u32, node[]
+        //     retain count u32, node[]
+        //     stack count u32, node[]
+        //     treehash instances, (h - k) x { flags u32, height u32, next index u32, tail node number u32, tail u8[m] }
+        //
+        // where each node is its node number u32 followed by its value u8[m].
+        //
+        composer.u32str(index).u32str(k).bytes(root);
+
+        for (int i = 0; i != h; i++)
+        {
+            encodeNode(composer, authPath[i]);
+        }
+
+        int keepCount = 0;
+        for (int i = 0; i != h; i++)
+        {
+            keepCount += keep[i] != null ? 1 : 0;
+        }
+        composer.u32str(keepCount);
+        for (int i = 0; i != h; i++)
+        {
+            if (keep[i] != null)
+            {
+                encodeNode(composer, keep[i]);
+            }
+        }
+
+        int retainCount = 0;
+        for (int i = 0; i != retain.size(); i++)
+        {
+            retainCount += retain.get(i).size();
+        }
+        composer.u32str(retainCount);
+        for (int i = 0; i != retain.size(); i++)
+        {
+            for (Iterator<Node> it = retain.get(i).iterator(); it.hasNext();)
+            {
+                encodeNode(composer, it.next());
+            }
+        }
+
+        composer.u32str(stack.size());
+        for (int i = 0; i != stack.size(); i++)
+        {
+            encodeNode(composer, stack.get(i));
+        }
+
+        for (int i = 0; i != treeHash.length; i++)
+        {
+            TreeHash instance = treeHash[i];
+            composer.u32str((instance.initialized ? 1 : 0) | (instance.finished ? 2 : 0))
+                .u32str(instance.height)
+                .u32str(instance.nextIndex);
+            if (instance.tailNode != null)
+            {
+                encodeNode(composer, instance.tailNode);
+            }
+            else
+            {
+                composer.u32str(0);
+            }
+        }
+    }
+
+    private static void encodeNode(Composer composer, Node node)
+    {
+        composer.u32str(node.r).bytes(node.value);
+    }
+
+    static LMSTraversal parse(DataInputStream dIn, LMSigParameters parameters, LMOtsParameters otsParameters,
+        byte[] I, byte[] masterSecret)
+        throws IOException
+    {
+        int h = parameters.getH();
+        int m = parameters.getM();
+
+        int index = dIn.readInt();
+        int k = dIn.readInt();
+        if (index < 0 || index >= (1 << h) || k != getK(h))
+        {
+            throw new IOException("inconsistent LMS traversal data");
+        }
+
+        LMSTraversal t = new LMSTraversal(parameters, otsParameters, I, masterSecret, k);
+        t.index = index;
+        t.root = new byte[m];
+        dIn.readFully(t.root);
+
+        for (int i = 0; i != h; i++)
+        {
+            t.authPath[i] = t.parseNode(dIn, m);
+            if (t.height(t.authPath[i]) != i)
+            {
+                throw new IOException("inconsistent LMS traversal data");
+            }
+        }
+
+        int keepCount = t.parseCount(dIn, h);
+        for (int i = 0; i != keepCount; i++)
+        {
+            Node node = t.parseNode(dIn, m);
+            int height = t.height(node);
+            if (height >= h - 1 || t.keep[height] != null)
+            {
+                throw new IOException("inconsistent LMS traversal data");
+            }
+            t.keep[height] = node;
+        }
+
+        int retainCount = t.parseCount(dIn, 1 << k);
+        for (int i = 0; i != retainCount; i++)
+        {
+            Node node = t.parseNode(dIn, m);
+            int height = t.height(node);
+            if (height < h - k || height > h - 2)
+            {
+                throw new IOException("inconsistent LMS traversal data");
+            }
+            t.retain.get(height - (h - k)).add(node);
+        }
+
+        int stackCount = t.parseCount(dIn, h);
+        for (int i = 0; i != stackCount; i++)
+        {
+            t.stack.push(t.parseNode(dIn, m));
+        }
+
+        for (int i = 0; i != t.treeHash.length; i++)
+        {
+            TreeHash instance = t.treeHash[i];
+            int flags = dIn.readInt();
+            instance.initialized = (flags & 1) != 0;
+            instance.finished = (flags & 2) != 0;
+            instance.height = dIn.readInt();
+            instance.nextIndex = dIn.readInt();
+            if ((flags & ~3) != 0 || instance.height < 0 || instance.height > i || instance.nextIndex < 0)
+            {
+                throw new IOException("inconsistent LMS traversal data");
+            }
+
+            int r = dIn.readInt();
+            if (r != 0)
+            {
+                instance.tailNode = t.parseNode(r, dIn, m);
+            }
+        }
+
+        // the state is trusted from here on, so the path for the next leaf has to lead to the root
+        if (!t.isAuthPathValid())
+        {
+            throw new IOException("inconsistent LMS traversal data");
+        }
+
+        return t;
+    }
+
+    /**
+     * Check the authentication path against the root by recomputing the leaf at index from the master
+     * secret and hashing it up the path: one OTS key generation plus h hashes.
+     */
+    private boolean isAuthPathValid()
+    {
+        int r = (1 << h) + index;
+        byte[] node = calcLeaf(digest, r);
+        for (int height = 0; height != h; height++)
+        {
+            Node sibling = authPath[height];
+            if (sibling.r != (r ^ 1))
+            {
+                return false;
+            }
+
+            r >>>= 1;
+            if ((sibling.r & 1) != 0)
+            {
+                node = calcParent(digest, r, node, sibling.value);
+            }
+            else
+            {
+                node = calcParent(digest, r, sibling.value, node);
+            }
+        }
+        return Arrays.constantTimeAreEqual(node, root);
+    }
+
+    private int parseCount(DataInputStream dIn, int max)
+        throws IOException
+    {
+        int count = dIn.readInt();
+        if (count < 0 || count > max)
+        {
+            throw new IOException("inconsistent LMS traversal data");
+        }
+        return count;
+    }
+
+    private Node parseNode(DataInputStream dIn, int m)
+        throws IOException
+    {
+        return parseNode(dIn.readInt(), dIn, m);
+    }
+
+    private Node parseNode(int r, DataInputStream dIn, int m)
+        throws IOException
+    {
+        if (r < 2 || r >= (1 << (h + 1)))
+        {
+            throw new IOException("inconsistent LMS traversal data");
+        }
+
+        Node node = new Node(r);
+        node.value = new byte[m];
+        dIn.readFully(node.value);
+        return node;
+    }
+
+    /**
+     * A tree node, identified by its LMS node number. The value is null while the traversal is being run
+     * forward on node numbers alone.
+     */
+    private static final class Node
+    {
+        final int r;
+        byte[] value;
+
+        Node(int r)
+        {
+            this.r = r;
+        }
+    }
+
+    private final class TreeHash
+    {
+        private final int initialHeight;
+        private Node tailNode;
+        private int height;
+        private int nextIndex;
+        private boolean initialized;
+        private boolean finished;
+
+        TreeHash(int initialHeight)
+        {
+            this.initialHeight = initialHeight;
+        }
+
+        void initialize(int nextIndex)
+        {
+            this.tailNode = null;
+            this.height = initialHeight;
+            this.nextIndex = nextIndex;
+            this.initialized = true;
+            this.finished = false;
+        }
+
+        void update()
+        {
+            Node node = leaf(nextIndex);
+
+            while (!stack.isEmpty() && height(stack.peek()) == height(node) && height(stack.peek()) != initialHeight)
+            {
+                node = parent(stack.pop(), node);
+            }
+
+            if (tailNode == null)
+            {
+                tailNode = node;
+            }
+            else if (height(tailNode) == height(node))
+            {
+                node = parent(tailNode, node);
+                tailNode = node;
+            }
+            else
+            {
+                stack.push(node);
+            }
+
+            if (height(tailNode) == initialHeight)
+            {
+                finished = true;
+            }
+            else
+            {
+                height = height(node);
+                nextIndex++;
+            }
+        }
+
+        void setNode(Node node)
+        {
+            tailNode = node;
+            height = height(node);
+            if (height == initialHeight)
+            {
+                finished = true;
+            }
+        }
+
+        Node getTailNode()
+        {
+            return tailNode;
+        }
+
+        TreeHash copy()
+        {
+            TreeHash th = LMSTraversal.this.new TreeHash(initialHeight);
+
+            th.tailNode = tailNode;
+            th.height = height;
+            th.nextIndex = nextIndex;
+            th.initialized = initialized;
+            th.finished = finished;
+
+            return th;
+        }
+    }
+
+    /**
+     * The subtrees at jobHeight, each computed as a separate job by whichever threads are taking part.
+     */
+    private class SubtreeJobs
+        extends ParallelJobs<Digest>
+    {
+        private final Map<Integer, List<Node>> needed;
+        private final int jobHeight;
+        private final byte[][] roots;
+
+        SubtreeJobs(Map<Integer, List<Node>> needed, int jobHeight)
+        {
+            super(1 << (h - jobHeight), "building LMS tree");
+
+            this.needed = needed;
+            this.jobHeight = jobHeight;
+            this.roots = new byte[1 << (h - jobHeight)][];
+        }
+
+        protected Digest createWorkerState()
+        {
+            // digests are stateful, so each worker needs its own
+            return DigestUtil.getDigest(parameters);
+        }
+
+        protected void runJob(Digest d, int job)
+        {
+            roots[job] = calcSubtree(d, needed, nodeNumber(jobHeight, job));
+        }
+    }
+}
@@ -65,15 +65,6 @@ static byte[] lms_ots_generatePublicKey(LMOtsParameters parameter, byte[] I, int
             .build();
         publicContext.update(prehashPrefix, 0, prehashPrefix.length);
 
-        Digest ctx = DigestUtil.getDigest(parameter);
-
-        byte[] buf = Composer.compose()
-            .bytes(I)
-            .u32str(q)
-            .padUntil(0, 23 + ctx.getDigestSize())
-            .build();
-
-
         SeedDerive derive = new SeedDerive(I, masterSecret, DigestUtil.getDigest(parameter));
         derive.setQ(q);
         derive.setJ(0);
@@ -82,18 +73,21 @@ static byte[] lms_ots_generatePublicKey(LMOtsParameters parameter, byte[] I, int
         int n = parameter.getN();
         final int twoToWminus1 = (1 << parameter.getW()) - 1;
 
+        byte[] chains = initChains(I, q, p, n);
+        int[] start = new int[p];
+        int[] end = new int[p];
 
         for (int i = 0; i < p; i++)
         {
-            derive.deriveSeed(buf, i < p - 1, ITER_PREV); // Private Key!
-            Pack.shortToBigEndian((short)i, buf, ITER_K);
-            for (int j = 0; j < twoToWminus1; j++)
-            {
-                buf[ITER_J] = (byte)j;
-                ctx.update(buf, 0, buf.length);
-                ctx.doFinal(buf, ITER_PREV);
-            }
-            publicContext.update(buf, ITER_PREV, n);
+            derive.deriveSeed(chains, i < p - 1, i * (ITER_PREV + n) + ITER_PREV); // Private Key!
+            end[i] = twoToWminus1;
+        }
+
+        runChains(parameter, chains, start, end);
+
+        for (int i = 0; i < p; i++)
+        {
+            publicContext.update(chains, i * (ITER_PREV + n) + ITER_PREV, n);
         }
 
         byte[] K = new byte[publicContext.getDigestSize()];
@@ -103,6 +97,60 @@ static byte[] lms_ots_generatePublicKey(LMOtsParameters parameter, byte[] I, int
 
     }
 
+    // p chain hash inputs I || u32str(q) || u16str(i) || u8str(j) || tmp, one after the other.
+    private static byte[] initChains(byte[] I, int q, int p, int n)
+    {
+        int inLen = ITER_PREV + n;
+        byte[] chains = new byte[p * inLen];
+        for (int i = 0; i < p; i++)
+        {
+            int off = i * inLen;
+            System.arraycopy(I, 0, chains, off, I.length);
+            Pack.intToBigEndian(q, chains, off + 16);
+            Pack.shortToBigEndian((short)i, chains, off + ITER_K);
+        }
+        return chains;
+    }
+
+    // Iterate the hash over the chains set up by initChains(), chain i going from step start[i] up to end[i].
+    // The chains are advanced together, so each step is hashed as one batch across all the chains still running.
+    private static void runChains(LMOtsParameters parameter, byte[] chains, int[] start, int[] end)
+    {
+        DigestUtil.BatchDigest ctx = DigestUtil.getBatchDigest(parameter);
+
+        int p = parameter.getP();
+        int n = parameter.getN();
+        int inLen = ITER_PREV + n;
+        int max_digit = (1 << parameter.getW()) - 1;
+
+        byte[] in = new byte[p * inLen];
+        byte[] out = new byte[p * n];
+        int[] lanes = new int[p];
+
+        for (int j = 0; j < max_digit; j++)
+        {
+            int count = 0;
+            for (int i = 0; i < p; i++)
+            {
+                if (start[i] <= j && j < end[i])
+                {
+                    chains[i * inLen + ITER_J] = (byte)j;
+                    System.arraycopy(chains, i * inLen, in, count * inLen, inLen);
+                    lanes[count++] = i;
+                }
+            }
+
+            if (count > 0)
+            {
+                ctx.hash(in, 0, inLen, count, out, 0);
+                for (int k = 0; k < count; k++)
+                {
+                    System.arraycopy(out, k * n, chains, lanes[k] * inLen + ITER_PREV, n);
+                }
+            }
+        }
+    }
+
     public static LMOtsSignature lm_ots_generate_signature(LMSigParameters sigParams, LMOtsPrivateKey privateKey, byte[][] path, byte[] message, boolean preHashed)
     {
         //
@@ -142,29 +190,28 @@ public static LMOtsSignature lm_ots_generate_signature(LMOtsPrivateKey privateKe
 
         byte[] sigComposer = new byte[p * n];
 
-        Digest ctx = DigestUtil.getDigest(parameter);
-
         SeedDerive derive = privateKey.getDerivationFunction();
 
         int cs = cksm(Q, n, parameter);
         Q[n] = (byte)((cs >>> 8) & 0xFF);
         Q[n + 1] = (byte)cs;
 
-        byte[] tmp = Composer.compose().bytes(privateKey.getI()).u32str(privateKey.getQ()).padUntil(0, ITER_PREV + n).build();
+        byte[] chains = initChains(privateKey.getI(), privateKey.getQ(), p, n);
+        int[] start = new int[p];
+        int[] end = new int[p];
 
         derive.setJ(0);
         for (int i = 0; i < p; i++)
         {
-            Pack.shortToBigEndian((short)i, tmp, ITER_K);
-            derive.deriveSeed(tmp, i < p - 1, ITER_PREV);
-            int a = coef(Q, i, w);
-            for (int j = 0; j < a; j++)
-            {
-                tmp[ITER_J] = (byte)j;
-                ctx.update(tmp, 0, ITER_PREV + n);
-                ctx.doFinal(tmp, ITER_PREV);
-            }
-            System.arraycopy(tmp, ITER_PREV, sigComposer, n * i, n);
+            derive.deriveSeed(chains, i < p - 1, i * (ITER_PREV + n) + ITER_PREV);
+            end[i] = coef(Q, i, w);
+        }
+
+        runChains(parameter, chains, start, end);
+
+        for (int i = 0; i < p; i++)
+        {
+            System.arraycopy(chains, i * (ITER_PREV + n) + ITER_PREV, sigComposer, n * i, n);
         }
 
         return new LMOtsSignature(parameter, C, sigComposer);
@@ -221,30 +268,26 @@ public static byte[] lm_ots_validate_signature_calculate(LMSContext context)
         LmsUtils.u32str(q, finalContext);
         LmsUtils.u16str(D_PBLC, finalContext);
 
-        byte[] tmp = Composer.compose()
-            .bytes(I)
-            .u32str(q)
-            .padUntil(0, ITER_PREV + n).build();
-
         int max_digit = (1 << w) - 1;
 
         byte[] y = signature.getY();
 
-        Digest ctx = DigestUtil.getDigest(parameter);
+        byte[] chains = initChains(I, q, p, n);
+        int[] start = new int[p];
+        int[] end = new int[p];
+
         for (int i = 0; i < p; i++)
         {
-            Pack.shortToBigEndian((short)i, tmp, ITER_K);
-            System.arraycopy(y, i * n, tmp, ITER_PREV, n);
-            int a = coef(Q, i, w);
+            System.arraycopy(y, i * n, chains, i * (ITER_PREV + n) + ITER_PREV, n);
+            start[i] = coef(Q, i, w);
+            end[i] = max_digit;
+        }
 
-            for (int j = a; j < max_digit; j++)
-            {
-                tmp[ITER_J] = (byte)j;
-                ctx.update(tmp, 0, ITER_PREV + n);
-                ctx.doFinal(tmp, ITER_PREV);
-            }
+        runChains(parameter, chains, start, end);
 
-            finalContext.update(tmp, ITER_PREV, n);
+        for (int i = 0; i < p; i++)
+        {
+            finalContext.update(chains, i * (ITER_PREV + n) + ITER_PREV, n);
         }
 
         byte[] K = new byte[n];
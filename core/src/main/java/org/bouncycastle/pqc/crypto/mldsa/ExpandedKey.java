@@ -0,0 +1,55 @@
+package org.bouncycastle.pqc.crypto.mldsa;
+
+/**
+ * The expanded form of an ML-DSA key: the public matrix A, expanded from rho, and the key vectors in the
+ * NTT domain. The contents are never modified once created, so an instance can be shared between threads.
+ */
+class ExpandedKey
+{
+    final PolyVecMatrix aMatrix;
+    final PolyVecL s1Hat;
+    final PolyVecK s2Hat;
+    final PolyVecK t0Hat;
+    final PolyVecK t1Hat;
+
+    private ExpandedKey(PolyVecMatrix aMatrix, PolyVecL s1Hat, PolyVecK s2Hat, PolyVecK t0Hat, PolyVecK t1Hat)
+    {
+        this.aMatrix = aMatrix;
+        this.s1Hat = s1Hat;
+        this.s2Hat = s2Hat;
+        this.t0Hat = t0Hat;
+        this.t1Hat = t1Hat;
+    }
+
+    static ExpandedKey forSigning(MLDSAEngine engine, byte[] rho, byte[] t0Enc, byte[] s1Enc, byte[] s2Enc)
+    {
+        PolyVecMatrix aMatrix = new PolyVecMatrix(engine);
+        PolyVecL s1 = new PolyVecL(engine);
+        PolyVecK t0 = new PolyVecK(engine), s2 = new PolyVecK(engine);
+
+        Packing.unpackSecretKey(t0, s1, s2, t0Enc, s1Enc, s2Enc, engine);
+
+        aMatrix.expandMatrix(rho);
+
+        s1.polyVecNtt();
+        s2.polyVecNtt();
+        t0.polyVecNtt();
+
+        return new ExpandedKey(aMatrix, s1, s2, t0, null);
+    }
+
+    static ExpandedKey forVerifying(MLDSAEngine engine, byte[] rho, byte[] encT1)
+    {
+        PolyVecMatrix aMatrix = new PolyVecMatrix(engine);
+        PolyVecK t1 = new PolyVecK(engine);
+
+        t1 = Packing.unpackPublicKey(t1, encT1, engine);
+
+        aMatrix.expandMatrix(rho);
+
+        t1.shiftLeft();
+        t1.polyVecNtt();
+
+        return new ExpandedKey(aMatrix, null, null, null, t1);
+    }
+}
@@ -120,14 +120,14 @@ public byte[] generateSignature() throws CryptoException, DataLengthException
             random.nextBytes(rnd);
         }
 
-        return engine.generateSignature(msgDigest, privKey.rho, privKey.k, privKey.t0, privKey.s1, privKey.s2, rnd);
+        return engine.generateSignature(msgDigest, privKey, rnd);
     }
 
     public boolean verifySignature(byte[] signature)
     {
         SHAKEDigest msgDigest = finishPreHash();
 
-        return engine.verifyInternal(signature, signature.length, msgDigest, pubKey.rho, pubKey.t1);
+        return engine.verifyInternal(signature, signature.length, msgDigest, pubKey);
     }
 
     /**
@@ -345,7 +345,22 @@ public byte[] signInternal(byte[] msg, int msglen, byte[] rho, byte[] key, byte[
         return generateSignature(shake256, rho, key, t0Enc, s1Enc, s2Enc, rnd);
     }
 
+    byte[] generateSignature(SHAKEDigest shake256Digest, MLDSAPrivateKeyParameters privKey, byte[] rnd)
+    {
+        if (privKey.expandedKey != null)
+        {
+            return generateSignature(shake256Digest, privKey.k, privKey.expandedKey, rnd);
+        }
+
+        return generateSignature(shake256Digest, privKey.rho, privKey.k, privKey.t0, privKey.s1, privKey.s2, rnd);
+    }
+
     byte[] generateSignature(SHAKEDigest shake256Digest, byte[] rho, byte[] key, byte[] t0Enc, byte[] s1Enc, byte[] s2Enc, byte[] rnd)
+    {
+        return generateSignature(shake256Digest, key, ExpandedKey.forSigning(this, rho, t0Enc, s1Enc, s2Enc), rnd);
+    }
+
+    byte[] generateSignature(SHAKEDigest shake256Digest, byte[] key, ExpandedKey expandedKey, byte[] rnd)
     {
         byte[] mu = new byte[CrhBytes];
 
@@ -355,12 +370,14 @@ byte[] generateSignature(SHAKEDigest shake256Digest, byte[] rho, byte[] key, byt
         byte[] outSig = new byte[CryptoBytes];
         byte[] rhoPrime = new byte[CrhBytes];
         short nonce = 0;
-        PolyVecL s1 = new PolyVecL(this), y = new PolyVecL(this), z = new PolyVecL(this);
-        PolyVecK t0 = new PolyVecK(this), s2 = new PolyVecK(this), w1 = new PolyVecK(this), w0 = new PolyVecK(this), h = new PolyVecK(this);
+        PolyVecL y = new PolyVecL(this), z = new PolyVecL(this);
+        PolyVecK w1 = new PolyVecK(this), w0 = new PolyVecK(this), h = new PolyVecK(this);
         Poly cp = new Poly(this);
-        PolyVecMatrix aMatrix = new PolyVecMatrix(this);
 
-        Packing.unpackSecretKey(t0, s1, s2, t0Enc, s1Enc, s2Enc, this);
+        // the expanded key is shared, so it is only ever read from here
+        PolyVecMatrix aMatrix = expandedKey.aMatrix;
+        PolyVecL s1 = expandedKey.s1Hat;
+        PolyVecK s2 = expandedKey.s2Hat, t0 = expandedKey.t0Hat;
 
         byte[] keyMu = Arrays.copyOf(key, SeedBytes + RndBytes + CrhBytes);
         System.arraycopy(rnd, 0, keyMu, SeedBytes, RndBytes);
@@ -368,13 +385,6 @@ byte[] generateSignature(SHAKEDigest shake256Digest, byte[] rho, byte[] key, byt
         shake256Digest.update(keyMu, 0, SeedBytes + RndBytes + CrhBytes);
         shake256Digest.doFinal(rhoPrime, 0, CrhBytes);
 
-        aMatrix.expandMatrix(rho);
-
-        s1.polyVecNtt();
-        s2.polyVecNtt();
-
-        t0.polyVecNtt();
-
         int count = 0;
         while (count < 1000)
         {
@@ -451,124 +461,45 @@ public boolean verifyInternal(byte[] sig, int siglen, SHAKEDigest shake256Digest
             return false;
         }
 
-        // System.out.println("publickey = ");
-        // Helper.printByteArray(publicKey);
-        byte[] buf,
-            mu = new byte[CrhBytes],
-            c,
-            c2 = new byte[DilithiumCTilde];
-        Poly cp = new Poly(this);
-        PolyVecMatrix aMatrix = new PolyVecMatrix(this);
-        PolyVecL z = new PolyVecL(this);
-        PolyVecK t1 = new PolyVecK(this), w1 = new PolyVecK(this), h = new PolyVecK(this);
-
-        t1 = Packing.unpackPublicKey(t1, encT1, this);
-
-        // System.out.println(t1.toString("t1"));
-
-        // System.out.println("rho = ");
-        // Helper.printByteArray(rho);
-
-        if (!Packing.unpackSignature(z, h, sig, this))
-        {
-            return false;
-        }
-        c = Arrays.copyOfRange(sig, 0, DilithiumCTilde);
-
-        // System.out.println(z.toString("z"));
-        // System.out.println(h.toString("h"));
+        return verifyInternal(sig, shake256Digest, ExpandedKey.forVerifying(this, rho, encT1));
+    }
 
-        if (z.checkNorm(getDilithiumGamma1() - getDilithiumBeta()))
+    public boolean verifyInternal(byte[] sig, int siglen, byte[] msg, int msglen, byte[] rho, byte[] encT1)
+    {
+        if (siglen != CryptoBytes)
         {
             return false;
         }
 
-        shake256Digest.doFinal(mu, 0);
-
-        // System.out.println("mu after = ");
-        // Helper.printByteArray(mu);
-
-        // Matrix-vector multiplication; compute Az - c2^dt1
-        cp.challenge(Arrays.copyOfRange(c, 0, DilithiumCTilde));  // use only first DilithiumCTilde of c.
-        // System.out.println("cp = ");
-        // System.out.println(cp.toString());
-
-        aMatrix.expandMatrix(rho);
-        // System.out.println(aMatrix.toString("aMatrix = "));
-
-
-        z.polyVecNtt();
-        aMatrix.pointwiseMontgomery(w1, z);
-
-        cp.polyNtt();
-        // System.out.println("cp = ");
-        // System.out.println(cp.toString());
-
-        t1.shiftLeft();
-        t1.polyVecNtt();
-        t1.pointwisePolyMontgomery(cp, t1);
-
-        // System.out.println(t1.toString("t1"));
-
-        w1.subtract(t1);
-        w1.reduce();
-        w1.invNttToMont();
-
-        // System.out.println(w1.toString("w1 before caddq"));
-
-        // Reconstruct w1
-        w1.conditionalAddQ();
-        // System.out.println(w1.toString("w1 before hint"));
-        w1.useHint(w1, h);
-        // System.out.println(w1.toString("w1"));
-
-        buf = w1.packW1();
-
-        // System.out.println("buf = ");
-        // Helper.printByteArray(buf);
-
-        // System.out.println("mu = ");
-        // Helper.printByteArray(mu);
-
-        SHAKEDigest shakeDigest256 = new SHAKEDigest(256);
-        shakeDigest256.update(mu, 0, CrhBytes);
-        shakeDigest256.update(buf, 0, DilithiumK * DilithiumPolyW1PackedBytes);
-        shakeDigest256.doFinal(c2, 0, DilithiumCTilde);
-
-        // System.out.println("c = ");
-        // Helper.printByteArray(c);
-
-        // System.out.println("c2 = ");
-        // Helper.printByteArray(c2);
-
+        shake256Digest.update(msg, 0, msglen);
 
-        return Arrays.constantTimeAreEqual(c, c2);
+        return verifyInternal(sig, shake256Digest, ExpandedKey.forVerifying(this, rho, encT1));
     }
 
-    public boolean verifyInternal(byte[] sig, int siglen, byte[] msg, int msglen, byte[] rho, byte[] encT1)
+    boolean verifyInternal(byte[] sig, int siglen, SHAKEDigest shake256Digest, MLDSAPublicKeyParameters pubKey)
     {
+        if (pubKey.expandedKey == null)
+        {
+            return verifyInternal(sig, siglen, shake256Digest, pubKey.rho, pubKey.t1);
+        }
+
         if (siglen != CryptoBytes)
         {
             return false;
         }
 
-        // System.out.println("publickey = ");
-        // Helper.printByteArray(publicKey);
+        return verifyInternal(sig, shake256Digest, pubKey.expandedKey);
+    }
+
+    private boolean verifyInternal(byte[] sig, SHAKEDigest shake256Digest, ExpandedKey expandedKey)
+    {
         byte[] buf,
             mu = new byte[CrhBytes],
             c,
             c2 = new byte[DilithiumCTilde];
         Poly cp = new Poly(this);
-        PolyVecMatrix aMatrix = new PolyVecMatrix(this);
         PolyVecL z = new PolyVecL(this);
-        PolyVecK t1 = new PolyVecK(this), w1 = new PolyVecK(this), h = new PolyVecK(this);
-
-        t1 = Packing.unpackPublicKey(t1, encT1, this);
-
-        // System.out.println(t1.toString("t1"));
-
-        // System.out.println("rho = ");
-        // Helper.printByteArray(rho);
+        PolyVecK ct1 = new PolyVecK(this), w1 = new PolyVecK(this), h = new PolyVecK(this);
 
         if (!Packing.unpackSignature(z, h, sig, this))
         {
@@ -576,82 +507,39 @@ public boolean verifyInternal(byte[] sig, int siglen, byte[] msg, int msglen, by
         }
         c = Arrays.copyOfRange(sig, 0, DilithiumCTilde);
 
-        // System.out.println(z.toString("z"));
-        // System.out.println(h.toString("h"));
-
         if (z.checkNorm(getDilithiumGamma1() - getDilithiumBeta()))
         {
             return false;
         }
 
-        // Compute crh(crh(rho, t1), msg)
-//        shake256Digest.update(rho, 0, rho.length);
-//        shake256Digest.update(encT1, 0, encT1.length);
-//        shake256Digest.doFinal(mu, 0, TrBytes);
-        // System.out.println("mu before = ");
-        // Helper.printByteArray(mu);
-
-        //shake256Digest.update(mu, 0, TrBytes);
-        shake256Digest.update(msg, 0, msglen);
         shake256Digest.doFinal(mu, 0);
 
-        // System.out.println("mu after = ");
-        // Helper.printByteArray(mu);
-
         // Matrix-vector multiplication; compute Az - c2^dt1
         cp.challenge(Arrays.copyOfRange(c, 0, DilithiumCTilde));  // use only first DilithiumCTilde of c.
-        // System.out.println("cp = ");
-        // System.out.println(cp.toString());
-
-        aMatrix.expandMatrix(rho);
-        // System.out.println(aMatrix.toString("aMatrix = "));
-
 
         z.polyVecNtt();
-        aMatrix.pointwiseMontgomery(w1, z);
+        expandedKey.aMatrix.pointwiseMontgomery(w1, z);
 
         cp.polyNtt();
-        // System.out.println("cp = ");
-        // System.out.println(cp.toString());
 
-        t1.shiftLeft();
-        t1.polyVecNtt();
-        t1.pointwisePolyMontgomery(cp, t1);
+        // t1Hat holds NTT(t1 * 2^d) and is shared, so the product goes to a separate vector
+        ct1.pointwisePolyMontgomery(cp, expandedKey.t1Hat);
 
-        // System.out.println(t1.toString("t1"));
-
-        w1.subtract(t1);
+        w1.subtract(ct1);
         w1.reduce();
         w1.invNttToMont();
 
-        // System.out.println(w1.toString("w1 before caddq"));
-
         // Reconstruct w1
         w1.conditionalAddQ();
-        // System.out.println(w1.toString("w1 before hint"));
         w1.useHint(w1, h);
-        // System.out.println(w1.toString("w1"));
 
         buf = w1.packW1();
 
-        // System.out.println("buf = ");
-        // Helper.printByteArray(buf);
-
-        // System.out.println("mu = ");
-        // Helper.printByteArray(mu);
-
         SHAKEDigest shakeDigest256 = new SHAKEDigest(256);
         shakeDigest256.update(mu, 0, CrhBytes);
         shakeDigest256.update(buf, 0, DilithiumK * DilithiumPolyW1PackedBytes);
         shakeDigest256.doFinal(c2, 0, DilithiumCTilde);
 
-        // System.out.println("c = ");
-        // Helper.printByteArray(c);
-
-        // System.out.println("c2 = ");
-        // Helper.printByteArray(c2);
-
-
         return Arrays.constantTimeAreEqual(c, c2);
     }
 
@@ -15,6 +15,8 @@
     private final byte[] t1;
     private final byte[] seed;
 
+    final ExpandedKey expandedKey;
+
     public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] seed)
     {
         super(true, params);
@@ -28,6 +30,7 @@ public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] seed)
         this.t0 = keyDetails[5];
         this.t1 = keyDetails[6];
         this.seed = keyDetails[7];
+        this.expandedKey = null;
     }
 
     public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] rho, byte[] K, byte[] tr, byte[] s1, byte[] s2, byte[] t0, byte[] t1)
@@ -46,6 +49,7 @@ public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] rho, byte[] K, b
         this.t0 = Arrays.clone(t0);
         this.t1 = Arrays.clone(t1);
         this.seed = Arrays.clone(seed);
+        this.expandedKey = null;
     }
 
     public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] encoding, MLDSAPublicKeyParameters pubKey)
@@ -79,6 +83,50 @@ public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] encoding, MLDSAP
             this.t1 = null;
         }
         this.seed = null;
+        this.expandedKey = null;
+    }
+
+    private MLDSAPrivateKeyParameters(MLDSAPrivateKeyParameters key, ExpandedKey expandedKey)
+    {
+        super(true, key.getParameters());
+        this.rho = key.rho;
+        this.k = key.k;
+        this.tr = key.tr;
+        this.s1 = key.s1;
+        this.s2 = key.s2;
+        this.t0 = key.t0;
+        this.t1 = key.t1;
+        this.seed = key.seed;
+        this.expandedKey = expandedKey;
+    }
+
+    /**
+     * Return a version of this key that carries its expanded form, the matrix A expanded from rho together
+     * with s1, s2 and t0 in the NTT domain, so that signing with it skips the matrix expansion and key
+     * decoding each time.
+     * <p>
+     * The expanded form takes (K * L + L + 2 * K) KiB on top of the encoded key, around 80 KiB for ML-DSA-87,
+     * and is never modified after it is created, so the returned key can be shared by signers on several
+     * threads. It holds secret key material in the clear for as long as the key is reachable.
+     * </p>
+     *
+     * @return a precomputed copy of this key, or this key if it is already precomputed.
+     */
+    public MLDSAPrivateKeyParameters withPrecomputation()
+    {
+        if (expandedKey != null)
+        {
+            return this;
+        }
+
+        MLDSAEngine engine = getParameters().getEngine(null);
+
+        return new MLDSAPrivateKeyParameters(this, ExpandedKey.forSigning(engine, rho, t0, s1, s2));
+    }
+
+    public boolean isPrecomputed()
+    {
+        return expandedKey != null;
     }
 
     public byte[] getEncoded()
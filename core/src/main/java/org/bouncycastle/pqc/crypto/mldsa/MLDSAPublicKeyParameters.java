@@ -13,11 +13,14 @@ static byte[] getEncoded(byte[] rho, byte[] t1)
     final byte[] rho;
     final byte[] t1;
 
+    final ExpandedKey expandedKey;
+
     public MLDSAPublicKeyParameters(MLDSAParameters params, byte[] encoding)
     {
         super(false, params);
         this.rho = Arrays.copyOfRange(encoding, 0, MLDSAEngine.SeedBytes);
         this.t1 = Arrays.copyOfRange(encoding, MLDSAEngine.SeedBytes, encoding.length);
+        this.expandedKey = null;
     }
 
     public MLDSAPublicKeyParameters(MLDSAParameters params, byte[] rho, byte[] t1)
@@ -25,6 +28,44 @@ public MLDSAPublicKeyParameters(MLDSAParameters params, byte[] rho, byte[] t1)
         super(false, params);
         this.rho = Arrays.clone(rho);
         this.t1 = Arrays.clone(t1);
+        this.expandedKey = null;
+    }
+
+    private MLDSAPublicKeyParameters(MLDSAPublicKeyParameters key, ExpandedKey expandedKey)
+    {
+        super(false, key.getParameters());
+        this.rho = key.rho;
+        this.t1 = key.t1;
+        this.expandedKey = expandedKey;
+    }
+
+    /**
+     * Return a version of this key that carries its expanded form, the matrix A expanded from rho together
+     * with t1 in the NTT domain, so that verifying with it skips the matrix expansion and key decoding
+     * each time.
+     * <p>
+     * The expanded form takes (K * L + K) KiB on top of the encoded key, around 64 KiB for ML-DSA-87, and
+     * is never modified after it is created, so the returned key can be shared by verifiers on several
+     * threads.
+     * </p>
+     *
+     * @return a precomputed copy of this key, or this key if it is already precomputed.
+     */
+    public MLDSAPublicKeyParameters withPrecomputation()
+    {
+        if (expandedKey != null)
+        {
+            return this;
+        }
+
+        MLDSAEngine engine = getParameters().getEngine(null);
+
+        return new MLDSAPublicKeyParameters(this, ExpandedKey.forVerifying(engine, rho, t1));
+    }
+
+    public boolean isPrecomputed()
+    {
+        return expandedKey != null;
     }
 
     public byte[] getEncoded()
@@ -102,7 +102,7 @@ public byte[] generateSignature()
             random.nextBytes(rnd);
         }
 
-        byte[] sig = engine.generateSignature(msgDigest, privKey.rho, privKey.k, privKey.t0, privKey.s1, privKey.s2, rnd);
+        byte[] sig = engine.generateSignature(msgDigest, privKey, rnd);
 
         reset();
 
@@ -111,7 +111,7 @@ public byte[] generateSignature()
 
     public boolean verifySignature(byte[] signature)
     {
-        boolean isTrue = engine.verifyInternal(signature, signature.length, msgDigest, pubKey.rho, pubKey.t1);
+        boolean isTrue = engine.verifyInternal(signature, signature.length, msgDigest, pubKey);
 
         reset();
 
@@ -142,6 +142,6 @@ protected boolean internalVerifySignature(byte[] message, byte[] signature)
 
         msgDigest.update(message, 0, message.length);
 
-        return engine.verifyInternal(signature, signature.length, msgDigest, pubKey.rho, pubKey.t1);
+        return engine.verifyInternal(signature, signature.length, msgDigest, pubKey);
     }
 }
@@ -0,0 +1,22 @@
+package org.bouncycastle.pqc.crypto.mlkem;
+
+/**
+ * The expanded form of an ML-KEM key: the decoded public vector t, the transposed matrix A expanded
+ * from rho, the hash of the encoded public key and, for private keys, the decoded secret vector s.
+ * The contents are never modified once created, so an instance can be shared between threads.
+ */
+class ExpandedKey
+{
+    final PolyVec[] aMatrixTranspose;
+    final PolyVec t;
+    final byte[] hpk;
+    final PolyVec s;
+
+    ExpandedKey(PolyVec[] aMatrixTranspose, PolyVec t, byte[] hpk, PolyVec s)
+    {
+        this.aMatrixTranspose = aMatrixTranspose;
+        this.t = t;
+        this.hpk = hpk;
+        this.s = s;
+    }
+}
@@ -206,6 +206,19 @@ public byte[][] generateKemKeyPairInternal(byte[] d, byte[] z)
     }
 
     public byte[][] kemEncryptInternal(byte[] publicKeyInput, byte[] randBytes)
+    {
+        byte[] hashedPublicKey = new byte[KyberSymBytes];
+
+        // SHA3-256 Public Key
+        symmetric.hash_h(hashedPublicKey, publicKeyInput, 0);
+
+        PolyVec publicKeyPolyVec = new PolyVec(this);
+        byte[] seed = indCpa.unpackPublicKey(publicKeyPolyVec, publicKeyInput);
+
+        return kemEncryptInternal(new ExpandedKey(expandMatrix(seed), publicKeyPolyVec, hashedPublicKey, null), randBytes);
+    }
+
+    byte[][] kemEncryptInternal(ExpandedKey publicKey, byte[] randBytes)
     {
         byte[] outputCipherText;
 
@@ -213,15 +226,13 @@ public byte[][] kemEncryptInternal(byte[] publicKeyInput, byte[] randBytes)
         byte[] kr = new byte[2 * KyberSymBytes];
 
         System.arraycopy(randBytes, 0, buf, 0, KyberSymBytes);
-
-        // SHA3-256 Public Key
-        symmetric.hash_h(buf, publicKeyInput, KyberSymBytes);
+        System.arraycopy(publicKey.hpk, 0, buf, KyberSymBytes, KyberSymBytes);
 
         // SHA3-512( SHA3-256(RandBytes) || SHA3-256(PublicKey) )
         symmetric.hash_g(kr, buf);
 
         // IndCpa Encryption
-        outputCipherText = indCpa.encrypt(publicKeyInput, Arrays.copyOfRange(buf, 0, KyberSymBytes), Arrays.copyOfRange(kr, 32, kr.length));
+        outputCipherText = indCpa.encrypt(publicKey.aMatrixTranspose, publicKey.t, Arrays.copyOfRange(buf, 0, KyberSymBytes), Arrays.copyOfRange(kr, 32, kr.length));
 
         byte[] outputSharedSecret = new byte[sessionKeyLength];
 
@@ -234,27 +245,34 @@ public byte[][] kemEncryptInternal(byte[] publicKeyInput, byte[] randBytes)
     }
 
     public byte[] kemDecryptInternal(byte[] secretKey, byte[] cipherText)
+    {
+        ExpandedKey privateKey = expandPrivateKey(secretKey,
+            Arrays.copyOfRange(secretKey, KyberIndCpaSecretKeyBytes, secretKey.length),
+            Arrays.copyOfRange(secretKey, KyberSecretKeyBytes - 2 * KyberSymBytes, KyberSecretKeyBytes - KyberSymBytes));
+
+        return kemDecryptInternal(privateKey, Arrays.copyOfRange(secretKey, KyberSecretKeyBytes - KyberSymBytes, KyberSecretKeyBytes), cipherText);
+    }
+
+    byte[] kemDecryptInternal(ExpandedKey privateKey, byte[] z, byte[] cipherText)
     {
         byte[] buf = new byte[2 * KyberSymBytes],
                 kr = new byte[2 * KyberSymBytes];
 
-        byte[] publicKey = Arrays.copyOfRange(secretKey, KyberIndCpaSecretKeyBytes, secretKey.length);
-
-        System.arraycopy(indCpa.decrypt(secretKey, cipherText), 0, buf, 0, KyberSymBytes);
+        System.arraycopy(indCpa.decrypt(privateKey.s, cipherText), 0, buf, 0, KyberSymBytes);
 
-        System.arraycopy(secretKey, KyberSecretKeyBytes - 2 * KyberSymBytes, buf, KyberSymBytes, KyberSymBytes);
+        System.arraycopy(privateKey.hpk, 0, buf, KyberSymBytes, KyberSymBytes);
 
         symmetric.hash_g(kr, buf);
 
         byte[] implicit_rejection = new byte[KyberSymBytes + KyberCipherTextBytes];
 
-        System.arraycopy(secretKey, KyberSecretKeyBytes - KyberSymBytes, implicit_rejection, 0, KyberSymBytes);
+        System.arraycopy(z, 0, implicit_rejection, 0, KyberSymBytes);
 
         System.arraycopy(cipherText, 0, implicit_rejection, KyberSymBytes, KyberCipherTextBytes);
 
         symmetric.kdf(implicit_rejection, implicit_rejection ); // J(z||c)
 
-        byte[] cmp = indCpa.encrypt(publicKey, Arrays.copyOfRange(buf, 0, KyberSymBytes), Arrays.copyOfRange(kr, KyberSymBytes, kr.length));
+        byte[] cmp = indCpa.encrypt(privateKey.aMatrixTranspose, privateKey.t, Arrays.copyOfRange(buf, 0, KyberSymBytes), Arrays.copyOfRange(kr, KyberSymBytes, kr.length));
 
         boolean fail = !(Arrays.constantTimeAreEqual(cipherText, cmp));
 
@@ -274,6 +292,31 @@ public byte[][] generateKemKeyPair()
     }
 
     public byte[][] kemEncrypt(byte[] publicKeyInput, byte[] randBytes)
+    {
+        return kemEncryptInternal(expandPublicKey(publicKeyInput), randBytes);
+    }
+
+    byte[][] kemEncrypt(MLKEMPublicKeyParameters publicKey, byte[] randBytes)
+    {
+        return kemEncryptInternal(publicKey.getExpandedKey(this), randBytes);
+    }
+
+    public byte[] kemDecrypt(byte[] secretKey, byte[] cipherText)
+    {
+        //TODO: do input validation
+        return kemDecryptInternal(secretKey, cipherText);
+    }
+
+    byte[] kemDecrypt(MLKEMPrivateKeyParameters privateKey, byte[] cipherText)
+    {
+        //TODO: do input validation
+        return kemDecryptInternal(privateKey.getExpandedKey(this), privateKey.nonce, cipherText);
+    }
+
+    /**
+     * Decode and validate an encapsulation key, expanding the matrix A from its seed.
+     */
+    ExpandedKey expandPublicKey(byte[] publicKeyInput)
     {
         //TODO: do input validation elsewhere?
         // Input validation (6.2 ML-KEM Encaps)
@@ -291,12 +334,34 @@ public byte[][] kemEncrypt(byte[] publicKeyInput, byte[] randBytes)
             throw new IllegalArgumentException("Input validation: Modulus check failed for ml-kem encapsulation");
         }
 
-        return kemEncryptInternal(publicKeyInput, randBytes);
+        byte[] hashedPublicKey = new byte[KyberSymBytes];
+        symmetric.hash_h(hashedPublicKey, publicKeyInput, 0);
+
+        return new ExpandedKey(expandMatrix(seed), polyVec, hashedPublicKey, null);
     }
-    public byte[] kemDecrypt(byte[] secretKey, byte[] cipherText)
+
+    /**
+     * Decode a decapsulation key, expanding the matrix A needed for the re-encryption check.
+     */
+    ExpandedKey expandPrivateKey(byte[] s, byte[] publicKeyInput, byte[] hpk)
     {
-        //TODO: do input validation
-        return kemDecryptInternal(secretKey, cipherText);
+        PolyVec secretKeyPolyVec = new PolyVec(this);
+        indCpa.unpackSecretKey(secretKeyPolyVec, s);
+        PolyVec publicKeyPolyVec = new PolyVec(this);
+        byte[] seed = indCpa.unpackPublicKey(publicKeyPolyVec, publicKeyInput);
+
+        return new ExpandedKey(expandMatrix(seed), publicKeyPolyVec, hpk, secretKeyPolyVec);
+    }
+
+    private PolyVec[] expandMatrix(byte[] seed)
+    {
+        PolyVec[] aMatrixTranspose = new PolyVec[KyberK];
+        for (int i = 0; i < KyberK; i++)
+        {
+            aMatrixTranspose[i] = new PolyVec(this);
+        }
+        indCpa.generateMatrix(aMatrixTranspose, seed, true);
+        return aMatrixTranspose;
     }
 
     private void cmov(byte[] r, byte[] x, int xlen, boolean b)
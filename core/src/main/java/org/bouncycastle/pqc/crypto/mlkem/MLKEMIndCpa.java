@@ -140,60 +140,39 @@ byte[][] generateKeyPair(byte[] d)
     }
 
     public byte[] encrypt(byte[] publicKeyInput, byte[] msg, byte[] coins)
+    {
+        PolyVec publicKeyPolyVec = new PolyVec(engine);
+        PolyVec[] aMatrixTranspose = new PolyVec[kyberK];
+
+        byte[] seed = unpackPublicKey(publicKeyPolyVec, publicKeyInput);
+
+        for (int i = 0; i < kyberK; i++)
+        {
+            aMatrixTranspose[i] = new PolyVec(engine);
+        }
+
+        generateMatrix(aMatrixTranspose, seed, true);
+
+        return encrypt(aMatrixTranspose, publicKeyPolyVec, msg, coins);
+    }
+
+    /**
+     * IndCpa encryption using an already decoded public key and transposed matrix, neither of which is
+     * modified.
+     */
+    byte[] encrypt(PolyVec[] aMatrixTranspose, PolyVec publicKeyPolyVec, byte[] msg, byte[] coins)
     {
         int i;
-        byte[] seed;
         byte nonce = (byte)0;
         PolyVec sp = new PolyVec(engine),
-            publicKeyPolyVec = new PolyVec(engine),
             errorPolyVector = new PolyVec(engine),
             bp = new PolyVec(engine);
-        PolyVec[] aMatrixTranspose = new PolyVec[engine.getKyberK()];
         Poly errorPoly = new Poly(engine),
             v = new Poly(engine),
             k = new Poly(engine);
 
-
-        // System.out.print("publickeyinput = ");
-        // Helper.printByteArray(publicKeyInput);
-        // System.out.println();
-
-        seed = unpackPublicKey(publicKeyPolyVec, publicKeyInput);
-
-        // System.out.print("publickeyPolyVec = [");
-        // for (i = 0; i < kyberK; i++) {
-        //     Helper.printShortArray(publicKeyPolyVec.getVectorIndex(i).getCoeffs());
-        //     System.out.print("], \n");
-        // }
-        // System.out.println("]"); 
-
-        // System.out.print("seed = ");
-        // Helper.printByteArray(seed);
-        // System.out.println();
-
         k.fromMsg(msg);
 
-        for (i = 0; i < kyberK; i++)
-        {
-            aMatrixTranspose[i] = new PolyVec(engine);
-        }
-
-        generateMatrix(aMatrixTranspose, seed, true);
-
-        // System.out.print("matrix transposed = ");
-        // for (i = 0; i < kyberK; i++) {
-        //     System.out.print("[");
-        //     for(int j = 0; j < kyberK; j++) {
-        //         System.out.print("[");
-        //         for (int l = 0; l < 256; l++) {
-        //             System.out.printf("%d ,", aMatrixTranspose[i].getVectorIndex(j).getCoeffIndex(l));
-        //         }
-        //         System.out.print("] ,\n");
-        //     }
-        //     System.out.println("] ,");
-        // }
-
-
         for (i = 0; i < kyberK; i++)
         {
             sp.getVectorIndex(i).getEta1Noise(coins, nonce);
@@ -383,47 +362,24 @@ private static int rejectionSampling(Poly outputBuffer, int coeffOff, int len, b
 
     public byte[] decrypt(byte[] secretKey, byte[] cipherText)
     {
-        int i;
-        byte[] outputMessage = new byte[MLKEMEngine.getKyberIndCpaMsgBytes()];
-
-        PolyVec bp = new PolyVec(engine), secretKeyPolyVec = new PolyVec(engine);
-        Poly v = new Poly(engine), mp = new Poly(engine);
-
-        unpackCipherText(bp, v, cipherText);
-
-        // System.out.print("bp = [");
-        // for (i = 0; i < kyberK; i++) {
-        //     Helper.printShortArray(bp.getVectorIndex(i).getCoeffs());
-        //     System.out.print("], \n");
-        // }
-        // System.out.println("]"); 
-
-
-        // System.out.print("v = ");
-        // Helper.printShortArray(v.getCoeffs());
-        // System.out.println();
+        PolyVec secretKeyPolyVec = new PolyVec(engine);
 
         unpackSecretKey(secretKeyPolyVec, secretKey);
 
-        // System.out.print("decrypt secretkey = ");;
-        // Helper.printByteArray(secretKey);
+        return decrypt(secretKeyPolyVec, cipherText);
+    }
 
-        // System.out.print("SecretKeyPolyVec = [");
-        // for (i = 0; i < kyberK; i++) {
-        //     System.out.print("[");
-        //     for (int j =0; j < KyberEngine.KyberN; j++) {
-        //         System.out.print(secretKeyPolyVec.getVectorIndex(i).getCoeffIndex(j) + ", ");
-        //     }
-        //     System.out.println("],");
-        // }
-        // System.out.println("]");
+    /**
+     * IndCpa decryption using an already decoded secret key, which is not modified.
+     */
+    byte[] decrypt(PolyVec secretKeyPolyVec, byte[] cipherText)
+    {
+        byte[] outputMessage;
 
-        // System.out.print("bp before ntt = [");
-        // for (i = 0; i < kyberK; i++) {
-        //     Helper.printShortArray(bp.getVectorIndex(i).getCoeffs());
-        //     System.out.print("], \n");
-        // }
-        // System.out.println("]"); 
+        PolyVec bp = new PolyVec(engine);
+        Poly v = new Poly(engine), mp = new Poly(engine);
+
+        unpackCipherText(bp, v, cipherText);
 
         bp.polyVecNtt();
 
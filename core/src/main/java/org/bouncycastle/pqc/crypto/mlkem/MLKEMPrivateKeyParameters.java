@@ -11,7 +11,9 @@
     final byte[] t;
     final byte[] rho;
     final byte[] seed;
-    
+
+    private volatile ExpandedKey expandedKey;
+
     public MLKEMPrivateKeyParameters(MLKEMParameters params, byte[] s, byte[] hpk, byte[] nonce, byte[] t, byte[] rho)
     {
         this(params, s, hpk, nonce, t, rho, null);
@@ -67,6 +69,21 @@ public byte[] getEncoded()
         return Arrays.concatenate(new byte[][]{ s, t, rho, hpk, nonce });
     }
 
+    /**
+     * Return the decoded key and expanded matrix, computing them on first use. If two threads race here
+     * both compute the same value, so no further synchronization is needed.
+     */
+    ExpandedKey getExpandedKey(MLKEMEngine engine)
+    {
+        ExpandedKey key = expandedKey;
+        if (key == null)
+        {
+            key = engine.expandPrivateKey(s, getPublicKey(), hpk);
+            expandedKey = key;
+        }
+        return key;
+    }
+
     public byte[] getHPK()
     {
         return Arrays.clone(hpk);
@@ -13,6 +13,8 @@ static byte[] getEncoded(byte[] t, byte[] rho)
     final byte[] t;
     final byte[] rho;
 
+    private volatile ExpandedKey expandedKey;
+
     public MLKEMPublicKeyParameters(MLKEMParameters params, byte[] t, byte[] rho)
     {
         super(false, params);
@@ -32,6 +34,21 @@ public byte[] getEncoded()
         return getEncoded(t, rho);
     }
 
+    /**
+     * Return the decoded key and expanded matrix, computing and validating them on first use. If two
+     * threads race here both compute the same value, so no further synchronization is needed.
+     */
+    ExpandedKey getExpandedKey(MLKEMEngine engine)
+    {
+        ExpandedKey key = expandedKey;
+        if (key == null)
+        {
+            key = engine.expandPublicKey(getEncoded());
+            expandedKey = key;
+        }
+        return key;
+    }
+
     public byte[] getRho()
     {
         return Arrays.clone(rho);
@@ -7,6 +7,8 @@
 
 class Fors
 {
+    private static final int LEAF_BATCH = 64;
+
     SLHDSAEngine engine;
 
     public Fors(SLHDSAEngine engine)
@@ -25,20 +27,30 @@ byte[] treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrsParam)
 
         LinkedList<NodeEntry> stack = new LinkedList<NodeEntry>();
         ADRS adrs = new ADRS(adrsParam);
+        ADRS leafAdrs = new ADRS(adrsParam);
+
+        int chunk = Math.min(1 << z, LEAF_BATCH);
+        byte[] leaves = new byte[chunk * engine.N];
 
         for (int idx = 0; idx < (1 << z); idx++)
         {
-            adrs.setTypeAndClear(ADRS.FORS_PRF);
-            adrs.setKeyPairAddress(adrsParam.getKeyPairAddress());
-            adrs.setTreeHeight(0);
-            adrs.setTreeIndex(s + idx);
-
-            byte[] sk = engine.PRF(pkSeed, skSeed, adrs);
+            // the leaves are generated in batches, a secret key and then an F call for each
+            int leaf = idx % chunk;
+            if (leaf == 0)
+            {
+                leafAdrs.setTypeAndClear(ADRS.FORS_PRF);
+                leafAdrs.setKeyPairAddress(adrsParam.getKeyPairAddress());
+                leafAdrs.setTreeHeight(0);
+                engine.PRF(pkSeed, skSeed, leafAdrs, ADRS.OFFSET_TREE_INDEX, s + idx, chunk, leaves);
 
-            adrs.changeType(ADRS.FORS_TREE);
+                leafAdrs.changeType(ADRS.FORS_TREE);
+                engine.F(pkSeed, leafAdrs, ADRS.OFFSET_TREE_INDEX, s + idx, null, chunk, leaves);
+            }
 
-            byte[] node = engine.F(pkSeed, adrs, sk);
+            byte[] node = Arrays.copyOfRange(leaves, leaf * engine.N, (leaf + 1) * engine.N);
 
+            adrs.setTypeAndClear(ADRS.FORS_TREE);
+            adrs.setKeyPairAddress(adrsParam.getKeyPairAddress());
             adrs.setTreeHeight(1);
 
             int adrsTreeHeight = 1;
@@ -65,37 +77,41 @@ byte[] treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrsParam)
 
     public SIG_FORS[] sign(byte[] md, byte[] skSeed, byte[] pkSeed, ADRS paramAdrs)
     {
-        ADRS adrs = new ADRS(paramAdrs);
-
 //        int[] idxs = message_to_idxs(md, engine.K, engine.A);
         int[] idxs = base2B(md, engine.A, engine.K);
         SIG_FORS[] sig_fors = new SIG_FORS[engine.K];
 // compute signature elements
-        int t = engine.T;
         for (int i = 0; i < engine.K; i++)
         {
-// get next index
-            int idx = idxs[i];
+            sig_fors[i] = signTree(i, idxs[i], skSeed, pkSeed, paramAdrs);
+        }
+        return sig_fors;
+    }
+
+    // Sign the index idx with the i'th FORS tree - the trees are independent of each other.
+    SIG_FORS signTree(int i, int idx, byte[] skSeed, byte[] pkSeed, ADRS paramAdrs)
+    {
+        ADRS adrs = new ADRS(paramAdrs);
+
+        int t = engine.T;
 // pick private key element
-            adrs.setTypeAndClear(ADRS.FORS_PRF);
-            adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
-            adrs.setTreeHeight(0);
-            adrs.setTreeIndex(i * t + idx);
+        adrs.setTypeAndClear(ADRS.FORS_PRF);
+        adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
+        adrs.setTreeHeight(0);
+        adrs.setTreeIndex(i * t + idx);
 
-            byte[] sk = engine.PRF(pkSeed, skSeed, adrs);
+        byte[] sk = engine.PRF(pkSeed, skSeed, adrs);
 
-            adrs.changeType(ADRS.FORS_TREE);
+        adrs.changeType(ADRS.FORS_TREE);
 
-            byte[][] authPath = new byte[engine.A][];
+        byte[][] authPath = new byte[engine.A][];
 // compute auth path
-            for (int j = 0; j < engine.A; j++)
-            {
-                int s = (idx / (1 << j)) ^ 1;
-                authPath[j] = treehash(skSeed, i * t + s * (1 << j), j, pkSeed, adrs);
-            }
-            sig_fors[i] = new SIG_FORS(sk, authPath);
+        for (int j = 0; j < engine.A; j++)
+        {
+            int s = (idx / (1 << j)) ^ 1;
+            authPath[j] = treehash(skSeed, i * t + s * (1 << j), j, pkSeed, adrs);
         }
-        return sig_fors;
+        return new SIG_FORS(sk, authPath);
     }
 
     public byte[] pkFromSig(SIG_FORS[] sig_fors, byte[] message, byte[] pkSeed, ADRS adrs)
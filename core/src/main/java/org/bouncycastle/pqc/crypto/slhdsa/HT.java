@@ -11,8 +11,6 @@
     SLHDSAEngine engine;
     WotsPlus wots;
 
-    final byte[] htPubKey;
-
     public HT(SLHDSAEngine engine, byte[] skSeed, byte[] pkSeed)
     {
         this.skSeed = skSeed;
@@ -20,49 +18,58 @@ public HT(SLHDSAEngine engine, byte[] skSeed, byte[] pkSeed)
 
         this.engine = engine;
         this.wots = new WotsPlus(engine);
+    }
 
+    /**
+     * Build the single XMSS tree on the top layer of the hypertree, the root of which is the public key.
+     */
+    XMSSTree topTree()
+    {
         ADRS adrs = new ADRS();
         adrs.setLayerAddress(engine.D - 1);
         adrs.setTreeAddress(0);
 
-        if (skSeed != null)
-        {
-            htPubKey = xmss_PKgen(skSeed, pkSeed, adrs);
-        }
-        else
-        {
-            htPubKey = null;
-        }
+        byte[][] leaves = new byte[1 << engine.H_PRIME][];
+        xmss_leaves(leaves, 0, leaves.length, adrs);
+
+        return xmss_tree(leaves, adrs);
     }
 
-    byte[] sign(byte[] M, long idx_tree, int idx_leaf)
+    /**
+     * Sign M with the hypertree. Where trees[j] is not null it is taken to be the XMSS tree used on
+     * layer j, so the authentication path and root for that layer are looked up rather than computed.
+     */
+    byte[] sign(byte[] M, long idx_tree, int idx_leaf, XMSSTree[] trees)
     {
         // init
         ADRS adrs = new ADRS();
-        // sign
-       // adrs.setType(ADRS.TREE);
-        adrs.setLayerAddress(0);
-        adrs.setTreeAddress(idx_tree);
-        SIG_XMSS SIG_tmp = xmss_sign(M, skSeed, idx_leaf, pkSeed, adrs);
         SIG_XMSS[] SIG_HT = new SIG_XMSS[engine.D];
-        SIG_HT[0] = SIG_tmp;
-
-        adrs.setLayerAddress(0);
-        adrs.setTreeAddress(idx_tree);
-
-        byte[] root = xmss_pkFromSig(idx_leaf, SIG_tmp, M, pkSeed, adrs);
+        byte[] root = M;
 
-        for (int j = 1; j < engine.D; j++)
+        // sign
+        for (int j = 0; j < engine.D; j++)
         {
-            idx_leaf = (int)(idx_tree & ((1 << engine.H_PRIME) - 1));  // least significant bits of idx_tree;
-            idx_tree >>>= engine.H_PRIME; // most significant bits of idx_tree;
+            if (j > 0)
+            {
+                idx_leaf = (int)(idx_tree & ((1 << engine.H_PRIME) - 1));  // least significant bits of idx_tree;
+                idx_tree >>>= engine.H_PRIME; // most significant bits of idx_tree;
+            }
             adrs.setLayerAddress(j);
             adrs.setTreeAddress(idx_tree);
-            SIG_tmp = xmss_sign(root, skSeed, idx_leaf, pkSeed, adrs);
-            SIG_HT[j] = SIG_tmp;
-            if (j < engine.D - 1)
+
+            XMSSTree tree = trees[j];
+            if (tree != null)
             {
-                root = xmss_pkFromSig(idx_leaf, SIG_tmp, root, pkSeed, adrs);
+                SIG_HT[j] = xmss_sign(root, idx_leaf, tree.getAuthPath(idx_leaf), adrs);
+                root = tree.getRoot();
+            }
+            else
+            {
+                SIG_HT[j] = xmss_sign(root, skSeed, idx_leaf, pkSeed, adrs);
+                if (j < engine.D - 1)
+                {
+                    root = xmss_pkFromSig(idx_leaf, SIG_HT[j], root, pkSeed, adrs);
+                }
             }
         }
 
@@ -75,11 +82,6 @@ byte[] sign(byte[] M, long idx_tree, int idx_leaf)
         return Arrays.concatenate(totSigs);
     }
 
-    byte[] xmss_PKgen(byte[] skSeed, byte[] pkSeed, ADRS adrs)
-    {
-        return treehash(skSeed, 0, engine.H_PRIME, pkSeed, adrs);
-    }
-
     // Input: index idx, XMSS signature SIG_XMSS = (sig || AUTH), n-byte message M, public seed PK.seed, address ADRS
     // Output: n-byte root value node[0]
     byte[] xmss_pkFromSig(int idx, SIG_XMSS sig_xmss, byte[] M, byte[] pkSeed, ADRS paramAdrs)
@@ -135,7 +137,13 @@ SIG_XMSS xmss_sign(byte[] M, byte[] skSeed, int idx, byte[] pkSeed, ADRS paramAd
             int k = (idx >>> j) ^ 1;
             AUTH[j] = treehash(skSeed, k << j, j, pkSeed, adrs);
         }
-        adrs = new ADRS(paramAdrs);
+
+        return xmss_sign(M, idx, AUTH, paramAdrs);
+    }
+
+    SIG_XMSS xmss_sign(byte[] M, int idx, byte[][] AUTH, ADRS paramAdrs)
+    {
+        ADRS adrs = new ADRS(paramAdrs);
         adrs.setTypeAndClear(ADRS.WOTS_HASH);
         adrs.setKeyPairAddress(idx);
 
@@ -144,6 +152,53 @@ SIG_XMSS xmss_sign(byte[] M, byte[] skSeed, int idx, byte[] pkSeed, ADRS paramAd
         return new SIG_XMSS(sig, AUTH);
     }
 
+    // Compute the WOTS+ public keys for leaves from (inclusive) to to (exclusive) of the XMSS tree at adrs.
+    void xmss_leaves(byte[][] leaves, int from, int to, ADRS paramAdrs)
+    {
+        ADRS adrs = new ADRS(paramAdrs);
+
+        for (int idx = from; idx < to; idx++)
+        {
+            adrs.setTypeAndClear(ADRS.WOTS_HASH);
+            adrs.setKeyPairAddress(idx);
+            leaves[idx] = wots.pkGen(skSeed, pkSeed, adrs);
+        }
+    }
+
+    // Hash a complete set of leaves up to the root, keeping every node - the nodes and addresses are the
+    // same as those treehash() produces.
+    XMSSTree xmss_tree(byte[][] leaves, ADRS paramAdrs)
+    {
+        byte[][][] levels = new byte[engine.H_PRIME + 1][][];
+        levels[0] = leaves;
+
+        ADRS adrs = new ADRS(paramAdrs);
+        adrs.setTypeAndClear(ADRS.TREE);
+
+        int n = engine.N;
+        byte[] in = Arrays.concatenate(leaves);
+        byte[] out = new byte[in.length / 2];
+
+        for (int h = 1; h <= engine.H_PRIME; h++)
+        {
+            byte[][] nodes = new byte[levels[h - 1].length / 2][];
+
+            // each level is hashed as one batch, the children held one after the other in in
+            adrs.setTreeHeight(h);
+            engine.H(pkSeed, adrs, ADRS.OFFSET_TREE_INDEX, 0, nodes.length, in, out);
+
+            for (int i = 0; i < nodes.length; i++)
+            {
+                nodes[i] = Arrays.copyOfRange(out, i * n, (i + 1) * n);
+            }
+            levels[h] = nodes;
+
+            System.arraycopy(out, 0, in, 0, nodes.length * n);
+        }
+
+        return new XMSSTree(levels);
+    }
+
     // Input: Secret seed SK.seed, start index s, target node height z, public seed PK.seed, address ADRS
     // Output: n-byte root node - top node on Stack
     byte[] treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrsParam)
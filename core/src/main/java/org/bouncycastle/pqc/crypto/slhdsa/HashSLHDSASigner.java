@@ -188,12 +188,12 @@ private static byte[] internalGenerateSignature(SLHDSAPrivateKeyParameters privK
         adrs.setKeyPairAddress(idx_leaf);
         byte[] PK_FORS = fors.pkFromSig(sig_fors, mHash, privKey.pk.seed, adrs);
 
-        // sign FORS public key with HT
-        ADRS treeAdrs = new ADRS();
-        treeAdrs.setTypeAndClear(ADRS.TREE);
+        // sign FORS public key with HT, the top layer XMSS tree is the same for every signature
+        XMSSTree[] trees = new XMSSTree[engine.D];
+        trees[engine.D - 1] = privKey.getTopTree(engine);
 
-        HT ht = new HT(engine, privKey.getSeed(), privKey.getPublicSeed());
-        byte[] SIG_HT = ht.sign(PK_FORS, idx_tree, idx_leaf);
+        HT ht = new HT(engine, privKey.sk.seed, privKey.pk.seed);
+        byte[] SIG_HT = ht.sign(PK_FORS, idx_tree, idx_leaf, trees);
 
         byte[][] sigComponents = new byte[sig_fors.length + 2][];
         sigComponents[0] = R;
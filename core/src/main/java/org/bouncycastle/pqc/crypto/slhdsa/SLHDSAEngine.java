@@ -2,8 +2,10 @@
 
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.Xof;
+import org.bouncycastle.crypto.digests.SHA256Batch;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.digests.SHAKEBatch;
 import org.bouncycastle.crypto.digests.SHAKEDigest;
 import org.bouncycastle.crypto.generators.MGF1BytesGenerator;
 import org.bouncycastle.crypto.macs.HMac;
@@ -104,6 +106,52 @@ else if (N <= 256)
 
     abstract byte[] PRF_msg(byte[] prf, byte[] randomiser, byte[] msgPrefix, byte[] msg);
 
+    /*
+     * Batched forms of F, H and PRF. Each lane is hashed with adrs modified to carry a per-lane value in the
+     * address word at offset field, and adrs itself is left unchanged. The engines override these to hash
+     * the whole batch in one call to the underlying batch hasher.
+     */
+
+    // Apply F in place to the n-byte values at buf[lanes[k] * N] for k < count (lane k is k itself if lanes
+    // is null), with base + lanes[k] as the address field for each.
+    void F(byte[] pkSeed, ADRS adrs, int field, int base, int[] lanes, int count, byte[] buf)
+    {
+        ADRS laneAdrs = new ADRS(adrs);
+        byte[] m = new byte[N];
+        for (int k = 0; k < count; k++)
+        {
+            int lane = lanes == null ? k : lanes[k];
+            Pack.intToBigEndian(base + lane, laneAdrs.value, field);
+            System.arraycopy(buf, lane * N, m, 0, N);
+            System.arraycopy(F(pkSeed, laneAdrs, m), 0, buf, lane * N, N);
+        }
+    }
+
+    // Apply H to the count pairs of n-byte values held one after the other in in, writing the results one
+    // after the other to out, with base + i as the address field for pair i.
+    void H(byte[] pkSeed, ADRS adrs, int field, int base, int count, byte[] in, byte[] out)
+    {
+        ADRS laneAdrs = new ADRS(adrs);
+        for (int i = 0; i < count; i++)
+        {
+            Pack.intToBigEndian(base + i, laneAdrs.value, field);
+            byte[] m1 = Arrays.copyOfRange(in, 2 * i * N, (2 * i + 1) * N);
+            byte[] m2 = Arrays.copyOfRange(in, (2 * i + 1) * N, (2 * i + 2) * N);
+            System.arraycopy(H(pkSeed, laneAdrs, m1, m2), 0, out, i * N, N);
+        }
+    }
+
+    // Generate count PRF outputs one after the other into out, with base + i as the address field for output i.
+    void PRF(byte[] pkSeed, byte[] skSeed, ADRS adrs, int field, int base, int count, byte[] out)
+    {
+        ADRS laneAdrs = new ADRS(adrs);
+        for (int i = 0; i < count; i++)
+        {
+            Pack.intToBigEndian(base + i, laneAdrs.value, field);
+            System.arraycopy(PRF(pkSeed, skSeed, laneAdrs), 0, out, i * N, N);
+        }
+    }
+
     static class Sha2Engine
         extends SLHDSAEngine
     {
@@ -116,6 +164,10 @@ else if (N <= 256)
         private final Digest sha256 = new SHA256Digest();
         private final byte[] sha256Buf = new byte[sha256.getDigestSize()];
 
+        private final SHA256Batch sha256Batch = new SHA256Batch();
+        private byte[] batchIn = new byte[0];
+        private byte[] batchOut = new byte[0];
+
         private Memoable msgMemo;
         private Memoable sha256Memo;
 
@@ -156,6 +208,10 @@ void init(byte[] pkSeed)
             sha256Memo = ((Memoable)sha256).copy();
 
             sha256.reset();
+
+            byte[] prefix = new byte[64];
+            System.arraycopy(pkSeed, 0, prefix, 0, pkSeed.length);
+            sha256Batch.init(prefix, 0, prefix.length);
         }
 
         public byte[] F(byte[] pkSeed, ADRS adrs, byte[] m1)
@@ -254,6 +310,101 @@ byte[] PRF(byte[] pkSeed, byte[] skSeed, ADRS adrs)
             return Arrays.copyOfRange(sha256Buf, 0, n);
         }
 
+        void F(byte[] pkSeed, ADRS adrs, int field, int base, int[] lanes, int count, byte[] buf)
+        {
+            int inLen = 22 + N;
+            byte[] in = batchIn(count * inLen);
+            byte[] compressedADRS = compressedADRS(adrs);
+
+            for (int k = 0; k < count; k++)
+            {
+                int lane = lanes == null ? k : lanes[k];
+                int off = k * inLen;
+                System.arraycopy(compressedADRS, 0, in, off, 22);
+                Pack.intToBigEndian(base + lane, in, off + compressedOffset(field));
+                System.arraycopy(buf, lane * N, in, off + 22, N);
+            }
+
+            if (lanes == null)
+            {
+                sha256Batch.hash(in, 0, inLen, count, buf, 0, N);
+            }
+            else
+            {
+                byte[] out = batchOut(count * N);
+                sha256Batch.hash(in, 0, inLen, count, out, 0, N);
+                for (int k = 0; k < count; k++)
+                {
+                    System.arraycopy(out, k * N, buf, lanes[k] * N, N);
+                }
+            }
+        }
+
+        void H(byte[] pkSeed, ADRS adrs, int field, int base, int count, byte[] in, byte[] out)
+        {
+            // H only shares the SHA-256 prefix with F for n = 16, the other parameter sets use SHA-512.
+            if (N != 16)
+            {
+                super.H(pkSeed, adrs, field, base, count, in, out);
+                return;
+            }
+
+            int inLen = 22 + 2 * N;
+            byte[] hIn = batchIn(count * inLen);
+            byte[] compressedADRS = compressedADRS(adrs);
+
+            for (int i = 0; i < count; i++)
+            {
+                int off = i * inLen;
+                System.arraycopy(compressedADRS, 0, hIn, off, 22);
+                Pack.intToBigEndian(base + i, hIn, off + compressedOffset(field));
+                System.arraycopy(in, i * 2 * N, hIn, off + 22, 2 * N);
+            }
+
+            sha256Batch.hash(hIn, 0, inLen, count, out, 0, N);
+        }
+
+        void PRF(byte[] pkSeed, byte[] skSeed, ADRS adrs, int field, int base, int count, byte[] out)
+        {
+            int inLen = 22 + N;
+            byte[] in = batchIn(count * inLen);
+            byte[] compressedADRS = compressedADRS(adrs);
+
+            for (int i = 0; i < count; i++)
+            {
+                int off = i * inLen;
+                System.arraycopy(compressedADRS, 0, in, off, 22);
+                Pack.intToBigEndian(base + i, in, off + compressedOffset(field));
+                System.arraycopy(skSeed, 0, in, off + 22, N);
+            }
+
+            sha256Batch.hash(in, 0, inLen, count, out, 0, N);
+        }
+
+        private byte[] batchIn(int len)
+        {
+            if (batchIn.length < len)
+            {
+                batchIn = new byte[len];
+            }
+            return batchIn;
+        }
+
+        private byte[] batchOut(int len)
+        {
+            if (batchOut.length < len)
+            {
+                batchOut = new byte[len];
+            }
+            return batchOut;
+        }
+
+        // the position of an address word (from the key pair address on) in the compressed address
+        private static int compressedOffset(int field)
+        {
+            return field - 10;
+        }
+
         public byte[] PRF_msg(byte[] prf, byte[] randomiser, byte[] msgPrefix, byte[] msg)
         {
             treeHMac.init(new KeyParameter(prf));
@@ -314,6 +465,9 @@ protected byte[] bitmask256(byte[] key, byte[] m)
     {
         private final Xof treeDigest;
         private final Xof maskDigest;
+        private final SHAKEBatch shakeBatch = new SHAKEBatch(256);
+        private byte[] batchIn = new byte[0];
+        private byte[] batchOut = new byte[0];
 
         public Shake256Engine(int n, int w, int d, int a, int k, int h)
         {
@@ -418,6 +572,88 @@ byte[] PRF(byte[] pkSeed, byte[] skSeed, ADRS adrs)
             return prf;
         }
 
+        void F(byte[] pkSeed, ADRS adrs, int field, int base, int[] lanes, int count, byte[] buf)
+        {
+            int inLen = 2 * N + 32;
+            byte[] in = batchIn(count * inLen);
+
+            for (int k = 0; k < count; k++)
+            {
+                int lane = lanes == null ? k : lanes[k];
+                int off = setPrefix(in, k * inLen, pkSeed, adrs, field, base + lane);
+                System.arraycopy(buf, lane * N, in, off, N);
+            }
+
+            if (lanes == null)
+            {
+                shakeBatch.hash(in, 0, inLen, count, buf, 0, N);
+            }
+            else
+            {
+                byte[] out = batchOut(count * N);
+                shakeBatch.hash(in, 0, inLen, count, out, 0, N);
+                for (int k = 0; k < count; k++)
+                {
+                    System.arraycopy(out, k * N, buf, lanes[k] * N, N);
+                }
+            }
+        }
+
+        void H(byte[] pkSeed, ADRS adrs, int field, int base, int count, byte[] in, byte[] out)
+        {
+            int inLen = 3 * N + 32;
+            byte[] hIn = batchIn(count * inLen);
+
+            for (int i = 0; i < count; i++)
+            {
+                int off = setPrefix(hIn, i * inLen, pkSeed, adrs, field, base + i);
+                System.arraycopy(in, i * 2 * N, hIn, off, 2 * N);
+            }
+
+            shakeBatch.hash(hIn, 0, inLen, count, out, 0, N);
+        }
+
+        void PRF(byte[] pkSeed, byte[] skSeed, ADRS adrs, int field, int base, int count, byte[] out)
+        {
+            int inLen = 2 * N + 32;
+            byte[] in = batchIn(count * inLen);
+
+            for (int i = 0; i < count; i++)
+            {
+                int off = setPrefix(in, i * inLen, pkSeed, adrs, field, base + i);
+                System.arraycopy(skSeed, 0, in, off, N);
+            }
+
+            shakeBatch.hash(in, 0, inLen, count, out, 0, N);
+        }
+
+        // write pkSeed || adrs, with value in the address word at offset field, returning the offset after it
+        private int setPrefix(byte[] in, int off, byte[] pkSeed, ADRS adrs, int field, int value)
+        {
+            System.arraycopy(pkSeed, 0, in, off, N);
+            System.arraycopy(adrs.value, 0, in, off + N, 32);
+            Pack.intToBigEndian(value, in, off + N + field);
+            return off + N + 32;
+        }
+
+        private byte[] batchIn(int len)
+        {
+            if (batchIn.length < len)
+            {
+                batchIn = new byte[len];
+            }
+            return batchIn;
+        }
+
+        private byte[] batchOut(int len)
+        {
+            if (batchOut.length < len)
+            {
+                batchOut = new byte[len];
+            }
+            return batchOut;
+        }
+
         public byte[] PRF_msg(byte[] prf, byte[] randomiser, byte[] msgPrefix, byte[] msg)
         {
             treeDigest.update(prf, 0, prf.length);
@@ -40,12 +40,15 @@ private AsymmetricCipherKeyPair implGenerateKeyPair(SLHDSAEngine engine, byte[]
 
         engine.init(pkSeed);
 
-        // TODO
-        PK pk = new PK(pkSeed, new HT(engine, sk.seed, pkSeed).htPubKey);
+        XMSSTree topTree = new HT(engine, sk.seed, pkSeed).topTree();
+        PK pk = new PK(pkSeed, topTree.getRoot());
 
-        return new AsymmetricCipherKeyPair(
-            new SLHDSAPublicKeyParameters(parameters, pk),
-            new SLHDSAPrivateKeyParameters(parameters, sk, pk));
+        SLHDSAPrivateKeyParameters privKey = new SLHDSAPrivateKeyParameters(parameters, sk, pk);
+
+        // the signer needs the top tree again, so save it the work
+        privKey.setTopTree(topTree);
+
+        return new AsymmetricCipherKeyPair(new SLHDSAPublicKeyParameters(parameters, pk), privKey);
     }
 
     private byte[] sec_rand(int n)
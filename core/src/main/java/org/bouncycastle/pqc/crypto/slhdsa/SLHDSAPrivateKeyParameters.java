@@ -8,6 +8,8 @@
     final SK sk;
     final PK pk;
 
+    private volatile XMSSTree topTree;
+
     public SLHDSAPrivateKeyParameters(SLHDSAParameters parameters, byte[] skpkEncoded)
     {
         super(true, parameters);
@@ -66,4 +68,25 @@ public byte[] getEncodedPublicKey()
     {
         return Arrays.concatenate(pk.seed, pk.root);
     }
+
+    /**
+     * Return the XMSS tree on the top layer of the hypertree, building it on first use. The tree is the
+     * same for every signature made with the key, and is not secret - it only holds WOTS+ public keys and
+     * the hashes above them.
+     */
+    XMSSTree getTopTree(SLHDSAEngine engine)
+    {
+        XMSSTree tree = topTree;
+        if (tree == null)
+        {
+            tree = new HT(engine, sk.seed, pk.seed).topTree();
+            topTree = tree;
+        }
+        return tree;
+    }
+
+    void setTopTree(XMSSTree topTree)
+    {
+        this.topTree = topTree;
+    }
 }
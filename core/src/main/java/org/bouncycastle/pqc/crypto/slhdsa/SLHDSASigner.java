@@ -1,11 +1,13 @@
 package org.bouncycastle.pqc.crypto.slhdsa;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.params.ParametersWithContext;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
 import org.bouncycastle.pqc.crypto.MessageSigner;
+import org.bouncycastle.pqc.crypto.util.ParallelJobs;
 import org.bouncycastle.util.Arrays;
 
 /**
@@ -23,6 +25,8 @@
 {
     private static final byte[] DEFAULT_PREFIX = new byte[]{ 0, 0 };
 
+    private final Executor executor;
+
     private byte[] msgPrefix;
     private SLHDSAPublicKeyParameters pubKey;
     private SLHDSAPrivateKeyParameters privKey;
@@ -33,6 +37,23 @@
      */
     public SLHDSASigner()
     {
+        this(null);
+    }
+
+    /**
+     * Create a signer which builds the trees making up a signature concurrently using the passed in executor.
+     * <p>
+     * Once the message digest is known the k FORS trees, and the XMSS trees on each layer of the hypertree,
+     * can all be built independently of each other. The FORS trees and the WOTS+ leaves of the XMSS trees are
+     * handed out as separate jobs, and the signature is assembled from the results, so it is identical to one
+     * produced sequentially. The calling thread also takes jobs, and waits for the rest to finish.
+     * </p>
+     *
+     * @param executor executor to run tree building jobs on, null to build all the trees on the calling thread.
+     */
+    public SLHDSASigner(Executor executor)
+    {
+        this.executor = executor;
     }
 
     public void init(boolean forSigning, CipherParameters param)
@@ -110,7 +131,7 @@ public byte[] generateSignature(byte[] message)
             System.arraycopy(privKey.pk.seed, 0, optRand, 0, optRand.length);
         }
 
-        return internalGenerateSignature(privKey, msgPrefix, message, optRand);
+        return internalGenerateSignature(privKey, msgPrefix, message, optRand, executor);
     }
 
     // Equivalent to slh_verify_internal from specs
@@ -173,11 +194,11 @@ private static boolean internalVerifySignature(SLHDSAPublicKeyParameters pubKey,
 
     protected byte[] internalGenerateSignature(byte[] message, byte[] optRand)
     {
-        return internalGenerateSignature(privKey, null, message, optRand);
+        return internalGenerateSignature(privKey, null, message, optRand, executor);
     }
 
     private static byte[] internalGenerateSignature(SLHDSAPrivateKeyParameters privKey, byte[] msgPrefix, byte[] msg,
-        byte[] optRand)
+        byte[] optRand, Executor executor)
     {
         // TODO Check init via privKey != null
         
@@ -191,25 +212,41 @@ private static byte[] internalGenerateSignature(SLHDSAPrivateKeyParameters privK
         byte[] mHash = idxDigest.digest;
         long idx_tree = idxDigest.idx_tree;
         int idx_leaf = idxDigest.idx_leaf;
+
+        HT ht = new HT(engine, privKey.sk.seed, privKey.pk.seed);
+
+        // the top layer XMSS tree is the same for every signature
+        XMSSTree[] trees = new XMSSTree[engine.D];
+        trees[engine.D - 1] = privKey.getTopTree(engine);
+
         // FORS sign
-        ADRS adrs = new ADRS();
-        adrs.setTypeAndClear(ADRS.FORS_TREE);
-        adrs.setTreeAddress(idx_tree);
-        adrs.setKeyPairAddress(idx_leaf);
-        SIG_FORS[] sig_fors = fors.sign(mHash, privKey.sk.seed, privKey.pk.seed, adrs);
+        SIG_FORS[] sig_fors;
+        if (executor == null)
+        {
+            ADRS adrs = new ADRS();
+            adrs.setTypeAndClear(ADRS.FORS_TREE);
+            adrs.setTreeAddress(idx_tree);
+            adrs.setKeyPairAddress(idx_leaf);
+            sig_fors = fors.sign(mHash, privKey.sk.seed, privKey.pk.seed, adrs);
+        }
+        else
+        {
+            TreeJobs jobs = new TreeJobs(privKey, engine, mHash, idx_tree, idx_leaf);
+
+            jobs.run(executor);
+
+            sig_fors = jobs.sigFors;
+            jobs.buildTrees(ht, trees);
+        }
         // get FORS public key - spec shows M?
-        adrs = new ADRS();
+        ADRS adrs = new ADRS();
         adrs.setTypeAndClear(ADRS.FORS_TREE);
         adrs.setTreeAddress(idx_tree);
         adrs.setKeyPairAddress(idx_leaf);
         byte[] PK_FORS = fors.pkFromSig(sig_fors, mHash, privKey.pk.seed, adrs);
 
         // sign FORS public key with HT
-        ADRS treeAdrs = new ADRS();
-        treeAdrs.setTypeAndClear(ADRS.TREE);
-
-        HT ht = new HT(engine, privKey.getSeed(), privKey.getPublicSeed());
-        byte[] SIG_HT = ht.sign(PK_FORS, idx_tree, idx_leaf);
+        byte[] SIG_HT = ht.sign(PK_FORS, idx_tree, idx_leaf, trees);
 
         byte[][] sigComponents = new byte[sig_fors.length + 2][];
         sigComponents[0] = R;
@@ -222,4 +259,105 @@ private static byte[] internalGenerateSignature(SLHDSAPrivateKeyParameters privK
 
         return Arrays.concatenate(sigComponents);
     }
+
+    /**
+     * The FORS trees and the WOTS+ leaves of the hypertree layers below the top one, split into jobs which
+     * are taken in turn by whichever threads are taking part.
+     */
+    private static class TreeJobs
+        extends ParallelJobs<TreeJobs.Engines>
+    {
+        private static final int LEAVES_PER_JOB = 16;
+
+        private final SLHDSAPrivateKeyParameters privKey;
+        private final long idx_tree;
+        private final int idx_leaf;
+        private final int[] forsIdxs;
+        private final int hPrime;
+        private final int leafCount;
+        private final int leafJobsPerLayer;
+
+        private final SIG_FORS[] sigFors;
+        private final byte[][][] leaves;
+
+        TreeJobs(SLHDSAPrivateKeyParameters privKey, SLHDSAEngine engine, byte[] mHash, long idx_tree, int idx_leaf)
+        {
+            super(engine.K + (engine.D - 1) * leafJobsPerLayer(engine), "building signature trees");
+
+            this.privKey = privKey;
+            this.idx_tree = idx_tree;
+            this.idx_leaf = idx_leaf;
+            this.forsIdxs = Fors.base2B(mHash, engine.A, engine.K);
+            this.hPrime = engine.H_PRIME;
+            this.leafCount = 1 << hPrime;
+            this.leafJobsPerLayer = leafJobsPerLayer(engine);
+            this.sigFors = new SIG_FORS[engine.K];
+            this.leaves = new byte[engine.D - 1][leafCount][];
+        }
+
+        void buildTrees(HT ht, XMSSTree[] trees)
+        {
+            for (int j = 0; j != leaves.length; j++)
+            {
+                trees[j] = ht.xmss_tree(leaves[j], layerAddress(j));
+            }
+        }
+
+        protected Engines createWorkerState()
+        {
+            // the engines are stateful, so each worker needs its own
+            SLHDSAEngine engine = privKey.getParameters().getEngine();
+            engine.init(privKey.pk.seed);
+
+            return new Engines(new HT(engine, privKey.sk.seed, privKey.pk.seed), new Fors(engine));
+        }
+
+        protected void runJob(Engines engines, int job)
+        {
+            if (job < sigFors.length)
+            {
+                ADRS adrs = new ADRS();
+                adrs.setTypeAndClear(ADRS.FORS_TREE);
+                adrs.setTreeAddress(idx_tree);
+                adrs.setKeyPairAddress(idx_leaf);
+
+                sigFors[job] = engines.fors.signTree(job, forsIdxs[job], privKey.sk.seed, privKey.pk.seed, adrs);
+            }
+            else
+            {
+                job -= sigFors.length;
+
+                int layer = job / leafJobsPerLayer;
+                int from = (job % leafJobsPerLayer) * LEAVES_PER_JOB;
+
+                engines.ht.xmss_leaves(leaves[layer], from, Math.min(from + LEAVES_PER_JOB, leafCount),
+                    layerAddress(layer));
+            }
+        }
+
+        private static int leafJobsPerLayer(SLHDSAEngine engine)
+        {
+            return ((1 << engine.H_PRIME) + LEAVES_PER_JOB - 1) / LEAVES_PER_JOB;
+        }
+
+        private ADRS layerAddress(int layer)
+        {
+            ADRS adrs = new ADRS();
+            adrs.setLayerAddress(layer);
+            adrs.setTreeAddress(idx_tree >>> (layer * hPrime));
+            return adrs;
+        }
+
+        static class Engines
+        {
+            final HT ht;
+            final Fors fors;
+
+            Engines(HT ht, Fors fors)
+            {
+                this.ht = ht;
+                this.fors = fors;
+            }
+        }
+    }
 }
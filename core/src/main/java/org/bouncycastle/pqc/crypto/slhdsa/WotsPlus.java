@@ -18,49 +18,58 @@ byte[] pkGen(byte[] skSeed, byte[] pkSeed, ADRS paramAdrs)
     {
         ADRS wotspkADRS = new ADRS(paramAdrs); // copy address to create OTS public key address
 
-        byte[][] tmp = new byte[engine.WOTS_LEN][];
-        for (int i = 0; i < engine.WOTS_LEN; i++)
-        {
-            ADRS adrs = new ADRS(paramAdrs);
-            adrs.setTypeAndClear(ADRS.WOTS_PRF);
-            adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
-            adrs.setChainAddress(i);
-            adrs.setHashAddress(0);
-
-            byte[] sk = engine.PRF(pkSeed, skSeed, adrs);
-
-            adrs.setTypeAndClear(ADRS.WOTS_HASH);
-            adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
-            adrs.setChainAddress(i);
-            adrs.setHashAddress(0);
-            tmp[i] = chain(sk, 0, w - 1, pkSeed, adrs);
-        }
+        byte[] tmp = secretKeys(skSeed, pkSeed, paramAdrs);
+
+        ADRS adrs = new ADRS(paramAdrs);
+        adrs.setTypeAndClear(ADRS.WOTS_HASH);
+        adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
+
+        int[] start = new int[engine.WOTS_LEN];
+        int[] end = new int[engine.WOTS_LEN];
+        Arrays.fill(end, w - 1);
+        chains(tmp, start, end, pkSeed, adrs);
 
         wotspkADRS.setTypeAndClear(ADRS.WOTS_PK);
         wotspkADRS.setKeyPairAddress(paramAdrs.getKeyPairAddress());
 
-        return engine.T_l(pkSeed, wotspkADRS, Arrays.concatenate(tmp));
+        return engine.T_l(pkSeed, wotspkADRS, tmp);
     }
 
-    // #Input: Input string X, start index i, number of steps s, public seed PK.seed, address ADRS
-    // #Output: value of F iterated s times on X
-    byte[] chain(byte[] X, int i, int s, byte[] pkSeed, ADRS adrs)
+    // the secret key values for all the chains of the key pair at paramAdrs, one after the other
+    private byte[] secretKeys(byte[] skSeed, byte[] pkSeed, ADRS paramAdrs)
     {
-        if (s == 0)
-        {
-            return Arrays.clone(X);
-        }
-        if ((i + s) > (this.w - 1))
-        {
-            return null;
-        }
-        byte[] result = X;
-        for (int j = 0; j < s; ++j)
+        ADRS adrs = new ADRS(paramAdrs);
+        adrs.setTypeAndClear(ADRS.WOTS_PRF);
+        adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
+
+        byte[] sk = new byte[engine.WOTS_LEN * engine.N];
+        engine.PRF(pkSeed, skSeed, adrs, ADRS.OFFSET_CHAIN_ADDR, 0, engine.WOTS_LEN, sk);
+        return sk;
+    }
+
+    // Iterate F over the chains held one after the other in buf, chain i going from hash address start[i]
+    // up to end[i]. The chains are advanced together, one hash address at a time, so each step is a single
+    // batch of F calls across all the chains still running.
+    private void chains(byte[] buf, int[] start, int[] end, byte[] pkSeed, ADRS adrs)
+    {
+        int[] lanes = new int[engine.WOTS_LEN];
+        for (int h = 0; h < w - 1; h++)
         {
-            adrs.setHashAddress(i + j);
-            result = engine.F(pkSeed, adrs, result);
+            int count = 0;
+            for (int i = 0; i < engine.WOTS_LEN; i++)
+            {
+                if (start[i] <= h && h < end[i])
+                {
+                    lanes[count++] = i;
+                }
+            }
+
+            if (count > 0)
+            {
+                adrs.setHashAddress(h);
+                engine.F(pkSeed, adrs, ADRS.OFFSET_CHAIN_ADDR, 0, count == engine.WOTS_LEN ? null : lanes, count, buf);
+            }
         }
-        return result;
     }
 
     // #Input: Message M, secret seed SK.seed, public seed PK.seed, address ADRS
@@ -90,21 +99,13 @@ public byte[] sign(byte[] M, byte[] skSeed, byte[] pkSeed, ADRS paramAdrs)
         byte[] csum_bytes = Pack.intToBigEndian(csum);
         base_w(csum_bytes, 4 - len_2_bytes, w, msg, engine.WOTS_LEN1, engine.WOTS_LEN2);
 
-        byte[][] sig = new byte[engine.WOTS_LEN][];
-        for (int i = 0; i < engine.WOTS_LEN; i++)
-        {
-            adrs.setTypeAndClear(ADRS.WOTS_PRF);
-            adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
-            adrs.setChainAddress(i);
-            adrs.setHashAddress(0);
-            byte[] sk = engine.PRF(pkSeed, skSeed, adrs);
-            adrs.setTypeAndClear(ADRS.WOTS_HASH);
-            adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
-            adrs.setChainAddress(i);
-            adrs.setHashAddress(0);
-            sig[i] = chain(sk, 0, msg[i], pkSeed, adrs);
-        }
-        return Arrays.concatenate(sig);
+        byte[] sig = secretKeys(skSeed, pkSeed, paramAdrs);
+
+        adrs.setTypeAndClear(ADRS.WOTS_HASH);
+        adrs.setKeyPairAddress(paramAdrs.getKeyPairAddress());
+        chains(sig, new int[engine.WOTS_LEN], msg, pkSeed, adrs);
+
+        return sig;
     }
 
     //
@@ -149,18 +150,14 @@ public byte[] pkFromSig(byte[] sig, byte[] M, byte[] pkSeed, ADRS adrs)
         byte[] csum_bytes = Pack.intToBigEndian(csum);
         base_w(csum_bytes, 4 - len_2_bytes, w, msg, engine.WOTS_LEN1, engine.WOTS_LEN2);
 
-        byte[] sigI = new byte[engine.N];
-        byte[][] tmp = new byte[engine.WOTS_LEN][];
-        for (int  i = 0; i < engine.WOTS_LEN; i++ )
-        {
-            adrs.setChainAddress(i);
-            System.arraycopy(sig, i * engine.N, sigI, 0, engine.N);
-            tmp[i] = chain(sigI, msg[i], w - 1 - msg[i], pkSeed, adrs);
-        }
+        byte[] tmp = Arrays.copyOfRange(sig, 0, engine.WOTS_LEN * engine.N);
+        int[] end = new int[engine.WOTS_LEN];
+        Arrays.fill(end, w - 1);
+        chains(tmp, msg, end, pkSeed, adrs);
 
         wotspkADRS.setTypeAndClear(ADRS.WOTS_PK);
         wotspkADRS.setKeyPairAddress(adrs.getKeyPairAddress());
         
-        return engine.T_l(pkSeed, wotspkADRS, Arrays.concatenate(tmp));
+        return engine.T_l(pkSeed, wotspkADRS, tmp);
     }
 }
@@ -0,0 +1,31 @@
+package org.bouncycastle.pqc.crypto.slhdsa;
+
+/**
+ * The complete set of nodes for a single XMSS tree in the hypertree, held level by level with the
+ * WOTS+ public keys at level 0 and the root at level H'. The contents are never modified once created,
+ * so an instance can be shared between threads.
+ */
+class XMSSTree
+{
+    private final byte[][][] levels;
+
+    XMSSTree(byte[][][] levels)
+    {
+        this.levels = levels;
+    }
+
+    byte[] getRoot()
+    {
+        return levels[levels.length - 1][0];
+    }
+
+    byte[][] getAuthPath(int idx)
+    {
+        byte[][] auth = new byte[levels.length - 1][];
+        for (int j = 0; j < auth.length; j++)
+        {
+            auth[j] = levels[j][(idx >>> j) ^ 1];
+        }
+        return auth;
+    }
+}
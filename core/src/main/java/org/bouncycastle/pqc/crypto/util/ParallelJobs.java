@@ -0,0 +1,142 @@
+package org.bouncycastle.pqc.crypto.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of independent jobs, taken in turn by whichever threads are taking part: the calling thread, plus
+ * workers run on an executor if one is given. Each thread taking part creates its own working state (for
+ * example a digest, as most of the engines are stateful), which is passed to every job that thread runs.
+ * <p>
+ * Note: this is a helper for the PQC implementations, not a supported API.
+ * </p>
+ *
+ * @param <S> the type of the per-thread working state.
+ */
+public abstract class ParallelJobs<S>
+{
+    private final int jobCount;
+    private final String description;
+    private final AtomicInteger nextJob = new AtomicInteger();
+    private final CountDownLatch done;
+
+    private volatile Throwable failure;
+
+    /**
+     * @param jobCount the number of jobs, numbered from 0.
+     * @param description what the jobs do, for exception messages (e.g. "building XMSS tree").
+     */
+    protected ParallelJobs(int jobCount, String description)
+    {
+        this.jobCount = jobCount;
+        this.description = description;
+        this.done = new CountDownLatch(jobCount);
+    }
+
+    /**
+     * Create the working state for one of the threads taking part. By default there is none.
+     */
+    protected S createWorkerState()
+    {
+        return null;
+    }
+
+    protected abstract void runJob(S state, int job);
+
+    /**
+     * Run all the jobs, returning once they are all complete. Once a job fails, the remaining jobs are skipped,
+     * and the failure is rethrown here - as is, if it is a RuntimeException or Error.
+     *
+     * @param executor executor to run the extra workers on, or null to run every job on the calling thread.
+     */
+    public void run(Executor executor)
+    {
+        if (executor != null)
+        {
+            int workers = Math.min(jobCount, Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+            // the calling thread is one of the workers
+            for (int i = 1; i < workers; ++i)
+            {
+                try
+                {
+                    executor.execute(new Worker());
+                }
+                catch (RejectedExecutionException e)
+                {
+                    break;
+                }
+            }
+        }
+
+        new Worker().run();
+
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while " + description);
+        }
+
+        Throwable t = failure;
+        if (t instanceof RuntimeException)
+        {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error)
+        {
+            throw (Error)t;
+        }
+        if (t != null)
+        {
+            throw new IllegalStateException(description + " failed: " + t.getMessage(), t);
+        }
+    }
+
+    private class Worker
+        implements Runnable
+    {
+        public void run()
+        {
+            int job = nextJob.getAndIncrement();
+            if (job >= jobCount)
+            {
+                return;
+            }
+
+            S state = null;
+            try
+            {
+                state = createWorkerState();
+            }
+            catch (Throwable t)
+            {
+                failure = t;
+            }
+
+            for (; job < jobCount; job = nextJob.getAndIncrement())
+            {
+                try
+                {
+                    if (failure == null)
+                    {
+                        runJob(state, job);
+                    }
+                }
+                catch (Throwable t)
+                {
+                    failure = t;
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }
+        }
+    }
+}
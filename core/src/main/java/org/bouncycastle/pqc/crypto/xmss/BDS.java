@@ -11,6 +11,7 @@
 import java.util.Map;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 
@@ -61,9 +62,23 @@
      * @param otsHashAddress hash address
      */
     BDS(XMSSParameters params, byte[] publicSeed, byte[] secretKeySeed, OTSHashAddress otsHashAddress)
+    {
+        this(params, publicSeed, secretKeySeed, otsHashAddress, (Executor)null);
+    }
+
+    /**
+     * Set up constructor, building the tree concurrently.
+     *
+     * @param params tree parameters
+     * @param publicSeed public seed for tree
+     * @param secretKeySeed secret seed for tree
+     * @param otsHashAddress hash address
+     * @param executor executor to build subtrees on, null to build the tree on the calling thread.
+     */
+    BDS(XMSSParameters params, byte[] publicSeed, byte[] secretKeySeed, OTSHashAddress otsHashAddress, Executor executor)
     {
         this(params.getWOTSPlus(), params.getHeight(), params.getK(), ((1 << params.getHeight()) - 1));
-        this.initialize(publicSeed, secretKeySeed, otsHashAddress);
+        this.initialize(publicSeed, secretKeySeed, otsHashAddress, executor);
     }
 
     /**
@@ -79,7 +94,7 @@
     {
         this(params.getWOTSPlus(), params.getHeight(), params.getK(), ((1 << params.getHeight()) - 1));
 
-        this.initialize(publicSeed, secretKeySeed, otsHashAddress);
+        this.initialize(publicSeed, secretKeySeed, otsHashAddress, null);
 
         while (this.index < index)
         {
@@ -230,12 +245,18 @@ public BDS getNextState(byte[] publicSeed, byte[] secretKeySeed, OTSHashAddress
         return new BDS(this, publicSeed, secretKeySeed, otsHashAddress);
     }
 
-    private void initialize(byte[] publicSeed, byte[] secretSeed, OTSHashAddress otsHashAddress)
+    private void initialize(byte[] publicSeed, byte[] secretSeed, OTSHashAddress otsHashAddress, Executor executor)
     {
         if (otsHashAddress == null)
         {
             throw new NullPointerException("otsHashAddress == null");
         }
+        if (executor != null)
+        {
+            initialize(new BDSTreeJobs(wotsPlus.getParams(), treeHeight, k, publicSeed, secretSeed, otsHashAddress),
+                executor);
+            return;
+        }
         /* prepare addresses */
         LTreeAddress lTreeAddress = (LTreeAddress)new LTreeAddress.Builder()
             .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
@@ -317,6 +338,34 @@ private void initialize(byte[] publicSeed, byte[] secretSeed, OTSHashAddress ots
         root = stack.pop();
     }
 
+    private void initialize(BDSTreeJobs jobs, Executor executor)
+    {
+        jobs.build(executor);
+
+        for (int height = 0; height < treeHeight; height++)
+        {
+            authenticationPath.add(jobs.authenticationPath[height]);
+        }
+        for (int height = 0; height < (treeHeight - k); height++)
+        {
+            treeHashInstances.get(height).setNode(jobs.treeHashNodes[height]);
+        }
+        for (int height = treeHeight - k; height <= treeHeight - 2; height++)
+        {
+            XMSSNode[] nodes = jobs.retain[height - (treeHeight - k)];
+            LinkedList<XMSSNode> queue = new LinkedList<XMSSNode>();
+            for (int indexOnHeight = 3; indexOnHeight < nodes.length; indexOnHeight += 2)
+            {
+                queue.add(nodes[indexOnHeight]);
+            }
+            if (!queue.isEmpty())
+            {
+                retain.put(height, queue);
+            }
+        }
+        root = jobs.root;
+    }
+
     private void nextAuthenticationPath(byte[] publicSeed, byte[] secretSeed, OTSHashAddress otsHashAddress)
     {
         if (otsHashAddress == null)
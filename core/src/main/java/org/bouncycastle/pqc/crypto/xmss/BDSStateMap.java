@@ -7,6 +7,7 @@
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.util.Integers;
@@ -37,11 +38,21 @@
     }
 
     BDSStateMap(XMSSMTParameters params, long globalIndex, byte[] publicSeed, byte[] secretKeySeed)
+    {
+        this(params, globalIndex, publicSeed, secretKeySeed, null);
+    }
+
+    /**
+     * Replay the state up to globalIndex, building each new tree concurrently using the passed in executor.
+     *
+     * @param executor executor to build subtrees on, null to build the trees on the calling thread.
+     */
+    BDSStateMap(XMSSMTParameters params, long globalIndex, byte[] publicSeed, byte[] secretKeySeed, Executor executor)
     {
         this.maxIndex = (1L << params.getHeight()) - 1;
         for (long index = 0; index < globalIndex; index++)
         {
-            updateState(params, index, publicSeed, secretKeySeed);
+            updateState(params, index, publicSeed, secretKeySeed, executor);
         }
     }
 
@@ -51,6 +62,12 @@ public long getMaxIndex()
     }
 
     void updateState(XMSSMTParameters params, long globalIndex, byte[] publicSeed, byte[] secretKeySeed)
+    {
+        updateState(params, globalIndex, publicSeed, secretKeySeed, null);
+    }
+
+    private void updateState(XMSSMTParameters params, long globalIndex, byte[] publicSeed, byte[] secretKeySeed,
+        Executor executor)
     {
         XMSSParameters xmssParams = params.getXMSSParameters();
         int xmssHeight = xmssParams.getHeight();
@@ -69,7 +86,7 @@ void updateState(XMSSMTParameters params, long globalIndex, byte[] publicSeed, b
         {
             if (this.get(0) == null || indexLeaf == 0)
             {
-                this.put(0, new BDS(xmssParams, publicSeed, secretKeySeed, otsHashAddress));
+                this.put(0, new BDS(xmssParams, publicSeed, secretKeySeed, otsHashAddress, executor));
             }
 
             this.update(0, publicSeed, secretKeySeed, otsHashAddress);
@@ -88,7 +105,7 @@ void updateState(XMSSMTParameters params, long globalIndex, byte[] publicSeed, b
                 /* prepare authentication path for next leaf */
             if (bdsState.get(layer) == null || XMSSUtil.isNewBDSInitNeeded(globalIndex, xmssHeight, layer))
             {
-                bdsState.put(layer, new BDS(xmssParams, publicSeed, secretKeySeed, otsHashAddress));
+                bdsState.put(layer, new BDS(xmssParams, publicSeed, secretKeySeed, otsHashAddress, executor));
             }
 
             if (indexLeaf < ((1 << xmssHeight) - 1)
@@ -0,0 +1,158 @@
+package org.bouncycastle.pqc.crypto.xmss;
+
+import java.util.Stack;
+import java.util.concurrent.Executor;
+
+import org.bouncycastle.pqc.crypto.util.ParallelJobs;
+
+/**
+ * Builds an XMSS tree for the initial BDS state with the subtrees at jobHeight computed as separate jobs,
+ * taken in turn by whichever threads are taking part. The subtree roots are then hashed together on the
+ * calling thread. The nodes the BDS state keeps are picked out as they are produced, by the same rules
+ * BDS uses when it builds the tree a leaf at a time, so the resulting state is identical.
+ */
+class BDSTreeJobs
+    extends ParallelJobs<WOTSPlus>
+{
+    private static final int MIN_JOB_HEIGHT = 4;
+    private static final int MAX_JOBS_LOG2 = 8;
+
+    private final WOTSPlusParameters wotsParams;
+    private final int treeHeight;
+    private final int k;
+    private final byte[] publicSeed;
+    private final byte[] secretSeed;
+    private final OTSHashAddress otsHashAddress;
+    private final int jobHeight;
+    private final int jobCount;
+    private final XMSSNode[] subtreeRoots;
+
+    final XMSSNode[] authenticationPath;
+    final XMSSNode[] treeHashNodes;
+    final XMSSNode[][] retain;
+    XMSSNode root;
+
+    BDSTreeJobs(WOTSPlusParameters wotsParams, int treeHeight, int k, byte[] publicSeed, byte[] secretSeed,
+        OTSHashAddress otsHashAddress)
+    {
+        this(wotsParams, treeHeight, k, publicSeed, secretSeed, otsHashAddress,
+            Math.max(Math.min(treeHeight, MIN_JOB_HEIGHT), treeHeight - MAX_JOBS_LOG2));
+    }
+
+    private BDSTreeJobs(WOTSPlusParameters wotsParams, int treeHeight, int k, byte[] publicSeed, byte[] secretSeed,
+        OTSHashAddress otsHashAddress, int jobHeight)
+    {
+        super(1 << (treeHeight - jobHeight), "building XMSS tree");
+
+        this.wotsParams = wotsParams;
+        this.treeHeight = treeHeight;
+        this.k = k;
+        this.publicSeed = publicSeed;
+        this.secretSeed = secretSeed;
+        this.otsHashAddress = otsHashAddress;
+        this.jobHeight = jobHeight;
+        this.jobCount = 1 << (treeHeight - jobHeight);
+        this.subtreeRoots = new XMSSNode[jobCount];
+
+        this.authenticationPath = new XMSSNode[treeHeight];
+        this.treeHashNodes = new XMSSNode[treeHeight - k];
+        this.retain = new XMSSNode[k - 1][];
+        for (int height = treeHeight - k; height <= treeHeight - 2; height++)
+        {
+            retain[height - (treeHeight - k)] = new XMSSNode[1 << (treeHeight - height)];
+        }
+    }
+
+    void build(Executor executor)
+    {
+        run(executor);
+
+        WOTSPlus wotsPlus = new WOTSPlus(wotsParams);
+        wotsPlus.importKeys(wotsPlus.getWOTSPlusSecretKey(secretSeed, otsHashAddress), publicSeed);
+
+        Stack<XMSSNode> stack = new Stack<XMSSNode>();
+        for (int job = 0; job < jobCount; job++)
+        {
+            push(wotsPlus, stack, subtreeRoots[job], job);
+        }
+        root = stack.pop();
+    }
+
+    protected WOTSPlus createWorkerState()
+    {
+        // WOTS+ instances are stateful, so each worker needs its own
+        return new WOTSPlus(wotsParams);
+    }
+
+    protected void runJob(WOTSPlus wotsPlus, int job)
+    {
+        subtreeRoots[job] = buildSubtree(wotsPlus, job);
+    }
+
+    private XMSSNode buildSubtree(WOTSPlus wotsPlus, int job)
+    {
+        Stack<XMSSNode> stack = new Stack<XMSSNode>();
+
+        int start = job << jobHeight, end = (job + 1) << jobHeight;
+        for (int indexLeaf = start; indexLeaf < end; indexLeaf++)
+        {
+            OTSHashAddress otsAddress = (OTSHashAddress)new OTSHashAddress.Builder()
+                .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
+                .withOTSAddress(indexLeaf).withChainAddress(otsHashAddress.getChainAddress())
+                .withHashAddress(otsHashAddress.getHashAddress()).withKeyAndMask(otsHashAddress.getKeyAndMask())
+                .build();
+            LTreeAddress lTreeAddress = (LTreeAddress)new LTreeAddress.Builder()
+                .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
+                .withLTreeAddress(indexLeaf).build();
+
+            wotsPlus.importKeys(wotsPlus.getWOTSPlusSecretKey(secretSeed, otsAddress), publicSeed);
+            WOTSPlusPublicKeyParameters wotsPlusPublicKey = wotsPlus.getPublicKey(otsAddress);
+
+            push(wotsPlus, stack, XMSSNodeUtil.lTree(wotsPlus, wotsPlusPublicKey, lTreeAddress), indexLeaf);
+        }
+
+        return stack.pop();
+    }
+
+    /**
+     * Push a node onto the treehash stack, hashing it with any nodes of the same height already there.
+     *
+     * @param indexOnHeight the index of node amongst the nodes of its height.
+     */
+    private void push(WOTSPlus wotsPlus, Stack<XMSSNode> stack, XMSSNode node, int indexOnHeight)
+    {
+        while (!stack.isEmpty() && stack.peek().getHeight() == node.getHeight())
+        {
+            keep(node, indexOnHeight);
+
+            indexOnHeight >>>= 1;
+            HashTreeAddress hashTreeAddress = (HashTreeAddress)new HashTreeAddress.Builder()
+                .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
+                .withTreeHeight(node.getHeight()).withTreeIndex(indexOnHeight).build();
+            node = XMSSNodeUtil.randomizeHash(wotsPlus, stack.pop(), node, hashTreeAddress);
+            node = new XMSSNode(node.getHeight() + 1, node.getValue());
+        }
+        stack.push(node);
+    }
+
+    private void keep(XMSSNode node, int indexOnHeight)
+    {
+        int height = node.getHeight();
+
+        /* add to authenticationPath if leafIndex == 1 */
+        if (indexOnHeight == 1)
+        {
+            authenticationPath[height] = node;
+        }
+        /* store next right authentication node */
+        if (indexOnHeight == 3 && height < (treeHeight - k))
+        {
+            treeHashNodes[height] = node;
+        }
+        if (indexOnHeight >= 3 && (indexOnHeight & 1) == 1 && height >= (treeHeight - k)
+            && height <= (treeHeight - 2))
+        {
+            retain[height - (treeHeight - k)][indexOnHeight] = node;
+        }
+    }
+}
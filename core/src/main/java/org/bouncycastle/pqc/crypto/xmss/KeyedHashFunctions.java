@@ -1,8 +1,12 @@
 package org.bouncycastle.pqc.crypto.xmss;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.Xof;
+import org.bouncycastle.crypto.digests.SHA256Batch;
+import org.bouncycastle.crypto.digests.SHAKEBatch;
+import org.bouncycastle.util.Arrays;
 
 /**
  * Crypto functions for XMSS.
@@ -12,6 +16,16 @@
     private final Digest digest;
     private final int digestSize;
 
+    /*
+     * batch hashing for the WOTS+ chains, SHA-256 (with the PRF key block precomputed) and SHAKE only, any
+     * other digest is handled a call at a time.
+     */
+    private final SHA256Batch sha256PRFBatch;
+    private final SHA256Batch sha256Batch;
+    private final SHAKEBatch shakeBatch;
+    private byte[] prfKey;
+    private byte[] batchIn = new byte[0];
+
     protected KeyedHashFunctions(ASN1ObjectIdentifier treeDigest, int digestSize)
     {
         super();
@@ -21,6 +35,31 @@ protected KeyedHashFunctions(ASN1ObjectIdentifier treeDigest, int digestSize)
         }
         this.digest = DigestUtil.getDigest(treeDigest);
         this.digestSize = digestSize;
+
+        if (NISTObjectIdentifiers.id_sha256.equals(treeDigest) && digestSize == 32)
+        {
+            this.sha256PRFBatch = new SHA256Batch();
+            this.sha256Batch = new SHA256Batch();
+            this.shakeBatch = null;
+        }
+        else if (NISTObjectIdentifiers.id_shake128.equals(treeDigest))
+        {
+            this.sha256PRFBatch = null;
+            this.sha256Batch = null;
+            this.shakeBatch = new SHAKEBatch(128);
+        }
+        else if (NISTObjectIdentifiers.id_shake256.equals(treeDigest))
+        {
+            this.sha256PRFBatch = null;
+            this.sha256Batch = null;
+            this.shakeBatch = new SHAKEBatch(256);
+        }
+        else
+        {
+            this.sha256PRFBatch = null;
+            this.sha256Batch = null;
+            this.shakeBatch = null;
+        }
     }
 
     private byte[] coreDigest(int fixedValue, byte[] key, byte[] index)
@@ -80,6 +119,104 @@ protected byte[] HMsg(byte[] key, byte[] in)
         return coreDigest(2, key, in);
     }
 
+    /**
+     * Batch form of F, keys and in each holding count n-byte values one after the other, with the
+     * outputs written one after the other to out.
+     */
+    protected void F(byte[] keys, byte[] in, int count, byte[] out)
+    {
+        int n = digestSize;
+
+        if (sha256Batch == null && shakeBatch == null)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                byte[] res = coreDigest(0, Arrays.copyOfRange(keys, i * n, (i + 1) * n),
+                    Arrays.copyOfRange(in, i * n, (i + 1) * n));
+                System.arraycopy(res, 0, out, i * n, n);
+            }
+            return;
+        }
+
+        int inLen = 3 * n;
+        byte[] buf = batchIn(count * inLen);
+        for (int i = 0; i < count; i++)
+        {
+            int off = i * inLen;
+            Arrays.fill(buf, off, off + n, (byte)0);        // toBytes(0, n)
+            System.arraycopy(keys, i * n, buf, off + n, n);
+            System.arraycopy(in, i * n, buf, off + 2 * n, n);
+        }
+
+        if (sha256Batch != null)
+        {
+            sha256Batch.hash(buf, 0, inLen, count, out, 0, n);
+        }
+        else
+        {
+            shakeBatch.hash(buf, 0, inLen, count, out, 0, n);
+        }
+    }
+
+    /**
+     * Batch form of PRF, addresses holding count 32 byte addresses one after the other, with the outputs
+     * written one after the other to out.
+     */
+    protected void PRF(byte[] key, byte[] addresses, int count, byte[] out)
+    {
+        int n = digestSize;
+
+        if (sha256PRFBatch != null)
+        {
+            /*
+             * toBytes(3, 32) || key is exactly one block, so only the address needs hashing per call. The block
+             * is kept precomputed for the last key array passed in, matched by identity so no copy of a secret
+             * seed is kept or compared: the seeds are never modified in place.
+             */
+            if (key != prfKey)
+            {
+                byte[] prefix = new byte[64];
+                prefix[31] = 3;
+                System.arraycopy(key, 0, prefix, 32, 32);
+                sha256PRFBatch.init(prefix, 0, 64);
+                Arrays.fill(prefix, (byte)0);
+                prfKey = key;
+            }
+            sha256PRFBatch.hash(addresses, 0, 32, count, out, 0, n);
+        }
+        else if (shakeBatch != null)
+        {
+            int inLen = 2 * n + 32;
+            byte[] buf = batchIn(count * inLen);
+            for (int i = 0; i < count; i++)
+            {
+                int off = i * inLen;
+                Arrays.fill(buf, off, off + n - 1, (byte)0);    // toBytes(3, n)
+                buf[off + n - 1] = 3;
+                System.arraycopy(key, 0, buf, off + n, n);
+                System.arraycopy(addresses, i * 32, buf, off + 2 * n, 32);
+            }
+            shakeBatch.hash(buf, 0, inLen, count, out, 0, n);
+        }
+        else
+        {
+            for (int i = 0; i < count; i++)
+            {
+                byte[] res = coreDigest(3, key, Arrays.copyOfRange(addresses, i * 32, (i + 1) * 32));
+                System.arraycopy(res, 0, out, i * n, n);
+            }
+        }
+    }
+
+    private byte[] batchIn(int len)
+    {
+        if (batchIn.length < len)
+        {
+            batchIn = new byte[len];
+        }
+        return batchIn;
+    }
+
     protected byte[] PRF(byte[] key, byte[] address)
     {
         if (key.length != digestSize)
@@ -4,6 +4,7 @@
 import java.util.List;
 
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
 
 /**
  * WOTS+.
@@ -114,16 +115,14 @@ WOTSPlusSignature sign(byte[] messageDigest, OTSHashAddress otsHashAddress)
         baseWMessage.addAll(baseWChecksum);
 
         /* create signature */
-        byte[][] signature = new byte[params.getLen()][];
-        for (int i = 0; i < params.getLen(); i++)
+        int len = params.getLen();
+        int[] start = new int[len];
+        int[] end = new int[len];
+        for (int i = 0; i < len; i++)
         {
-            otsHashAddress = (OTSHashAddress)new OTSHashAddress.Builder()
-                .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
-                .withOTSAddress(otsHashAddress.getOTSAddress()).withChainAddress(i)
-                .withHashAddress(otsHashAddress.getHashAddress()).withKeyAndMask(otsHashAddress.getKeyAndMask())
-                .build();
-            signature[i] = chain(expandSecretKeySeed(i), 0, baseWMessage.get(i), otsHashAddress);
+            end[i] = baseWMessage.get(i);
         }
+        byte[][] signature = chains(expandSecretKeySeeds(), start, end, otsHashAddress);
         return new WOTSPlusSignature(params, signature);
     }
 
@@ -170,77 +169,111 @@ WOTSPlusPublicKeyParameters getPublicKeyFromSignature(byte[] messageDigest, WOTS
         /* msg || checksum */
         baseWMessage.addAll(baseWChecksum);
 
-        byte[][] publicKey = new byte[params.getLen()][];
-        for (int i = 0; i < params.getLen(); i++)
+        int len = params.getLen();
+        int[] start = new int[len];
+        int[] end = new int[len];
+        for (int i = 0; i < len; i++)
         {
-            otsHashAddress = (OTSHashAddress)new OTSHashAddress.Builder()
-                .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
-                .withOTSAddress(otsHashAddress.getOTSAddress()).withChainAddress(i)
-                .withHashAddress(otsHashAddress.getHashAddress()).withKeyAndMask(otsHashAddress.getKeyAndMask())
-                .build();
-            publicKey[i] = chain(signature.toByteArray()[i], baseWMessage.get(i),
-                params.getWinternitzParameter() - 1 - baseWMessage.get(i), otsHashAddress);
+            start[i] = baseWMessage.get(i);
+            end[i] = params.getWinternitzParameter() - 1;
         }
+        byte[][] publicKey = chains(signature.toByteArray(), start, end, otsHashAddress);
         return new WOTSPlusPublicKeyParameters(params, publicKey);
     }
 
     /**
-     * Computes an iteration of F on an n-byte input using outputs of PRF.
+     * Computes iterations of F on the n-byte chain values using outputs of PRF, chain i going from hash
+     * address start[i] up to end[i]. The chains are advanced together, so each hash address is a single
+     * batch of PRF and F calls across all the chains still running.
      *
-     * @param startHash      Starting point.
-     * @param startIndex     Start index.
-     * @param steps          Steps to take.
+     * @param startHashes    Starting points, one for each chain.
+     * @param start          Start index for each chain.
+     * @param end            End index for each chain.
      * @param otsHashAddress OTS hash address for randomization.
-     * @return Value obtained by iterating F for steps times on input startHash,
-     * using the outputs of PRF.
+     * @return Values obtained by iterating F on each of the startHashes, using the outputs of PRF.
      */
-    private byte[] chain(byte[] startHash, int startIndex, int steps, OTSHashAddress otsHashAddress)
+    private byte[][] chains(byte[][] startHashes, int[] start, int[] end, OTSHashAddress otsHashAddress)
     {
         int n = params.getTreeDigestSize();
-        if (startHash == null)
-        {
-            throw new NullPointerException("startHash == null");
-        }
-        if (startHash.length != n)
-        {
-            throw new IllegalArgumentException("startHash needs to be " + n + "bytes");
-        }
+        int len = startHashes.length;
         if (otsHashAddress == null)
         {
             throw new NullPointerException("otsHashAddress == null");
         }
-        if (otsHashAddress.toByteArray() == null)
-        {
-            throw new NullPointerException("otsHashAddress byte array == null");
-        }
-        if ((startIndex + steps) > params.getWinternitzParameter() - 1)
+
+        byte[] values = new byte[len * n];
+        for (int i = 0; i < len; i++)
         {
-            throw new IllegalArgumentException("max chain length must not be greater than w");
+            if (startHashes[i] == null)
+            {
+                throw new NullPointerException("startHash == null");
+            }
+            if (startHashes[i].length != n)
+            {
+                throw new IllegalArgumentException("startHash needs to be " + n + "bytes");
+            }
+            if (start[i] > end[i] || end[i] > params.getWinternitzParameter() - 1)
+            {
+                throw new IllegalArgumentException("max chain length must not be greater than w");
+            }
+            System.arraycopy(startHashes[i], 0, values, i * n, n);
         }
 
-        if (steps == 0)
+        byte[] baseAddress = otsHashAddress.toByteArray();
+        byte[] addresses = new byte[2 * len * 32];
+        byte[] keysAndMasks = new byte[2 * len * n];
+        byte[] keys = new byte[len * n];
+        byte[] masked = new byte[len * n];
+        byte[] out = new byte[len * n];
+        int[] lanes = new int[len];
+
+        for (int h = 0; h < params.getWinternitzParameter() - 1; h++)
         {
-            return startHash;
+            int count = 0;
+            for (int i = 0; i < len; i++)
+            {
+                if (start[i] <= h && h < end[i])
+                {
+                    // key address (keyAndMask = 0) followed by bitmask address (keyAndMask = 1)
+                    int off = 2 * count * 32;
+                    System.arraycopy(baseAddress, 0, addresses, off, 32);
+                    Pack.intToBigEndian(i, addresses, off + 20);
+                    Pack.intToBigEndian(h, addresses, off + 24);
+                    Pack.intToBigEndian(0, addresses, off + 28);
+                    System.arraycopy(addresses, off, addresses, off + 32, 28);
+                    Pack.intToBigEndian(1, addresses, off + 60);
+                    lanes[count++] = i;
+                }
+            }
+
+            if (count == 0)
+            {
+                continue;
+            }
+
+            khf.PRF(publicSeed, addresses, 2 * count, keysAndMasks);
+            for (int k = 0; k < count; k++)
+            {
+                int lane = lanes[k] * n;
+                System.arraycopy(keysAndMasks, 2 * k * n, keys, k * n, n);
+                for (int j = 0; j < n; j++)
+                {
+                    masked[k * n + j] = (byte)(values[lane + j] ^ keysAndMasks[(2 * k + 1) * n + j]);
+                }
+            }
+            khf.F(keys, masked, count, out);
+            for (int k = 0; k < count; k++)
+            {
+                System.arraycopy(out, k * n, values, lanes[k] * n, n);
+            }
         }
 
-        byte[] tmp = chain(startHash, startIndex, steps - 1, otsHashAddress);
-        otsHashAddress = (OTSHashAddress)new OTSHashAddress.Builder()
-            .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
-            .withOTSAddress(otsHashAddress.getOTSAddress()).withChainAddress(otsHashAddress.getChainAddress())
-            .withHashAddress(startIndex + steps - 1).withKeyAndMask(0).build();
-        byte[] key = khf.PRF(publicSeed, otsHashAddress.toByteArray());
-        otsHashAddress = (OTSHashAddress)new OTSHashAddress.Builder()
-            .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
-            .withOTSAddress(otsHashAddress.getOTSAddress()).withChainAddress(otsHashAddress.getChainAddress())
-            .withHashAddress(otsHashAddress.getHashAddress()).withKeyAndMask(1).build();
-        byte[] bitmask = khf.PRF(publicSeed, otsHashAddress.toByteArray());
-        byte[] tmpMasked = new byte[n];
-        for (int i = 0; i < n; i++)
+        byte[][] result = new byte[len][];
+        for (int i = 0; i < len; i++)
         {
-            tmpMasked[i] = (byte)(tmp[i] ^ bitmask[i]);
+            result[i] = Arrays.copyOfRange(values, i * n, (i + 1) * n);
         }
-        tmp = khf.F(key, tmpMasked);
-        return tmp;
+        return result;
     }
 
     /**
@@ -298,18 +331,29 @@ protected byte[] getWOTSPlusSecretKey(byte[] secretKeySeed, OTSHashAddress otsHa
     }
 
     /**
-     * Derive private key at index from secret key seed.
+     * Derive all the private keys from secret key seed.
      *
-     * @param index Index.
-     * @return Private key at index.
+     * @return Private keys.
      */
-    private byte[] expandSecretKeySeed(int index)
+    private byte[][] expandSecretKeySeeds()
     {
-        if (index < 0 || index >= params.getLen())
+        int n = params.getTreeDigestSize();
+        int len = params.getLen();
+
+        byte[] indexes = new byte[len * 32];
+        for (int i = 0; i < len; i++)
         {
-            throw new IllegalArgumentException("index out of bounds");
+            Pack.intToBigEndian(i, indexes, i * 32 + 28);
         }
-        return khf.PRF(secretKeySeed, XMSSUtil.toBytesBigEndian(index, 32));
+        byte[] keys = new byte[len * n];
+        khf.PRF(secretKeySeed, indexes, len, keys);
+
+        byte[][] privateKey = new byte[len][];
+        for (int i = 0; i < len; i++)
+        {
+            privateKey[i] = Arrays.copyOfRange(keys, i * n, (i + 1) * n);
+        }
+        return privateKey;
     }
 
     /**
@@ -359,12 +403,7 @@ protected byte[] getPublicSeed()
      */
     protected WOTSPlusPrivateKeyParameters getPrivateKey()
     {
-        byte[][] privateKey = new byte[params.getLen()][];
-        for (int i = 0; i < privateKey.length; i++)
-        {
-            privateKey[i] = expandSecretKeySeed(i);
-        }
-        return new WOTSPlusPrivateKeyParameters(params, privateKey);
+        return new WOTSPlusPrivateKeyParameters(params, expandSecretKeySeeds());
     }
 
     /**
@@ -380,17 +419,15 @@ WOTSPlusPublicKeyParameters getPublicKey(OTSHashAddress otsHashAddress)
         {
             throw new NullPointerException("otsHashAddress == null");
         }
-        byte[][] publicKey = new byte[params.getLen()][];
         /* derive public key from secretKeySeed */
-        for (int i = 0; i < params.getLen(); i++)
+        int len = params.getLen();
+        int[] start = new int[len];
+        int[] end = new int[len];
+        for (int i = 0; i < len; i++)
         {
-            otsHashAddress = (OTSHashAddress)new OTSHashAddress.Builder()
-                .withLayerAddress(otsHashAddress.getLayerAddress()).withTreeAddress(otsHashAddress.getTreeAddress())
-                .withOTSAddress(otsHashAddress.getOTSAddress()).withChainAddress(i)
-                .withHashAddress(otsHashAddress.getHashAddress()).withKeyAndMask(otsHashAddress.getKeyAndMask())
-                .build();
-            publicKey[i] = chain(expandSecretKeySeed(i), 0, params.getWinternitzParameter() - 1, otsHashAddress);
+            end[i] = params.getWinternitzParameter() - 1;
         }
+        byte[][] publicKey = chains(expandSecretKeySeeds(), start, end, otsHashAddress);
         return new WOTSPlusPublicKeyParameters(params, publicKey);
     }
 }
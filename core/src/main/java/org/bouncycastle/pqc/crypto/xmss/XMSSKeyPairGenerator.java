@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.xmss;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
@@ -12,6 +13,8 @@
 public final class XMSSKeyPairGenerator
     implements AsymmetricCipherKeyPairGenerator
 {
+    private final Executor executor;
+
     private XMSSParameters params;
     private SecureRandom prng;
 
@@ -20,6 +23,21 @@
      */
     public XMSSKeyPairGenerator()
     {
+        this(null);
+    }
+
+    /**
+     * Create a generator which builds the XMSS tree concurrently using the passed in executor.
+     * <p>
+     * The tree is split into subtrees which are built as separate jobs, the calling thread also taking jobs,
+     * and the resulting key is identical to one built on a single thread.
+     * </p>
+     *
+     * @param executor executor to run subtree building jobs on, null to build the tree on the calling thread.
+     */
+    public XMSSKeyPairGenerator(Executor executor)
+    {
+        this.executor = executor;
     }
 
     public void init(
@@ -68,7 +86,7 @@ private XMSSPrivateKeyParameters generatePrivateKey(XMSSParameters params, Secur
 
         XMSSPrivateKeyParameters privateKey = new XMSSPrivateKeyParameters.Builder(params).withSecretKeySeed(secretKeySeed)
             .withSecretKeyPRF(secretKeyPRF).withPublicSeed(publicSeed)
-            .withBDSState(new BDS(params, publicSeed, secretKeySeed, (OTSHashAddress)new OTSHashAddress.Builder().build())).build();
+            .withBDSState(new BDS(params, publicSeed, secretKeySeed, (OTSHashAddress)new OTSHashAddress.Builder().build(), executor)).build();
 
         return privateKey;
     }
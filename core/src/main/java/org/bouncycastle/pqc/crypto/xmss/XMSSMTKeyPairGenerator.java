@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.xmss;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPairGenerator;
@@ -12,6 +13,8 @@
 public final class XMSSMTKeyPairGenerator
     implements AsymmetricCipherKeyPairGenerator
 {
+    private final Executor executor;
+
     private XMSSMTParameters params;
     private XMSSParameters xmssParams;
 
@@ -23,6 +26,23 @@
      */
     public XMSSMTKeyPairGenerator()
     {
+        this(null);
+    }
+
+    /**
+     * Create a generator which builds the XMSS trees concurrently using the passed in executor.
+     * <p>
+     * Each tree is split into subtrees which are built as separate jobs, the calling thread also taking jobs.
+     * As well as the top layer, the first trees of the intermediate layers are built, so the first signature
+     * does not have to build them one at a time. The resulting key is identical to one built on a single
+     * thread.
+     * </p>
+     *
+     * @param executor executor to run subtree building jobs on, null to build the trees on the calling thread.
+     */
+    public XMSSMTKeyPairGenerator(Executor executor)
+    {
+        this.executor = executor;
     }
 
     public void init(
@@ -55,10 +75,21 @@ public AsymmetricCipherKeyPair generateKeyPair()
             .build();
 
                   /* store BDS instance of root xmss instance */
-        BDS bdsRoot = new BDS(xmssParams, privateKey.getPublicSeed(), privateKey.getSecretKeySeed(), otsHashAddress);
+        BDS bdsRoot = new BDS(xmssParams, privateKey.getPublicSeed(), privateKey.getSecretKeySeed(), otsHashAddress, executor);
         XMSSNode root = bdsRoot.getRoot();
         privateKey.getBDSState().put(rootLayerIndex, bdsRoot);
 
+        if (executor != null)
+        {
+            /* the first signature would otherwise build these, the bottom layer is rebuilt at signing anyway */
+            for (int layer = 1; layer < rootLayerIndex; layer++)
+            {
+                otsHashAddress = (OTSHashAddress)new OTSHashAddress.Builder().withLayerAddress(layer).build();
+                privateKey.getBDSState().put(layer, new BDS(xmssParams, privateKey.getPublicSeed(),
+                    privateKey.getSecretKeySeed(), otsHashAddress, executor));
+            }
+        }
+
             /* set XMSS^MT root / create public key */
         privateKey = new XMSSMTPrivateKeyParameters.Builder(params).withSecretKeySeed(privateKey.getSecretKeySeed())
             .withSecretKeyPRF(privateKey.getSecretKeyPRF()).withPublicSeed(privateKey.getPublicSeed())
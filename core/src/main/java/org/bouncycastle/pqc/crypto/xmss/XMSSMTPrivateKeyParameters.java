@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.xmss;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Encodable;
@@ -153,7 +154,8 @@ private XMSSMTPrivateKeyParameters(Builder builder)
 
                 if (XMSSUtil.isIndexValid(totalHeight, globalIndex) && tmpPublicSeed != null && tmpSecretKeySeed != null)
                 {
-                    bdsState = new BDSStateMap(params, builder.index, tmpPublicSeed, tmpSecretKeySeed);
+                    bdsState = new BDSStateMap(params, builder.index, tmpPublicSeed, tmpSecretKeySeed,
+                        builder.executor);
                 }
                 else
                 {
@@ -190,6 +192,7 @@ public byte[] getEncoded()
         private BDSStateMap bdsState = null;
         private byte[] privateKey = null;
         private XMSSParameters xmss = null;
+        private Executor executor = null;
 
         public Builder(XMSSMTParameters params)
         {
@@ -253,6 +256,18 @@ public Builder withPrivateKey(byte[] privateKeyVal)
             return this;
         }
 
+        /**
+         * Use an executor to build the XMSS trees concurrently if the BDS state has to be recreated from the
+         * index, as it does when no BDS state is given.
+         *
+         * @param val executor to run subtree building jobs on, null to build the trees on the calling thread.
+         */
+        public Builder withExecutor(Executor val)
+        {
+            executor = val;
+            return this;
+        }
+
         public XMSSMTPrivateKeyParameters build()
         {
             return new XMSSMTPrivateKeyParameters(this);
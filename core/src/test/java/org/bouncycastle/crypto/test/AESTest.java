@@ -494,6 +494,51 @@ private void ctrFragmentedTest()
         }
     }
 
+    /*
+     * Whole blocks passed to processBytes() go through the bulk keystream path, check it against
+     * returnByte() for runs starting at different offsets within a block.
+     */
+    private void ctrBulkTest()
+    {
+        CTRModeCipher engine = SICBlockCipher.newInstance(AESEngine.newInstance());
+        KeyParameter kp = new KeyParameter(Hex.decode("5F060D3716B345C253F6749ABAC10917"));
+        byte[] ctrIV = Hex.decode("000102030405060708090a0bfffffff0");
+
+        SecureRandom rand = new SecureRandom();
+        byte[] plain = new byte[1000];
+        rand.nextBytes(plain);
+
+        byte[] expected = new byte[plain.length];
+        engine.init(true, new ParametersWithIV(kp, ctrIV));
+        for (int i = 0; i != plain.length; i++)
+        {
+            expected[i] = engine.returnByte(plain[i]);
+        }
+
+        byte[] out = new byte[plain.length];
+        for (int start = 0; start < 40; start += 7)
+        {
+            engine.init(true, new ParametersWithIV(kp, ctrIV));
+            engine.processBytes(plain, 0, start, out, 0);
+            engine.processBytes(plain, start, plain.length - start, out, start);
+
+            if (!areEqual(expected, out))
+            {
+                fail("no match for bulk check: " + start);
+            }
+        }
+
+        // in place
+        System.arraycopy(plain, 0, out, 0, plain.length);
+        engine.init(true, new ParametersWithIV(kp, ctrIV));
+        engine.processBytes(out, 0, out.length, out, 0);
+
+        if (!areEqual(expected, out))
+        {
+            fail("no match for in place bulk check");
+        }
+    }
+
     public void performTest()
         throws Exception
     {
@@ -540,6 +585,7 @@ public void performTest()
         skipTest();
         ctrCounterTest();
         ctrFragmentedTest();
+        ctrBulkTest();
         testLastByte();
         testCounter();
     }
@@ -3,6 +3,8 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
 import org.bouncycastle.crypto.params.Argon2Parameters;
@@ -34,6 +36,7 @@ public void performTest()
 
         testPermutations();
         testVectorsFromInternetDraft();
+        testConcurrentLanes();
 
         int version = Argon2Parameters.ARGON2_VERSION_10;
 
@@ -315,6 +318,61 @@ private void testVectorsFromInternetDraft()
 
     }
 
+    private void testConcurrentLanes()
+    {
+        int[] types = { Argon2Parameters.ARGON2_d, Argon2Parameters.ARGON2_i, Argon2Parameters.ARGON2_id };
+        int[] versions = { Argon2Parameters.ARGON2_VERSION_10, Argon2Parameters.ARGON2_VERSION_13 };
+        int[] lanes = { 1, 2, 3, 4, 8 };
+
+        byte[] password = Strings.toByteArray("password");
+        byte[] salt = Strings.toByteArray("somesalt");
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            for (int t = 0; t != types.length; t++)
+            {
+                for (int v = 0; v != versions.length; v++)
+                {
+                    for (int l = 0; l != lanes.length; l++)
+                    {
+                        Argon2Parameters params = new Argon2Parameters.Builder(types[t])
+                            .withVersion(versions[v])
+                            .withIterations(3)
+                            .withMemoryAsKB(256)
+                            .withParallelism(lanes[l])
+                            .withSalt(salt)
+                            .build();
+
+                        Argon2BytesGenerator sequential = new Argon2BytesGenerator();
+                        sequential.init(params);
+
+                        byte[] expected = new byte[32];
+                        sequential.generateBytes(password, expected);
+
+                        Argon2BytesGenerator concurrent = new Argon2BytesGenerator(executor);
+                        concurrent.init(params);
+
+                        byte[] result = new byte[32];
+                        concurrent.generateBytes(password, result);
+                        isTrue("concurrent type " + types[t] + " version " + versions[v] + " lanes " + lanes[l] + " Failed",
+                            areEqual(expected, result));
+
+                        // generator should be reusable
+                        Arrays.clear(result);
+                        concurrent.generateBytes(password, result);
+                        isTrue("concurrent reuse type " + types[t] + " version " + versions[v] + " lanes " + lanes[l] + " Failed",
+                            areEqual(expected, result));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     private static int getJvmVersion()
     {
         String version = System.getProperty("java.specification.version");
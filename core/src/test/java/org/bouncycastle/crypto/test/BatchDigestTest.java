@@ -0,0 +1,123 @@
+package org.bouncycastle.crypto.test;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.digests.SHA256Batch;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHAKEBatch;
+import org.bouncycastle.crypto.digests.SHAKEDigest;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check the batch digests produce the same output as the regular digests, across block boundaries.
+ */
+public class BatchDigestTest
+    extends SimpleTest
+{
+    private static final int[] COUNTS = { 1, 3, 17 };
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "BatchDigest";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        shakeTest(128);
+        shakeTest(256);
+        sha256Test(0);
+        sha256Test(64);
+        sha256Test(128);
+    }
+
+    private void shakeTest(int bitStrength)
+    {
+        SHAKEBatch batch = new SHAKEBatch(bitStrength);
+        int[] outLens = { 16, 32, 200, 400 };
+
+        for (int inLen = 0; inLen <= 340; inLen += 17)
+        {
+            for (int o = 0; o != outLens.length; o++)
+            {
+                for (int c = 0; c != COUNTS.length; c++)
+                {
+                    int outLen = outLens[o], count = COUNTS[c];
+                    byte[] in = new byte[1 + count * inLen];
+                    random.nextBytes(in);
+
+                    byte[] out = new byte[2 + count * outLen];
+                    batch.hash(in, 1, inLen, count, out, 2, outLen);
+
+                    for (int i = 0; i != count; i++)
+                    {
+                        SHAKEDigest digest = new SHAKEDigest(bitStrength);
+                        digest.update(in, 1 + i * inLen, inLen);
+                        byte[] expected = new byte[outLen];
+                        digest.doFinal(expected, 0, outLen);
+
+                        isTrue("SHAKE" + bitStrength + " mismatch: inLen " + inLen + " outLen " + outLen,
+                            Arrays.areEqual(expected, 0, outLen, out, 2 + i * outLen, 2 + (i + 1) * outLen));
+                    }
+                }
+            }
+        }
+    }
+
+    private void sha256Test(int prefixLen)
+    {
+        SHA256Batch batch = new SHA256Batch();
+        byte[] prefix = new byte[prefixLen];
+        random.nextBytes(prefix);
+        batch.init(prefix, 0, prefixLen);
+
+        int[] outLens = { 16, 24, 32 };
+
+        for (int inLen = 0; inLen <= 130; inLen++)
+        {
+            for (int o = 0; o != outLens.length; o++)
+            {
+                for (int c = 0; c != COUNTS.length; c++)
+                {
+                    int outLen = outLens[o], count = COUNTS[c];
+                    byte[] in = new byte[1 + count * inLen];
+                    random.nextBytes(in);
+
+                    byte[] out = new byte[2 + count * outLen];
+                    batch.hash(in, 1, inLen, count, out, 2, outLen);
+
+                    for (int i = 0; i != count; i++)
+                    {
+                        SHA256Digest digest = new SHA256Digest();
+                        digest.update(prefix, 0, prefixLen);
+                        digest.update(in, 1 + i * inLen, inLen);
+                        byte[] expected = new byte[32];
+                        digest.doFinal(expected, 0);
+
+                        isTrue("SHA-256 mismatch: prefix " + prefixLen + " inLen " + inLen + " outLen " + outLen,
+                            Arrays.areEqual(expected, 0, outLen, out, 2 + i * outLen, 2 + (i + 1) * outLen));
+                    }
+                }
+            }
+        }
+
+        try
+        {
+            batch.init(prefix, 0, 63);
+            fail("no exception on bad prefix length");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isEquals("prefix length must be a multiple of 64", e.getMessage());
+        }
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new BatchDigestTest());
+    }
+}
@@ -32,6 +32,7 @@
 import org.bouncycastle.crypto.params.ParametersWithRandom;
 import org.bouncycastle.crypto.signers.DSADigestSigner;
 import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.ECDSAVerificationContext;
 import org.bouncycastle.math.ec.ECConstants;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECPoint;
@@ -735,6 +736,77 @@ private void testECDSAKeyGenTest()
         }
     }
 
+    /**
+     * Check ECDSAVerificationContext agrees with ECDSASigner, one at a time and in batches.
+     */
+    private void testECDSAVerificationContext()
+    {
+        X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
+        implTestECDSAVerificationContext(new ECDomainParameters(x9));
+
+        x9 = ECNamedCurveTable.getByName("sect233k1");
+        implTestECDSAVerificationContext(new ECDomainParameters(x9));
+
+        // affine coordinates, so the batch has to normalize the computed points
+        x9 = ECNamedCurveTable.getByName("secp256r1");
+        ECCurve affine = x9.getCurve().configure().setCoordinateSystem(ECCurve.COORD_AFFINE).create();
+        implTestECDSAVerificationContext(new ECDomainParameters(affine, affine.importPoint(x9.getG()), x9.getN()));
+    }
+
+    private void implTestECDSAVerificationContext(ECDomainParameters params)
+    {
+        SecureRandom random = new SecureRandom();
+
+        ECKeyPairGenerator pGen = new ECKeyPairGenerator();
+        pGen.init(new ECKeyGenerationParameters(params, random));
+        AsymmetricCipherKeyPair pair = pGen.generateKeyPair();
+
+        ECDSASigner signer = new ECDSASigner();
+        signer.init(true, new ParametersWithRandom(pair.getPrivate(), random));
+
+        int count = 10;
+        byte[][] messages = new byte[count][];
+        BigInteger[] rs = new BigInteger[count];
+        BigInteger[] ss = new BigInteger[count];
+        for (int i = 0; i < count; ++i)
+        {
+            messages[i] = new byte[32];
+            random.nextBytes(messages[i]);
+
+            BigInteger[] sig = signer.generateSignature(messages[i]);
+            rs[i] = sig[0];
+            ss[i] = sig[1];
+        }
+
+        ECDSAVerificationContext context = new ECDSAVerificationContext((ECPublicKeyParameters)pair.getPublic());
+
+        boolean[] results = new boolean[count];
+        isTrue("batch verification failed", context.verifyBatch(messages, rs, ss, results));
+        for (int i = 0; i < count; ++i)
+        {
+            isTrue("signature " + i + " failed", results[i]);
+            isTrue("signature " + i + " failed", context.verifySignature(messages[i], rs[i], ss[i]));
+        }
+
+        // the canonical key works with a regular signer
+        signer.init(false, context.getPublicKey());
+        isTrue("signer with canonical key failed", signer.verifySignature(messages[0], rs[0], ss[0]));
+
+        // one bad message, one swapped s, and one out of range r
+        messages[1][0] ^= 1;
+        ss[2] = ss[3];
+        rs[4] = params.getN();
+
+        isTrue("batch verification succeeded", !context.verifyBatch(messages, rs, ss, results));
+        for (int i = 0; i < count; ++i)
+        {
+            boolean expected = i < 1 || i > 4 || i == 3;
+
+            isEquals("signature " + i, expected, results[i]);
+            isEquals("signature " + i, expected, context.verifySignature(messages[i], rs[i], ss[i]));
+        }
+    }
+
     /**
      * Basic Key Agreement Test
      */
@@ -1148,6 +1220,7 @@ public void performTest()
         testECDSA191bitBinary();
         testECDSA239bitBinary();
         testECDSAKeyGenTest();
+        testECDSAVerificationContext();
         testECDHBasicAgreement();
         testECDHBasicAgreementCofactor();
 
@@ -10,6 +10,7 @@
 import org.bouncycastle.crypto.modes.GCMModeCipher;
 import org.bouncycastle.crypto.modes.gcm.BasicGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables16kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables64kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables8kGCMMultiplier;
@@ -309,6 +310,7 @@ public void performTest() throws Exception
 
 
         randomTests();
+        bulkProcessingTests();
         outputSizeTests();
         testExceptions();
         testResetBehavior();
@@ -460,6 +462,7 @@ private void runTestCase(String[] testVector, int macLength)
         runTestCase(new Tables4kGCMMultiplier(), new Tables4kGCMMultiplier(), testName, K, IV, A, P, C, T);
         runTestCase(new Tables8kGCMMultiplier(), new Tables8kGCMMultiplier(), testName, K, IV, A, P, C, T);
         runTestCase(new Tables64kGCMMultiplier(), new Tables64kGCMMultiplier(), testName, K, IV, A, P, C, T);
+        runTestCase(new Tables16kGCMMultiplier(), new Tables16kGCMMultiplier(), testName, K, IV, A, P, C, T);
     }
 
     private void runTestCase(
@@ -598,6 +601,69 @@ private void randomTests()
         randomTests(srng, new Tables4kGCMMultiplier());
         randomTests(srng, new Tables8kGCMMultiplier());
         randomTests(srng, new Tables64kGCMMultiplier());
+        randomTests(srng, new Tables16kGCMMultiplier());
+    }
+
+    /*
+     * Data passed in large chunks goes through the bulk (multi-block) path, so compare that against
+     * the same data passed in one byte at a time, for lengths either side of the bulk size.
+     */
+    private void bulkProcessingTests()
+        throws InvalidCipherTextException
+    {
+        SecureRandom srng = new SecureRandom();
+        byte[] K = new byte[16];
+        byte[] IV = new byte[12];
+        srng.nextBytes(K);
+
+        for (int pLength = 0; pLength <= 300; pLength += 1 + (pLength >>> 4))
+        {
+            byte[] A = new byte[nextInt(srng, 300)];
+            byte[] P = new byte[pLength];
+            srng.nextBytes(IV);
+            srng.nextBytes(A);
+            srng.nextBytes(P);
+
+            AEADParameters parameters = new AEADParameters(new KeyParameter(K), 16 * 8, IV);
+
+            GCMModeCipher byteCipher = initCipher(new BasicGCMMultiplier(), true, parameters);
+            byte[] expected = new byte[byteCipher.getOutputSize(P.length)];
+            int len = 0;
+            for (int i = 0; i != A.length; i++)
+            {
+                byteCipher.processAADByte(A[i]);
+            }
+            for (int i = 0; i != P.length; i++)
+            {
+                len += byteCipher.processByte(P[i], expected, len);
+            }
+            byteCipher.doFinal(expected, len);
+
+            GCMModeCipher bulkCipher = initCipher(new Tables16kGCMMultiplier(), true, parameters);
+            byte[] C = new byte[bulkCipher.getOutputSize(P.length)];
+            bulkCipher.processAADBytes(A, 0, A.length);
+            len = bulkCipher.processBytes(P, 0, P.length, C, 0);
+            bulkCipher.doFinal(C, len);
+
+            if (!areEqual(expected, C))
+            {
+                fail("bulk encryption mismatch for length " + pLength);
+            }
+
+            // decrypt in place, in two chunks
+            byte[] buf = Arrays.clone(C);
+            bulkCipher.init(false, parameters);
+            bulkCipher.processAADBytes(A, 0, A.length);
+            int split = nextInt(srng, buf.length + 1);
+            len = bulkCipher.processBytes(buf, 0, split, buf, 0);
+            len += bulkCipher.processBytes(buf, split, buf.length - split, buf, len);
+            len += bulkCipher.doFinal(buf, len);
+
+            if (len != P.length || !areEqual(P, Arrays.copyOfRange(buf, 0, len)))
+            {
+                fail("bulk decryption mismatch for length " + pLength);
+            }
+        }
     }
 
     private void randomTests(SecureRandom srng, GCMMultiplier m)
@@ -4,6 +4,8 @@
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.crypto.generators.SCrypt;
 import org.bouncycastle.test.TestResourceFinder;
@@ -30,6 +32,7 @@ public void performTest()
         testPermutations();
         testParameters();
         testVectors();
+        testConcurrent();
     }
 
     public void testParameters()
@@ -45,6 +48,46 @@ public void testParameters()
         checkIllegal("Parallelisation parameter must be < 65535 for r = 4", new byte[0], new byte[0], 2, 32, 65536, 1);
 
         checkIllegal("Len parameter must be > 1", new byte[0], new byte[0], 2, 1, 1, 0);
+
+        try
+        {
+            SCrypt.generate(new byte[0], new byte[0], 2, 1, 1, 1, null, 0);
+            fail("Thread count must be >= 1");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    public void testConcurrent()
+    {
+        byte[] P = Strings.toByteArray("password");
+        byte[] S = Strings.toByteArray("NaCl");
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            int[] ps = { 1, 2, 5, 8 };
+            for (int i = 0; i != ps.length; i++)
+            {
+                byte[] expected = SCrypt.generate(P, S, 1024, 8, ps[i], 64);
+
+                for (int threads = 1; threads <= 4; threads++)
+                {
+                    byte[] result = SCrypt.generate(P, S, 1024, 8, ps[i], 64, executor, threads);
+
+                    if (!areEqual(expected, result))
+                    {
+                        fail("concurrent result does not match for p = " + ps[i] + ", threads = " + threads);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
     }
 
 
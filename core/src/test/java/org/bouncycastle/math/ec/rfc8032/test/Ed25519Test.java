@@ -202,6 +202,72 @@ public void testEd25519phConsistency()
         }
     }
 
+//    @Test
+    public void testEd25519BatchConsistency()
+    {
+        int[] counts = { 1, 7, 40 };
+
+        for (int c = 0; c < counts.length; ++c)
+        {
+            int count = counts[c];
+            byte[][] sigs = new byte[count][];
+            byte[][] pks = new byte[count][];
+            Ed25519.PublicPoint[] publicPoints = new Ed25519.PublicPoint[count];
+            byte[][] ms = new byte[count][];
+            byte[] ctx = new byte[RANDOM.nextInt() & 7];
+            RANDOM.nextBytes(ctx);
+
+            for (int i = 0; i < count; ++i)
+            {
+                byte[] sk = new byte[Ed25519.SECRET_KEY_SIZE];
+                Ed25519.generatePrivateKey(RANDOM, sk);
+                publicPoints[i] = Ed25519.generatePublicKey(sk, 0);
+                pks[i] = new byte[Ed25519.PUBLIC_KEY_SIZE];
+                Ed25519.encodePublicPoint(publicPoints[i], pks[i], 0);
+
+                ms[i] = new byte[RANDOM.nextInt() & 255];
+                RANDOM.nextBytes(ms[i]);
+
+                sigs[i] = new byte[Ed25519.SIGNATURE_SIZE];
+                Ed25519.sign(sk, 0, ms[i], 0, ms[i].length, sigs[i], 0);
+            }
+
+            boolean[] results = new boolean[count];
+
+            assertTrue("Ed25519 batch verify #" + count, Ed25519.verifyBatch(sigs, pks, ms, results));
+            assertTrue("Ed25519 batch verify #" + count, Ed25519.verifyBatch(sigs, publicPoints, ms, null));
+            assertFalse("Ed25519ctx batch verify #" + count, Ed25519.verifyBatch(sigs, pks, ctx, ms, null));
+
+            for (int i = 0; i < count; ++i)
+            {
+                assertTrue("Ed25519 batch result #" + count + "/" + i, results[i]);
+            }
+
+            // Corrupt one message and one S value (out of range) and check each signature is reported exactly
+            int bad1 = RANDOM.nextInt(count), bad2 = RANDOM.nextInt(count);
+            ms[bad1] = Arrays.append(ms[bad1], (byte)0);
+            sigs[bad2][Ed25519.SIGNATURE_SIZE - 1] |= 0x80;
+
+            assertFalse("Ed25519 batch verify failure #" + count, Ed25519.verifyBatch(sigs, pks, ms, results));
+
+            for (int i = 0; i < count; ++i)
+            {
+                boolean expected = Ed25519.verify(sigs[i], 0, pks[i], 0, ms[i], 0, ms[i].length);
+
+                assertEquals("Ed25519 batch result #" + count + "/" + i, expected, results[i]);
+                assertEquals("Ed25519 batch result #" + count + "/" + i, i != bad1 && i != bad2, results[i]);
+            }
+
+            assertFalse("Ed25519 batch verify failure #" + count,
+                Ed25519.verifyBatch(sigs, publicPoints, ms, results));
+
+            for (int i = 0; i < count; ++i)
+            {
+                assertEquals("Ed25519 batch result #" + count + "/" + i, i != bad1 && i != bad2, results[i]);
+            }
+        }
+    }
+
 //    @Test
     public void testEd25519Vector1()
     {
@@ -677,6 +743,48 @@ private static void implTamingVector(int number, boolean expected, String msgHex
         boolean actual = implTamingVector(msgHex, pubHex, sigHex);
 
         assertEquals("Failed Taming EdDSA Vector #" + number, expected, actual);
+
+        if (sigHex.length() == Ed25519.SIGNATURE_SIZE * 2)
+        {
+            boolean actualBatch = implTamingVectorBatch(msgHex, pubHex, sigHex);
+
+            assertEquals("Failed Taming EdDSA Vector (batch) #" + number, expected, actualBatch);
+        }
+    }
+
+    private static boolean implTamingVectorBatch(String msgHex, String pubHex, String sigHex)
+    {
+        // Pad the batch out with valid signatures, so that the batch equation is actually used
+        int count = 32;
+        byte[][] sigs = new byte[count][];
+        byte[][] pks = new byte[count][];
+        byte[][] ms = new byte[count][];
+
+        ms[0] = Hex.decodeStrict(msgHex);
+        pks[0] = Hex.decodeStrict(pubHex);
+        sigs[0] = Hex.decodeStrict(sigHex);
+
+        for (int i = 1; i < count; ++i)
+        {
+            byte[] sk = new byte[Ed25519.SECRET_KEY_SIZE];
+            Ed25519.generatePrivateKey(RANDOM, sk);
+            pks[i] = new byte[Ed25519.PUBLIC_KEY_SIZE];
+            Ed25519.generatePublicKey(sk, 0, pks[i], 0);
+            ms[i] = new byte[i];
+            sigs[i] = new byte[Ed25519.SIGNATURE_SIZE];
+            Ed25519.sign(sk, 0, ms[i], 0, ms[i].length, sigs[i], 0);
+        }
+
+        boolean[] results = new boolean[count];
+        boolean all = Ed25519.verifyBatch(sigs, pks, ms, results);
+
+        for (int i = 1; i < count; ++i)
+        {
+            assertTrue(results[i]);
+        }
+        assertEquals(all, results[0]);
+
+        return results[0];
     }
 
     private static boolean implTamingVector(String msgHex, String pubHex, String sigHex)
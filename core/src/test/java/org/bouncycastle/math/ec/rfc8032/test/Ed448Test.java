@@ -144,6 +144,71 @@ public void testEd448phConsistency()
         }
     }
 
+//    @Test
+    public void testEd448BatchConsistency()
+    {
+        int[] counts = { 1, 7, 40 };
+
+        for (int c = 0; c < counts.length; ++c)
+        {
+            int count = counts[c];
+            byte[][] sigs = new byte[count][];
+            byte[][] pks = new byte[count][];
+            Ed448.PublicPoint[] publicPoints = new Ed448.PublicPoint[count];
+            byte[][] ms = new byte[count][];
+            byte[] ctx = new byte[RANDOM.nextInt() & 7];
+            RANDOM.nextBytes(ctx);
+
+            for (int i = 0; i < count; ++i)
+            {
+                byte[] sk = new byte[Ed448.SECRET_KEY_SIZE];
+                Ed448.generatePrivateKey(RANDOM, sk);
+                publicPoints[i] = Ed448.generatePublicKey(sk, 0);
+                pks[i] = new byte[Ed448.PUBLIC_KEY_SIZE];
+                Ed448.encodePublicPoint(publicPoints[i], pks[i], 0);
+
+                ms[i] = new byte[RANDOM.nextInt() & 255];
+                RANDOM.nextBytes(ms[i]);
+
+                sigs[i] = new byte[Ed448.SIGNATURE_SIZE];
+                Ed448.sign(sk, 0, ctx, ms[i], 0, ms[i].length, sigs[i], 0);
+            }
+
+            boolean[] results = new boolean[count];
+
+            assertTrue("Ed448 batch verify #" + count, Ed448.verifyBatch(sigs, pks, ctx, ms, results));
+            assertTrue("Ed448 batch verify #" + count, Ed448.verifyBatch(sigs, publicPoints, ctx, ms, null));
+
+            for (int i = 0; i < count; ++i)
+            {
+                assertTrue("Ed448 batch result #" + count + "/" + i, results[i]);
+            }
+
+            // Corrupt one message and one S value (out of range) and check each signature is reported exactly
+            int bad1 = RANDOM.nextInt(count), bad2 = RANDOM.nextInt(count);
+            ms[bad1] = Arrays.append(ms[bad1], (byte)0);
+            sigs[bad2][Ed448.SIGNATURE_SIZE - 1] = 0x01;
+
+            assertFalse("Ed448 batch verify failure #" + count, Ed448.verifyBatch(sigs, pks, ctx, ms, results));
+
+            for (int i = 0; i < count; ++i)
+            {
+                boolean expected = Ed448.verify(sigs[i], 0, pks[i], 0, ctx, ms[i], 0, ms[i].length);
+
+                assertEquals("Ed448 batch result #" + count + "/" + i, expected, results[i]);
+                assertEquals("Ed448 batch result #" + count + "/" + i, i != bad1 && i != bad2, results[i]);
+            }
+
+            assertFalse("Ed448 batch verify failure #" + count,
+                Ed448.verifyBatch(sigs, publicPoints, ctx, ms, results));
+
+            for (int i = 0; i < count; ++i)
+            {
+                assertEquals("Ed448 batch result #" + count + "/" + i, i != bad1 && i != bad2, results[i]);
+            }
+        }
+    }
+
 //    @Test
     public void testEd448Vector1()
     {
@@ -18,6 +18,7 @@
 import org.bouncycastle.math.ec.ECAlgorithms;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.PippengerMultiplier;
 
 public class ECAlgorithmsTest extends TestCase
 {
@@ -43,6 +44,29 @@ public void testSumOfMultipliesComplete()
         }
     }
 
+    public void testSumOfMultipliesPippenger()
+    {
+        X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
+        assertNotNull(x9);
+        doTestSumOfMultipliesPippenger(x9, 300);
+
+        x9 = ECNamedCurveTable.getByName("sect233r1");
+        assertNotNull(x9);
+        doTestSumOfMultipliesPippenger(x9, 40);
+    }
+
+    // TODO Ideally, mark this test not to run by default
+    public void testSumOfMultipliesPippengerComplete()
+    {
+        List x9s = getTestCurves();
+        Iterator it = x9s.iterator();
+        while (it.hasNext())
+        {
+            X9ECParameters x9 = (X9ECParameters)it.next();
+            doTestSumOfMultipliesPippenger(x9, 8);
+        }
+    }
+
     public void testSumOfTwoMultiplies()
     {
         X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
@@ -86,6 +110,47 @@ private void doTestSumOfMultiplies(X9ECParameters x9)
         }
     }
 
+    private void doTestSumOfMultipliesPippenger(X9ECParameters x9, int count)
+    {
+        ECCurve curve = x9.getCurve();
+        ECPoint[] points = new ECPoint[count];
+        BigInteger[] scalars = new BigInteger[count];
+        for (int i = 0; i < count; ++i)
+        {
+            points[i] = getRandomPoint(x9);
+            scalars[i] = getRandomScalar(x9);
+        }
+
+        // Repeated, opposite and infinite points, and zero and negative scalars
+        points[1] = points[0];
+        scalars[1] = scalars[0];
+        points[2] = points[0].negate();
+        scalars[3] = scalars[3].negate();
+        points[4] = curve.getInfinity();
+        scalars[5] = BigInteger.ZERO;
+
+        ECPoint u = curve.getInfinity();
+        for (int i = 0; i < count; ++i)
+        {
+            u = u.add(points[i].multiply(scalars[i]));
+        }
+
+        ECPoint v = new PippengerMultiplier().sumOfMultiplies(points, scalars);
+        ECPoint w = ECAlgorithms.sumOfMultiplies(points, scalars);
+
+        ECPoint[] results = new ECPoint[]{ u, v, w };
+        curve.normalizeAll(results);
+
+        assertPointsEqual("PippengerMultiplier.sumOfMultiplies is incorrect", results[0], results[1]);
+        assertPointsEqual("ECAlgorithms.sumOfMultiplies is incorrect", results[0], results[2]);
+
+        BigInteger k = getRandomScalar(x9);
+        ECPoint[] single = new ECPoint[]{ points[0].multiply(k), new PippengerMultiplier().multiply(points[0], k) };
+        curve.normalizeAll(single);
+
+        assertPointsEqual("PippengerMultiplier.multiply is incorrect", single[0], single[1]);
+    }
+
     private void doTestSumOfTwoMultiplies(X9ECParameters x9)
     {
         ECPoint p = getRandomPoint(x9);
@@ -0,0 +1,44 @@
+package org.bouncycastle.pqc.crypto.frodo;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.bouncycastle.test.PrintTestResult;
+
+public class AllTests
+    extends TestCase
+{
+    public static void main(String[] args)
+    {
+       PrintTestResult.printResult( junit.textui.TestRunner.run(suite()));
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite("Lightweight Frodo PQ Crypto Tests");
+
+        suite.addTestSuite(FrodoEngineTest.class);
+
+        return new BCTestSetup(suite);
+    }
+    
+    static class BCTestSetup
+        extends TestSetup
+    {
+        public BCTestSetup(Test test)
+        {
+            super(test);
+        }
+
+        protected void setUp()
+        {
+
+        }
+
+        protected void tearDown()
+        {
+
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.bouncycastle.pqc.crypto.frodo;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.SecretWithEncapsulation;
+import org.bouncycastle.crypto.digests.SHAKEDigest;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Self-contained FrodoKEM checks that don't need the KAT files: round trips for every parameter set, and the
+ * streamed A*S and S*A products against a straightforward full-matrix calculation.
+ */
+public class FrodoEngineTest
+    extends TestCase
+{
+    private static final FrodoParameters[] PARAMETERS = new FrodoParameters[]{
+        FrodoParameters.frodokem640aes,
+        FrodoParameters.frodokem976aes,
+        FrodoParameters.frodokem1344aes,
+        FrodoParameters.frodokem640shake,
+        FrodoParameters.frodokem976shake,
+        FrodoParameters.frodokem1344shake
+    };
+
+    private static final byte[] SEED_A = Hex.decode("000102030405060708090a0b0c0d0e0f");
+
+    public void testEncapsulateDecapsulate()
+    {
+        SecureRandom random = new SecureRandom();
+
+        for (int i = 0; i < PARAMETERS.length; i++)
+        {
+            FrodoParameters parameters = PARAMETERS[i];
+
+            FrodoKeyPairGenerator kpGen = new FrodoKeyPairGenerator();
+            kpGen.init(new FrodoKeyGenerationParameters(random, parameters));
+            AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+            FrodoKEMGenerator kemGen = new FrodoKEMGenerator(random);
+            SecretWithEncapsulation secWenc = kemGen.generateEncapsulated(kp.getPublic());
+
+            FrodoKEMExtractor kemExtractor = new FrodoKEMExtractor((FrodoPrivateKeyParameters)kp.getPrivate());
+            byte[] secret = kemExtractor.extractSecret(secWenc.getEncapsulation());
+
+            assertEquals(parameters.getName(), parameters.getSessionKeySize() / 8, secret.length);
+            assertTrue(parameters.getName(), Arrays.areEqual(secWenc.getSecret(), secret));
+
+            // A tampered ciphertext must give an unrelated (implicit rejection) secret
+            byte[] encapsulation = Arrays.clone(secWenc.getEncapsulation());
+            encapsulation[0] ^= 1;
+            assertFalse(parameters.getName(), Arrays.areEqual(secWenc.getSecret(),
+                kemExtractor.extractSecret(encapsulation)));
+        }
+    }
+
+    public void testStreamedMatrixProducts()
+    {
+        for (int i = 0; i < PARAMETERS.length; i++)
+        {
+            FrodoParameters parameters = PARAMETERS[i];
+            FrodoEngine engine = parameters.getEngine();
+
+            int n = parameters.getN();
+            int qMask = (1 << parameters.getD()) - 1;
+            int nbar = FrodoEngine.nbar, mbar = FrodoEngine.mbar;
+
+            short[] A = parameters.getName().endsWith("aes") ? genAES128(SEED_A, n, qMask) : genSHAKE128(SEED_A, n, qMask);
+
+            Random random = new Random(n);
+            short[] S_T = sampleSmall(random, nbar * n);
+            short[] Sprime = sampleSmall(random, mbar * n);
+
+            // A * S, where S = (S_T)^T is n x nbar
+            short[] expectedAS = new short[n * nbar];
+            for (int row = 0; row < n; row++)
+            {
+                for (int col = 0; col < nbar; col++)
+                {
+                    long sum = 0;
+                    for (int k = 0; k < n; k++)
+                    {
+                        sum += A[row * n + k] * S_T[col * n + k];
+                    }
+                    expectedAS[row * nbar + col] = (short)(sum & qMask);
+                }
+            }
+
+            // S' * A, where S' is mbar x n
+            short[] expectedSA = new short[mbar * n];
+            for (int row = 0; row < mbar; row++)
+            {
+                for (int col = 0; col < n; col++)
+                {
+                    long sum = 0;
+                    for (int k = 0; k < n; k++)
+                    {
+                        sum += Sprime[row * n + k] * A[k * n + col];
+                    }
+                    expectedSA[row * n + col] = (short)(sum & qMask);
+                }
+            }
+
+            assertTrue(parameters.getName(), Arrays.areEqual(expectedAS, engine.mul_A_S(SEED_A, S_T)));
+            assertTrue(parameters.getName(), Arrays.areEqual(expectedSA, engine.mul_S_A(Sprime, SEED_A)));
+        }
+    }
+
+    /*
+     * Frodo.Gen with AES128 (FrodoKEM specification, Algorithm 7), one block at a time.
+     */
+    private static short[] genAES128(byte[] seedA, int n, int qMask)
+    {
+        BlockCipher aes = AESEngine.newInstance();
+        aes.init(true, new KeyParameter(seedA));
+
+        short[] A = new short[n * n];
+        byte[] b = new byte[16], c = new byte[16];
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < n; j += 8)
+            {
+                Arrays.fill(b, (byte)0);
+                Pack.shortToLittleEndian((short)i, b, 0);
+                Pack.shortToLittleEndian((short)j, b, 2);
+
+                aes.processBlock(b, 0, c, 0);
+
+                for (int k = 0; k < 8; k++)
+                {
+                    A[i * n + j + k] = (short)(Pack.littleEndianToShort(c, 2 * k) & qMask);
+                }
+            }
+        }
+        return A;
+    }
+
+    /*
+     * Frodo.Gen with SHAKE128 (FrodoKEM specification, Algorithm 8).
+     */
+    private static short[] genSHAKE128(byte[] seedA, int n, int qMask)
+    {
+        SHAKEDigest shake = new SHAKEDigest(128);
+
+        short[] A = new short[n * n];
+        byte[] c = new byte[2 * n];
+        for (int i = 0; i < n; i++)
+        {
+            byte[] b = Arrays.concatenate(Pack.shortToLittleEndian((short)i), seedA);
+
+            shake.update(b, 0, b.length);
+            shake.doFinal(c, 0, c.length);
+
+            for (int j = 0; j < n; j++)
+            {
+                A[i * n + j] = (short)(Pack.littleEndianToShort(c, 2 * j) & qMask);
+            }
+        }
+        return A;
+    }
+
+    // Small signed entries, as produced by the error distributions
+    private static short[] sampleSmall(Random random, int count)
+    {
+        short[] S = new short[count];
+        for (int i = 0; i < count; i++)
+        {
+            S[i] = (short)(random.nextInt(25) - 12);
+        }
+        return S;
+    }
+}
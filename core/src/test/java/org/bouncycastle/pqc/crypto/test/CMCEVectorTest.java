@@ -4,6 +4,8 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
@@ -155,4 +157,48 @@ public void testVectors()
         }
 
     }
+
+    public void testParallelKeyGen()
+    {
+        CMCEParameters[] params = new CMCEParameters[]{
+            CMCEParameters.mceliece348864r3,
+            CMCEParameters.mceliece348864fr3,
+            CMCEParameters.mceliece6960119fr3
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (int i = 0; i != params.length; i++)
+            {
+                byte[] seed = Hex.decode("061550234D158C5EC95595FE04EF7A25767F2E24CC2BC479D09D86DC9ABCFDE7"
+                    + "056A8C266F9EF97ED08541DBD2E1FFA1");
+                seed[0] = (byte)i;
+
+                CMCEKeyPairGenerator kpGen = new CMCEKeyPairGenerator();
+                kpGen.init(new CMCEKeyGenerationParameters(new NISTSecureRandom(seed, null), params[i]));
+                AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+                CMCEKeyPairGenerator parKpGen = new CMCEKeyPairGenerator(executor);
+                parKpGen.init(new CMCEKeyGenerationParameters(new NISTSecureRandom(seed, null), params[i]));
+                AsymmetricCipherKeyPair parKp = parKpGen.generateKeyPair();
+
+                String name = params[i].getName();
+                assertTrue(name + ": public key", Arrays.areEqual(((CMCEPublicKeyParameters)kp.getPublic()).getPublicKey(),
+                    ((CMCEPublicKeyParameters)parKp.getPublic()).getPublicKey()));
+                assertTrue(name + ": secret key", Arrays.areEqual(((CMCEPrivateKeyParameters)kp.getPrivate()).getPrivateKey(),
+                    ((CMCEPrivateKeyParameters)parKp.getPrivate()).getPrivateKey()));
+
+                SecretWithEncapsulation secWenc = new CMCEKEMGenerator(new NISTSecureRandom(seed, null))
+                    .generateEncapsulated(parKp.getPublic(), 256);
+                byte[] secret = new CMCEKEMExtractor((CMCEPrivateKeyParameters)parKp.getPrivate())
+                    .extractSecret(secWenc.getEncapsulation(), 256);
+                assertTrue(name + ": kem_dec key", Arrays.areEqual(secWenc.getSecret(), secret));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
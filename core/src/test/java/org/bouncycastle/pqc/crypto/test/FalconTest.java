@@ -9,6 +9,7 @@
 import junit.framework.TestCase;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.pqc.crypto.falcon.FalconExpandedPrivateKeyParameters;
 import org.bouncycastle.pqc.crypto.falcon.FalconKeyGenerationParameters;
 import org.bouncycastle.pqc.crypto.falcon.FalconKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.falcon.FalconParameters;
@@ -171,4 +172,51 @@ public void testFalconRandom()
             assertTrue("count = " + i, verifier.verifySignature(msg, sigGenerated));
         }
     }
+
+    public void testExpandedKey()
+    {
+        FalconParameters[] parameters = new FalconParameters[]{
+            FalconParameters.falcon_512,
+            FalconParameters.falcon_1024
+        };
+
+        for (int p = 0; p != parameters.length; p++)
+        {
+            byte[] seed = Hex.decode("000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f"
+                + "202122232425262728292a2b2c2d2e2f");
+            seed[0] = (byte)p;
+
+            FalconKeyPairGenerator keyGen = new FalconKeyPairGenerator();
+            keyGen.init(new FalconKeyGenerationParameters(new NISTSecureRandom(seed, null), parameters[p]));
+            AsymmetricCipherKeyPair keyPair = keyGen.generateKeyPair();
+
+            FalconPrivateKeyParameters skparam = (FalconPrivateKeyParameters)keyPair.getPrivate();
+            FalconExpandedPrivateKeyParameters expanded = new FalconExpandedPrivateKeyParameters(skparam);
+
+            assertTrue(Arrays.areEqual(skparam.getEncoded(), expanded.getEncoded()));
+            assertTrue(Arrays.areEqual(skparam.getPublicKey(), expanded.getPublicKey()));
+
+            FalconSigner signer = new FalconSigner();
+            signer.init(true, new ParametersWithRandom(skparam, new NISTSecureRandom(seed, null)));
+            FalconSigner expandedSigner = new FalconSigner();
+            expandedSigner.init(true, new ParametersWithRandom(expanded, new NISTSecureRandom(seed, null)));
+            FalconSigner sharedSigner = new FalconSigner();
+            sharedSigner.init(true, new ParametersWithRandom(expanded, new NISTSecureRandom(seed, null)));
+
+            FalconSigner verifier = new FalconSigner();
+            verifier.init(false, keyPair.getPublic());
+
+            for (int i = 0; i != 10; i++)
+            {
+                byte[] msg = Strings.toByteArray("Hello World! " + i);
+
+                byte[] sig = signer.generateSignature(msg);
+
+                // same randomness, so the expanded key must give the same signature
+                assertTrue("count = " + i, Arrays.areEqual(sig, expandedSigner.generateSignature(msg)));
+                assertTrue("count = " + i, Arrays.areEqual(sig, sharedSigner.generateSignature(msg)));
+                assertTrue("count = " + i, verifier.verifySignature(msg, sig));
+            }
+        }
+    }
 }
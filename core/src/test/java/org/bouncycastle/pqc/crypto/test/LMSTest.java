@@ -1,6 +1,9 @@
 package org.bouncycastle.pqc.crypto.test;
 
+import java.io.IOException;
 import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
@@ -163,6 +166,131 @@ public void testKeyGenAndSignTwoSigsWithShard()
         assertTrue(signer.verifySignature(msg1, sig1));
     }
 
+    public void testTraversalStateAndEncoding()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            implTestTraversal(LMSigParameters.lms_sha256_n32_h5, executor, new int[]{ 1, 7, 16 });
+            implTestTraversal(LMSigParameters.lms_sha256_n32_h10, executor, new int[]{ 0, 341, 512, 1000 });
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void implTestTraversal(LMSigParameters sigParameters, ExecutorService executor, int[] checkPoints)
+        throws Exception
+    {
+        LMSParameters parameters = new LMSParameters(sigParameters, LMOtsParameters.sha256_n32_w4);
+        SecureRandom random = new SecureRandom();
+
+        AsymmetricCipherKeyPairGenerator kpGen = new LMSKeyPairGenerator(executor);
+        kpGen.init(new LMSKeyGenerationParameters(parameters, random));
+        AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+        LMSPrivateKeyParameters privKey = (LMSPrivateKeyParameters)kp.getPrivate();
+        LMSPublicKeyParameters pubKey = (LMSPublicKeyParameters)kp.getPublic();
+
+        // a key built from scratch on the calling thread has the same public key.
+        LMSPrivateKeyParameters plainKey = new LMSPrivateKeyParameters(sigParameters, LMOtsParameters.sha256_n32_w4,
+            0, privKey.getI(), 1 << sigParameters.getH(), privKey.getMasterSecret());
+        assertTrue(Arrays.areEqual(pubKey.getEncoded(), plainKey.getPublicKey().getEncoded()));
+
+        LMSSigner signer = new LMSSigner();
+        LMSSigner verifier = new LMSSigner();
+        verifier.init(false, pubKey);
+
+        int c = 0;
+        for (int q = 0; q < (1 << sigParameters.getH()); q++)
+        {
+            byte[] msg = Strings.toByteArray("message " + q);
+
+            if (c < checkPoints.length && checkPoints[c] == q)
+            {
+                c++;
+
+                // a key started directly at q, and the persisted state, both give the same signature.
+                LMSPrivateKeyParameters freshKey = new LMSPrivateKeyParameters(sigParameters,
+                    LMOtsParameters.sha256_n32_w4, q, privKey.getI(), 1 << sigParameters.getH(),
+                    privKey.getMasterSecret());
+                byte[] enc = privKey.getEncoded();
+                LMSPrivateKeyParameters restored = LMSPrivateKeyParameters.getInstance(enc);
+
+                assertEquals(privKey, restored);
+                assertTrue(Arrays.areEqual(enc, restored.getEncoded()));
+
+                signer.init(true, freshKey);
+                byte[] expected = signer.generateSignature(msg);
+
+                signer.init(true, privKey);
+                assertTrue(Arrays.areEqual(expected, signer.generateSignature(msg)));
+
+                privKey = restored;
+                signer.init(true, privKey);
+                assertTrue(Arrays.areEqual(expected, signer.generateSignature(msg)));
+                assertTrue(verifier.verifySignature(msg, expected));
+            }
+            else
+            {
+                signer.init(true, privKey);
+                assertTrue(verifier.verifySignature(msg, signer.generateSignature(msg)));
+            }
+        }
+
+        assertEquals(0, privKey.getUsagesRemaining());
+    }
+
+    public void testTraversalStateChecked()
+        throws Exception
+    {
+        LMSParameters parameters = new LMSParameters(LMSigParameters.lms_sha256_n32_h5, LMOtsParameters.sha256_n32_w4);
+
+        AsymmetricCipherKeyPairGenerator kpGen = new LMSKeyPairGenerator();
+        kpGen.init(new LMSKeyGenerationParameters(parameters, new SecureRandom()));
+        AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+        LMSPrivateKeyParameters privKey = (LMSPrivateKeyParameters)kp.getPrivate();
+        LMSSigner signer = new LMSSigner();
+        signer.init(true, privKey);
+        signer.generateSignature(new byte[1]);
+
+        byte[] enc = privKey.getEncoded();
+        assertEquals(1, enc[3]);
+
+        // the version 0 encoding is the same key with the traversal state left out
+        byte[] v0Enc = privKey.getEncoded(false);
+        assertEquals(0, v0Enc[3]);
+        assertTrue(Arrays.areEqual(Arrays.copyOfRange(v0Enc, 4, v0Enc.length),
+            Arrays.copyOfRange(enc, 4, v0Enc.length)));
+        assertEquals(privKey, LMSPrivateKeyParameters.getInstance(v0Enc));
+
+        // version, types, I, q, maxQ, secret length, secret, then traversal index and k
+        int rootOff = 4 + 4 + 4 + 16 + 4 + 4 + 4 + privKey.getMasterSecret().length + 4 + 4;
+        int authPathOff = rootOff + 32;
+
+        implTestTamperedTraversal(enc, rootOff);                    // root
+        implTestTamperedTraversal(enc, authPathOff + 4);            // first authentication path node value
+        implTestTamperedTraversal(enc, authPathOff + 3 * (4 + 32)); // fourth authentication path node number
+    }
+
+    private void implTestTamperedTraversal(byte[] enc, int off)
+    {
+        byte[] tampered = Arrays.clone(enc);
+        tampered[off] ^= 1;
+        try
+        {
+            LMSPrivateKeyParameters.getInstance(tampered);
+            fail("tampered traversal state accepted");
+        }
+        catch (IOException e)
+        {
+            assertEquals("inconsistent LMS traversal data", e.getMessage());
+        }
+    }
+
     public void test_shouldRecogniseInvalidSignature()
         throws Exception
     {
@@ -11,7 +11,9 @@
 import junit.framework.TestCase;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.CryptoException;
+import org.bouncycastle.crypto.Signer;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.pqc.crypto.mldsa.HashMLDSASigner;
 import org.bouncycastle.pqc.crypto.mldsa.MLDSAKeyGenerationParameters;
 import org.bouncycastle.pqc.crypto.mldsa.MLDSAKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.mldsa.MLDSAParameters;
@@ -323,6 +325,70 @@ public void testMLDSARandom()
         }
     }
 
+    public void testPrecomputedKeys()
+        throws Exception
+    {
+        MLDSAKeyPairGenerator keyGen = new MLDSAKeyPairGenerator();
+
+        SecureRandom random = new SecureRandom();
+
+        for (MLDSAParameters param : new MLDSAParameters[]{
+            MLDSAParameters.ml_dsa_44, MLDSAParameters.ml_dsa_65, MLDSAParameters.ml_dsa_87,
+            MLDSAParameters.ml_dsa_44_with_sha512})
+        {
+            keyGen.init(new MLDSAKeyGenerationParameters(random, param));
+            AsymmetricCipherKeyPair keyPair = keyGen.generateKeyPair();
+
+            MLDSAPrivateKeyParameters privKey = (MLDSAPrivateKeyParameters)keyPair.getPrivate();
+            MLDSAPublicKeyParameters pubKey = (MLDSAPublicKeyParameters)keyPair.getPublic();
+            MLDSAPrivateKeyParameters precompPrivKey = privKey.withPrecomputation();
+            MLDSAPublicKeyParameters precompPubKey = pubKey.withPrecomputation();
+
+            assertFalse(privKey.isPrecomputed());
+            assertTrue(precompPrivKey.isPrecomputed());
+            assertSame(precompPrivKey, precompPrivKey.withPrecomputation());
+            assertTrue(Arrays.areEqual(privKey.getEncoded(), precompPrivKey.getEncoded()));
+            assertTrue(Arrays.areEqual(pubKey.getEncoded(), precompPubKey.getEncoded()));
+
+            for (int i = 0; i != 10; i++)
+            {
+                byte[] msg = new byte[i * 37];
+                random.nextBytes(msg);
+
+                // deterministic signing, so the precomputed key must give the same signature
+                Signer signer = param.isPreHash() ? (Signer)new HashMLDSASigner() : new MLDSASigner();
+                signer.init(true, privKey);
+                signer.update(msg, 0, msg.length);
+                byte[] expected = signer.generateSignature();
+
+                signer.init(true, precompPrivKey);
+                signer.update(msg, 0, msg.length);
+                byte[] sig = signer.generateSignature();
+
+                assertTrue(Arrays.areEqual(expected, sig));
+
+                // repeated use of the same precomputed key
+                signer.update(msg, 0, msg.length);
+                assertTrue(Arrays.areEqual(expected, signer.generateSignature()));
+
+                signer.init(false, precompPubKey);
+                signer.update(msg, 0, msg.length);
+                assertTrue(signer.verifySignature(sig));
+
+                signer.update(msg, 0, msg.length);
+                assertTrue(signer.verifySignature(sig));
+
+                sig[sig.length / 2] ^= 1;
+                signer.update(msg, 0, msg.length);
+                assertFalse(signer.verifySignature(sig));
+
+                signer.init(false, pubKey);
+                signer.update(msg, 0, msg.length);
+                assertFalse(signer.verifySignature(sig));
+            }
+        }
+    }
+
     public void testKeyGenCombinedVectorSet()
         throws IOException
     {
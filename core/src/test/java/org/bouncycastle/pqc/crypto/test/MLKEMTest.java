@@ -28,6 +28,7 @@
 import org.bouncycastle.test.TestResourceFinder;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.test.FixedSecureRandom;
 
 import junit.framework.TestCase;
 
@@ -537,4 +538,53 @@ public void testMLKEMRandom()
             assertTrue(Arrays.areEqual(secretEncap.getSecret(), decryptedSharedSecret));
         }
     }
+
+    public void testReusedKeys()
+    {
+        MLKEMParameters[] params = new MLKEMParameters[]{
+            MLKEMParameters.ml_kem_512,
+            MLKEMParameters.ml_kem_768,
+            MLKEMParameters.ml_kem_1024,
+        };
+
+        SecureRandom random = new SecureRandom();
+
+        for (int p = 0; p != params.length; p++)
+        {
+            MLKEMKeyPairGenerator keyGen = new MLKEMKeyPairGenerator();
+            keyGen.init(new MLKEMKeyGenerationParameters(random, params[p]));
+
+            AsymmetricCipherKeyPair keyPair = keyGen.generateKeyPair();
+            MLKEMPublicKeyParameters pubKey = (MLKEMPublicKeyParameters)keyPair.getPublic();
+            MLKEMPrivateKeyParameters privKey = (MLKEMPrivateKeyParameters)keyPair.getPrivate();
+
+            MLKEMExtractor kemExtract = new MLKEMExtractor(privKey);
+
+            for (int i = 0; i != 10; i++)
+            {
+                byte[] randBytes = new byte[32];
+                random.nextBytes(randBytes);
+
+                // the same key objects are reused, so only the first pass expands them
+                SecretWithEncapsulation secretEncap = new MLKEMGenerator(new FixedSecureRandom(randBytes)).generateEncapsulated(pubKey);
+
+                // compare against keys freshly decoded on each call
+                MLKEMPublicKeyParameters freshPubKey = new MLKEMPublicKeyParameters(params[p], pubKey.getEncoded());
+                SecretWithEncapsulation freshEncap = new MLKEMGenerator(random).internalGenerateEncapsulated(freshPubKey, randBytes);
+
+                assertTrue(Arrays.areEqual(freshEncap.getSecret(), secretEncap.getSecret()));
+                assertTrue(Arrays.areEqual(freshEncap.getEncapsulation(), secretEncap.getEncapsulation()));
+
+                byte[] encapsulation = secretEncap.getEncapsulation();
+                assertTrue(Arrays.areEqual(secretEncap.getSecret(), kemExtract.extractSecret(encapsulation)));
+
+                // implicit rejection must also agree with a freshly decoded key
+                encapsulation[i] ^= 0x01;
+                MLKEMPrivateKeyParameters freshPrivKey = new MLKEMPrivateKeyParameters(params[p], privKey.getEncoded());
+                byte[] rejected = kemExtract.extractSecret(encapsulation);
+                assertFalse(Arrays.areEqual(secretEncap.getSecret(), rejected));
+                assertTrue(Arrays.areEqual(new MLKEMExtractor(freshPrivKey).extractSecret(encapsulation), rejected));
+            }
+        }
+    }
 }
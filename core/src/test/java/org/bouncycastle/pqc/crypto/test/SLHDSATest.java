@@ -7,6 +7,8 @@
 import java.security.SecureRandom;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.pqc.crypto.slhdsa.SLHDSAKeyGenerationParameters;
@@ -649,6 +651,11 @@ public void testBasicKeyGenerationSha2128sSimple()
     }
 
     public void testBasicKeyGenerationShake256128fSimpleSign()
+    {
+        implShake128fSimpleSign(new InternalSLHDSASigner());
+    }
+
+    private void implShake128fSimpleSign(InternalSLHDSASigner signer)
     {
         byte[] sk = Hex.decode("DADB023900B157BAEDFF38B4BDE4B308C83A26A11170274E7E35CD3935AEAF07119231DA3849A12477373395D264043DA6CECC80D20A2E15A3622ABFFC221FC8");
         byte[] message = Hex.decode("3048BDE7F28C0414CC318C90048F23AFECF079866C34858521192E1684F37F0BC5D2C8585E9BF753626F6E853779D41C15BDA83DEF79DBF8A11B82EAE066833AB6C409D8AC386C942D69FF482D26A1A4030F7C082E36CFCEAA7491CB2F25BD61B79BACD91DD72C91C5D673BE48866D33E6B20F9DC83BD5639D27B0D8CA326AA1");
@@ -660,13 +667,44 @@ public void testBasicKeyGenerationShake256128fSimpleSign()
         SLHDSAPrivateKeyParameters privParams = new SLHDSAPrivateKeyParameters(parameters, sk);
 
         // sign
-        InternalSLHDSASigner signer = new InternalSLHDSASigner();
-
         signer.init(true, privParams);
         byte[] sigGenerated = signer.internalGenerateSignature(message, rnd);
         assertTrue(Arrays.areEqual(sigGenerated, signature));
     }
 
+    public void testConcurrentSign()
+        throws Exception
+    {
+        byte[] message = Hex.decode("3048BDE7F28C0414CC318C90048F23AFECF079866C34858521192E1684F37F0B");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            implShake128fSimpleSign(new InternalSLHDSASigner(executor));
+
+            SLHDSAKeyPairGenerator kpGen = new SLHDSAKeyPairGenerator();
+            kpGen.init(new SLHDSAKeyGenerationParameters(new SecureRandom(), SLHDSAParameters.sha2_128s));
+            AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+            SLHDSASigner seqSigner = new SLHDSASigner();
+            seqSigner.init(true, kp.getPrivate());
+            SLHDSASigner parSigner = new SLHDSASigner(executor);
+            parSigner.init(true, kp.getPrivate());
+
+            byte[] seqSig = seqSigner.generateSignature(message);
+            byte[] parSig = parSigner.generateSignature(message);
+            assertTrue(Arrays.areEqual(seqSig, parSig));
+
+            SLHDSASigner verifier = new SLHDSASigner();
+            verifier.init(false, kp.getPublic());
+            assertTrue(verifier.verifySignature(message, parSig));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
 //    private static String[] splitOn(String input, char c)
 //    {
 //        String s = input.trim();
@@ -691,6 +729,15 @@ public void testBasicKeyGenerationShake256128fSimpleSign()
     private class InternalSLHDSASigner
         extends SLHDSASigner
     {
+        InternalSLHDSASigner()
+        {
+        }
+
+        InternalSLHDSASigner(ExecutorService executor)
+        {
+            super(executor);
+        }
+
         public byte[] internalGenerateSignature(byte[] message, byte[] optRand)
         {
             return super.internalGenerateSignature(message, optRand);
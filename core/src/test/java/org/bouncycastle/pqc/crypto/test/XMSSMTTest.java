@@ -3,6 +3,8 @@
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.text.ParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
@@ -14,6 +16,8 @@
 import org.bouncycastle.pqc.crypto.xmss.XMSSMTKeyGenerationParameters;
 import org.bouncycastle.pqc.crypto.xmss.XMSSMTKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.xmss.XMSSMTParameters;
+import org.bouncycastle.pqc.crypto.xmss.XMSSMTPrivateKeyParameters;
+import org.bouncycastle.pqc.crypto.xmss.XMSSMTPublicKeyParameters;
 import org.bouncycastle.pqc.crypto.xmss.XMSSMTSigner;
 import org.bouncycastle.pqc.crypto.xmss.XMSSUtil;
 import org.bouncycastle.util.Arrays;
@@ -17684,4 +17688,91 @@ public void testBDSImport()
         {
         }
     }
+
+    public void testParallelKeyGen()
+        throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            XMSSMTParameters params = new XMSSMTParameters(15, 3, new SHA256Digest());
+
+            XMSSMTKeyPairGenerator kpGen = new XMSSMTKeyPairGenerator();
+            kpGen.init(new XMSSMTKeyGenerationParameters(params, new NullPRNG()));
+            AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+            XMSSMTKeyPairGenerator parallelKpGen = new XMSSMTKeyPairGenerator(executor);
+            parallelKpGen.init(new XMSSMTKeyGenerationParameters(params, new NullPRNG()));
+            AsymmetricCipherKeyPair parallelKp = parallelKpGen.generateKeyPair();
+
+            assertTrue(Arrays.areEqual(((XMSSMTPublicKeyParameters)kp.getPublic()).getEncoded(),
+                ((XMSSMTPublicKeyParameters)parallelKp.getPublic()).getEncoded()));
+
+            XMSSMTSigner signer = new XMSSMTSigner();
+            XMSSMTSigner parallelSigner = new XMSSMTSigner();
+            signer.init(true, kp.getPrivate());
+            parallelSigner.init(true, parallelKp.getPrivate());
+            for (int i = 0; i != 40; i++)
+            {
+                byte[] message = new byte[]{ (byte)i };
+                assertTrue(Arrays.areEqual(signer.generateSignature(message), parallelSigner.generateSignature(message)));
+
+                // the intermediate layers are built up front in parallel, otherwise by the first signature
+                assertTrue(Arrays.areEqual(((XMSSMTPrivateKeyParameters)kp.getPrivate()).getEncoded(),
+                    ((XMSSMTPrivateKeyParameters)parallelKp.getPrivate()).getEncoded()));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testParallelStateReplay()
+        throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            XMSSMTParameters params = new XMSSMTParameters(20, 2, new SHA256Digest());
+
+            XMSSMTKeyPairGenerator kpGen = new XMSSMTKeyPairGenerator();
+            kpGen.init(new XMSSMTKeyGenerationParameters(params, new NullPRNG()));
+            XMSSMTPrivateKeyParameters privKey = (XMSSMTPrivateKeyParameters)kpGen.generateKeyPair().getPrivate();
+
+            // past the end of the first bottom layer tree, so the replay has to build another one
+            long index = (1 << 10) + 3;
+
+            // no BDS state, so it is recreated by replaying the key up to the index
+            XMSSMTPrivateKeyParameters replayed = new XMSSMTPrivateKeyParameters.Builder(params)
+                .withIndex(index)
+                .withSecretKeySeed(privKey.getSecretKeySeed())
+                .withSecretKeyPRF(privKey.getSecretKeyPRF())
+                .withPublicSeed(privKey.getPublicSeed())
+                .withRoot(privKey.getRoot())
+                .build();
+            XMSSMTPrivateKeyParameters parallelReplayed = new XMSSMTPrivateKeyParameters.Builder(params)
+                .withIndex(index)
+                .withSecretKeySeed(privKey.getSecretKeySeed())
+                .withSecretKeyPRF(privKey.getSecretKeyPRF())
+                .withPublicSeed(privKey.getPublicSeed())
+                .withRoot(privKey.getRoot())
+                .withExecutor(executor)
+                .build();
+
+            XMSSMTSigner signer = new XMSSMTSigner();
+            XMSSMTSigner parallelSigner = new XMSSMTSigner();
+            signer.init(true, replayed);
+            parallelSigner.init(true, parallelReplayed);
+            for (int i = 0; i != 4; i++)
+            {
+                byte[] message = new byte[]{ (byte)i };
+                assertTrue(Arrays.areEqual(signer.generateSignature(message), parallelSigner.generateSignature(message)));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
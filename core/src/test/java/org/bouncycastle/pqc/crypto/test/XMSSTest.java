@@ -4,15 +4,23 @@
 import java.security.SecureRandom;
 import java.text.ParseException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.pqc.crypto.xmss.XMSS;
+import org.bouncycastle.pqc.crypto.xmss.XMSSKeyGenerationParameters;
+import org.bouncycastle.pqc.crypto.xmss.XMSSKeyPairGenerator;
 import org.bouncycastle.pqc.crypto.xmss.XMSSNode;
 import org.bouncycastle.pqc.crypto.xmss.XMSSParameters;
+import org.bouncycastle.pqc.crypto.xmss.XMSSPrivateKeyParameters;
+import org.bouncycastle.pqc.crypto.xmss.XMSSPublicKeyParameters;
 import org.bouncycastle.pqc.crypto.xmss.XMSSSignature;
+import org.bouncycastle.pqc.crypto.xmss.XMSSSigner;
 import org.bouncycastle.pqc.crypto.xmss.XMSSUtil;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.encoders.Hex;
@@ -485,4 +493,48 @@ public void testBDSImport()
         {
         }
     }
+
+    public void testParallelKeyGen()
+        throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            // odd and even heights have different BDS k values
+            implTestParallelKeyGen(new XMSSParameters(5, new SHA256Digest()), executor);
+            implTestParallelKeyGen(new XMSSParameters(10, new SHA256Digest()), executor);
+            implTestParallelKeyGen(new XMSSParameters(10, new SHA512Digest()), executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void implTestParallelKeyGen(XMSSParameters params, ExecutorService executor)
+        throws IOException
+    {
+        XMSSKeyPairGenerator kpGen = new XMSSKeyPairGenerator();
+        kpGen.init(new XMSSKeyGenerationParameters(params, new NullPRNG()));
+        AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+        XMSSKeyPairGenerator parallelKpGen = new XMSSKeyPairGenerator(executor);
+        parallelKpGen.init(new XMSSKeyGenerationParameters(params, new NullPRNG()));
+        AsymmetricCipherKeyPair parallelKp = parallelKpGen.generateKeyPair();
+
+        assertTrue(Arrays.areEqual(((XMSSPublicKeyParameters)kp.getPublic()).getEncoded(),
+            ((XMSSPublicKeyParameters)parallelKp.getPublic()).getEncoded()));
+        assertTrue(Arrays.areEqual(((XMSSPrivateKeyParameters)kp.getPrivate()).getEncoded(),
+            ((XMSSPrivateKeyParameters)parallelKp.getPrivate()).getEncoded()));
+
+        XMSSSigner signer = new XMSSSigner();
+        XMSSSigner parallelSigner = new XMSSSigner();
+        signer.init(true, kp.getPrivate());
+        parallelSigner.init(true, parallelKp.getPrivate());
+        for (int i = 0; i != 8; i++)
+        {
+            byte[] message = new byte[]{ (byte)i };
+            assertTrue(Arrays.areEqual(signer.generateSignature(message), parallelSigner.generateSignature(message)));
+        }
+    }
 }
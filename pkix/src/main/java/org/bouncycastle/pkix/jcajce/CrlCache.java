@@ -3,22 +3,33 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.WeakReference;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.security.GeneralSecurityException;
 import java.security.cert.CRL;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.naming.Context;
 import javax.naming.NamingException;
@@ -28,70 +39,275 @@
 import javax.naming.directory.InitialDirContext;
 
 import org.bouncycastle.jcajce.PKIXCRLStore;
+import org.bouncycastle.jcajce.util.JcaJceHelper;
 import org.bouncycastle.util.CollectionStore;
 import org.bouncycastle.util.Iterable;
+import org.bouncycastle.util.Properties;
 import org.bouncycastle.util.Selector;
 import org.bouncycastle.util.Store;
+import org.bouncycastle.util.io.Streams;
 
+/**
+ * Cache of the CRLs published at distribution points, keyed by distribution point URI.
+ * <p>
+ * Lookups for different distribution points never wait on each other, and concurrent lookups for the same
+ * distribution point share a single fetch. A set of CRLs is held until the nextUpdate of the CRLs is before
+ * the date they are wanted for, capped by a maximum time to live. Both the number of distribution points held
+ * and the total size of the encoded CRLs held are bounded. Optionally, CRLs that are used within a
+ * configurable period before their nextUpdate are fetched again in the background, so certificate checks do
+ * not stall waiting for the distribution point. Fetches can also be started in the background ahead of time,
+ * to pre-warm the cache. The cache is configured with the properties below.
+ * </p>
+ * <ul>
+ * <li>org.bouncycastle.crl.cache_size - maximum number of distribution points held (default 100, 0 disables caching).</li>
+ * <li>org.bouncycastle.crl.cache_max_bytes - maximum total size, in bytes, of the encoded CRLs held (default 64MB).</li>
+ * <li>org.bouncycastle.crl.cache_max_ttl - maximum time, in seconds, CRLs are held (default 86400).</li>
+ * <li>org.bouncycastle.crl.refresh_ahead - period, in seconds, before nextUpdate in which used CRLs are
+ * fetched again in the background (default 0, disabled).</li>
+ * <li>org.bouncycastle.crl.timeout - connect and read timeout, in milliseconds, for fetching CRLs (default 15000).</li>
+ * </ul>
+ */
 class CrlCache
 {
+    static final String CACHE_SIZE = "org.bouncycastle.crl.cache_size";
+    static final String CACHE_MAX_BYTES = "org.bouncycastle.crl.cache_max_bytes";
+    static final String CACHE_MAX_TTL = "org.bouncycastle.crl.cache_max_ttl";
+    static final String REFRESH_AHEAD = "org.bouncycastle.crl.refresh_ahead";
+    static final String TIMEOUT = "org.bouncycastle.crl.timeout";
+
     private static final int DEFAULT_TIMEOUT = 15000;
 
-    private static Map<URI, WeakReference<PKIXCRLStore>> cache =
-        Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<PKIXCRLStore>>());
+    private static final int DEFAULT_CACHE_SIZE = 100;
+    private static final int DEFAULT_CACHE_MAX_BYTES = 64 * 1024 * 1024;
+    private static final int DEFAULT_CACHE_MAX_TTL = 24 * 60 * 60;
+
+    private static final int FETCH_THREADS = 4;
+
+    private static final ConcurrentMap<URI, Entry> cache = new ConcurrentHashMap<URI, Entry>();
+    private static final ConcurrentMap<URI, FutureTask<PKIXCRLStore>> pending = new ConcurrentHashMap<URI, FutureTask<PKIXCRLStore>>();
 
-    static synchronized PKIXCRLStore getCrl(CertificateFactory certFact, Date validDate, URI distributionPoint)
+    private static ThreadPoolExecutor fetchExecutor;
+
+    /**
+     * Return the CRLs published at a distribution point, fetching them if they aren't held and current.
+     *
+     * @param helper helper for creating a certificate factory for any fetch run in the background.
+     * @param certFact certificate factory, only used on the calling thread.
+     */
+    static PKIXCRLStore getCrl(JcaJceHelper helper, CertificateFactory certFact, Date validDate, URI distributionPoint)
         throws IOException, CRLException
     {
-        PKIXCRLStore crlStore = null;
+        Entry entry = cache.get(distributionPoint);
+        if (entry != null)
+        {
+            long now = System.currentTimeMillis();
+
+            if (now < entry.expiresAt && !entry.isExpired(validDate))
+            {
+                if (now >= entry.refreshAt && entry.startRefresh())
+                {
+                    try
+                    {
+                        fetchInBackground(new Fetch(helper, null, distributionPoint));
+                    }
+                    catch (RejectedExecutionException e)
+                    {
+                        // the current CRLs stay in use until they expire
+                    }
+                }
+                return entry.crlStore;
+            }
+
+            cache.remove(distributionPoint, entry);
+        }
+
+        // run by this thread (if at all), so the caller's factory can be used
+        FutureTask<PKIXCRLStore> task = new PendingFetch(new Fetch(helper, certFact, distributionPoint));
 
-        WeakReference<PKIXCRLStore> markerRef = (WeakReference)cache.get(distributionPoint);
-        if (markerRef != null)
+        FutureTask<PKIXCRLStore> existing = pending.putIfAbsent(distributionPoint, task);
+        if (existing == null)
+        {
+            task.run();
+        }
+        else
         {
-            crlStore = (PKIXCRLStore)markerRef.get();
+            task = existing;
         }
 
-        if (crlStore != null)
+        return getResult(task);
+    }
+
+    /**
+     * Start fetching the CRLs at a distribution point in the background, unless they are already held and
+     * current, or a fetch is already under way.
+     *
+     * @param helper helper for creating the certificate factory the fetch uses.
+     * @return a future which completes with the CRLs found.
+     */
+    static Future<PKIXCRLStore> prefetchCrl(JcaJceHelper helper, URI distributionPoint)
+    {
+        final Entry entry = cache.get(distributionPoint);
+        if (entry != null && !entry.isExpired(new Date()) && System.currentTimeMillis() < entry.expiresAt)
         {
-            boolean isExpired = false;
-            for (Iterator it = crlStore.getMatches(null).iterator(); it.hasNext();)
+            FutureTask<PKIXCRLStore> held = new FutureTask<PKIXCRLStore>(new Callable<PKIXCRLStore>()
             {
-                X509CRL crl = (X509CRL)it.next();
-
-                Date nextUpdate = crl.getNextUpdate();
-                if (nextUpdate != null && nextUpdate.before(validDate))
+                public PKIXCRLStore call()
                 {
-                    isExpired = true;
-                    break;
+                    return entry.crlStore;
                 }
-            }
+            });
+            held.run();
+            return held;
+        }
+
+        return fetchInBackground(new Fetch(helper, null, distributionPoint));
+    }
+
+    private static FutureTask<PKIXCRLStore> fetchInBackground(Fetch fetch)
+    {
+        FutureTask<PKIXCRLStore> task = new PendingFetch(fetch);
+
+        FutureTask<PKIXCRLStore> existing = pending.putIfAbsent(fetch.distributionPoint, task);
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        try
+        {
+            getFetchExecutor().execute(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            pending.remove(fetch.distributionPoint, task);
+            throw e;
+        }
 
-            if (!isExpired)
+        return task;
+    }
+
+    private static PKIXCRLStore getResult(Future<PKIXCRLStore> task)
+        throws IOException, CRLException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for CRL");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
             {
-                return crlStore;
+                throw (IOException)cause;
             }
+            if (cause instanceof CRLException)
+            {
+                throw (CRLException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new CRLException("unable to fetch CRL: " + cause.getMessage(), cause);
         }
+    }
 
-        Collection crls;
+    private static synchronized ThreadPoolExecutor getFetchExecutor()
+    {
+        if (fetchExecutor == null)
+        {
+            fetchExecutor = new ThreadPoolExecutor(FETCH_THREADS, FETCH_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "BC CRL fetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            fetchExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return fetchExecutor;
+    }
 
-        if (distributionPoint.getScheme().equals("ldap"))
+    private static void store(URI distributionPoint, Entry entry)
+    {
+        int cacheSize = Properties.asInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        int maxBytes = Properties.asInteger(CACHE_MAX_BYTES, DEFAULT_CACHE_MAX_BYTES);
+        if (cacheSize < 1 || entry.size > maxBytes)
         {
-            crls = getCrlsFromLDAP(certFact, distributionPoint);
+            cache.remove(distributionPoint);
+            return;
         }
-        else
+
+        cache.put(distributionPoint, entry);
+
+        evict(distributionPoint, cacheSize, maxBytes);
+    }
+
+    private static synchronized void evict(URI latest, int cacheSize, int maxBytes)
+    {
+        long totalBytes = 0;
+        for (Iterator<Entry> it = cache.values().iterator(); it.hasNext();)
         {
-            // http, https, ftp
-            crls = getCrls(certFact, distributionPoint);
+            totalBytes += it.next().size;
         }
 
-        LocalCRLStore localCRLStore = new LocalCRLStore(new CollectionStore<CRL>(crls));
+        if (cache.size() <= cacheSize && totalBytes <= maxBytes)
+        {
+            return;
+        }
 
-        cache.put(distributionPoint, new WeakReference<PKIXCRLStore>(localCRLStore));
+        long now = System.currentTimeMillis();
+        for (Iterator<Entry> it = cache.values().iterator(); it.hasNext();)
+        {
+            Entry entry = it.next();
+            if (now >= entry.evictAt())
+            {
+                it.remove();
+                totalBytes -= entry.size;
+            }
+        }
 
-        return localCRLStore;
+        // then drop whatever would expire soonest, other than the CRLs just added
+        while (cache.size() > cacheSize || totalBytes > maxBytes)
+        {
+            Map.Entry<URI, Entry> soonest = null;
+            for (Iterator<Map.Entry<URI, Entry>> it = cache.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry<URI, Entry> next = it.next();
+                if (next.getKey().equals(latest))
+                {
+                    continue;
+                }
+                if (soonest == null || next.getValue().evictAt() < soonest.getValue().evictAt())
+                {
+                    soonest = next;
+                }
+            }
+            if (soonest == null)
+            {
+                break;
+            }
+            if (cache.remove(soonest.getKey(), soonest.getValue()))
+            {
+                totalBytes -= soonest.getValue().size;
+            }
+        }
     }
 
-    private static Collection getCrlsFromLDAP(CertificateFactory certFact, URI distributionPoint)
+    private static byte[] getCrlsFromLDAP(URI distributionPoint)
         throws IOException, CRLException
     {
         Map<String, String> env = new Hashtable<String, String>();
@@ -118,26 +334,164 @@ private static Collection getCrlsFromLDAP(CertificateFactory certFact, URI distr
         }
         else
         {
-            return certFact.generateCRLs(new ByteArrayInputStream(val));
+            return val;
         }
     }
 
-    private static Collection getCrls(CertificateFactory certFact, URI distributionPoint)
-        throws IOException, CRLException
+    private static byte[] getCrls(URI distributionPoint)
+        throws IOException
     {
+        int timeout = Properties.asInteger(TIMEOUT, DEFAULT_TIMEOUT);
+
         HttpURLConnection crlCon = (HttpURLConnection)distributionPoint.toURL().openConnection();
-        crlCon.setConnectTimeout(DEFAULT_TIMEOUT);
-        crlCon.setReadTimeout(DEFAULT_TIMEOUT);
+        crlCon.setConnectTimeout(timeout);
+        crlCon.setReadTimeout(timeout);
 
         InputStream crlIn = crlCon.getInputStream();
 
-        Collection crls = certFact.generateCRLs(crlIn);
+        byte[] crls = Streams.readAll(crlIn);
 
         crlIn.close();
 
         return crls;
     }
 
+    private static final class Entry
+    {
+        final PKIXCRLStore crlStore;
+        final int size;
+        final long nextUpdate;
+        final long expiresAt;
+        final long refreshAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(PKIXCRLStore crlStore, int size, long nextUpdate, long expiresAt, long refreshAt)
+        {
+            this.crlStore = crlStore;
+            this.size = size;
+            this.nextUpdate = nextUpdate;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+
+        boolean isExpired(Date validDate)
+        {
+            return nextUpdate < validDate.getTime();
+        }
+
+        long evictAt()
+        {
+            return Math.min(nextUpdate, expiresAt);
+        }
+
+        /**
+         * Only one refresh is attempted per entry; if it fails the entry is replaced once it expires.
+         */
+        boolean startRefresh()
+        {
+            return refreshing.compareAndSet(false, true);
+        }
+    }
+
+    private static final class Fetch
+        implements Callable<PKIXCRLStore>
+    {
+        final JcaJceHelper helper;
+        final CertificateFactory certFact;
+        final URI distributionPoint;
+
+        /**
+         * @param certFact factory to parse the CRLs with, or null to create one for this fetch (required if the
+         * fetch may run on another thread - CertificateFactory instances are not thread safe).
+         */
+        Fetch(JcaJceHelper helper, CertificateFactory certFact, URI distributionPoint)
+        {
+            this.helper = helper;
+            this.certFact = certFact;
+            this.distributionPoint = distributionPoint;
+        }
+
+        public PKIXCRLStore call()
+            throws IOException, CRLException
+        {
+            byte[] encoding;
+
+            if (distributionPoint.getScheme().equals("ldap"))
+            {
+                encoding = getCrlsFromLDAP(distributionPoint);
+            }
+            else
+            {
+                // http, https, ftp
+                encoding = getCrls(distributionPoint);
+            }
+
+            Collection crls = getCertificateFactory().generateCRLs(new ByteArrayInputStream(encoding));
+
+            long nextUpdate = Long.MAX_VALUE;
+            for (Iterator it = crls.iterator(); it.hasNext();)
+            {
+                Date crlNextUpdate = ((X509CRL)it.next()).getNextUpdate();
+                if (crlNextUpdate != null)
+                {
+                    nextUpdate = Math.min(nextUpdate, crlNextUpdate.getTime());
+                }
+            }
+
+            LocalCRLStore localCRLStore = new LocalCRLStore(new CollectionStore<CRL>(crls));
+
+            long now = System.currentTimeMillis();
+            long maxTtl = Properties.asInteger(CACHE_MAX_TTL, DEFAULT_CACHE_MAX_TTL) * 1000L;
+            long refreshAhead = Properties.asInteger(REFRESH_AHEAD, 0) * 1000L;
+
+            long expiresAt = now + maxTtl;
+            long refreshAt = (refreshAhead > 0 && nextUpdate != Long.MAX_VALUE) ? nextUpdate - refreshAhead : Long.MAX_VALUE;
+
+            store(distributionPoint, new Entry(localCRLStore, encoding.length, nextUpdate, expiresAt, refreshAt));
+
+            return localCRLStore;
+        }
+
+        private CertificateFactory getCertificateFactory()
+            throws CRLException
+        {
+            if (certFact != null)
+            {
+                return certFact;
+            }
+
+            try
+            {
+                return helper.createCertificateFactory("X.509");
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw new CRLException("could not create certFact: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * A fetch which is visible to other lookups for the same distribution point until it completes.
+     */
+    private static final class PendingFetch
+        extends FutureTask<PKIXCRLStore>
+    {
+        private final URI distributionPoint;
+
+        PendingFetch(Fetch fetch)
+        {
+            super(fetch);
+            this.distributionPoint = fetch.distributionPoint;
+        }
+
+        protected void done()
+        {
+            pending.remove(distributionPoint, this);
+        }
+    }
+
     private static class LocalCRLStore<T extends CRL>
         implements PKIXCRLStore, Iterable<CRL>
     {
@@ -31,6 +31,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -330,6 +331,28 @@ else if (bldr.providerName != null)
         }
     }
 
+    /**
+     * Start fetching the CRLs published at the passed in distribution points into the CRL cache shared by
+     * all revocation checkers, for example to pre-warm the cache at startup. The fetches run in the
+     * background; a distribution point which cannot be fetched now is simply tried again when a
+     * certificate check needs it.
+     *
+     * @param distributionPoints the URIs of the CRL distribution points to fetch.
+     * @return a future for each distribution point, in the order given, completing with the CRLs found there.
+     */
+    public List<Future<PKIXCRLStore>> prefetchCrls(Collection<URI> distributionPoints)
+    {
+        List<Future<PKIXCRLStore>> fetches = new ArrayList<Future<PKIXCRLStore>>(distributionPoints.size());
+
+        for (Iterator<URI> it = distributionPoints.iterator(); it.hasNext();)
+        {
+            // each fetch may run on its own thread, so each creates its own factory
+            fetches.add(CrlCache.prefetchCrl(helper, it.next()));
+        }
+
+        return fetches;
+    }
+
     public void init(boolean forward)
         throws CertPathValidatorException
     {
@@ -622,7 +645,7 @@ private Set<CRL> downloadCRLs(X500Principal issuer, Date currentDate, ASN1Primit
                         {
                             url = new URI(((ASN1String)name.getName()).getString());
 
-                            PKIXCRLStore store = CrlCache.getCrl(certFact, validationDate, url);
+                            PKIXCRLStore store = CrlCache.getCrl(helper, certFact, validationDate, url);
 
                             if (store != null)
                             {
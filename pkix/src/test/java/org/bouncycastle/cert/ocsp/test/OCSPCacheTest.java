@@ -0,0 +1,357 @@
+package org.bouncycastle.cert.ocsp.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.io.Streams;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Checks the caching of OCSP responses fetched by the provider's revocation checker, using a local
+ * responder which counts the requests it receives.
+ */
+public class OCSPCacheTest
+    extends SimpleTest
+{
+    private static final String BC = "BC";
+
+    private KeyPair caKp;
+    private KeyPair ocspKp;
+    private X509Certificate root;
+    private X509Certificate ca;
+    private X509Certificate ocsp;
+    private DigestCalculatorProvider digCalcProv;
+
+    public String getName()
+    {
+        return "OCSPCache";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        digCalcProv = new JcaDigestCalculatorProviderBuilder().setProvider(BC).build();
+
+        KeyPair rootKp = OCSPTestUtil.makeKeyPair();
+        caKp = OCSPTestUtil.makeKeyPair();
+        ocspKp = OCSPTestUtil.makeKeyPair();
+
+        root = OCSPTestUtil.makeRootCertificate(rootKp, "CN=Root");
+        ca = OCSPTestUtil.makeCertificate(caKp, "CN=CA", rootKp, root, true);
+        ocsp = OCSPTestUtil.makeRootCertificate(ocspKp, "CN=OCSP");
+
+        cachedResponseTest();
+        coalescedFetchTest();
+        expiryTest();
+        refreshAheadTest();
+        cacheSizeTest();
+    }
+
+    private void cachedResponseTest()
+        throws Exception
+    {
+        Responder responder = new Responder(60000, 0);
+        X509Certificate ee = makeEE();
+
+        validate(ee, responder.uri);
+        validate(ee, responder.uri);
+        validate(ee, responder.uri);
+
+        isEquals("response not cached", 1, responder.requests.get());
+
+        responder.close();
+    }
+
+    private void coalescedFetchTest()
+        throws Exception
+    {
+        final Responder responder = new Responder(60000, 500);
+        final X509Certificate ee = makeEE();
+
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i != threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        validate(ee, responder.uri);
+                    }
+                    catch (Exception e)
+                    {
+                        failures.add(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i != threads.length; i++)
+        {
+            threads[i].join();
+        }
+
+        isTrue("concurrent validation failed: " + failures, failures.isEmpty());
+        isEquals("fetches not coalesced", 1, responder.requests.get());
+
+        responder.close();
+    }
+
+    private void expiryTest()
+        throws Exception
+    {
+        Responder responder = new Responder(1500, 0);
+        X509Certificate ee = makeEE();
+
+        validate(ee, responder.uri);
+        validate(ee, responder.uri);
+        isEquals(1, responder.requests.get());
+
+        Thread.sleep(2000);
+
+        validate(ee, responder.uri);
+        isEquals("expired response used", 2, responder.requests.get());
+
+        responder.close();
+    }
+
+    private void refreshAheadTest()
+        throws Exception
+    {
+        System.setProperty("org.bouncycastle.ocsp.refresh_ahead", "5");
+        try
+        {
+            Responder responder = new Responder(6000, 0);
+            X509Certificate ee = makeEE();
+
+            validate(ee, responder.uri);
+            isEquals(1, responder.requests.get());
+
+            // inside the refresh period now: the cached response is used, and refreshed in the background
+            Thread.sleep(1500);
+            validate(ee, responder.uri);
+
+            for (int i = 0; i != 50 && responder.requests.get() < 2; i++)
+            {
+                Thread.sleep(100);
+            }
+            isEquals("no background refresh", 2, responder.requests.get());
+
+            validate(ee, responder.uri);
+            isEquals("refreshed response not used", 2, responder.requests.get());
+
+            responder.close();
+        }
+        finally
+        {
+            System.clearProperty("org.bouncycastle.ocsp.refresh_ahead");
+        }
+    }
+
+    private void cacheSizeTest()
+        throws Exception
+    {
+        System.setProperty("org.bouncycastle.ocsp.cache_size", "1");
+        try
+        {
+            Responder responder = new Responder(60000, 0);
+            X509Certificate ee1 = makeEE();
+            X509Certificate ee2 = makeEE();
+
+            validate(ee1, responder.uri);
+            validate(ee1, responder.uri);
+            validate(ee2, responder.uri);
+            isEquals(2, responder.requests.get());
+
+            validate(ee1, responder.uri);
+            isEquals("cache size not enforced", 3, responder.requests.get());
+
+            responder.close();
+        }
+        finally
+        {
+            System.clearProperty("org.bouncycastle.ocsp.cache_size");
+        }
+    }
+
+    private X509Certificate makeEE()
+        throws Exception
+    {
+        return OCSPTestUtil.makeCertificate(OCSPTestUtil.makeKeyPair(), "CN=EE", caKp, ca, false);
+    }
+
+    private void validate(X509Certificate ee, URI responderUri)
+        throws Exception
+    {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509", BC);
+
+        List<X509Certificate> list = new ArrayList<X509Certificate>();
+        list.add(ee);
+        list.add(ca);
+
+        CertPath certPath = cf.generateCertPath(list);
+
+        CertPathValidator cpv = CertPathValidator.getInstance("PKIX", BC);
+
+        PKIXRevocationChecker rv = (PKIXRevocationChecker)cpv.getRevocationChecker();
+
+        rv.setOcspResponder(responderUri);
+        rv.setOcspResponderCert(ocsp);
+        rv.setOptions(Collections.singleton(PKIXRevocationChecker.Option.ONLY_END_ENTITY));
+
+        PKIXParameters param = new PKIXParameters(Collections.singleton(new TrustAnchor(root, null)));
+
+        param.addCertPathChecker(rv);
+
+        cpv.validate(certPath, param);
+    }
+
+    private byte[] getOcspResponse(byte[] request, long lifetime)
+        throws Exception
+    {
+        OCSPReq req = new OCSPReq(request);
+
+        BasicOCSPRespBuilder respGen = new JcaBasicOCSPRespBuilder(ocspKp.getPublic(), digCalcProv.get(RespID.HASH_SHA1));
+
+        Date now = new Date();
+        respGen.addResponse(req.getRequestList()[0].getCertID(), CertificateStatus.GOOD, now,
+            new Date(now.getTime() + lifetime));
+
+        BasicOCSPResp resp = respGen.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider(BC).build(ocspKp.getPrivate()), null, now);
+
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, resp).getEncoded();
+    }
+
+    /**
+     * Minimal HTTP OCSP responder answering "good" for whatever is asked, with a nextUpdate lifetime
+     * milliseconds after the response is produced.
+     */
+    private class Responder
+        implements Runnable
+    {
+        final AtomicInteger requests = new AtomicInteger();
+        final ServerSocket ss;
+        final URI uri;
+        final long lifetime;
+        final long delay;
+
+        Responder(long lifetime, long delay)
+            throws Exception
+        {
+            this.ss = new ServerSocket(0);
+            this.uri = new URI("http://localhost:" + ss.getLocalPort() + "/");
+            this.lifetime = lifetime;
+            this.delay = delay;
+
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void close()
+            throws Exception
+        {
+            ss.close();
+        }
+
+        public void run()
+        {
+            try
+            {
+                for (;;)
+                {
+                    Socket s = ss.accept();
+
+                    requests.incrementAndGet();
+
+                    InputStream sIn = s.getInputStream();
+                    ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+                    int ch;
+                    int contentLength = 0;
+                    while ((ch = sIn.read()) >= 0)
+                    {
+                        bOut.write(ch);
+                        if (ch == '\n')
+                        {
+                            String line = Strings.fromByteArray(bOut.toByteArray()).trim();
+                            if (Strings.toLowerCase(line).startsWith("content-length"))
+                            {
+                                contentLength = Integer.parseInt(line.substring("Content-Length: ".length()));
+                            }
+                            if (line.length() == 0)
+                            {
+                                break;
+                            }
+                            bOut.reset();
+                        }
+                    }
+
+                    byte[] request = new byte[contentLength];
+                    Streams.readFully(sIn, request);
+
+                    if (delay > 0)
+                    {
+                        Thread.sleep(delay);
+                    }
+
+                    byte[] resp = getOcspResponse(request, lifetime);
+
+                    OutputStream sOut = s.getOutputStream();
+
+                    sOut.write(Strings.toByteArray("HTTP/1.1 200 OK\r\n"));
+                    sOut.write(Strings.toByteArray("Content-type: application/ocsp-response\r\n"));
+                    sOut.write(Strings.toByteArray("Content-Length: " + resp.length + "\r\n"));
+                    sOut.write(Strings.toByteArray("\r\n"));
+                    sOut.write(resp);
+                    sOut.flush();
+                    s.close();
+                }
+            }
+            catch (Exception e)
+            {
+                // closed
+            }
+        }
+    }
+
+    public static void main(
+        String[] args)
+        throws Exception
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new OCSPCacheTest());
+    }
+}
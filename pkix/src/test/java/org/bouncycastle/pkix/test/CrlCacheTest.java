@@ -0,0 +1,316 @@
+package org.bouncycastle.pkix.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.x500.X500Principal;
+
+import junit.framework.TestCase;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jcajce.PKIXCRLStore;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkix.jcajce.X509RevocationChecker;
+import org.bouncycastle.util.Strings;
+
+/**
+ * Checks the caching of CRLs fetched from distribution points by X509RevocationChecker, using a local
+ * HTTP stub which counts the requests it receives.
+ */
+public class CrlCacheTest
+    extends TestCase
+{
+    private KeyPair rootKp;
+    private X509Certificate root;
+    private byte[] crl;
+
+    public void setUp()
+        throws Exception
+    {
+        if (Security.getProvider("BC") == null)
+        {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA", "BC");
+        kpGen.initialize(2048);
+
+        rootKp = kpGen.generateKeyPair();
+        root = TestUtil.makeTrustAnchor(rootKp, "CN=Root");
+        crl = TestUtil.makeCrl(root, rootKp.getPrivate(), BigInteger.valueOf(1000)).getEncoded();
+    }
+
+    public void testPrefetchUsedByCheck()
+        throws Exception
+    {
+        DistributionPointStub stub = new DistributionPointStub(0);
+        X509RevocationChecker checker = makeChecker();
+
+        List<Future<PKIXCRLStore>> fetches = checker.prefetchCrls(Collections.singletonList(stub.uri));
+
+        assertEquals(1, fetches.size());
+        assertEquals(1, fetches.get(0).get(10, TimeUnit.SECONDS).getMatches(null).size());
+        assertEquals(1, stub.requests.get());
+
+        validate(makeEE(stub.uri), checker);
+        validate(makeEE(stub.uri), makeChecker());
+
+        assertEquals("prefetched CRL not used", 1, stub.requests.get());
+
+        stub.close();
+    }
+
+    public void testCheckFetchesOnce()
+        throws Exception
+    {
+        DistributionPointStub stub = new DistributionPointStub(0);
+
+        validate(makeEE(stub.uri), makeChecker());
+        validate(makeEE(stub.uri), makeChecker());
+        validate(makeEE(stub.uri), makeChecker());
+
+        assertEquals("CRL not cached", 1, stub.requests.get());
+
+        stub.close();
+    }
+
+    public void testCoalescedFetch()
+        throws Exception
+    {
+        DistributionPointStub stub = new DistributionPointStub(500);
+        X509RevocationChecker checker = makeChecker();
+
+        List<Future<PKIXCRLStore>> fetches = new ArrayList<Future<PKIXCRLStore>>();
+        for (int i = 0; i != 8; i++)
+        {
+            fetches.addAll(checker.prefetchCrls(Collections.singletonList(stub.uri)));
+        }
+        for (int i = 0; i != fetches.size(); i++)
+        {
+            fetches.get(i).get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals("fetches not coalesced", 1, stub.requests.get());
+
+        stub.close();
+    }
+
+    public void testSlowDistributionPoint()
+        throws Exception
+    {
+        DistributionPointStub slow = new DistributionPointStub(3000);
+        DistributionPointStub fast = new DistributionPointStub(0);
+        X509RevocationChecker checker = makeChecker();
+
+        Future<PKIXCRLStore> slowFetch = checker.prefetchCrls(Collections.singletonList(slow.uri)).get(0);
+
+        long start = System.currentTimeMillis();
+        validate(makeEE(fast.uri), checker);
+        assertTrue("lookup blocked by other distribution point", System.currentTimeMillis() - start < 2000);
+
+        assertFalse(slowFetch.isDone());
+        slowFetch.get(10, TimeUnit.SECONDS);
+
+        slow.close();
+        fast.close();
+    }
+
+    public void testCacheSize()
+        throws Exception
+    {
+        System.setProperty("org.bouncycastle.crl.cache_size", "1");
+        try
+        {
+            DistributionPointStub stub1 = new DistributionPointStub(0);
+            DistributionPointStub stub2 = new DistributionPointStub(0);
+
+            validate(makeEE(stub1.uri), makeChecker());
+            validate(makeEE(stub1.uri), makeChecker());
+            validate(makeEE(stub2.uri), makeChecker());
+            validate(makeEE(stub1.uri), makeChecker());
+
+            assertEquals(1, stub2.requests.get());
+            assertEquals("cache size not enforced", 2, stub1.requests.get());
+
+            stub1.close();
+            stub2.close();
+        }
+        finally
+        {
+            System.clearProperty("org.bouncycastle.crl.cache_size");
+        }
+    }
+
+    public void testCacheMaxBytes()
+        throws Exception
+    {
+        System.setProperty("org.bouncycastle.crl.cache_max_bytes", String.valueOf(crl.length - 1));
+        try
+        {
+            DistributionPointStub stub = new DistributionPointStub(0);
+
+            validate(makeEE(stub.uri), makeChecker());
+            validate(makeEE(stub.uri), makeChecker());
+
+            assertEquals("oversized CRL cached", 2, stub.requests.get());
+
+            stub.close();
+        }
+        finally
+        {
+            System.clearProperty("org.bouncycastle.crl.cache_max_bytes");
+        }
+    }
+
+    private X509RevocationChecker makeChecker()
+    {
+        return new X509RevocationChecker.Builder(new TrustAnchor(root, null)).usingProvider("BC").build();
+    }
+
+    private X509Certificate makeEE(URI distributionPoint)
+        throws Exception
+    {
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC", "BC");
+        kpGen.initialize(256);
+
+        KeyPair eeKp = kpGen.generateKeyPair();
+
+        X509v3CertificateBuilder v3CertGen = new JcaX509v3CertificateBuilder(
+            root.getSubjectX500Principal(),
+            TestUtil.serialNumber = TestUtil.serialNumber.add(BigInteger.ONE),
+            new Date(System.currentTimeMillis() - 5000),
+            new Date(System.currentTimeMillis() + (1000L * 60 * 60 * 24)),
+            new X500Principal("CN=EE"),
+            eeKp.getPublic());
+
+        GeneralNames names = new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier, distributionPoint.toString()));
+
+        v3CertGen.addExtension(
+            Extension.cRLDistributionPoints,
+            false,
+            new CRLDistPoint(new DistributionPoint[]{ new DistributionPoint(new DistributionPointName(names), null, null) }));
+
+        return new JcaX509CertificateConverter().setProvider("BC")
+            .getCertificate(v3CertGen.build(new JcaContentSignerBuilder("SHA256WithRSA").setProvider("BC").build(rootKp.getPrivate())));
+    }
+
+    private void validate(X509Certificate ee, X509RevocationChecker checker)
+        throws Exception
+    {
+        CertPath certPath = CertificateFactory.getInstance("X.509", "BC").generateCertPath(Collections.singletonList(ee));
+
+        PKIXParameters param = new PKIXParameters(Collections.singleton(new TrustAnchor(root, null)));
+
+        param.setRevocationEnabled(false);
+        param.addCertPathChecker(checker);
+
+        CertPathValidator.getInstance("PKIX", "BC").validate(certPath, param);
+    }
+
+    /**
+     * Minimal HTTP server returning the same CRL to every request, after an optional delay.
+     */
+    private class DistributionPointStub
+        implements Runnable
+    {
+        final AtomicInteger requests = new AtomicInteger();
+        final ServerSocket ss;
+        final URI uri;
+        final long delay;
+
+        DistributionPointStub(long delay)
+            throws Exception
+        {
+            this.ss = new ServerSocket(0);
+            this.uri = new URI("http://localhost:" + ss.getLocalPort() + "/root.crl");
+            this.delay = delay;
+
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void close()
+            throws Exception
+        {
+            ss.close();
+        }
+
+        public void run()
+        {
+            try
+            {
+                for (;;)
+                {
+                    Socket s = ss.accept();
+
+                    requests.incrementAndGet();
+
+                    InputStream sIn = s.getInputStream();
+                    ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+                    int ch;
+                    while ((ch = sIn.read()) >= 0)
+                    {
+                        bOut.write(ch);
+                        if (ch == '\n')
+                        {
+                            if (Strings.fromByteArray(bOut.toByteArray()).trim().length() == 0)
+                            {
+                                break;
+                            }
+                            bOut.reset();
+                        }
+                    }
+
+                    if (delay > 0)
+                    {
+                        Thread.sleep(delay);
+                    }
+
+                    OutputStream sOut = s.getOutputStream();
+
+                    sOut.write(Strings.toByteArray("HTTP/1.1 200 OK\r\n"));
+                    sOut.write(Strings.toByteArray("Content-type: application/pkix-crl\r\n"));
+                    sOut.write(Strings.toByteArray("Content-Length: " + crl.length + "\r\n"));
+                    sOut.write(Strings.toByteArray("\r\n"));
+                    sOut.write(crl);
+                    sOut.flush();
+                    s.close();
+                }
+            }
+            catch (Exception e)
+            {
+                // closed
+            }
+        }
+    }
+}
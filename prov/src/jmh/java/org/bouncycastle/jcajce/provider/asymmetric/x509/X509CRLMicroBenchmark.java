@@ -0,0 +1,155 @@
+package org.bouncycastle.jcajce.provider.asymmetric.x509;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.CertificateList;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V2TBSCertListGenerator;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares revoked certificate lookups on large CRLs: the first lookup (which builds the serial number
+ * index), later lookups against an indexed CRL, and the linear scan of the revoked certificate entries
+ * the lookups used to do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class X509CRLMicroBenchmark
+{
+    @Param({"1000", "100000", "400000"})
+    private int entries;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private CertificateFactory certFact;
+    private byte[] encoding;
+    private BigInteger[] serialNumbers;
+
+    private X509CRL indexedCRL;
+    private TBSCertList tbsCertList;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+        throws Exception
+    {
+        certFact = CertificateFactory.getInstance("X.509", new BouncyCastleProvider());
+
+        V2TBSCertListGenerator tbsGen = new V2TBSCertListGenerator();
+        AlgorithmIdentifier sigAlg = new AlgorithmIdentifier(X9ObjectIdentifiers.ecdsa_with_SHA256);
+
+        tbsGen.setSignature(sigAlg);
+        tbsGen.setIssuer(new X500Name("CN=CRL Benchmark CA"));
+        tbsGen.setThisUpdate(new Time(new Date()));
+
+        serialNumbers = new BigInteger[entries];
+        Time revocationDate = new Time(new Date());
+        for (int i = 0; i != entries; i++)
+        {
+            serialNumbers[i] = new BigInteger(128, random);
+            tbsGen.addCRLEntry(new ASN1Integer(serialNumbers[i]), revocationDate, CRLReason.keyCompromise);
+        }
+
+        ASN1EncodableVector v = new ASN1EncodableVector(3);
+        v.add(tbsGen.generateTBSCertList());
+        v.add(sigAlg);
+        v.add(new DERBitString(new byte[64]));
+
+        encoding = new DERSequence(v).getEncoded(ASN1Encoding.DER);
+
+        indexedCRL = parseCRL();
+        indexedCRL.getRevokedCertificate(BigInteger.ONE);
+        tbsCertList = CertificateList.getInstance(encoding).getTBSCertList();
+    }
+
+    /**
+     * A newly parsed CRL for each invocation, so every lookup pays for building the index.
+     */
+    @State(Scope.Thread)
+    public static class FreshCRL
+    {
+        X509CRL crl;
+
+        @Setup(Level.Invocation)
+        public void setup(X509CRLMicroBenchmark benchmark)
+            throws Exception
+        {
+            crl = benchmark.parseCRL();
+        }
+    }
+
+    @Benchmark
+    public X509CRLEntry firstLookup(FreshCRL fresh)
+    {
+        return fresh.crl.getRevokedCertificate(nextSerialNumber());
+    }
+
+    @Benchmark
+    public X509CRLEntry laterLookup()
+    {
+        return indexedCRL.getRevokedCertificate(nextSerialNumber());
+    }
+
+    @Benchmark
+    public TBSCertList.CRLEntry linearScan()
+    {
+        BigInteger serialNumber = nextSerialNumber();
+
+        Enumeration certs = tbsCertList.getRevokedCertificateEnumeration();
+        while (certs.hasMoreElements())
+        {
+            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)certs.nextElement();
+
+            if (entry.getUserCertificate().hasValue(serialNumber))
+            {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private BigInteger nextSerialNumber()
+    {
+        return serialNumbers[random.nextInt(serialNumbers.length)];
+    }
+
+    private X509CRL parseCRL()
+        throws Exception
+    {
+        return (X509CRL)certFact.generateCRL(new ByteArrayInputStream(encoding));
+    }
+}
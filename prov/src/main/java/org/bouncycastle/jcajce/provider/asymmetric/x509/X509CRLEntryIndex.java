@@ -0,0 +1,157 @@
+package org.bouncycastle.jcajce.provider.asymmetric.x509;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.util.Integers;
+
+/**
+ * Serial number index over the revoked certificate entries of a CRL.
+ * <p>
+ * Each entry is represented by a single long, holding the hash of the serial number in the upper 32 bits
+ * and the position of the entry in the CRL in the lower 32 bits. The keys are sorted, so a lookup is a
+ * binary search followed by a check of the (usually single) entry with a matching hash. Where several
+ * entries share a serial number (possible in indirect CRLs), the first one in CRL order is found, which
+ * is what a linear scan of the CRL would return.
+ * </p><p>
+ * For indirect CRLs the positions at which the certificateIssuer extension changes the issuer are also
+ * recorded, so the issuer an entry belongs to can be recovered without walking the preceding entries.
+ * </p>
+ */
+class X509CRLEntryIndex
+{
+    private final ASN1Encodable[] entries;
+    private final long[] keys;
+    private final int[] issuerStarts;
+    private final X500Name[] issuerNames;
+
+    private X509CRLEntryIndex(ASN1Encodable[] entries, long[] keys, int[] issuerStarts, X500Name[] issuerNames)
+    {
+        this.entries = entries;
+        this.keys = keys;
+        this.issuerStarts = issuerStarts;
+        this.issuerNames = issuerNames;
+    }
+
+    static X509CRLEntryIndex build(TBSCertList tbsCertList, boolean isIndirect)
+    {
+        long[] keys = new long[16];
+        int count = 0;
+        List entryList = new ArrayList();
+        List starts = new ArrayList();
+        List names = new ArrayList();
+
+        Enumeration certs = tbsCertList.getRevokedCertificateEnumeration();
+        while (certs.hasMoreElements())
+        {
+            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)certs.nextElement();
+
+            if (isIndirect && entry.hasExtensions())
+            {
+                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+
+                if (currentCaName != null)
+                {
+                    starts.add(Integers.valueOf(count));
+                    names.add(X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName()));
+                }
+            }
+
+            keys = appendKey(keys, count, makeKey(entry.getUserCertificate().getValue().hashCode(), count));
+            entryList.add(entry.toASN1Primitive());
+            ++count;
+        }
+
+        ASN1Encodable[] entries = (ASN1Encodable[])entryList.toArray(new ASN1Encodable[count]);
+        if (keys.length != count)
+        {
+            keys = Arrays.copyOf(keys, count);
+        }
+        Arrays.sort(keys);
+
+        int[] issuerStarts = new int[starts.size()];
+        for (int i = 0; i < issuerStarts.length; ++i)
+        {
+            issuerStarts[i] = ((Integer)starts.get(i)).intValue();
+        }
+        X500Name[] issuerNames = (X500Name[])names.toArray(new X500Name[names.size()]);
+
+        return new X509CRLEntryIndex(entries, keys, issuerStarts, issuerNames);
+    }
+
+    /**
+     * Return the position of the first entry revoking the passed in serial number.
+     *
+     * @param serialNumber the serial number to look for.
+     * @return the position of the entry in the CRL, -1 if there is none.
+     */
+    int find(BigInteger serialNumber)
+    {
+        int hash = serialNumber.hashCode();
+
+        int pos = Arrays.binarySearch(keys, makeKey(hash, 0));
+        if (pos < 0)
+        {
+            pos = -(pos + 1);
+        }
+
+        while (pos < keys.length && (int)(keys[pos] >>> 32) == hash)
+        {
+            int index = (int)keys[pos];
+            if (getEntry(index).getUserCertificate().hasValue(serialNumber))
+            {
+                return index;
+            }
+            ++pos;
+        }
+
+        return -1;
+    }
+
+    TBSCertList.CRLEntry getEntry(int index)
+    {
+        return TBSCertList.CRLEntry.getInstance(entries[index]);
+    }
+
+    /**
+     * Return the certificate issuer in force for the entry at the passed in position, taking into account
+     * any certificateIssuer extension on the entry itself.
+     *
+     * @param index the position of the entry in the CRL.
+     * @return the certificate issuer, null if no certificateIssuer extension has been seen up to and
+     * including the entry.
+     */
+    X500Name getCertificateIssuer(int index)
+    {
+        int pos = Arrays.binarySearch(issuerStarts, index);
+        if (pos < 0)
+        {
+            pos = -(pos + 1) - 1;
+        }
+
+        return pos < 0 ? null : issuerNames[pos];
+    }
+
+    private static long[] appendKey(long[] keys, int count, long key)
+    {
+        if (count == keys.length)
+        {
+            keys = Arrays.copyOf(keys, count * 2);
+        }
+        keys[count] = key;
+        return keys;
+    }
+
+    private static long makeKey(int hash, int index)
+    {
+        return ((long)hash << 32) | (index & 0xFFFFFFFFL);
+    }
+}
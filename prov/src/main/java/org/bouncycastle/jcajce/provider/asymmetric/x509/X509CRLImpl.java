@@ -75,6 +75,8 @@
     protected byte[] sigAlgParams;
     protected boolean isIndirect;
 
+    private volatile X509CRLEntryIndex entryIndex;
+
     X509CRLImpl(JcaJceHelper bcHelper, CertificateList c, String sigAlgName, byte[] sigAlgParams, boolean isIndirect)
     {
         this.bcHelper = bcHelper;
@@ -454,30 +456,16 @@ private Set loadCRLEntries()
 
     public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
     {
-        Enumeration certs = c.getRevokedCertificateEnumeration();
+        X509CRLEntryIndex index = getEntryIndex();
 
-        X500Name previousCertificateIssuer = null; // the issuer
-        while (certs.hasMoreElements())
+        int pos = index.find(serialNumber);
+        if (pos < 0)
         {
-            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)certs.nextElement();
-
-            if (entry.getUserCertificate().hasValue(serialNumber))
-            {
-                return new X509CRLEntryObject(entry, isIndirect, previousCertificateIssuer);
-            }
-
-            if (isIndirect && entry.hasExtensions())
-            {
-                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
-
-                if (currentCaName != null)
-                {
-                    previousCertificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                }
-            }
+            return null;
         }
 
-        return null;
+        // the entry picks up its own certificateIssuer extension, so pass the issuer in force before it
+        return new X509CRLEntryObject(index.getEntry(pos), isIndirect, index.getCertificateIssuer(pos - 1));
     }
 
     public Set getRevokedCertificates()
@@ -651,59 +639,54 @@ public boolean isRevoked(Certificate cert)
             throw new IllegalArgumentException("X.509 CRL used with non X.509 Cert");
         }
 
-        Enumeration certs = c.getRevokedCertificateEnumeration();
-
-        X500Name caName = c.getIssuer();
+        X509CRLEntryIndex index = getEntryIndex();
 
-        if (certs.hasMoreElements())
+        int pos = index.find(((X509Certificate)cert).getSerialNumber());
+        if (pos < 0)
         {
-            BigInteger serial = ((X509Certificate)cert).getSerialNumber();
-
-            while (certs.hasMoreElements())
-            {
-                TBSCertList.CRLEntry entry = TBSCertList.CRLEntry.getInstance(certs.nextElement());
-
-                if (isIndirect && entry.hasExtensions())
-                {
-                    Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
-
-                    if (currentCaName != null)
-                    {
-                        caName = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                    }
-                }
-
-                if (entry.getUserCertificate().hasValue(serial))
-                {
-                    X500Name issuer;
+            return false;
+        }
 
-                    if (cert instanceof X509Certificate)
-                    {
-                        issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
-                    }
-                    else
-                    {
-                        try
-                        {
-                            issuer = org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
-                        }
-                        catch (CertificateEncodingException e)
-                        {
-                            throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
-                        }
-                    }
+        X500Name caName = index.getCertificateIssuer(pos);
+        if (caName == null)
+        {
+            caName = c.getIssuer();
+        }
 
-                    if (!caName.equals(issuer))
-                    {
-                        return false;
-                    }
+        X500Name issuer;
 
-                    return true;
-                }
+        if (cert instanceof X509Certificate)
+        {
+            issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
+        }
+        else
+        {
+            try
+            {
+                issuer = org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
+            }
+            catch (CertificateEncodingException e)
+            {
+                throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
             }
         }
 
-        return false;
+        return caName.equals(issuer);
+    }
+
+    /**
+     * Return the serial number index for the revoked certificates on this CRL, building it on first use.
+     * The index is immutable, so it does not matter if concurrent first callers each build their own.
+     */
+    private X509CRLEntryIndex getEntryIndex()
+    {
+        X509CRLEntryIndex index = entryIndex;
+        if (index == null)
+        {
+            index = X509CRLEntryIndex.build(c.getTBSCertList(), isIndirect);
+            entryIndex = index;
+        }
+        return index;
     }
 
     static byte[] getExtensionOctets(CertificateList c, ASN1ObjectIdentifier oid)
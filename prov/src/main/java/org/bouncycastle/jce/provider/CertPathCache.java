@@ -0,0 +1,372 @@
+package org.bouncycastle.jce.provider;
+
+import java.security.PublicKey;
+import java.security.cert.CertPath;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.jcajce.PKIXExtendedBuilderParameters;
+import org.bouncycastle.jcajce.PKIXExtendedParameters;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Properties;
+
+/**
+ * Caches of successful certificate signature verifications and of built certification paths, for
+ * applications which validate the same few chains over and over again. Both caches are off by default.
+ * <p>
+ * A signature verification is keyed by the issuer public key, a hash of the encoding of the subject
+ * certificate, and the signature algorithm, so it is only reused for exactly the same certificate and key.
+ * Only the signature check is skipped; the rest of path validation is carried out as usual.
+ * </p>
+ * <p>
+ * A built path is keyed by the target certificate, the trust anchors, and whether revocation checking is
+ * enabled. The trust anchors are compared as a set of TrustAnchor objects, so a path is only found again
+ * when the same anchors are passed in. A cached path is always validated again before it is returned, so
+ * the validity date and revocation checking of each build still apply - what is saved is the search for
+ * the path and, with the signature cache, the signature checks.
+ * </p>
+ * <p>
+ * Entries are dropped once any certificate they depend on has expired, or after a maximum time to live,
+ * and the number of entries in each cache is bounded. The caches are configured with the properties below.
+ * </p>
+ * <ul>
+ * <li>org.bouncycastle.pkix.signature_cache_size - maximum number of verified signatures held (default 0, disabled).</li>
+ * <li>org.bouncycastle.pkix.path_cache_size - maximum number of built paths held (default 0, disabled).</li>
+ * <li>org.bouncycastle.pkix.cache_max_ttl - maximum time, in seconds, an entry is held (default 3600).</li>
+ * </ul>
+ */
+class CertPathCache
+{
+    static final String SIGNATURE_CACHE_SIZE = "org.bouncycastle.pkix.signature_cache_size";
+    static final String PATH_CACHE_SIZE = "org.bouncycastle.pkix.path_cache_size";
+    static final String CACHE_MAX_TTL = "org.bouncycastle.pkix.cache_max_ttl";
+
+    private static final int DEFAULT_CACHE_MAX_TTL = 60 * 60;
+
+    private static final ConcurrentMap<SignatureKey, Entry> signatures = new ConcurrentHashMap<SignatureKey, Entry>();
+    private static final ConcurrentMap<PathKey, PathEntry> paths = new ConcurrentHashMap<PathKey, PathEntry>();
+
+    /**
+     * Return a key for the verification of cert's signature with publicKey, or null if signature caching
+     * is disabled or the certificate or key cannot be encoded.
+     */
+    static Object getSignatureKey(X509Certificate cert, PublicKey publicKey)
+    {
+        if (Properties.asInteger(SIGNATURE_CACHE_SIZE, 0) < 1)
+        {
+            return null;
+        }
+
+        byte[] keyEnc = publicKey.getEncoded();
+        if (keyEnc == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return new SignatureKey(keyEnc, hash(cert), cert.getSigAlgOID());
+        }
+        catch (CertificateEncodingException e)
+        {
+            return null;
+        }
+    }
+
+    static boolean isSignatureVerified(Object signatureKey)
+    {
+        Entry entry = signatures.get(signatureKey);
+        if (entry != null)
+        {
+            if (System.currentTimeMillis() < entry.expiresAt)
+            {
+                return true;
+            }
+
+            signatures.remove(signatureKey, entry);
+        }
+
+        return false;
+    }
+
+    static void signatureVerified(Object signatureKey, X509Certificate cert)
+    {
+        int cacheSize = Properties.asInteger(SIGNATURE_CACHE_SIZE, 0);
+        if (cacheSize < 1)
+        {
+            return;
+        }
+
+        store(signatures, (SignatureKey)signatureKey, new Entry(expiresAt(cert.getNotAfter().getTime())), cacheSize);
+    }
+
+    /**
+     * Return a previously built path for target, or null if there isn't one which could satisfy the
+     * builder parameters. The path returned still needs to be validated.
+     */
+    static CertPath getPath(X509Certificate target, PKIXExtendedBuilderParameters pkixParams, boolean isForCRLCheck)
+    {
+        if (Properties.asInteger(PATH_CACHE_SIZE, 0) < 1)
+        {
+            return null;
+        }
+
+        PathKey key = getPathKey(target, pkixParams.getBaseParameters(), isForCRLCheck);
+        if (key == null)
+        {
+            return null;
+        }
+
+        PathEntry entry = paths.get(key);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.expiresAt)
+        {
+            paths.remove(key, entry);
+            return null;
+        }
+
+        List certs = entry.certPath.getCertificates();
+
+        // the same limits as the builder applies to the paths it searches
+        if (pkixParams.getMaxPathLength() != -1 && certs.size() - 2 > pkixParams.getMaxPathLength())
+        {
+            return null;
+        }
+        for (Iterator it = certs.iterator(); it.hasNext();)
+        {
+            if (pkixParams.getExcludedCerts().contains(it.next()))
+            {
+                return null;
+            }
+        }
+
+        return entry.certPath;
+    }
+
+    static void storePath(X509Certificate target, PKIXExtendedBuilderParameters pkixParams, boolean isForCRLCheck,
+        CertPath certPath)
+    {
+        int cacheSize = Properties.asInteger(PATH_CACHE_SIZE, 0);
+        if (cacheSize < 1)
+        {
+            return;
+        }
+
+        PathKey key = getPathKey(target, pkixParams.getBaseParameters(), isForCRLCheck);
+        if (key == null)
+        {
+            return;
+        }
+
+        long notAfter = Long.MAX_VALUE;
+        for (Iterator it = certPath.getCertificates().iterator(); it.hasNext();)
+        {
+            notAfter = Math.min(notAfter, ((X509Certificate)it.next()).getNotAfter().getTime());
+        }
+
+        store(paths, key, new PathEntry(certPath, expiresAt(notAfter)), cacheSize);
+    }
+
+    static void removePath(X509Certificate target, PKIXExtendedBuilderParameters pkixParams, boolean isForCRLCheck,
+        CertPath certPath)
+    {
+        PathKey key = getPathKey(target, pkixParams.getBaseParameters(), isForCRLCheck);
+        if (key != null)
+        {
+            PathEntry entry = paths.get(key);
+            if (entry != null && entry.certPath == certPath)
+            {
+                paths.remove(key, entry);
+            }
+        }
+    }
+
+    private static PathKey getPathKey(X509Certificate target, PKIXExtendedParameters baseParams, boolean isForCRLCheck)
+    {
+        try
+        {
+            return new PathKey(hash(target), baseParams.getTrustAnchors(), baseParams.isRevocationEnabled(),
+                isForCRLCheck);
+        }
+        catch (CertificateEncodingException e)
+        {
+            return null;
+        }
+    }
+
+    private static long expiresAt(long notAfter)
+    {
+        long maxTtl = Properties.asInteger(CACHE_MAX_TTL, DEFAULT_CACHE_MAX_TTL) * 1000L;
+
+        return Math.min(notAfter, System.currentTimeMillis() + maxTtl);
+    }
+
+    private static byte[] hash(X509Certificate cert)
+        throws CertificateEncodingException
+    {
+        byte[] enc = cert.getEncoded();
+
+        Digest digest = new SHA256Digest();
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.update(enc, 0, enc.length);
+        digest.doFinal(hash, 0);
+
+        return hash;
+    }
+
+    private static <K, V extends Entry> void store(ConcurrentMap<K, V> cache, K key, V entry, int cacheSize)
+    {
+        cache.put(key, entry);
+
+        if (cache.size() > cacheSize)
+        {
+            evict(cache, key, cacheSize);
+        }
+    }
+
+    private static synchronized <K, V extends Entry> void evict(ConcurrentMap<K, V> cache, K latest, int cacheSize)
+    {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Map.Entry<K, V>> it = cache.entrySet().iterator(); it.hasNext();)
+        {
+            if (now >= it.next().getValue().expiresAt)
+            {
+                it.remove();
+            }
+        }
+
+        // then drop whatever would expire soonest, other than the entry just added
+        while (cache.size() > cacheSize)
+        {
+            Map.Entry<K, V> soonest = null;
+            for (Iterator<Map.Entry<K, V>> it = cache.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry<K, V> next = it.next();
+                if (next.getKey().equals(latest))
+                {
+                    continue;
+                }
+                if (soonest == null || next.getValue().expiresAt < soonest.getValue().expiresAt)
+                {
+                    soonest = next;
+                }
+            }
+            if (soonest == null)
+            {
+                break;
+            }
+            cache.remove(soonest.getKey(), soonest.getValue());
+        }
+    }
+
+    private static final class SignatureKey
+    {
+        private final byte[] publicKey;
+        private final byte[] certHash;
+        private final String sigAlgOID;
+        private final int hashCode;
+
+        SignatureKey(byte[] publicKey, byte[] certHash, String sigAlgOID)
+        {
+            this.publicKey = publicKey;
+            this.certHash = certHash;
+            this.sigAlgOID = sigAlgOID;
+            this.hashCode = (Arrays.hashCode(publicKey) * 31 + Arrays.hashCode(certHash)) * 31
+                + (sigAlgOID == null ? 0 : sigAlgOID.hashCode());
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof SignatureKey))
+            {
+                return false;
+            }
+
+            SignatureKey other = (SignatureKey)o;
+            return Arrays.areEqual(certHash, other.certHash) && Arrays.areEqual(publicKey, other.publicKey)
+                && (sigAlgOID == null ? other.sigAlgOID == null : sigAlgOID.equals(other.sigAlgOID));
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    private static final class PathKey
+    {
+        private final byte[] targetHash;
+        private final Set trustAnchors;
+        private final boolean revocationEnabled;
+        private final boolean isForCRLCheck;
+
+        PathKey(byte[] targetHash, Set trustAnchors, boolean revocationEnabled, boolean isForCRLCheck)
+        {
+            this.targetHash = targetHash;
+            this.trustAnchors = trustAnchors;
+            this.revocationEnabled = revocationEnabled;
+            this.isForCRLCheck = isForCRLCheck;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof PathKey))
+            {
+                return false;
+            }
+
+            PathKey other = (PathKey)o;
+            return revocationEnabled == other.revocationEnabled && isForCRLCheck == other.isForCRLCheck
+                && Arrays.areEqual(targetHash, other.targetHash) && trustAnchors.equals(other.trustAnchors);
+        }
+
+        public int hashCode()
+        {
+            // the anchors are left out, hashing a large set on every lookup would cost more than it saves
+            return Arrays.hashCode(targetHash) * 4 + (revocationEnabled ? 2 : 0) + (isForCRLCheck ? 1 : 0);
+        }
+    }
+
+    private static class Entry
+    {
+        final long expiresAt;
+
+        Entry(long expiresAt)
+        {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class PathEntry
+        extends Entry
+    {
+        final CertPath certPath;
+
+        PathEntry(CertPath certPath, long expiresAt)
+        {
+            super(expiresAt);
+            this.certPath = certPath;
+        }
+    }
+}
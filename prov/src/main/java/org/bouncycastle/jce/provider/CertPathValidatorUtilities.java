@@ -1384,6 +1384,12 @@ static Collection findIssuerCerts(
     protected static void verifyX509Certificate(X509Certificate cert, PublicKey publicKey, String sigProvider)
         throws GeneralSecurityException
     {
+        Object signatureKey = CertPathCache.getSignatureKey(cert, publicKey);
+        if (signatureKey != null && CertPathCache.isSignatureVerified(signatureKey))
+        {
+            return;
+        }
+
         if (sigProvider == null)
         {
             cert.verify(publicKey);
@@ -1392,6 +1398,11 @@ protected static void verifyX509Certificate(X509Certificate cert, PublicKey publ
         {
             cert.verify(publicKey, sigProvider);
         }
+
+        if (signatureKey != null)
+        {
+            CertPathCache.signatureVerified(signatureKey, cert);
+        }
     }
 
     static void checkCRLsNotEmpty(PKIXCertRevocationCheckerParameters params, Set crls, Object cert)
@@ -3,7 +3,6 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -12,12 +11,20 @@
 import java.security.cert.Extension;
 import java.security.cert.X509Certificate;
 import java.text.ParseException;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bouncycastle.asn1.ASN1EncodableVector;
 import org.bouncycastle.asn1.ASN1GeneralizedTime;
@@ -39,15 +46,41 @@
 import org.bouncycastle.asn1.x509.Extensions;
 import org.bouncycastle.jcajce.PKIXCertRevocationCheckerParameters;
 import org.bouncycastle.jcajce.util.JcaJceHelper;
+import org.bouncycastle.util.Properties;
 import org.bouncycastle.util.io.Streams;
 
+/**
+ * Cache of OCSP responses, keyed by responder and CertID.
+ * <p>
+ * A response is kept until the nextUpdate of its entry for the CertID, capped by a maximum time to live, and
+ * the number of responses held is bounded; both are configurable with the properties below. Concurrent
+ * requests for the same responder and CertID share a single fetch (requests carrying a nonce are always sent
+ * on their own). Optionally, a response that is used within a configurable period before it expires is
+ * refreshed in the background, so validations do not stall waiting for the responder.
+ * </p>
+ * <ul>
+ * <li>org.bouncycastle.ocsp.cache_size - maximum number of responses held (default 1000, 0 disables caching).</li>
+ * <li>org.bouncycastle.ocsp.cache_max_ttl - maximum time, in seconds, a response is held (default 86400).</li>
+ * <li>org.bouncycastle.ocsp.refresh_ahead - period, in seconds, before expiry in which a used response is
+ * refreshed in the background (default 0, disabled).</li>
+ * </ul>
+ */
 class OcspCache
 {
+    static final String CACHE_SIZE = "org.bouncycastle.ocsp.cache_size";
+    static final String CACHE_MAX_TTL = "org.bouncycastle.ocsp.cache_max_ttl";
+    static final String REFRESH_AHEAD = "org.bouncycastle.ocsp.refresh_ahead";
+
     private static final int DEFAULT_TIMEOUT = 15000;
     private static final int DEFAULT_MAX_RESPONSE_SIZE = 32 * 1024;
 
-    private static Map<URI, WeakReference<Map<CertID, OCSPResponse>>> cache
-        = Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<Map<CertID, OCSPResponse>>>());
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final int DEFAULT_CACHE_MAX_TTL = 24 * 60 * 60;
+
+    private static final ConcurrentMap<Key, Entry> cache = new ConcurrentHashMap<Key, Entry>();
+    private static final ConcurrentMap<Key, FutureTask<Entry>> pending = new ConcurrentHashMap<Key, FutureTask<Entry>>();
+
+    private static ThreadPoolExecutor refreshExecutor;
 
     static OCSPResponse getOcspResponse(
         CertID certID, PKIXCertRevocationCheckerParameters parameters,
@@ -55,33 +88,186 @@ static OCSPResponse getOcspResponse(
         JcaJceHelper helper)
         throws CertPathValidatorException
     {
-        Map<CertID, OCSPResponse> responseMap = null;
+        Key key = new Key(ocspResponder, certID);
+
+        Entry entry = cache.get(key);
+        if (entry != null)
+        {
+            long now = System.currentTimeMillis();
+
+            if (now < entry.expiresAt && isCertIDFoundAndCurrent(entry.basicResp, parameters.getValidDate(), certID))
+            {
+                if (now >= entry.refreshAt && entry.startRefresh())
+                {
+                    scheduleRefresh(new Fetch(key, parameters, responderCert, ocspExtensions, helper));
+                }
+                return entry.response;
+            }
+
+            cache.remove(key, entry);
+        }
+
+        Fetch fetch = new Fetch(key, parameters, responderCert, ocspExtensions, helper);
+
+        // a nonce asks for a fresh response, so don't share someone else's
+        if (fetch.hasNonce())
+        {
+            return fetch.call().response;
+        }
+
+        return fetchShared(fetch).response;
+    }
+
+    private static Entry fetchShared(Fetch fetch)
+        throws CertPathValidatorException
+    {
+        FutureTask<Entry> task = new FutureTask<Entry>(fetch);
+
+        FutureTask<Entry> existing = pending.putIfAbsent(fetch.key, task);
+        if (existing == null)
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                pending.remove(fetch.key, task);
+            }
+        }
+        else
+        {
+            task = existing;
+        }
+
+        PKIXCertRevocationCheckerParameters parameters = fetch.parameters;
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CertPathValidatorException("interrupted waiting for OCSP response",
+                e, parameters.getCertPath(), parameters.getIndex());
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof CertPathValidatorException)
+            {
+                if (existing == null)
+                {
+                    throw (CertPathValidatorException)cause;
+                }
+                // the failure was reported against another validation's path
+                throw new CertPathValidatorException(cause.getMessage(),
+                    cause.getCause(), parameters.getCertPath(), parameters.getIndex());
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new CertPathValidatorException("unable to fetch OCSP response: " + cause.getMessage(),
+                cause, parameters.getCertPath(), parameters.getIndex());
+        }
+    }
+
+    private static synchronized void scheduleRefresh(final Fetch fetch)
+    {
+        if (refreshExecutor == null)
+        {
+            refreshExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "BC OCSP refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            refreshExecutor.allowCoreThreadTimeOut(true);
+        }
 
-        WeakReference<Map<CertID, OCSPResponse>> markerRef = cache.get(ocspResponder);
-        if (markerRef != null)
+        refreshExecutor.execute(new Runnable()
         {
-            responseMap = markerRef.get();
+            public void run()
+            {
+                try
+                {
+                    fetchShared(fetch);
+                }
+                catch (Exception e)
+                {
+                    // the current response stays in use until it expires
+                }
+            }
+        });
+    }
+
+    private static void store(Key key, Entry entry)
+    {
+        int cacheSize = Properties.asInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        if (cacheSize < 1)
+        {
+            return;
         }
 
-        if (responseMap != null)
+        cache.put(key, entry);
+
+        if (cache.size() > cacheSize)
+        {
+            evict(key, cacheSize);
+        }
+    }
+
+    private static synchronized void evict(Key latest, int cacheSize)
+    {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator(); it.hasNext();)
         {
-            OCSPResponse response = responseMap.get(certID);
-            if (response != null)
+            if (now >= it.next().getValue().expiresAt)
             {
-                BasicOCSPResponse basicResp = BasicOCSPResponse.getInstance(
-                    ASN1OctetString.getInstance(response.getResponseBytes().getResponse()).getOctets());
+                it.remove();
+            }
+        }
 
-                boolean matchFound = isCertIDFoundAndCurrent(basicResp, parameters.getValidDate(), certID);
-                if (matchFound)
+        // then drop whatever would expire soonest, other than the response just added
+        while (cache.size() > cacheSize)
+        {
+            Map.Entry<Key, Entry> soonest = null;
+            for (Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry<Key, Entry> next = it.next();
+                if (next.getKey().equals(latest))
                 {
-                    return response;
+                    continue;
                 }
-                else
+                if (soonest == null || next.getValue().expiresAt < soonest.getValue().expiresAt)
                 {
-                    responseMap.remove(certID);
+                    soonest = next;
                 }
             }
+            if (soonest == null)
+            {
+                break;
+            }
+            cache.remove(soonest.getKey(), soonest.getValue());
         }
+    }
+
+    private static OCSPResponse fetchResponse(Key key, PKIXCertRevocationCheckerParameters parameters,
+        X509Certificate responderCert, List<Extension> ocspExtensions, JcaJceHelper helper)
+        throws CertPathValidatorException
+    {
+        URI ocspResponder = key.ocspResponder;
+        CertID certID = key.certID;
 
         URL ocspUrl;
         try
@@ -179,23 +365,6 @@ static OCSPResponse getOcspResponse(
                         "OCSP response failed to validate", null, parameters.getCertPath(), parameters.getIndex());
                 }
 
-                markerRef = cache.get(ocspResponder);
-                if (markerRef != null)
-                {
-                    responseMap = markerRef.get();
-                }
-
-                if (responseMap != null)
-                {
-                    responseMap.put(certID, response);
-                }
-                else
-                {
-                    responseMap = new HashMap<CertID, OCSPResponse>();
-                    responseMap.put(certID, response);
-                    cache.put(ocspResponder, new WeakReference<Map<CertID, OCSPResponse>>(responseMap));
-                }
-
                 return response;
             }
             else
@@ -243,4 +412,146 @@ private static boolean isCertIDFoundAndCurrent(BasicOCSPResponse basicResp, Date
 
         return false;
     }
+
+    private static Date getNextUpdate(BasicOCSPResponse basicResp, CertID certID)
+    {
+        ResponseData responseData = ResponseData.getInstance(basicResp.getTbsResponseData());
+        ASN1Sequence s = responseData.getResponses();
+
+        for (int i = 0; i != s.size(); i++)
+        {
+            SingleResponse resp = SingleResponse.getInstance(s.getObjectAt(i));
+
+            if (certID.equals(resp.getCertID()) && resp.getNextUpdate() != null)
+            {
+                try
+                {
+                    return resp.getNextUpdate().getDate();
+                }
+                catch (ParseException e)
+                {
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static final class Key
+    {
+        final URI ocspResponder;
+        final CertID certID;
+
+        Key(URI ocspResponder, CertID certID)
+        {
+            this.ocspResponder = ocspResponder;
+            this.certID = certID;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+
+            Key other = (Key)o;
+            return ocspResponder.equals(other.ocspResponder) && certID.equals(other.certID);
+        }
+
+        public int hashCode()
+        {
+            return ocspResponder.hashCode() * 31 + certID.hashCode();
+        }
+    }
+
+    private static final class Entry
+    {
+        final OCSPResponse response;
+        final BasicOCSPResponse basicResp;
+        final long expiresAt;
+        final long refreshAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(OCSPResponse response, BasicOCSPResponse basicResp, long expiresAt, long refreshAt)
+        {
+            this.response = response;
+            this.basicResp = basicResp;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+
+        /**
+         * Only one refresh is attempted per entry; if it fails the entry is replaced once it expires.
+         */
+        boolean startRefresh()
+        {
+            return refreshing.compareAndSet(false, true);
+        }
+    }
+
+    private static final class Fetch
+        implements Callable<Entry>
+    {
+        final Key key;
+        final PKIXCertRevocationCheckerParameters parameters;
+        final X509Certificate responderCert;
+        final List<Extension> ocspExtensions;
+        final JcaJceHelper helper;
+
+        Fetch(Key key, PKIXCertRevocationCheckerParameters parameters, X509Certificate responderCert,
+            List<Extension> ocspExtensions, JcaJceHelper helper)
+        {
+            this.key = key;
+            this.parameters = parameters;
+            this.responderCert = responderCert;
+            this.ocspExtensions = ocspExtensions;
+            this.helper = helper;
+        }
+
+        boolean hasNonce()
+        {
+            for (int i = 0; i != ocspExtensions.size(); i++)
+            {
+                if (OCSPObjectIdentifiers.id_pkix_ocsp_nonce.getId().equals(ocspExtensions.get(i).getId()))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Entry call()
+            throws CertPathValidatorException
+        {
+            OCSPResponse response = fetchResponse(key, parameters, responderCert, ocspExtensions, helper);
+
+            BasicOCSPResponse basicResp = BasicOCSPResponse.getInstance(
+                ASN1OctetString.getInstance(response.getResponseBytes().getResponse()).getOctets());
+
+            long now = System.currentTimeMillis();
+            long expiresAt = now + 1000L * Properties.asInteger(CACHE_MAX_TTL, DEFAULT_CACHE_MAX_TTL);
+
+            Date nextUpdate = getNextUpdate(basicResp, key.certID);
+            if (nextUpdate != null && nextUpdate.getTime() < expiresAt)
+            {
+                expiresAt = nextUpdate.getTime();
+            }
+
+            long refreshAhead = 1000L * Properties.asInteger(REFRESH_AHEAD, 0);
+            long refreshAt = refreshAhead > 0 ? expiresAt - refreshAhead : Long.MAX_VALUE;
+
+            Entry entry = new Entry(response, basicResp, expiresAt, refreshAt);
+
+            store(key, entry);
+
+            return entry;
+        }
+    }
 }
@@ -116,7 +116,15 @@ else if (params instanceof PKIXExtendedBuilderParameters)
         while (targetIter.hasNext() && result == null)
         {
             cert = (X509Certificate) targetIter.next();
-            result = build(cert, paramsPKIX, certPathList);
+            result = buildFromCache(cert, paramsPKIX);
+            if (result == null)
+            {
+                result = build(cert, paramsPKIX, certPathList);
+                if (result != null)
+                {
+                    CertPathCache.storePath(cert, paramsPKIX, isForCRLCheck, result.getCertPath());
+                }
+            }
         }
 
         if (result == null && certPathException != null)
@@ -141,6 +149,34 @@ else if (params instanceof PKIXExtendedBuilderParameters)
 
     private Exception certPathException;
 
+    /**
+     * Validate a path previously built for tbvCert against the current parameters, returning null if there
+     * isn't one or it no longer validates.
+     */
+    private CertPathBuilderResult buildFromCache(X509Certificate tbvCert, PKIXExtendedBuilderParameters pkixParams)
+    {
+        CertPath certPath = CertPathCache.getPath(tbvCert, pkixParams, isForCRLCheck);
+        if (certPath == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            PKIXCertPathValidatorResult result = (PKIXCertPathValidatorResult)new PKIXCertPathValidatorSpi_8(isForCRLCheck)
+                .engineValidate(certPath, pkixParams);
+
+            return new PKIXCertPathBuilderResult(certPath, result.getTrustAnchor(), result.getPolicyTree(),
+                result.getPublicKey());
+        }
+        catch (Exception e)
+        {
+            // build the path afresh, and report any failure from that
+            CertPathCache.removePath(tbvCert, pkixParams, isForCRLCheck, certPath);
+            return null;
+        }
+    }
+
     protected CertPathBuilderResult build(X509Certificate tbvCert,
         PKIXExtendedBuilderParameters pkixParams, List tbvPath)
     {
@@ -0,0 +1,214 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathBuilder;
+import java.security.cert.CertPathBuilderException;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.PKIXBuilderParameters;
+import java.security.cert.PKIXCertPathBuilderResult;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Checks the optional caches of verified signatures and built paths used by the PKIX builder and validator.
+ */
+public class CertPathCacheTest
+    extends SimpleTest
+{
+    private static final String SIGNATURE_CACHE_SIZE = "org.bouncycastle.pkix.signature_cache_size";
+    private static final String PATH_CACHE_SIZE = "org.bouncycastle.pkix.path_cache_size";
+
+    private X509Certificate rootCert;
+    private X509Certificate interCert;
+    private X509Certificate endCert;
+
+    public String getName()
+    {
+        return "CertPathCache";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        KeyPair rootPair = TestUtils.generateRSAKeyPair();
+        KeyPair interPair = TestUtils.generateRSAKeyPair();
+        KeyPair endPair = TestUtils.generateRSAKeyPair();
+
+        rootCert = TestUtils.generateRootCert(rootPair);
+        interCert = TestUtils.generateIntermediateCert(interPair.getPublic(), rootPair.getPrivate(), rootCert);
+        endCert = TestUtils.generateEndEntityCert(endPair.getPublic(), interPair.getPrivate(), interCert);
+
+        System.setProperty(SIGNATURE_CACHE_SIZE, "100");
+        System.setProperty(PATH_CACHE_SIZE, "100");
+        try
+        {
+            signatureCacheTest();
+            pathCacheTest();
+            pathCacheRevocationTest();
+            pathCacheValidityTest();
+        }
+        finally
+        {
+            System.clearProperty(SIGNATURE_CACHE_SIZE);
+            System.clearProperty(PATH_CACHE_SIZE);
+        }
+    }
+
+    private void signatureCacheTest()
+        throws Exception
+    {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509", "BC");
+        CertPathValidator validator = CertPathValidator.getInstance("PKIX", "BC");
+
+        List certs = new ArrayList();
+        certs.add(endCert);
+        certs.add(interCert);
+
+        PKIXParameters params = new PKIXParameters(Collections.singleton(new TrustAnchor(rootCert, null)));
+        params.setRevocationEnabled(false);
+
+        validator.validate(cf.generateCertPath(certs), params);
+        validator.validate(cf.generateCertPath(certs), params);
+
+        // a verified signature must not be reused for a certificate with different contents
+        byte[] enc = endCert.getEncoded();
+        enc[enc.length - 1] ^= 1;
+        X509Certificate forged = (X509Certificate)cf.generateCertificate(new ByteArrayInputStream(enc));
+
+        certs.set(0, forged);
+        try
+        {
+            validator.validate(cf.generateCertPath(certs), params);
+            fail("forged signature accepted");
+        }
+        catch (CertPathValidatorException e)
+        {
+            // expected
+        }
+    }
+
+    private void pathCacheTest()
+        throws Exception
+    {
+        Set trust = Collections.singleton(new TrustAnchor(rootCert, null));
+
+        CertPath path = build(trust, makeStore(), false, new Date());
+
+        isEquals(2, path.getCertificates().size());
+
+        // the stores no longer hold the intermediate, so this can only succeed using the cached path
+        CertPath cached = build(trust, makeEndEntityStore(), false, new Date());
+
+        isTrue("cached path not used", path.equals(cached));
+
+        // a different set of trust anchors must not see the path
+        try
+        {
+            build(Collections.singleton(new TrustAnchor(rootCert, null)), makeEndEntityStore(), false, new Date());
+            fail("path found for other trust anchors");
+        }
+        catch (CertPathBuilderException e)
+        {
+            // expected
+        }
+    }
+
+    private void pathCacheRevocationTest()
+        throws Exception
+    {
+        Set trust = Collections.singleton(new TrustAnchor(rootCert, null));
+
+        build(trust, makeStore(), false, new Date());
+
+        // no CRLs are available, so with revocation checking on the path must not validate
+        try
+        {
+            build(trust, makeStore(), true, new Date());
+            fail("path built without revocation check");
+        }
+        catch (CertPathBuilderException e)
+        {
+            // expected
+        }
+    }
+
+    private void pathCacheValidityTest()
+        throws Exception
+    {
+        Set trust = Collections.singleton(new TrustAnchor(rootCert, null));
+
+        build(trust, makeStore(), false, new Date());
+
+        try
+        {
+            build(trust, makeStore(), false, new Date(endCert.getNotAfter().getTime() + 24 * 60 * 60 * 1000L));
+            fail("cached path used after expiry");
+        }
+        catch (CertPathBuilderException e)
+        {
+            // expected
+        }
+    }
+
+    private CertPath build(Set trust, CertStore store, boolean revocationEnabled, Date date)
+        throws Exception
+    {
+        CertPathBuilder builder = CertPathBuilder.getInstance("PKIX", "BC");
+        X509CertSelector pathConstraints = new X509CertSelector();
+
+        pathConstraints.setCertificate(endCert);
+
+        PKIXBuilderParameters buildParams = new PKIXBuilderParameters(trust, pathConstraints);
+
+        buildParams.addCertStore(store);
+        buildParams.setDate(date);
+        buildParams.setRevocationEnabled(revocationEnabled);
+
+        return ((PKIXCertPathBuilderResult)builder.build(buildParams)).getCertPath();
+    }
+
+    private CertStore makeStore()
+        throws Exception
+    {
+        List list = new ArrayList();
+
+        list.add(interCert);
+        list.add(endCert);
+
+        return CertStore.getInstance("Collection", new CollectionCertStoreParameters(list), "BC");
+    }
+
+    private CertStore makeEndEntityStore()
+        throws Exception
+    {
+        List list = new ArrayList();
+
+        list.add(endCert);
+
+        return CertStore.getInstance("Collection", new CollectionCertStoreParameters(list), "BC");
+    }
+
+    public static void main(String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new CertPathCacheTest());
+    }
+}
@@ -55,6 +55,7 @@
         new CertStoreTest(),
         new CertPathValidatorTest(),
         new CertPathBuilderTest(),
+        new CertPathCacheTest(),
         new ECEncodingTest(),
         new AlgorithmParametersTest(),
         new NISTCertPathTest(),
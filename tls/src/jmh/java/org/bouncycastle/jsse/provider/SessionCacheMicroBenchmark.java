@@ -0,0 +1,145 @@
+package org.bouncycastle.jsse.provider;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+
+import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SessionParameters;
+import org.bouncycastle.tls.TlsSession;
+import org.bouncycastle.tls.TlsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures session cache throughput with many threads sharing one server session context: resumption
+ * lookups by session ID and by peer, and a mix of lookups with new sessions being added (and older ones
+ * evicted) as a busy server would see. Use -t to vary the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class SessionCacheMicroBenchmark
+{
+    private static final int PORT = 443;
+
+    @Param({"1000", "20480"})
+    private int cacheSize;
+
+    private ProvSSLSessionContext sessionContext;
+    private SessionParameters sessionParameters;
+    private byte[][] sessionIDs;
+    private String[] peerHosts;
+
+    private final AtomicLong nextSession = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class ThreadState
+    {
+        private int seed;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            seed = new SecureRandom().nextInt() | 1;
+        }
+
+        int nextInt(int bound)
+        {
+            // xorshift, cheap enough not to dominate the lookups being measured
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return (seed & 0x7FFFFFFF) % bound;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+        throws Exception
+    {
+        SSLContext sslContext = SSLContext.getInstance("TLS", new BouncyCastleJsseProvider());
+        sslContext.init(null, null, new SecureRandom());
+
+        sessionContext = (ProvSSLSessionContext)sslContext.getServerSessionContext();
+        sessionContext.setSessionCacheSize(cacheSize);
+
+        sessionParameters = new SessionParameters.Builder()
+            .setCipherSuite(CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256)
+            .setMasterSecret(sessionContext.getCrypto().createSecret(new byte[48]))
+            .setNegotiatedVersion(ProtocolVersion.TLSv12)
+            .build();
+
+        sessionIDs = new byte[cacheSize][];
+        peerHosts = new String[cacheSize];
+        for (int i = 0; i < cacheSize; ++i)
+        {
+            sessionIDs[i] = makeSessionID(nextSession.getAndIncrement());
+            peerHosts[i] = "host" + i + ".example.com";
+
+            reportSession(peerHosts[i], sessionIDs[i]);
+        }
+    }
+
+    @Benchmark
+    public Object getSessionByID(ThreadState state)
+    {
+        return sessionContext.getSessionImpl(sessionIDs[state.nextInt(cacheSize)]);
+    }
+
+    @Benchmark
+    public Object getSessionByPeer(ThreadState state)
+    {
+        return sessionContext.getSessionImpl(peerHosts[state.nextInt(cacheSize)], PORT);
+    }
+
+    /**
+     * One new session for every fifteen lookups, so the cache is kept at its size limit and evicts.
+     */
+    @Benchmark
+    public Object getOrReportSession(ThreadState state)
+    {
+        int i = state.nextInt(16 * cacheSize);
+        if (i < cacheSize)
+        {
+            return reportSession(peerHosts[i], makeSessionID(nextSession.getAndIncrement()));
+        }
+        return sessionContext.getSessionImpl(sessionIDs[i % cacheSize]);
+    }
+
+    private ProvSSLSession reportSession(String peerHost, byte[] sessionID)
+    {
+        TlsSession tlsSession = TlsUtils.importSession(sessionID, sessionParameters);
+
+        return sessionContext.reportSession(peerHost, PORT, tlsSession, null, true);
+    }
+
+    private static byte[] makeSessionID(long n)
+    {
+        byte[] sessionID = new byte[32];
+        for (int i = 0; i < 8; ++i)
+        {
+            sessionID[i] = (byte)(n >>> (i << 3));
+        }
+        sessionID[31] = 1;
+        return sessionID;
+    }
+}
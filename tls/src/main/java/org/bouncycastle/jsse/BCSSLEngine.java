@@ -31,6 +31,30 @@
 
     String getHandshakeApplicationProtocol();
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * <p>
+     * Set application data to send as TLS 1.3 early data (0-RTT) in the client's first flight, if a
+     * session ticket allowing early data is available for the peer. Must be called before the handshake
+     * begins. Early data can be replayed by an attacker, so it should only be used for idempotent
+     * requests. Use {@link #isEarlyDataAccepted()} to find out whether it needs to be sent again.
+     * </p>
+     *
+     * @param earlyData
+     *            the application data to send as early data, or null for none.
+     */
+    void setEarlyData(byte[] earlyData);
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * <p>
+     * Returns whether early data was accepted in the current (or most recent) handshake.
+     * </p>
+     *
+     * @return true if the server accepted the client's early data.
+     */
+    boolean isEarlyDataAccepted();
+
     /**
      * Returns a {@link BCSSLParameters} with properties reflecting the current configuration.
      * @return the current {@link BCSSLParameters parameters}
@@ -31,6 +31,7 @@
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.TlsProtocol;
 import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.util.Arrays;
 
 /*
  * TODO[jsse] Known limitations (relative to SSLEngine javadoc): 1. The wrap() and unwrap() methods
@@ -51,6 +52,7 @@
     protected boolean useClientMode = true;
     protected boolean useClientModeSet = false;
 
+    protected byte[] earlyData = null;
     protected boolean closedEarly = false;
     protected boolean initialHandshakeBegun = false;
     protected boolean returnedFinished = false;
@@ -61,6 +63,11 @@
 
     protected SSLException deferredException = null;
 
+    private final byte[] recordHeader = new byte[RecordFormat.FRAGMENT_OFFSET];
+
+    // For application data records gathered from several source buffers (allocated on first use)
+    private byte[] gatherBuffer = null;
+
     protected ProvSSLEngine(ContextData contextData)
     {
         this(contextData, null, -1);
@@ -106,6 +113,7 @@ public synchronized void beginHandshake()
                 this.protocol = clientProtocol;
 
                 ProvTlsClient client = new ProvTlsClient(this, sslParameters);
+                client.setEarlyData(earlyData);
                 this.protocolPeer = client;
 
                 clientProtocol.connect(client);
@@ -225,6 +233,27 @@ public synchronized BCApplicationProtocolSelector<SSLEngine> getBCHandshakeAppli
         return sslParameters.getEngineAPSelector();
     }
 
+    public synchronized void setEarlyData(byte[] earlyData)
+    {
+        if (initialHandshakeBegun)
+        {
+            throw new IllegalStateException("Handshake has already begun");
+        }
+
+        this.earlyData = Arrays.clone(earlyData);
+    }
+
+    public synchronized boolean isEarlyDataAccepted()
+    {
+        if (null == protocolPeer)
+        {
+            return false;
+        }
+
+        SecurityParameters securityParameters = protocolPeer.getTlsContext().getSecurityParametersConnection();
+        return null != securityParameters && securityParameters.isEarlyDataAccepted();
+    }
+
     public synchronized BCExtendedSSLSession getBCHandshakeSession()
     {
         return handshakeSession;
@@ -480,10 +509,8 @@ public synchronized SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, in
             }
 
             bytesConsumed = preview.getRecordSize();
-            byte[] record = new byte[bytesConsumed];
-            src.get(record);
 
-            protocol.offerInput(record, 0, record.length);
+            protocol.offerInput(src, bytesConsumed);
         }
         catch (IOException e)
         {
@@ -614,22 +641,42 @@ else if (protocol.isConnected())
                         return new SSLEngineResult(Status.BUFFER_OVERFLOW, HandshakeStatus.NOT_HANDSHAKING, 0, 0);
                     }
 
-                    // TODO Support writing application data using ByteBuffer array directly
-
-                    byte[] buffer = new byte[srcLimit];
-
-                    for (int srcIndex = 0; srcIndex < length && bytesConsumed < srcLimit; ++srcIndex)
+                    ByteBuffer src = getFirstRemaining(srcs, offset, length);
+                    if (null != src && src.remaining() >= srcLimit)
                     {
-                        ByteBuffer src = srcs[offset + srcIndex];
-                        int count = Math.min(src.remaining(), srcLimit - bytesConsumed);
-                        if (count > 0)
+                        // The whole record comes from one buffer
+                        if (src.hasArray())
+                        {
+                            int position = src.position();
+                            protocol.writeApplicationData(src.array(), src.arrayOffset() + position, srcLimit);
+                            ((java.nio.Buffer)src).position(position + srcLimit);
+                        }
+                        else
                         {
-                            src.get(buffer, bytesConsumed, count);
-                            bytesConsumed += count;
+                            protocol.writeApplicationData(src, srcLimit);
                         }
+                        bytesConsumed = srcLimit;
                     }
+                    else
+                    {
+                        if (null == gatherBuffer || gatherBuffer.length < srcLimit)
+                        {
+                            gatherBuffer = new byte[srcLimit];
+                        }
 
-                    protocol.writeApplicationData(buffer, 0, bytesConsumed);
+                        for (int srcIndex = 0; srcIndex < length && bytesConsumed < srcLimit; ++srcIndex)
+                        {
+                            src = srcs[offset + srcIndex];
+                            int count = Math.min(src.remaining(), srcLimit - bytesConsumed);
+                            if (count > 0)
+                            {
+                                src.get(gatherBuffer, bytesConsumed, count);
+                                bytesConsumed += count;
+                            }
+                        }
+
+                        protocol.writeApplicationData(gatherBuffer, 0, bytesConsumed);
+                    }
 
                     bytesProduced = protocol.getAvailableOutputBytes();
                     assert bytesProduced <= dstLimit;
@@ -730,8 +777,6 @@ private RecordPreview getRecordPreview(ByteBuffer src)
             return null;
         }
 
-        byte[] recordHeader = new byte[RecordFormat.FRAGMENT_OFFSET];
-
         int position = src.position();
         src.get(recordHeader);
         ((java.nio.Buffer)src).position(position);
@@ -739,6 +784,19 @@ private RecordPreview getRecordPreview(ByteBuffer src)
         return protocol.previewInputRecord(recordHeader);
     }
 
+    private static ByteBuffer getFirstRemaining(ByteBuffer[] bufs, int off, int len)
+    {
+        for (int i = 0; i < len; ++i)
+        {
+            ByteBuffer buf = bufs[off + i];
+            if (buf.hasRemaining())
+            {
+                return buf;
+            }
+        }
+        return null;
+    }
+
     private Status getStatus()
     {
         return protocol.isClosed() ? Status.CLOSED : Status.OK;
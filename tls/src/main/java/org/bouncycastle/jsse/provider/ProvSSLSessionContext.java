@@ -2,24 +2,40 @@
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSessionContext;
 
+import org.bouncycastle.tls.BasicEarlyDataReplayCache;
+import org.bouncycastle.tls.EarlyDataReplayCache;
 import org.bouncycastle.tls.SessionID;
+import org.bouncycastle.tls.SessionTicketProtection;
+import org.bouncycastle.tls.TlsPSKResumption;
 import org.bouncycastle.tls.TlsSession;
 import org.bouncycastle.tls.TlsUtils;
 import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
 
+/**
+ * Session cache for the JSSE provider.
+ * <p>
+ * Sessions are held in concurrent maps, so lookups never block. Insertions and removals are serialized
+ * per segment (selected by session ID) and eviction uses the CLOCK approximation of LRU: each segment
+ * keeps its entries in insertion order and a lookup merely marks an entry as accessed, giving it a second
+ * chance the next time it reaches the head of its segment's queue. Entries found to be expired, or whose
+ * session has been collected, are removed in preference to live ones.
+ * </p>
+ */
 class ProvSSLSessionContext
     implements SSLSessionContext
 {
@@ -28,31 +44,37 @@
     private static final int provSessionCacheSize = PropertyUtils
         .getIntegerSystemProperty("javax.net.ssl.sessionCacheSize", 20480, 0, Integer.MAX_VALUE);
 
-    // NOTE: This is configured as a simple LRU cache using the "access order" constructor
-    @SuppressWarnings("serial")
-    protected final Map<SessionID, SessionEntry> sessionsByID = new LinkedHashMap<SessionID, SessionEntry>(16, 0.75f, true)
-    {
-        protected boolean removeEldestEntry(Map.Entry<SessionID, SessionEntry> eldest)
-        {
-            boolean shouldRemove = sessionCacheSize > 0 && size() > sessionCacheSize;
-            if (shouldRemove)
-            {
-                removeSessionByPeer(eldest.getValue());
-            }
-            return shouldRemove;
-        }
-    };
-    protected final Map<String, SessionEntry> sessionsByPeer = new HashMap<String, SessionEntry>();
+    private static final long TICKET_KEY_PERIOD = 60 * 60 * 1000L; // 1hr (in milliseconds)
+    private static final long EARLY_DATA_REPLAY_WINDOW = 10 * 1000L; // 10s (in milliseconds)
+
+    private static final int SEGMENT_COUNT = getSegmentCount(Runtime.getRuntime().availableProcessors());
+
+    protected final ConcurrentMap<SessionID, SessionEntry> sessionsByID = new ConcurrentHashMap<SessionID, SessionEntry>();
+    protected final ConcurrentMap<String, SessionEntry> sessionsByPeer = new ConcurrentHashMap<String, SessionEntry>();
     protected final ReferenceQueue<ProvSSLSession> sessionsQueue = new ReferenceQueue<ProvSSLSession>();
 
+    // TLS 1.3 tickets (client side), at most one per peer, each only used once
+    protected final ConcurrentMap<String, ResumptionEntry> resumptionsByPeer = new ConcurrentHashMap<String, ResumptionEntry>();
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
     protected final ContextData contextData;
 
-    protected int sessionCacheSize = provSessionCacheSize;
-    protected int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+    protected volatile int sessionCacheSize = provSessionCacheSize;
+    protected volatile int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+
+    // TLS 1.3 ticket state (server side), created on first use
+    private SessionTicketProtection sessionTicketProtection = null;
+    private EarlyDataReplayCache earlyDataReplayCache = null;
 
     ProvSSLSessionContext(ContextData contextData)
     {
         this.contextData = contextData;
+
+        for (int i = 0; i < segments.length; ++i)
+        {
+            segments[i] = new Segment();
+        }
     }
 
     ProvSSLContextSpi getSSLContext()
@@ -65,37 +87,30 @@ JcaTlsCrypto getCrypto()
         return contextData.getCrypto();
     }
 
-    synchronized ProvSSLSession getSessionImpl(byte[] sessionID)
+    ProvSSLSession getSessionImpl(byte[] sessionID)
     {
         processQueue();
 
         return accessSession(mapGet(sessionsByID, makeSessionID(sessionID)));
     }
 
-    synchronized ProvSSLSession getSessionImpl(String hostName, int port)
+    ProvSSLSession getSessionImpl(String hostName, int port)
     {
         processQueue();
 
-        SessionEntry sessionEntry = mapGet(sessionsByPeer, makePeerKey(hostName, port));
-        ProvSSLSession session = accessSession(sessionEntry);
-        if (session != null)
-        {
-            // NOTE: For the current simple cache implementation, need to 'access' the sessionByIDs entry
-            sessionsByID.get(sessionEntry.getSessionID());
-        }
-        return session;
+        return accessSession(mapGet(sessionsByPeer, makePeerKey(hostName, port)));
     }
 
-    synchronized void removeSession(byte[] sessionID)
+    void removeSession(byte[] sessionID)
     {
-        SessionEntry sessionEntry = mapRemove(sessionsByID, makeSessionID(sessionID));
+        SessionEntry sessionEntry = mapGet(sessionsByID, makeSessionID(sessionID));
         if (null != sessionEntry)
         {
-            removeSessionByPeer(sessionEntry);
+            removeSession(sessionEntry);
         }
     }
 
-    synchronized ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
+    ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
         JsseSessionParameters jsseSessionParameters, boolean addToCache)
     {
         processQueue();
@@ -115,20 +130,73 @@ synchronized ProvSSLSession reportSession(String peerHost, int peerPort, TlsSess
 
             if (null != sessionID)
             {
-                sessionEntry = new SessionEntry(sessionID, session, sessionsQueue);
-                sessionsByID.put(sessionID, sessionEntry);
+                addSession(new SessionEntry(sessionID, session, sessionsQueue));
             }
         }
-
-        if (null != sessionEntry)
+        else
         {
-            mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+            addSessionByPeer(sessionEntry);
         }
 
         return session;
     }
 
-    public synchronized Enumeration<byte[]> getIds()
+    void addResumptionPSK(String peerHost, int peerPort, ProvSSLSession session, TlsPSKResumption resumptionPSK)
+    {
+        String peerKey = makePeerKey(peerHost, peerPort);
+        if (null == peerKey || null == session)
+        {
+            return;
+        }
+
+        int cacheSize = sessionCacheSize;
+        if (cacheSize > 0 && resumptionsByPeer.size() >= cacheSize && !resumptionsByPeer.containsKey(peerKey))
+        {
+            return;
+        }
+
+        resumptionsByPeer.put(peerKey, new ResumptionEntry(session, resumptionPSK));
+    }
+
+    ResumptionEntry takeResumptionPSK(String peerHost, int peerPort)
+    {
+        String peerKey = makePeerKey(peerHost, peerPort);
+        return null == peerKey ? null : resumptionsByPeer.remove(peerKey);
+    }
+
+    /**
+     * The ticket key is random, so tickets are only accepted by servers using this context, for as long as the
+     * session timeout allows (but at most the 7 days allowed by RFC 8446).
+     */
+    synchronized SessionTicketProtection getSessionTicketProtection()
+    {
+        if (null == sessionTicketProtection)
+        {
+            byte[] masterKey = new byte[32];
+            getCrypto().getSecureRandom().nextBytes(masterKey);
+
+            int timeout = sessionTimeoutSeconds;
+            long lifetime = (timeout < 1 ? 7 * 24 * 60 * 60 : Math.min(timeout, 7 * 24 * 60 * 60)) * 1000L;
+            int previousKeys = (int)Math.max(0L, (lifetime + TICKET_KEY_PERIOD - 1) / TICKET_KEY_PERIOD - 1);
+
+            this.sessionTicketProtection = new SessionTicketProtection(getCrypto(), masterKey, TICKET_KEY_PERIOD,
+                previousKeys);
+        }
+        return sessionTicketProtection;
+    }
+
+    synchronized EarlyDataReplayCache getEarlyDataReplayCache()
+    {
+        if (null == earlyDataReplayCache)
+        {
+            int maxEntries = sessionCacheSize < 1 ? provSessionCacheSize : sessionCacheSize;
+
+            this.earlyDataReplayCache = new BasicEarlyDataReplayCache(EARLY_DATA_REPLAY_WINDOW, Math.max(1, maxEntries));
+        }
+        return earlyDataReplayCache;
+    }
+
+    public Enumeration<byte[]> getIds()
     {
         removeAllExpiredSessions();
 
@@ -150,12 +218,12 @@ public SSLSession getSession(byte[] sessionID)
         return getSessionImpl(sessionID);
     }
 
-    public synchronized int getSessionCacheSize()
+    public int getSessionCacheSize()
     {
         return sessionCacheSize;
     }
 
-    public synchronized int getSessionTimeout()
+    public int getSessionTimeout()
     {
         return sessionTimeoutSeconds;
     }
@@ -177,21 +245,7 @@ public synchronized void setSessionCacheSize(int size) throws IllegalArgumentExc
         removeAllExpiredSessions();
 
         // Immediately remove LRU sessions in excess of the new limit
-        if (sessionCacheSize > 0)
-        {
-            int currentSize = sessionsByID.size();
-            if (currentSize > sessionCacheSize)
-            {
-                Iterator<SessionEntry> iter = sessionsByID.values().iterator();
-                while (iter.hasNext() && currentSize > sessionCacheSize)
-                {
-                    SessionEntry sessionEntry = iter.next();
-                    iter.remove();
-                    removeSessionByPeer(sessionEntry);
-                    --currentSize;
-                }
-            }
-        }
+        evictExcessSessions(0, null);
     }
 
     public synchronized void setSessionTimeout(int seconds) throws IllegalArgumentException
@@ -222,6 +276,7 @@ private ProvSSLSession accessSession(SessionEntry sessionEntry)
                 if (!invalidateIfCreatedBefore(sessionEntry, getCreationTimeLimit(currentTimeMillis)))
                 {
                     session.accessedAt(currentTimeMillis);
+                    sessionEntry.markAccessed();
                     return session;
                 }
             }
@@ -231,6 +286,95 @@ private ProvSSLSession accessSession(SessionEntry sessionEntry)
         return null;
     }
 
+    private void addSession(SessionEntry sessionEntry)
+    {
+        int segmentIndex = getSegmentIndex(sessionEntry.getSessionID());
+        Segment segment = segments[segmentIndex];
+
+        synchronized (segment)
+        {
+            SessionEntry previous = sessionsByID.put(sessionEntry.getSessionID(), sessionEntry);
+            if (null == previous)
+            {
+                ++segment.size;
+            }
+            else
+            {
+                // The replaced entry stays in the segment queue until it is next polled
+                previous.removed = true;
+                removeSessionByPeer(previous);
+            }
+
+            segment.add(sessionEntry);
+
+            mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+        }
+
+        evictExcessSessions(segmentIndex, sessionEntry);
+    }
+
+    private void addSessionByPeer(SessionEntry sessionEntry)
+    {
+        Segment segment = segments[getSegmentIndex(sessionEntry.getSessionID())];
+
+        synchronized (segment)
+        {
+            if (!sessionEntry.removed)
+            {
+                mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+            }
+        }
+    }
+
+    /**
+     * Remove sessions until the cache is within its size limit, starting with the segment at
+     * segmentIndex and moving on to the following ones if a segment has nothing it can evict.
+     */
+    private void evictExcessSessions(int segmentIndex, SessionEntry retain)
+    {
+        int limit = sessionCacheSize;
+        if (limit < 1)
+        {
+            return;
+        }
+
+        int count = 0;
+        while (sessionsByID.size() > limit)
+        {
+            if (!evictOne(segmentIndex, retain))
+            {
+                break;
+            }
+            ++count;
+        }
+
+        if (count > 0 && LOG.isLoggable(Level.FINEST))
+        {
+            LOG.finest("Evicted " + count + " session(s) from the cache");
+        }
+    }
+
+    private boolean evictOne(int segmentIndex, SessionEntry retain)
+    {
+        long creationTimeLimit = getCreationTimeLimit(System.currentTimeMillis());
+
+        for (int i = 0; i < segments.length; ++i)
+        {
+            Segment segment = segments[(segmentIndex + i) & (segments.length - 1)];
+
+            synchronized (segment)
+            {
+                SessionEntry victim = segment.selectVictim(retain, creationTimeLimit);
+                if (null != victim)
+                {
+                    removeSessionLocked(segment, victim);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private long getCreationTimeLimit(long expiryTimeMillis)
     {
         return sessionTimeoutSeconds < 1 ? Long.MIN_VALUE : (expiryTimeMillis - 1000L * sessionTimeoutSeconds);
@@ -279,15 +423,32 @@ private void removeAllExpiredSessions()
             SessionEntry sessionEntry = iter.next();
             if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
             {
-                iter.remove();
-                removeSessionByPeer(sessionEntry);
+                removeSession(sessionEntry);
             }
         }
     }
 
     private void removeSession(SessionEntry sessionEntry)
     {
-        mapRemove(sessionsByID, sessionEntry.getSessionID(), sessionEntry);
+        Segment segment = segments[getSegmentIndex(sessionEntry.getSessionID())];
+
+        synchronized (segment)
+        {
+            if (!sessionEntry.removed)
+            {
+                removeSessionLocked(segment, sessionEntry);
+            }
+        }
+    }
+
+    private void removeSessionLocked(Segment segment, SessionEntry sessionEntry)
+    {
+        sessionEntry.removed = true;
+
+        if (sessionsByID.remove(sessionEntry.getSessionID(), sessionEntry))
+        {
+            --segment.size;
+        }
 
         removeSessionByPeer(sessionEntry);
     }
@@ -297,6 +458,23 @@ private boolean removeSessionByPeer(SessionEntry sessionEntry)
         return mapRemove(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
     }
 
+    private static int getSegmentCount(int processors)
+    {
+        int count = 4;
+        while (count < 2 * processors && count < 64)
+        {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    int getSegmentIndex(SessionID sessionID)
+    {
+        int h = sessionID.hashCode();
+        h ^= (h >>> 16);
+        return h & (segments.length - 1);
+    }
+
     private static String makePeerKey(ProvSSLSession session)
     {
         return session == null ? null : makePeerKey(session.getPeerHost(), session.getPeerPort());
@@ -333,35 +511,13 @@ private static <K, V> V mapGet(Map<K, V> map, K key)
         return key == null ? null : map.get(key);
     }
 
-    private static <K, V> V mapRemove(Map<K, V> map, K key)
-    {
-        if (map == null)
-        {
-            throw new NullPointerException();
-        }
-        return key == null ? null : map.remove(key);
-    }
-
-    private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
+    private static <K, V> boolean mapRemove(ConcurrentMap<K, V> map, K key, V value)
     {
         if (map == null || value == null)
         {
             throw new NullPointerException();
         }
-        if (key != null)
-        {
-            // TODO[jsse] From 1.8 there is a 2-argument remove method to accomplish this 
-            V removed = map.remove(key);
-            if (removed == value)
-            {
-                return true;
-            }
-            if (removed != null)
-            {
-                map.put(key, removed);
-            }
-        }
-        return false;
+        return key != null && map.remove(key, value);
     }
 
     private static final class SessionEntry
@@ -370,6 +526,12 @@ private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
         private final SessionID sessionID;
         private final String peerKey;
 
+        // Set by lookups, cleared as the CLOCK hand passes; a plain flag is enough for approximate LRU
+        private volatile boolean accessed = false;
+
+        // Guarded by the lock of the segment the entry belongs to
+        boolean removed = false;
+
         SessionEntry(SessionID sessionID, ProvSSLSession session, ReferenceQueue<ProvSSLSession> queue)
         {
             super(session, queue);
@@ -392,5 +554,80 @@ public SessionID getSessionID()
         {
             return sessionID;
         }
+
+        void markAccessed()
+        {
+            // Avoid writing to a shared cache line on every lookup of a popular session
+            if (!accessed)
+            {
+                accessed = true;
+            }
+        }
+    }
+
+    static final class ResumptionEntry
+    {
+        final ProvSSLSession session;
+        final TlsPSKResumption resumptionPSK;
+
+        ResumptionEntry(ProvSSLSession session, TlsPSKResumption resumptionPSK)
+        {
+            this.session = session;
+            this.resumptionPSK = resumptionPSK;
+        }
+    }
+
+    private final class Segment
+    {
+        private final ArrayDeque<SessionEntry> queue = new ArrayDeque<SessionEntry>();
+
+        private int size = 0;
+
+        void add(SessionEntry sessionEntry)
+        {
+            queue.addLast(sessionEntry);
+
+            // Discard the queue slots of removed entries once they dominate
+            if (queue.size() > 2 * size + 16)
+            {
+                Iterator<SessionEntry> iter = queue.iterator();
+                while (iter.hasNext())
+                {
+                    if (iter.next().removed)
+                    {
+                        iter.remove();
+                    }
+                }
+            }
+        }
+
+        SessionEntry selectVictim(SessionEntry retain, long creationTimeLimit)
+        {
+            // Every live entry is visited at most twice: once to clear its accessed flag, once to select it
+            for (int i = 2 * queue.size(); i > 0; --i)
+            {
+                SessionEntry sessionEntry = queue.pollFirst();
+                if (null == sessionEntry)
+                {
+                    break;
+                }
+                if (sessionEntry.removed)
+                {
+                    continue;
+                }
+                if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
+                {
+                    return sessionEntry;
+                }
+                if (sessionEntry == retain || sessionEntry.accessed)
+                {
+                    sessionEntry.accessed = false;
+                    queue.addLast(sessionEntry);
+                    continue;
+                }
+                return sessionEntry;
+            }
+            return null;
+        }
     }
 }
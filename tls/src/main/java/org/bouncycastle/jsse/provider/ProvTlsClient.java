@@ -39,6 +39,8 @@
 import org.bouncycastle.tls.TlsDHGroupVerifier;
 import org.bouncycastle.tls.TlsExtensionsUtils;
 import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.TlsPSK;
+import org.bouncycastle.tls.TlsPSKResumption;
 import org.bouncycastle.tls.TlsServerCertificate;
 import org.bouncycastle.tls.TlsSession;
 import org.bouncycastle.tls.TlsUtils;
@@ -60,6 +62,9 @@
     private static final boolean provClientEnableSessionResumption = PropertyUtils
         .getBooleanSystemProperty("org.bouncycastle.jsse.client.enableSessionResumption", true);
 
+    private static final boolean provClientEnableSessionTickets13 = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.client.enableSessionTickets13", false);
+
     private static final boolean provClientEnableStatusRequest = PropertyUtils
         .getBooleanSystemProperty("jdk.tls.client.enableStatusRequestExtension", true);
 
@@ -80,6 +85,10 @@
     protected ProvSSLSession sslSession = null;
     protected boolean handshakeComplete = false;
 
+    protected byte[] earlyData = null;
+    protected ProvSSLSessionContext.ResumptionEntry resumption = null;
+    protected boolean resumedWithPSK = false;
+
     ProvTlsClient(ProvTlsManager manager, ProvSSLParameters sslParameters)
     {
         super(manager.getContextData().getCrypto());
@@ -99,6 +108,11 @@ public ProvSSLSession getSession()
         return sslSession;
     }
 
+    void setEarlyData(byte[] earlyData)
+    {
+        this.earlyData = earlyData;
+    }
+
     public TlsContext getTlsContext()
     {
         return context;
@@ -436,6 +450,37 @@ public TlsSession getSessionToResume()
         return null;
     }
 
+    @Override
+    public Vector<TlsPSK> getResumptionPSKs()
+    {
+        if (!provClientEnableSessionResumption || !provClientEnableSessionTickets13)
+        {
+            return null;
+        }
+
+        // NOTE: An empty (non-null) result still lets the server know we want tickets
+        Vector<TlsPSK> resumptionPSKs = new Vector<TlsPSK>(1);
+
+        ProvSSLSessionContext sslSessionContext = manager.getContextData().getClientSessionContext();
+        ProvSSLSessionContext.ResumptionEntry available = sslSessionContext.takeResumptionPSK(manager.getPeerHost(),
+            manager.getPeerPort());
+
+        if (null != available && isEndpointIDAlgorithmCompatible(available.session))
+        {
+            this.resumption = available;
+            resumptionPSKs.addElement(available.resumptionPSK);
+        }
+
+        return resumptionPSKs;
+    }
+
+    @Override
+    public byte[] getEarlyData()
+    {
+        // NOTE: Only sent if one of our tickets allows it (see getResumptionPSKs)
+        return provClientEnableSessionTickets13 ? earlyData : null;
+    }
+
     @Override
     public void notifyAlertRaised(short alertLevel, short alertDescription, String message, Throwable cause)
     {
@@ -517,14 +562,15 @@ public synchronized void notifyHandshakeComplete() throws IOException
 
         TlsSession connectionTlsSession = context.getSession();
 
-        if (null == sslSession || sslSession.getTlsSession() != connectionTlsSession)
+        // NOTE: A connection resumed with a TLS 1.3 ticket continues the session the ticket was issued for
+        if (!resumedWithPSK && (null == sslSession || sslSession.getTlsSession() != connectionTlsSession))
         {
             ProvSSLSessionContext sslSessionContext = manager.getContextData().getClientSessionContext();
             String peerHost = manager.getPeerHost();
             int peerPort = manager.getPeerPort();
             JsseSessionParameters jsseSessionParameters = new JsseSessionParameters(
                 sslParameters.getEndpointIdentificationAlgorithm(), null);
-            // TODO[tls13] Resumption/PSK
+            // NOTE: TLS 1.3 sessions are resumed via tickets instead (see notifyResumptionPSK)
             boolean addToCache = provClientEnableSessionResumption && !TlsUtils.isTLSv13(context);
 
             this.sslSession = sslSessionContext.reportSession(peerHost, peerPort, connectionTlsSession,
@@ -534,6 +580,19 @@ public synchronized void notifyHandshakeComplete() throws IOException
         manager.notifyHandshakeComplete(new ProvSSLConnection(this));
     }
 
+    @Override
+    public void notifyResumptionPSK(TlsPSKResumption resumptionPSK) throws IOException
+    {
+        super.notifyResumptionPSK(resumptionPSK);
+
+        if (provClientEnableSessionResumption && provClientEnableSessionTickets13 && null != sslSession)
+        {
+            ProvSSLSessionContext sslSessionContext = manager.getContextData().getClientSessionContext();
+            sslSessionContext.addResumptionPSK(manager.getPeerHost(), manager.getPeerPort(), sslSession,
+                resumptionPSK);
+        }
+    }
+
     @Override
     public void notifySecureRenegotiation(boolean secureRenegotiation) throws IOException
     {
@@ -563,6 +622,26 @@ public void notifySelectedCipherSuite(int selectedCipherSuite)
         super.notifySelectedCipherSuite(selectedCipherSuite);
     }
 
+    @Override
+    public void notifySelectedPSK(TlsPSK selectedPSK) throws IOException
+    {
+        super.notifySelectedPSK(selectedPSK);
+
+        if (null != resumption && null != selectedPSK && selectedPSK == resumption.resumptionPSK)
+        {
+            this.resumedWithPSK = true;
+            this.sslSession = resumption.session;
+
+            if (LOG.isLoggable(Level.FINE))
+            {
+                LOG.fine(clientID + ": Server resumed session with TLS 1.3 ticket");
+            }
+
+            manager.notifyHandshakeSession(manager.getContextData().getClientSessionContext(),
+                context.getSecurityParametersHandshake(), jsseSecurityParameters, sslSession);
+        }
+    }
+
     @Override
     public void notifyServerVersion(ProtocolVersion serverVersion) throws IOException
     {
@@ -710,25 +789,32 @@ protected SessionParameters getResumableSessionParameters(ProvSSLSession provSSL
             }
         }
 
+        if (!isEndpointIDAlgorithmCompatible(provSSLSession))
         {
-            String connectionEndpointID = sslParameters.getEndpointIdentificationAlgorithm();
-            if (null != connectionEndpointID)
+            return null;
+        }
+
+        return sessionParameters;
+    }
+
+    protected boolean isEndpointIDAlgorithmCompatible(ProvSSLSession provSSLSession)
+    {
+        String connectionEndpointID = sslParameters.getEndpointIdentificationAlgorithm();
+        if (null != connectionEndpointID)
+        {
+            JsseSessionParameters jsseSessionParameters = provSSLSession.getJsseSessionParameters();
+            String sessionEndpointID = jsseSessionParameters.getEndpointIDAlgorithm();
+            if (!connectionEndpointID.equalsIgnoreCase(sessionEndpointID))
             {
-                JsseSessionParameters jsseSessionParameters = provSSLSession.getJsseSessionParameters();
-                String sessionEndpointID = jsseSessionParameters.getEndpointIDAlgorithm();
-                if (!connectionEndpointID.equalsIgnoreCase(sessionEndpointID))
+                if (LOG.isLoggable(Level.FINER))
                 {
-                    if (LOG.isLoggable(Level.FINER))
-                    {
-                        LOG.finer(clientID + ": Session not resumable - endpoint ID algorithm mismatch; connection: "
-                            + connectionEndpointID + ", session: " + sessionEndpointID);
-                    }
-                    return null;
+                    LOG.finer(clientID + ": Session not resumable - endpoint ID algorithm mismatch; connection: "
+                        + connectionEndpointID + ", session: " + sessionEndpointID);
                 }
+                return false;
             }
         }
-
-        return sessionParameters;
+        return true;
     }
 
     protected TlsCredentials selectClientCredentials12(Principal[] issuers, short[] certificateTypes)
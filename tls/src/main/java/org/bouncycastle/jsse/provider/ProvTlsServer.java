@@ -30,6 +30,7 @@
 import org.bouncycastle.tls.CertificateStatus;
 import org.bouncycastle.tls.ClientCertificateType;
 import org.bouncycastle.tls.DefaultTlsServer;
+import org.bouncycastle.tls.EarlyDataReplayCache;
 import org.bouncycastle.tls.KeyExchangeAlgorithm;
 import org.bouncycastle.tls.NamedGroup;
 import org.bouncycastle.tls.ProtocolName;
@@ -37,6 +38,7 @@
 import org.bouncycastle.tls.SecurityParameters;
 import org.bouncycastle.tls.ServerName;
 import org.bouncycastle.tls.SessionParameters;
+import org.bouncycastle.tls.SessionTicketProtection;
 import org.bouncycastle.tls.SignatureAndHashAlgorithm;
 import org.bouncycastle.tls.TlsContext;
 import org.bouncycastle.tls.TlsCredentials;
@@ -71,6 +73,12 @@
     private static final boolean provServerEnableSessionResumption = PropertyUtils
         .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableSessionResumption", true);
 
+    private static final boolean provServerEnableSessionTickets13 = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableSessionTickets13", false);
+
+    private static final int provServerMaxEarlyDataSize = PropertyUtils
+        .getIntegerSystemProperty("org.bouncycastle.jsse.server.maxEarlyDataSize", 0, 0, Integer.MAX_VALUE);
+
     // TODO[jsse] Support status_request and status_request_v2 extensions
 //    private static final boolean provServerEnableStatusRequest = PropertyUtils.getBooleanSystemProperty(
 //        "jdk.tls.server.enableStatusRequestExtension", false);
@@ -727,6 +735,38 @@ public TlsSession getSessionToResume(byte[] sessionID)
         return null;
     }
 
+    @Override
+    public SessionTicketProtection getSessionTicketProtection()
+    {
+        /*
+         * NOTE: A handshake resumed with a ticket doesn't authenticate the client again, so tickets aren't
+         * issued (or accepted) when client authentication is configured.
+         */
+        if (!provServerEnableSessionResumption || !provServerEnableSessionTickets13 || isClientAuthEnabled())
+        {
+            return null;
+        }
+
+        return manager.getContextData().getServerSessionContext().getSessionTicketProtection();
+    }
+
+    @Override
+    public long getMaxEarlyDataSize()
+    {
+        return provServerMaxEarlyDataSize;
+    }
+
+    @Override
+    public EarlyDataReplayCache getEarlyDataReplayCache()
+    {
+        if (provServerMaxEarlyDataSize < 1)
+        {
+            return null;
+        }
+
+        return manager.getContextData().getServerSessionContext().getEarlyDataReplayCache();
+    }
+
     @Override
     public byte[] getNewSessionID()
     {
@@ -239,6 +239,16 @@ public Vector getExternalPSKs()
         return null;
     }
 
+    public Vector getResumptionPSKs()
+    {
+        return null;
+    }
+
+    public byte[] getEarlyData()
+    {
+        return null;
+    }
+
     public boolean isFallback()
     {
         /*
@@ -521,4 +531,9 @@ public void notifyNewSessionTicket(NewSessionTicket newSessionTicket)
         throws IOException
     {
     }
+
+    public void notifyResumptionPSK(TlsPSKResumption resumptionPSK)
+        throws IOException
+    {
+    }
 }
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls;
 
 import java.io.IOException;
+import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsCrypto;
 
@@ -82,6 +83,11 @@ public int getMaxHandshakeMessageSize()
         return 32768;
     }
 
+    public Vector getCertificateCompressors()
+    {
+        return null;
+    }
+
     public short[] getPskKeyExchangeModes()
     {
         return new short[]{ PskKeyExchangeMode.psk_dhe_ke };
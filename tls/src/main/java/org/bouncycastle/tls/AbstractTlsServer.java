@@ -345,6 +345,21 @@ public TlsPSKExternal getExternalPSK(Vector identities)
         return null;
     }
 
+    public SessionTicketProtection getSessionTicketProtection()
+    {
+        return null;
+    }
+
+    public long getMaxEarlyDataSize()
+    {
+        return 0L;
+    }
+
+    public EarlyDataReplayCache getEarlyDataReplayCache()
+    {
+        return null;
+    }
+
     public void notifySession(TlsSession session)
     {
     }
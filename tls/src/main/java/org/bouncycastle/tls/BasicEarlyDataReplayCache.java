@@ -0,0 +1,80 @@
+package org.bouncycastle.tls;
+
+import java.util.Hashtable;
+import java.util.LinkedList;
+
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * An in-memory {@link EarlyDataReplayCache}, suitable for a single server (or servers that don't share
+ * tickets). Each ClientHello is remembered for twice the window, and once <code>maxEntries</code>
+ * ClientHellos are being remembered, early data is refused until older entries expire.
+ * </p>
+ */
+public class BasicEarlyDataReplayCache
+    implements EarlyDataReplayCache
+{
+    protected final long window;
+    protected final int maxEntries;
+
+    private final Hashtable entries = new Hashtable();
+    private final LinkedList expiryQueue = new LinkedList();
+
+    /**
+     * @param window the window, in milliseconds, in which early data can be accepted.
+     * @param maxEntries the maximum number of ClientHellos to remember.
+     */
+    public BasicEarlyDataReplayCache(long window, int maxEntries)
+    {
+        if (window < 1)
+        {
+            throw new IllegalArgumentException("'window' must be positive");
+        }
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("'maxEntries' must be positive");
+        }
+
+        this.window = window;
+        this.maxEntries = maxEntries;
+    }
+
+    public long getWindow()
+    {
+        return window;
+    }
+
+    public synchronized boolean checkAndRecord(byte[] clientHelloID, long time)
+    {
+        removeExpired(time);
+
+        String key = Hex.toHexString(clientHelloID);
+        if (entries.containsKey(key) || entries.size() >= maxEntries)
+        {
+            return false;
+        }
+
+        Long expiry = Long.valueOf(time + 2 * window);
+        entries.put(key, expiry);
+        expiryQueue.addLast(key);
+        return true;
+    }
+
+    private void removeExpired(long time)
+    {
+        while (!expiryQueue.isEmpty())
+        {
+            String key = (String)expiryQueue.getFirst();
+            long expiry = ((Long)entries.get(key)).longValue();
+            if (expiry > time)
+            {
+                break;
+            }
+
+            expiryQueue.removeFirst();
+            entries.remove(key);
+        }
+    }
+}
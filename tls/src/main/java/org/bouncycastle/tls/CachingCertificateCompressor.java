@@ -0,0 +1,112 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.LinkedList;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * A {@link TlsCertificateCompressor} that remembers the compressed form of the most recent Certificate
+ * messages it compressed, so that a server sharing one instance across connections compresses each of
+ * its certificate chains only once. Decompression is passed through unchanged.
+ * </p>
+ */
+public class CachingCertificateCompressor
+    implements TlsCertificateCompressor
+{
+    protected final TlsCertificateCompressor compressor;
+    protected final int maxEntries;
+
+    private final Hashtable cache = new Hashtable();
+    private final LinkedList evictionQueue = new LinkedList();
+
+    /**
+     * @param compressor the codec to cache the output of.
+     * @param maxEntries the maximum number of compressed Certificate messages (e.g. one per server
+     *                   credential) to remember.
+     */
+    public CachingCertificateCompressor(TlsCertificateCompressor compressor, int maxEntries)
+    {
+        if (null == compressor)
+        {
+            throw new NullPointerException("'compressor' cannot be null");
+        }
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("'maxEntries' must be positive");
+        }
+
+        this.compressor = compressor;
+        this.maxEntries = maxEntries;
+    }
+
+    public int getAlgorithm()
+    {
+        return compressor.getAlgorithm();
+    }
+
+    public byte[] compress(byte[] certificateMessage) throws IOException
+    {
+        /*
+         * NOTE: The whole message is the key (not just the credential), since it also includes e.g. any
+         * per-CertificateEntry status_request extensions.
+         */
+        CacheKey key = new CacheKey(certificateMessage);
+
+        synchronized (this)
+        {
+            byte[] compressed = (byte[])cache.get(key);
+            if (null != compressed)
+            {
+                return compressed;
+            }
+        }
+
+        byte[] compressed = compressor.compress(certificateMessage);
+
+        synchronized (this)
+        {
+            if (null == cache.put(key, compressed))
+            {
+                evictionQueue.addLast(key);
+
+                if (evictionQueue.size() > maxEntries)
+                {
+                    cache.remove(evictionQueue.removeFirst());
+                }
+            }
+        }
+
+        return compressed;
+    }
+
+    public byte[] decompress(byte[] compressed, int uncompressedLength) throws IOException
+    {
+        return compressor.decompress(compressed, uncompressedLength);
+    }
+
+    private static final class CacheKey
+    {
+        private final byte[] certificateMessage;
+        private final int hashCode;
+
+        CacheKey(byte[] certificateMessage)
+        {
+            this.certificateMessage = Arrays.clone(certificateMessage);
+            this.hashCode = Arrays.hashCode(certificateMessage);
+        }
+
+        public boolean equals(Object obj)
+        {
+            return obj instanceof CacheKey && Arrays.areEqual(certificateMessage, ((CacheKey)obj).certificateMessage);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
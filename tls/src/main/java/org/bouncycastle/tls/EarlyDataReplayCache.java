@@ -0,0 +1,31 @@
+package org.bouncycastle.tls;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * Anti-replay protection for TLS 1.3 early data (0-RTT), as described in RFC 8446 8. A server only accepts
+ * early data when the ticket age given by the client puts the ClientHello within {@link #getWindow()} of
+ * its expected arrival time, and the ClientHello has not been seen before. A cache shared by all servers
+ * accepting the same tickets gives the strongest protection.
+ * </p>
+ */
+public interface EarlyDataReplayCache
+{
+    /**
+     * Return the window, in milliseconds, around the expected arrival time of a ClientHello in which
+     * early data can be accepted. Implementations need to remember each ClientHello for at least this
+     * long.
+     */
+    long getWindow();
+
+    /**
+     * Record a ClientHello for which early data is about to be accepted.
+     *
+     * @param clientHelloID a value unique to the ClientHello (the binder of the selected PSK).
+     * @param time the current time in milliseconds.
+     * @return true if the ClientHello has not been recorded before, and so early data can be accepted;
+     *         false if it may be a replay (including when the implementation has no room left to record
+     *         it).
+     */
+    boolean checkAndRecord(byte[] clientHelloID, long time);
+}
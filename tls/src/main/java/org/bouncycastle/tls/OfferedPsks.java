@@ -145,7 +145,7 @@ public void encode(OutputStream output) throws IOException
     }
 
     static void encodeBinders(OutputStream output, TlsCrypto crypto, TlsHandshakeHash handshakeHash,
-        BindersConfig bindersConfig) throws IOException
+        BindersConfig bindersConfig, boolean afterHelloRetryRequest) throws IOException
     {
         TlsPSK[] psks = bindersConfig.psks;
         TlsSecret[] earlySecrets = bindersConfig.earlySecrets;
@@ -160,13 +160,24 @@ static void encodeBinders(OutputStream output, TlsCrypto crypto, TlsHandshakeHas
             TlsPSK psk = psks[i];
             TlsSecret earlySecret = earlySecrets[i];
 
-            // TODO[tls13-psk] Handle resumption PSKs
-            boolean isExternalPSK = true;
+            boolean isExternalPSK = !(psk instanceof TlsPSKResumption);
             int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
 
-            // TODO[tls13-psk] Cache the transcript hashes per algorithm to avoid duplicates for multiple PSKs
-            TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
-            handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+            TlsHash hash;
+            if (afterHelloRetryRequest)
+            {
+                /*
+                 * NOTE: The HelloRetryRequest determined the PRF hash (so the handshake hash is no longer
+                 * buffering), and only PSKs using that hash are still offered.
+                 */
+                hash = handshakeHash.forkPRFHash();
+            }
+            else
+            {
+                // TODO[tls13-psk] Cache the transcript hashes per algorithm to avoid duplicates for multiple PSKs
+                hash = crypto.createHash(pskCryptoHashAlgorithm);
+                handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+            }
             byte[] transcriptHash = hash.calculateHash();
 
             byte[] binder = TlsUtils.calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm, earlySecret,
@@ -5,7 +5,9 @@
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
+import org.bouncycastle.tls.crypto.TlsByteBufferCipher;
 import org.bouncycastle.tls.crypto.TlsCipher;
 import org.bouncycastle.tls.crypto.TlsDecodeResult;
 import org.bouncycastle.tls.crypto.TlsEncodeResult;
@@ -27,6 +29,7 @@
     private TlsCipher pendingCipher = null;
     private TlsCipher readCipher = TlsNullNullCipher.INSTANCE;
     private TlsCipher readCipherDeferred = null;
+    private TlsCipher readCipherAfterEarlyData = null;
     private TlsCipher writeCipher = TlsNullNullCipher.INSTANCE;
 
     private ProtocolVersion writeVersion = null;
@@ -34,6 +37,11 @@
     private int plaintextLimit = DEFAULT_PLAINTEXT_LIMIT;
     private int ciphertextLimit = DEFAULT_PLAINTEXT_LIMIT;
     private boolean ignoreChangeCipherSpec = false;
+    private long skipEarlyDataLimit = -1L;
+
+    // Working space for records read from a ByteBuffer (allocated on first use)
+    private final byte[] bufferedRecordHeader = new byte[RecordFormat.FRAGMENT_OFFSET];
+    private byte[] bufferedRecordFragment = null;
 
     RecordStream(TlsProtocol handler, InputStream input, OutputStream output)
     {
@@ -113,6 +121,62 @@ void enablePendingCipherWrite()
         writeSeqNo.reset();
     }
 
+    /**
+     * Read the client's early data using the given cipher (from the first application_data record), until
+     * EndOfEarlyData is received and the pending (handshake) cipher takes over.
+     */
+    void enableEarlyDataRead(TlsCipher earlyDataCipher)
+        throws IOException
+    {
+        if (pendingCipher == null || readCipherDeferred != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        this.readCipherDeferred = earlyDataCipher;
+        this.readCipherAfterEarlyData = pendingCipher;
+    }
+
+    void enableEarlyDataWrite(TlsCipher earlyDataCipher)
+    {
+        this.writeCipher = earlyDataCipher;
+        writeSeqNo.reset();
+    }
+
+    void disableEarlyDataWrite()
+    {
+        this.writeCipher = TlsNullNullCipher.INSTANCE;
+        writeSeqNo.reset();
+    }
+
+    void notifyEndOfEarlyDataReceived()
+        throws IOException
+    {
+        if (readCipherAfterEarlyData == null || readCipherDeferred != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        this.readCipher = readCipherAfterEarlyData;
+        this.readCipherAfterEarlyData = null;
+        this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+        readSeqNo.reset();
+    }
+
+    boolean isReadingEarlyData()
+    {
+        return readCipherAfterEarlyData != null;
+    }
+
+    /**
+     * Skip over (up to 'limit' bytes of) early data that was not accepted. Skipping ends with the first
+     * record that can be read.
+     */
+    void skipEarlyData(long limit)
+    {
+        this.skipEarlyDataLimit = limit;
+    }
+
     void finaliseHandshake()
         throws IOException
     {
@@ -154,7 +218,8 @@ RecordPreview previewRecordHeader(byte[] recordHeader) throws IOException
         int applicationDataLimit = 0;
 
         // NOTE: For TLS 1.3, this only MIGHT be application data
-        if (ContentType.application_data == recordType && handler.isApplicationDataReady())
+        if (ContentType.application_data == recordType
+            && (handler.isApplicationDataReady() || readCipherAfterEarlyData != null))
         {
             int plaintextDecodeLimit = readCipher.getPlaintextDecodeLimit(length);
 
@@ -205,6 +270,69 @@ boolean readFullRecord(byte[] input, int inputOff, int inputLen)
 
         TlsDecodeResult decoded = decodeAndVerify(recordType, recordVersion, input,
             inputOff + RecordFormat.FRAGMENT_OFFSET, length);
+        if (decoded == null)
+        {
+            return true;
+        }
+
+        handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        return true;
+    }
+
+    /*
+     * As for readFullRecord(byte[], int, int), but the record is read from input's position, which is advanced
+     * past it (if it is a full record). The input buffer is not modified.
+     */
+    boolean readFullRecord(ByteBuffer input, int inputLen)
+        throws IOException
+    {
+        if (inputLen < RecordFormat.FRAGMENT_OFFSET)
+        {
+            return false;
+        }
+
+        int inputPos = input.position();
+        for (int i = 0; i < RecordFormat.FRAGMENT_OFFSET; ++i)
+        {
+            bufferedRecordHeader[i] = input.get(inputPos + i);
+        }
+
+        int length = TlsUtils.readUint16(bufferedRecordHeader, RecordFormat.LENGTH_OFFSET);
+        if (inputLen != (RecordFormat.FRAGMENT_OFFSET + length))
+        {
+            return false;
+        }
+
+        TlsDecodeResult decoded;
+        try
+        {
+            short recordType = checkRecordType(bufferedRecordHeader, RecordFormat.TYPE_OFFSET);
+
+            ProtocolVersion recordVersion = TlsUtils.readVersion(bufferedRecordHeader, RecordFormat.VERSION_OFFSET);
+
+            checkLength(length, ciphertextLimit, AlertDescription.record_overflow);
+
+            ((java.nio.Buffer)input).position(inputPos + RecordFormat.FRAGMENT_OFFSET);
+
+            if (ignoreChangeCipherSpec && ContentType.change_cipher_spec == recordType)
+            {
+                byte[] fragment = getBufferedRecordFragment(length);
+                input.get(fragment, 0, length);
+                checkChangeCipherSpec(fragment, 0, length);
+                return true;
+            }
+
+            decoded = decodeAndVerify(recordType, recordVersion, null, 0, input, length);
+        }
+        finally
+        {
+            ((java.nio.Buffer)input).position(inputPos + inputLen);
+        }
+
+        if (decoded == null)
+        {
+            return true;
+        }
 
         handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
         return true;
@@ -244,6 +372,11 @@ boolean readRecord()
             inputRecord.reset();
         }
 
+        if (decoded == null)
+        {
+            return true;
+        }
+
         handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
         return true;
     }
@@ -251,8 +384,32 @@ boolean readRecord()
     TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion, byte[] ciphertext, int off, int len)
         throws IOException
     {
-        long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
-        TlsDecodeResult decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
+        return decodeAndVerify(recordType, recordVersion, ciphertext, off, null, len);
+    }
+
+    /*
+     * The ciphertext is either in an array (decoded in place), or else in a ByteBuffer (when ciphertextBuffer
+     * is non-null).
+     */
+    private TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion, byte[] ciphertext,
+        int off, ByteBuffer ciphertextBuffer, int len) throws IOException
+    {
+        TlsDecodeResult decoded;
+        if (skipEarlyDataLimit >= 0L && ContentType.application_data == recordType)
+        {
+            decoded = decodeOrSkipEarlyData(recordType, recordVersion, ciphertext, off, ciphertextBuffer, len);
+            if (decoded == null)
+            {
+                return null;
+            }
+        }
+        else
+        {
+            long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
+            decoded = decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, ciphertextBuffer, len);
+        }
+
+        this.skipEarlyDataLimit = -1L;
 
         checkLength(decoded.len, plaintextLimit, AlertDescription.record_overflow);
 
@@ -268,8 +425,82 @@ TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion,
         return decoded;
     }
 
+    /*
+     * RFC 8446 4.2.10. If the server [..] rejects the "early_data" extension, [..] it skips past early data by
+     * attempting to deprotect received records using the handshake traffic key, discarding records which fail
+     * deprotection (up to the configured max_early_data_size). [..] If the server sends a HelloRetryRequest,
+     * it skips all records with an external content type of "application_data" (indicating that they are
+     * encrypted), up to the configured max_early_data_size.
+     */
+    private TlsDecodeResult decodeOrSkipEarlyData(short recordType, ProtocolVersion recordVersion,
+        byte[] ciphertext, int off, ByteBuffer ciphertextBuffer, int len) throws IOException
+    {
+        if (readCipher.usesOpaqueRecordTypeDecode())
+        {
+            try
+            {
+                TlsDecodeResult decoded = decodeCiphertext(readSeqNo.currentValue(), recordType, recordVersion,
+                    ciphertext, off, ciphertextBuffer, len);
+                readSeqNo.nextValue(AlertDescription.unexpected_message);
+                return decoded;
+            }
+            catch (TlsFatalAlert e)
+            {
+                short alertDescription = e.getAlertDescription();
+                if (AlertDescription.bad_record_mac != alertDescription
+                    && AlertDescription.decode_error != alertDescription)
+                {
+                    throw e;
+                }
+            }
+        }
+
+        this.skipEarlyDataLimit -= Math.max(0, readCipher.getPlaintextDecodeLimit(len));
+        if (skipEarlyDataLimit < 0L)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Too much early data");
+        }
+        return null;
+    }
+
+    private TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
+        byte[] ciphertext, int off, ByteBuffer ciphertextBuffer, int len) throws IOException
+    {
+        if (null == ciphertextBuffer)
+        {
+            return readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
+        }
+
+        byte[] fragment = getBufferedRecordFragment(len);
+
+        if (readCipher instanceof TlsByteBufferCipher)
+        {
+            return ((TlsByteBufferCipher)readCipher).decodeCiphertext(seqNo, recordType, recordVersion,
+                ciphertextBuffer, len, fragment, 0);
+        }
+
+        ciphertextBuffer.get(fragment, 0, len);
+        return readCipher.decodeCiphertext(seqNo, recordType, recordVersion, fragment, 0, len);
+    }
+
     void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int plaintextLength)
         throws IOException
+    {
+        writeRecord(contentType, plaintext, plaintextOffset, null, plaintextLength);
+    }
+
+    /*
+     * As for writeRecord(short, byte[], int, int), but the plaintext is read from the buffer's position (which is
+     * advanced past it).
+     */
+    void writeRecord(short contentType, ByteBuffer plaintext, int plaintextLength)
+        throws IOException
+    {
+        writeRecord(contentType, null, 0, plaintext, plaintextLength);
+    }
+
+    private void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, ByteBuffer plaintextBuffer,
+        int plaintextLength) throws IOException
     {
         // Never send anything until a valid ClientHello has been received
         if (writeVersion == null)
@@ -294,8 +525,26 @@ void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int p
         long seqNo = writeSeqNo.nextValue(AlertDescription.internal_error);
         ProtocolVersion recordVersion = writeVersion;
 
-        TlsEncodeResult encoded = writeCipher.encodePlaintext(seqNo, contentType, recordVersion,
-            RecordFormat.FRAGMENT_OFFSET, plaintext, plaintextOffset, plaintextLength);
+        TlsEncodeResult encoded;
+        if (null == plaintextBuffer)
+        {
+            encoded = writeCipher.encodePlaintext(seqNo, contentType, recordVersion, RecordFormat.FRAGMENT_OFFSET,
+                plaintext, plaintextOffset, plaintextLength);
+        }
+        else if (writeCipher instanceof TlsByteBufferCipher)
+        {
+            encoded = ((TlsByteBufferCipher)writeCipher).encodePlaintext(seqNo, contentType, recordVersion,
+                RecordFormat.FRAGMENT_OFFSET, plaintextBuffer, plaintextLength);
+        }
+        else
+        {
+            // The cipher can only encode from an array
+            byte[] buf = new byte[plaintextLength];
+            plaintextBuffer.get(buf, 0, plaintextLength);
+
+            encoded = writeCipher.encodePlaintext(seqNo, contentType, recordVersion, RecordFormat.FRAGMENT_OFFSET,
+                buf, 0, plaintextLength);
+        }
 
         int ciphertextLength = encoded.len - RecordFormat.FRAGMENT_OFFSET;
         TlsUtils.checkUint16(ciphertextLength);
@@ -319,6 +568,7 @@ void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int p
     void close() throws IOException
     {
         inputRecord.reset();
+        bufferedRecordFragment = null;
 
         IOException io = null;
         try
@@ -353,6 +603,16 @@ void close() throws IOException
         }
     }
 
+    private byte[] getBufferedRecordFragment(int length)
+    {
+        if (null == bufferedRecordFragment || bufferedRecordFragment.length < length)
+        {
+            // NOTE: length will already have been checked against ciphertextLimit
+            bufferedRecordFragment = new byte[Math.max(length, ciphertextLimit)];
+        }
+        return bufferedRecordFragment;
+    }
+
     private void checkChangeCipherSpec(byte[] buf, int off, int len)
         throws IOException
     {
@@ -396,7 +656,7 @@ else if (readCipher.usesOpaqueRecordTypeDecode())
             {
             case ContentType.application_data:
             {
-                if (!handler.isApplicationDataReady())
+                if (!handler.isApplicationDataReady() && skipEarlyDataLimit < 0L)
                 {
                     throw new TlsFatalAlert(AlertDescription.unexpected_message,
                         "Not ready for " + ContentType.getText(ContentType.application_data));
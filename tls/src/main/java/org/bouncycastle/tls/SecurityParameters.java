@@ -27,6 +27,7 @@
     TlsSecret exporterMasterSecret = null;
     TlsSecret handshakeSecret = null;
     TlsSecret masterSecret = null;
+    TlsSecret resumptionMasterSecret = null;
     TlsSecret trafficSecretClient = null;
     TlsSecret trafficSecretServer = null;
     byte[] clientRandom = null;
@@ -37,6 +38,7 @@
     byte[] srpIdentity = null;
     byte[] tlsServerEndPoint = null;
     byte[] tlsUnique = null;
+    boolean earlyDataAccepted = false;
     boolean encryptThenMAC = false;
     boolean extendedMasterSecret = false;
     boolean extendedPadding = false;
@@ -89,6 +91,8 @@ void clear()
         this.exporterMasterSecret = clearSecret(exporterMasterSecret);
         this.handshakeSecret = clearSecret(handshakeSecret);
         this.masterSecret = clearSecret(masterSecret);
+
+        // NOTE: resumptionMasterSecret is kept, as NewSessionTicket messages can follow the handshake
     }
 
     /**
@@ -259,6 +263,11 @@ public TlsSecret getMasterSecret()
         return masterSecret;
     }
 
+    public TlsSecret getResumptionMasterSecret()
+    {
+        return resumptionMasterSecret;
+    }
+
     public TlsSecret getTrafficSecretClient()
     {
         return trafficSecretClient;
@@ -309,6 +318,14 @@ public byte[] getTLSUnique()
         return tlsUnique;
     }
 
+    /**
+     * Whether the server accepted the TLS 1.3 early data (0-RTT) sent with the ClientHello.
+     */
+    public boolean isEarlyDataAccepted()
+    {
+        return earlyDataAccepted;
+    }
+
     public boolean isEncryptThenMAC()
     {
         return encryptThenMAC;
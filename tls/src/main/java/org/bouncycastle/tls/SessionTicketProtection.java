@@ -0,0 +1,214 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+import org.bouncycastle.tls.crypto.CryptoHashAlgorithm;
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.TlsSecret;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+import org.bouncycastle.util.Strings;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * Protection for stateless TLS 1.3 session tickets, so that the resumption state can be held by the
+ * client rather than in a server-side cache. A fresh ticket key is derived for each period of
+ * <code>keyPeriod</code> milliseconds from a master key, and tickets protected under the current key or any
+ * of the <code>previousKeys</code> keys before it are accepted. Servers sharing the same master key (and
+ * roughly synchronised clocks) can therefore resume each other's sessions without sharing any other state,
+ * and the keys rotate without any coordination between them. A ticket from the following period is also
+ * accepted, to allow for clock skew between servers.
+ * </p>
+ * <p>
+ * A ticket is epoch || nonce || ciphertext || tag, where the ciphertext is the state XORed with a
+ * keystream expanded by HKDF from the epoch key and nonce, and the tag is an HMAC-SHA256 over everything
+ * before it, under a separate key derived from the epoch key.
+ * </p>
+ */
+public class SessionTicketProtection
+{
+    private static final int NONCE_LENGTH = 16;
+    private static final int TAG_LENGTH = 32;
+    private static final int MAX_TICKET_LIFETIME = 7 * 24 * 60 * 60;
+
+    protected final TlsCrypto crypto;
+    protected final long keyPeriod;
+    protected final int previousKeys;
+
+    private final TlsSecret masterSecret;
+
+    /**
+     * Base constructor.
+     *
+     * @param crypto the crypto to derive the ticket keys with.
+     * @param masterKey the key to derive the ticket keys from, at least 16 bytes, shared by all servers
+     *                  which should accept each other's tickets.
+     * @param keyPeriod the time in milliseconds for which each ticket key is used to protect new tickets.
+     * @param previousKeys the number of previous ticket keys to accept tickets under.
+     */
+    public SessionTicketProtection(TlsCrypto crypto, byte[] masterKey, long keyPeriod, int previousKeys)
+    {
+        if (null == masterKey || masterKey.length < 16)
+        {
+            throw new IllegalArgumentException("'masterKey' must be at least 16 bytes");
+        }
+        if (keyPeriod < 1000)
+        {
+            throw new IllegalArgumentException("'keyPeriod' must be at least 1000 milliseconds");
+        }
+        if (previousKeys < 0)
+        {
+            throw new IllegalArgumentException("'previousKeys' cannot be negative");
+        }
+
+        this.crypto = crypto;
+        this.keyPeriod = keyPeriod;
+        this.previousKeys = previousKeys;
+
+        this.masterSecret = crypto.hkdfInit(CryptoHashAlgorithm.sha256).hkdfExtract(CryptoHashAlgorithm.sha256,
+            crypto.createSecret(masterKey));
+    }
+
+    /**
+     * Return the lifetime, in seconds, to advertise for tickets issued now. This is the time remaining
+     * before the current ticket key stops being accepted, limited to the 7 days allowed by RFC 8446.
+     */
+    public long getTicketLifetime()
+    {
+        long now = currentTimeMillis();
+        long acceptedUntil = (getEpoch(now) + previousKeys + 1) * keyPeriod;
+
+        return Math.min((acceptedUntil - now) / 1000, MAX_TICKET_LIFETIME);
+    }
+
+    /**
+     * Protect the passed in session state under the current ticket key.
+     *
+     * @param state the session state.
+     * @return the ticket.
+     */
+    public byte[] protect(byte[] state) throws IOException
+    {
+        long epoch = getEpoch(currentTimeMillis());
+        byte[] nonce = new byte[NONCE_LENGTH];
+        crypto.getSecureRandom().nextBytes(nonce);
+
+        byte[] ticket = new byte[8 + NONCE_LENGTH + state.length + TAG_LENGTH];
+        Pack.longToBigEndian(epoch, ticket, 0);
+        System.arraycopy(nonce, 0, ticket, 8, NONCE_LENGTH);
+
+        TlsSecret epochSecret = getEpochSecret(epoch);
+        try
+        {
+            byte[] keyStream = getKeyStream(epochSecret, nonce, state.length);
+            for (int i = 0; i < state.length; ++i)
+            {
+                ticket[8 + NONCE_LENGTH + i] = (byte)(state[i] ^ keyStream[i]);
+            }
+
+            byte[] tag = calculateTag(epochSecret, ticket, ticket.length - TAG_LENGTH);
+            System.arraycopy(tag, 0, ticket, ticket.length - TAG_LENGTH, TAG_LENGTH);
+        }
+        finally
+        {
+            epochSecret.destroy();
+        }
+
+        return ticket;
+    }
+
+    /**
+     * Recover the session state from a ticket.
+     *
+     * @param ticket the ticket presented by a client.
+     * @return the session state, or null if the ticket was not protected under a currently accepted
+     *         ticket key, or has been modified.
+     */
+    public byte[] unprotect(byte[] ticket) throws IOException
+    {
+        if (null == ticket || ticket.length < 8 + NONCE_LENGTH + TAG_LENGTH)
+        {
+            return null;
+        }
+
+        long epoch = Pack.bigEndianToLong(ticket, 0);
+        long currentEpoch = getEpoch(currentTimeMillis());
+        if (epoch < currentEpoch - previousKeys || epoch > currentEpoch + 1)
+        {
+            return null;
+        }
+
+        int stateLength = ticket.length - 8 - NONCE_LENGTH - TAG_LENGTH;
+
+        TlsSecret epochSecret = getEpochSecret(epoch);
+        try
+        {
+            byte[] tag = calculateTag(epochSecret, ticket, ticket.length - TAG_LENGTH);
+            if (!Arrays.constantTimeAreEqual(TAG_LENGTH, tag, 0, ticket, ticket.length - TAG_LENGTH))
+            {
+                return null;
+            }
+
+            byte[] nonce = Arrays.copyOfRange(ticket, 8, 8 + NONCE_LENGTH);
+            byte[] keyStream = getKeyStream(epochSecret, nonce, stateLength);
+
+            byte[] state = new byte[stateLength];
+            for (int i = 0; i < stateLength; ++i)
+            {
+                state[i] = (byte)(ticket[8 + NONCE_LENGTH + i] ^ keyStream[i]);
+            }
+            return state;
+        }
+        finally
+        {
+            epochSecret.destroy();
+        }
+    }
+
+    /**
+     * Return the current time in milliseconds, from which the current ticket key is determined.
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    private long getEpoch(long time)
+    {
+        return time / keyPeriod;
+    }
+
+    private TlsSecret getEpochSecret(long epoch)
+    {
+        byte[] info = Arrays.concatenate(Strings.toByteArray("ticket key"), Pack.longToBigEndian(epoch));
+
+        return masterSecret.hkdfExpand(CryptoHashAlgorithm.sha256, info, 32);
+    }
+
+    private static byte[] getKeyStream(TlsSecret epochSecret, byte[] nonce, int length)
+    {
+        if (length < 1)
+        {
+            return TlsUtils.EMPTY_BYTES;
+        }
+
+        byte[] info = Arrays.concatenate(Strings.toByteArray("ticket enc"), nonce);
+
+        return epochSecret.hkdfExpand(CryptoHashAlgorithm.sha256, info, length).extract();
+    }
+
+    private static byte[] calculateTag(TlsSecret epochSecret, byte[] buf, int len)
+    {
+        TlsSecret macSecret = epochSecret.hkdfExpand(CryptoHashAlgorithm.sha256,
+            Strings.toByteArray("ticket mac"), 32);
+        try
+        {
+            return macSecret.calculateHMAC(CryptoHashAlgorithm.sha256, buf, 0, len);
+        }
+        finally
+        {
+            macSecret.destroy();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * A codec for one {@link CertificateCompressionAlgorithm}, used for TLS 1.3 certificate compression (RFC
+ * 8879). {@link ZlibCertificateCompressor} is built in; other algorithms (e.g. brotli, zstd) can be
+ * supported by implementing this interface and returning an instance from
+ * {@link TlsPeer#getCertificateCompressors()}.
+ * </p>
+ */
+public interface TlsCertificateCompressor
+{
+    /**
+     * @return the {@link CertificateCompressionAlgorithm} implemented by this codec.
+     */
+    int getAlgorithm();
+
+    /**
+     * Compress an encoded Certificate message (without the handshake message header).
+     *
+     * @param certificateMessage the encoded Certificate message.
+     * @return the compressed data, which must not be empty.
+     */
+    byte[] compress(byte[] certificateMessage) throws IOException;
+
+    /**
+     * Decompress the compressed_certificate_message from a CompressedCertificate message.
+     * Implementations MUST NOT produce more than <code>uncompressedLength</code> bytes of output, so that
+     * the size bound applied by the caller also limits the work done here.
+     *
+     * @param compressed the compressed data.
+     * @param uncompressedLength the uncompressed_length from the CompressedCertificate message.
+     * @return the decompressed Certificate message.
+     * @throws IOException if the data cannot be decompressed, or doesn't decompress to exactly
+     *                     <code>uncompressedLength</code> bytes.
+     */
+    byte[] decompress(byte[] compressed, int uncompressedLength) throws IOException;
+}
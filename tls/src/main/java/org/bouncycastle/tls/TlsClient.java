@@ -32,6 +32,33 @@
      */
     Vector getExternalPSKs();
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return the {@link TlsPSKResumption resumption PSKs}, from earlier calls to
+     * {@link #notifyResumptionPSK(TlsPSKResumption)}, to offer in the ClientHello. Expired PSKs, and any
+     * not usable with the offered cipher suites, are left out. Note that this will only be called when
+     * TLS 1.3 or higher is amongst the offered protocol versions.
+     * 
+     * @return a {@link Vector} of {@link TlsPSKResumption} instances, possibly empty if there are none to
+     *         offer but session tickets are wanted, or null if session tickets should not be used.
+     */
+    Vector getResumptionPSKs();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return application data to send as TLS 1.3 early data (0-RTT), immediately after the ClientHello.
+     * It is only sent when the first offered resumption PSK allows early data of at least this size (and
+     * was issued for one of the offered cipher suites and, if any, ALPN protocols), and the server may still
+     * reject it; check {@link SecurityParameters#isEarlyDataAccepted()} once the handshake completes, and
+     * send the data again if it wasn't accepted. Note that early data can be replayed by an attacker, see
+     * RFC 8446 8.
+     * 
+     * @return the early data to send, or null to not send any.
+     */
+    byte[] getEarlyData();
+
     boolean isFallback();
 
     // Hashtable is (Integer -> byte[])
@@ -123,4 +150,16 @@ Vector getClientSupplementalData()
      */
     void notifyNewSessionTicket(NewSessionTicket newSessionTicket)
         throws IOException;
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * This method will be called (only) when a TLS 1.3 NewSessionTicket message is received on a
+     * connection where the psk_key_exchange_modes extension was sent.
+     * 
+     * @param resumptionPSK the PSK established by the ticket, which may be offered on later connections.
+     * @throws IOException
+     */
+    void notifyResumptionPSK(TlsPSKResumption resumptionPSK)
+        throws IOException;
 }
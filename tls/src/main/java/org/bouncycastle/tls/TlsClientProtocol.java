@@ -9,6 +9,10 @@
 import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsAgreement;
+import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsCryptoUtils;
+import org.bouncycastle.tls.crypto.TlsHash;
+import org.bouncycastle.tls.crypto.TlsHashOutputStream;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.tls.crypto.TlsStreamSigner;
 import org.bouncycastle.util.Arrays;
@@ -29,6 +33,9 @@
     protected CertificateStatus certificateStatus = null;
     protected CertificateRequest certificateRequest = null;
 
+    protected TlsPSKResumption earlyDataPSK = null;
+    protected boolean earlyDataPSKSelected = false;
+
     /**
      * Constructor for non-blocking mode.<br>
      * <br>
@@ -119,6 +126,9 @@ protected void cleanupHandshake()
 
         this.certificateStatus = null;
         this.certificateRequest = null;
+
+        this.earlyDataPSK = null;
+        this.earlyDataPSKSelected = false;
     }
 
     protected TlsContext getContext()
@@ -147,6 +157,7 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         switch (type)
         {
         case HandshakeType.certificate:
+        case HandshakeType.compressed_certificate:
         {
             switch (this.connection_state)
             {
@@ -157,7 +168,15 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             }
             case CS_SERVER_CERTIFICATE_REQUEST:
             {
-                receive13ServerCertificate(buf);
+                if (HandshakeType.compressed_certificate == type)
+                {
+                    receive13ServerCertificate(receive13CompressedCertificate(buf,
+                        TlsExtensionsUtils.getCompressCertificateExtension(clientExtensions)));
+                }
+                else
+                {
+                    receive13ServerCertificate(buf);
+                }
                 this.connection_state = CS_SERVER_CERTIFICATE;
                 break;
             }
@@ -243,10 +262,17 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 recordStream.setIgnoreChangeCipherSpec(false);
 
                 /*
-                 * TODO[tls13] After receiving the server's Finished message, if the server has accepted early
-                 * data, an EndOfEarlyData message will be sent to indicate the key change. This message will
-                 * be encrypted with the 0-RTT traffic keys.
+                 * RFC 8446 4.5. If the server sent an "early_data" extension in EncryptedExtensions, the client
+                 * MUST send an EndOfEarlyData message after receiving the server Finished. [..] This message is
+                 * encrypted under keys derived from the client_early_traffic_secret.
                  */
+                if (tlsClientContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+                {
+                    send13EndOfEarlyDataMessage();
+                    this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+
+                    recordStream.enablePendingCipherWrite();
+                }
 
                 if (null != certificateRequest)
                 {
@@ -265,7 +291,10 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                         clientCertificate = Certificate.EMPTY_CHAIN_TLS13;
                     }
 
-                    send13CertificateMessage(clientCertificate);
+                    TlsCertificateCompressor certificateCompressor = TlsUtils.selectCertificateCompressor(
+                        certificateCompressors, certificateRequest.getCertificateCompressionAlgorithms());
+
+                    send13CertificateMessage(clientCertificate, certificateCompressor);
                     this.connection_state = CS_CLIENT_CERTIFICATE;
 
                     if (null != clientCredentials)
@@ -282,6 +311,13 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
 
                 TlsUtils.establish13PhaseApplication(tlsClientContext, serverFinishedTranscriptHash, recordStream);
 
+                if (null != TlsExtensionsUtils.getPSKKeyExchangeModesExtension(clientExtensions))
+                {
+                    byte[] clientFinishedTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+
+                    TlsUtils.establish13PhaseResumption(tlsClientContext, clientFinishedTranscriptHash);
+                }
+
                 recordStream.enablePendingCipherWrite();
                 recordStream.enablePendingCipherRead(false);
 
@@ -337,7 +373,6 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         case HandshakeType.certificate_url:
         case HandshakeType.client_hello:
         case HandshakeType.client_key_exchange:
-        case HandshakeType.compressed_certificate:
         case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
@@ -1023,6 +1058,8 @@ protected void process13ServerHello(ServerHello serverHello, boolean afterHelloR
                 this.selectedPSK13 = true;
             }
 
+            this.earlyDataPSKSelected = null != earlyDataPSK && selectedPSK == earlyDataPSK;
+
             tlsClient.notifySelectedPSK(selectedPSK);
         }
 
@@ -1079,17 +1116,26 @@ protected void process13ServerHelloCoda(ServerHello serverHello, boolean afterHe
             recordStream.setIgnoreChangeCipherSpec(true);
 
             /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
-             * ClientHello.
+             * NOTE: If early data was offered, the record was already sent immediately after the ClientHello.
              */
             /*
              * TODO[tls13] Ideally wait until just after Server Finished received, but then we'd need to defer
              * the enabling of the pending write cipher
              */
-            sendChangeCipherSpecMessage();
+            if (null == earlyDataPSK)
+            {
+                sendChangeCipherSpecMessage();
+            }
         }
 
-        recordStream.enablePendingCipherWrite();
+        /*
+         * NOTE: If early data was offered, the early data cipher is kept until we know from the
+         * EncryptedExtensions whether it was accepted.
+         */
+        if (null == earlyDataPSK)
+        {
+            recordStream.enablePendingCipherWrite();
+        }
         recordStream.enablePendingCipherRead(false);
     }
 
@@ -1135,6 +1181,16 @@ protected void processServerHello(ServerHello serverHello)
                 throw new TlsFatalAlert(AlertDescription.protocol_version);
             }
 
+            /*
+             * RFC 8446 4.2.10. If early data was sent, the client MUST abort the handshake with a
+             * "protocol_version" alert if the server selects an earlier version.
+             */
+            if (null != earlyDataPSK && !ProtocolVersion.TLSv13.isEqualOrEarlierVersionOf(server_version))
+            {
+                throw new TlsFatalAlert(AlertDescription.protocol_version,
+                    "Server selected " + server_version + " after early data was sent");
+            }
+
             ProtocolVersion legacy_record_version = server_version.isLaterVersionOf(ProtocolVersion.TLSv12)
                 ? ProtocolVersion.TLSv12
                 : server_version;
@@ -1518,6 +1574,36 @@ protected void receive13EncryptedExtensions(ByteArrayInputStream buf)
         securityParameters.applicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(serverExtensions);
         securityParameters.applicationProtocolSet = true;
 
+        if (TlsExtensionsUtils.hasEarlyDataIndication(serverExtensions))
+        {
+            /*
+             * RFC 8446 4.2.10. If the server has supplied an "early_data" extension, the client MUST verify that
+             * the server's selected_identity is 0. If any other value is returned, the client MUST abort the
+             * handshake with an "illegal_parameter" alert.
+             */
+            if (!earlyDataPSKSelected || earlyDataPSK.getCipherSuite() != securityParameters.getCipherSuite())
+            {
+                throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+            }
+
+            ProtocolName applicationProtocol = securityParameters.getApplicationProtocol();
+            if (null == applicationProtocol
+                ? null != earlyDataPSK.getApplicationProtocol()
+                : !applicationProtocol.equals(earlyDataPSK.getApplicationProtocol()))
+            {
+                throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+            }
+
+            securityParameters.earlyDataAccepted = true;
+        }
+        else if (null != earlyDataPSK)
+        {
+            // The early data was rejected, so switch to the handshake traffic keys now
+            cancelEarlyData();
+
+            recordStream.enablePendingCipherWrite();
+        }
+
         Hashtable sessionClientExtensions = clientExtensions, sessionServerExtensions = serverExtensions;
         if (securityParameters.isResumedSession())
         {
@@ -1565,8 +1651,6 @@ protected void receive13NewSessionTicket(ByteArrayInputStream buf)
             throw new TlsFatalAlert(AlertDescription.unexpected_message);
         }
 
-        // TODO[tls13] Do something more than just ignore them
-
 //        struct {
 //            uint32 ticket_lifetime;
 //            uint32 ticket_age_add;
@@ -1575,12 +1659,36 @@ protected void receive13NewSessionTicket(ByteArrayInputStream buf)
 //            Extension extensions<0..2^16-2>;
 //        } NewSessionTicket;
 
-        TlsUtils.readUint32(buf);
-        TlsUtils.readUint32(buf);
-        TlsUtils.readOpaque8(buf);
-        TlsUtils.readOpaque16(buf);
-        TlsUtils.readOpaque16(buf);
+        long ticketLifetime = TlsUtils.readUint32(buf);
+        long ticketAgeAdd = TlsUtils.readUint32(buf);
+        byte[] ticketNonce = TlsUtils.readOpaque8(buf);
+        byte[] ticket = TlsUtils.readOpaque16(buf, 1);
+        byte[] extBytes = TlsUtils.readOpaque16(buf);
         assertEmpty(buf);
+
+        /*
+         * RFC 8446 4.6.1. Servers MUST NOT use any value greater than 604800 seconds (7 days).
+         */
+        if (ticketLifetime > 604800L)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        Hashtable ticketExtensions = readExtensionsData13(HandshakeType.new_session_ticket, extBytes);
+
+        long maxEarlyDataSize = Math.max(0L, TlsExtensionsUtils.getEarlyDataMaxSize(ticketExtensions));
+
+        SecurityParameters securityParameters = tlsClientContext.getSecurityParametersConnection();
+        if (null == securityParameters.getResumptionMasterSecret() || ticketLifetime < 1)
+        {
+            return;
+        }
+
+        TlsSecret psk = TlsUtils.deriveResumptionPSK(securityParameters, ticketNonce);
+
+        tlsClient.notifyResumptionPSK(new TlsPSKResumption(ticket, psk, securityParameters.getCipherSuite(),
+            ticketLifetime, ticketAgeAdd, System.currentTimeMillis(), maxEarlyDataSize,
+            securityParameters.getApplicationProtocol()));
     }
 
     protected void receive13ServerCertificate(ByteArrayInputStream buf)
@@ -1713,20 +1821,79 @@ protected void send13ClientHelloRetry() throws IOException
          * extension [RFC7685].
          */
 
+        /*
+         * RFC 8446 4.2.10. [..] a client that sent early data [..] MUST NOT send early data in its second
+         * ClientHello, and the server will skip the early data already sent.
+         */
+        boolean sentEarlyData = null != earlyDataPSK;
+        if (sentEarlyData)
+        {
+            cancelEarlyData();
+
+            recordStream.disableEarlyDataWrite();
+        }
+
         // See RFC 8446 D.4.
         {
             recordStream.setIgnoreChangeCipherSpec(true);
 
             /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
+             * NOTE: If early data was offered, the record was already sent immediately after the first
              * ClientHello.
              */
-            sendChangeCipherSpecMessage();
+            if (!sentEarlyData)
+            {
+                sendChangeCipherSpecMessage();
+            }
         }
 
         sendClientHelloMessage();
     }
 
+    protected void send13EarlyData(byte[] earlyData) throws IOException
+    {
+        // See RFC 8446 D.4. The record is placed immediately after the first ClientHello.
+        sendChangeCipherSpecMessage();
+
+        TlsHash hash = tlsClientContext.getCrypto().createHash(
+            TlsCryptoUtils.getHashForPRF(earlyDataPSK.getPRFAlgorithm()));
+        handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+        byte[] clientHelloTranscriptHash = hash.calculateHash();
+
+        TlsCipher earlyDataCipher = TlsUtils.establish13EarlyDataClient(tlsClientContext, earlyDataPSK,
+            clientBinders.earlySecrets[0], clientHelloTranscriptHash);
+
+        recordStream.enableEarlyDataWrite(earlyDataCipher);
+
+        int plaintextLimit = recordStream.getPlaintextLimit();
+        for (int off = 0; off < earlyData.length; off += plaintextLimit)
+        {
+            safeWriteRecord(ContentType.application_data, earlyData, off,
+                Math.min(plaintextLimit, earlyData.length - off));
+        }
+    }
+
+    protected void send13EndOfEarlyDataMessage() throws IOException
+    {
+        // struct {} EndOfEarlyData;
+        HandshakeMessageOutput.send(this, HandshakeType.end_of_early_data, TlsUtils.EMPTY_BYTES);
+    }
+
+    private void cancelEarlyData()
+    {
+        SecurityParameters securityParameters = tlsClientContext.getSecurityParametersHandshake();
+
+        TlsSecret earlyExporterMasterSecret = securityParameters.earlyExporterMasterSecret;
+        if (null != earlyExporterMasterSecret)
+        {
+            securityParameters.earlyExporterMasterSecret = null;
+            earlyExporterMasterSecret.destroy();
+        }
+
+        this.earlyDataPSK = null;
+        this.earlyDataPSKSelected = false;
+    }
+
     protected void sendCertificateVerifyMessage(DigitallySigned certificateVerify)
         throws IOException
     {
@@ -1874,8 +2041,30 @@ protected void sendClientHello()
 
         securityParameters.clientSupportedGroups = TlsExtensionsUtils.getSupportedGroupsExtension(clientExtensions);
 
+        byte[] earlyData = null;
+        if (offeringTLSv13Plus && !securityParameters.isRenegotiating())
+        {
+            earlyData = tlsClient.getEarlyData();
+
+            this.certificateCompressors = tlsClient.getCertificateCompressors();
+
+            int[] certificateCompressionAlgorithms = TlsUtils.getCertificateCompressionAlgorithms(
+                certificateCompressors);
+            if (null != certificateCompressionAlgorithms
+                && !clientExtensions.containsKey(TlsExtensionsUtils.EXT_compress_certificate))
+            {
+                TlsExtensionsUtils.addCompressCertificateExtension(clientExtensions,
+                    certificateCompressionAlgorithms);
+            }
+        }
+
         this.clientBinders = TlsUtils.addPreSharedKeyToClientHello(tlsClientContext, tlsClient, clientExtensions,
-            offeredCipherSuites);
+            offeredCipherSuites, earlyData);
+
+        if (TlsExtensionsUtils.hasEarlyDataIndication(clientExtensions))
+        {
+            this.earlyDataPSK = (TlsPSKResumption)clientBinders.psks[0];
+        }
 
         // TODO[tls13-psk] Perhaps don't add key_share if external PSK(s) offered and 'psk_dhe_ke' not offered  
         this.clientAgreements = TlsUtils.addKeyShareToClientHello(tlsClientContext, tlsClient, clientExtensions);
@@ -1951,6 +2140,11 @@ protected void sendClientHello()
             null, offeredCipherSuites, clientExtensions, bindersSize);
 
         sendClientHelloMessage();
+
+        if (null != earlyDataPSK)
+        {
+            send13EarlyData(earlyData);
+        }
     }
 
     protected void sendClientHelloMessage() throws IOException
@@ -1962,7 +2156,9 @@ protected void sendClientHelloMessage() throws IOException
 
         if (null != clientBinders)
         {
-            OfferedPsks.encodeBinders(message, tlsClientContext.getCrypto(), handshakeHash, clientBinders);
+            // NOTE: retryGroup is only set while sending the ClientHello in response to a HelloRetryRequest
+            OfferedPsks.encodeBinders(message, tlsClientContext.getCrypto(), handshakeHash, clientBinders,
+                retryGroup >= 0);
         }
 
         message.sendClientHello(this, handshakeHash, clientHello.getBindersSize());
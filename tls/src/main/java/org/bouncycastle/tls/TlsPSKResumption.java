@@ -0,0 +1,156 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.TlsSecret;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * A TLS 1.3 resumption PSK, as established by a NewSessionTicket message. On the client side the identity
+ * is the ticket received from the server, and the issue time is the time the ticket was received.
+ * </p>
+ */
+public class TlsPSKResumption
+    implements TlsPSK
+{
+    private static final short STATE_VERSION = 1;
+
+    protected final byte[] identity;
+    protected final TlsSecret key;
+    protected final int cipherSuite;
+    protected final int prfAlgorithm;
+    protected final long ticketLifetime;
+    protected final long ticketAgeAdd;
+    protected final long issueTime;
+    protected final long maxEarlyDataSize;
+    protected final ProtocolName applicationProtocol;
+
+    /**
+     * @param identity the ticket.
+     * @param key the PSK associated with the ticket.
+     * @param cipherSuite the {@link CipherSuite} of the connection the ticket was issued on.
+     * @param ticketLifetime the ticket lifetime in seconds.
+     * @param ticketAgeAdd the ticket_age_add value from the NewSessionTicket message.
+     * @param issueTime the time, in milliseconds, the ticket was issued.
+     * @param maxEarlyDataSize the max_early_data_size from the NewSessionTicket message, or 0 if early data
+     *                         is not allowed with this ticket.
+     * @param applicationProtocol the ALPN protocol of the connection the ticket was issued on, or null.
+     */
+    public TlsPSKResumption(byte[] identity, TlsSecret key, int cipherSuite, long ticketLifetime, long ticketAgeAdd,
+        long issueTime, long maxEarlyDataSize, ProtocolName applicationProtocol)
+    {
+        this.identity = Arrays.clone(identity);
+        this.key = key;
+        this.cipherSuite = cipherSuite;
+        this.prfAlgorithm = TlsUtils.getPRFAlgorithm13(cipherSuite);
+        this.ticketLifetime = ticketLifetime;
+        this.ticketAgeAdd = ticketAgeAdd;
+        this.issueTime = issueTime;
+        this.maxEarlyDataSize = maxEarlyDataSize;
+        this.applicationProtocol = applicationProtocol;
+    }
+
+    public byte[] getIdentity()
+    {
+        return identity;
+    }
+
+    public TlsSecret getKey()
+    {
+        return key;
+    }
+
+    public int getCipherSuite()
+    {
+        return cipherSuite;
+    }
+
+    public int getPRFAlgorithm()
+    {
+        return prfAlgorithm;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetime;
+    }
+
+    public long getTicketAgeAdd()
+    {
+        return ticketAgeAdd;
+    }
+
+    public long getIssueTime()
+    {
+        return issueTime;
+    }
+
+    public long getMaxEarlyDataSize()
+    {
+        return maxEarlyDataSize;
+    }
+
+    public ProtocolName getApplicationProtocol()
+    {
+        return applicationProtocol;
+    }
+
+    /**
+     * Return the obfuscated_ticket_age to send when offering this PSK at the given time.
+     */
+    public long getObfuscatedTicketAge(long time)
+    {
+        return (time - issueTime + ticketAgeAdd) & 0xFFFFFFFFL;
+    }
+
+    public boolean isExpired(long time)
+    {
+        return time < issueTime || time - issueTime >= ticketLifetime * 1000L;
+    }
+
+    static byte[] encodeTicketState(int cipherSuite, long ticketLifetime, long ticketAgeAdd, long issueTime,
+        long maxEarlyDataSize, ProtocolName applicationProtocol, byte[] key) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        TlsUtils.writeUint8(STATE_VERSION, buf);
+        TlsUtils.writeUint16(cipherSuite, buf);
+        TlsUtils.writeUint32(ticketLifetime, buf);
+        TlsUtils.writeUint32(ticketAgeAdd, buf);
+        TlsUtils.writeUint64(issueTime, buf);
+        TlsUtils.writeUint32(maxEarlyDataSize, buf);
+        TlsUtils.writeOpaque8(null == applicationProtocol ? TlsUtils.EMPTY_BYTES : applicationProtocol.getBytes(), buf);
+        TlsUtils.writeOpaque8(key, buf);
+        return buf.toByteArray();
+    }
+
+    /**
+     * Recover a PSK from the session state held in a ticket, or return null if the state is not
+     * understood.
+     */
+    static TlsPSKResumption parseTicketState(TlsCrypto crypto, byte[] ticket, byte[] state) throws IOException
+    {
+        ByteArrayInputStream buf = new ByteArrayInputStream(state);
+        if (TlsUtils.readUint8(buf) != STATE_VERSION)
+        {
+            return null;
+        }
+
+        int cipherSuite = TlsUtils.readUint16(buf);
+        long ticketLifetime = TlsUtils.readUint32(buf);
+        long ticketAgeAdd = TlsUtils.readUint32(buf);
+        long issueTime = (TlsUtils.readUint32(buf) << 32) | TlsUtils.readUint32(buf);
+        long maxEarlyDataSize = TlsUtils.readUint32(buf);
+        byte[] applicationProtocol = TlsUtils.readOpaque8(buf);
+        byte[] key = TlsUtils.readOpaque8(buf, 1);
+        TlsProtocol.assertEmpty(buf);
+
+        return new TlsPSKResumption(ticket, crypto.createSecret(key), cipherSuite, ticketLifetime, ticketAgeAdd,
+            issueTime, maxEarlyDataSize,
+            applicationProtocol.length < 1 ? null : ProtocolName.asRawBytes(applicationProtocol));
+    }
+}
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls;
 
 import java.io.IOException;
+import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsCertificate;
 import org.bouncycastle.tls.crypto.TlsCrypto;
@@ -57,6 +58,21 @@
 
     int getMaxHandshakeMessageSize();
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * <p>
+     * Return the codecs to use for TLS 1.3 certificate compression (RFC 8879), in order of preference.
+     * Their algorithms are offered to the peer in a compress_certificate extension (in the ClientHello
+     * or CertificateRequest), so that it can send a CompressedCertificate message, and our own
+     * Certificate message is compressed if the peer offered one of them. The uncompressed_length of a
+     * received CompressedCertificate is limited by {@link #getMaxHandshakeMessageSize()}.
+     * </p>
+     *
+     * @return a {@link Vector} of {@link TlsCertificateCompressor}, or null (or empty) to
+     *         disable certificate compression.
+     */
+    Vector getCertificateCompressors();
+
     short[] getPskKeyExchangeModes();
 
     /**
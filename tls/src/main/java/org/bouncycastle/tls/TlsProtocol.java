@@ -161,6 +161,7 @@ protected boolean isTLSv13ConnectionState()
     protected int retryGroup = -1;
     protected Hashtable clientExtensions = null;
     protected Hashtable serverExtensions = null;
+    protected Vector certificateCompressors = null;
 
     protected short connection_state = CS_START;
     protected boolean selectedPSK13 = false;
@@ -280,6 +281,15 @@ protected void handleChangeCipherSpecMessage() throws IOException
     {
     }
 
+    /**
+     * Called when application data is received before the handshake is complete, which is only allowed
+     * for accepted TLS 1.3 early data. The data is queued for reading once the handshake completes.
+     */
+    protected void handleEarlyData(int length) throws IOException
+    {
+        throw new TlsFatalAlert(AlertDescription.unexpected_message);
+    }
+
     protected void handleClose(boolean user_canceled)
         throws IOException
     {
@@ -471,6 +481,7 @@ protected void cleanupHandshake()
         this.retryGroup = -1;
         this.clientExtensions = null;
         this.serverExtensions = null;
+        this.certificateCompressors = null;
 
         this.selectedPSK13 = false;
         this.receivedChangeCipherSpec = false;
@@ -567,7 +578,7 @@ protected void processRecord(short protocol, byte[] buf, int off, int len)
         {
             if (!appDataReady)
             {
-                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                handleEarlyData(len);
             }
             applicationDataQueue.addData(buf, off, len);
             processApplicationDataQueue();
@@ -942,6 +953,30 @@ protected boolean safeReadFullRecord(byte[] input, int inputOff, int inputLen)
         }
     }
 
+    protected boolean safeReadFullRecord(ByteBuffer input, int inputLen)
+        throws IOException
+    {
+        try
+        {
+            return recordStream.readFullRecord(input, inputLen);
+        }
+        catch (TlsFatalAlert e)
+        {
+            handleException(e.getAlertDescription(), "Failed to process record", e);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to process record", e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to process record", e);
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+
     protected void safeWriteRecord(short type, byte[] buf, int offset, int len)
         throws IOException
     {
@@ -966,6 +1001,30 @@ protected void safeWriteRecord(short type, byte[] buf, int offset, int len)
         }
     }
 
+    protected void safeWriteRecord(short type, ByteBuffer buf, int len)
+        throws IOException
+    {
+        try
+        {
+            recordStream.writeRecord(type, buf, len);
+        }
+        catch (TlsFatalAlert e)
+        {
+            handleException(e.getAlertDescription(), "Failed to write record", e);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to write record", e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to write record", e);
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+
     /**
      * Write some application data. Fragmentation is handled internally. Usable in both blocking/non-blocking
      * modes.<br>
@@ -1000,6 +1059,38 @@ public void writeApplicationData(byte[] buf, int off, int len)
             }
         }
 
+        writeApplicationData(buf, off, null, len);
+    }
+
+    /**
+     * Write some application data from a {@link ByteBuffer}, as for {@link #writeApplicationData(byte[], int, int)}.
+     * The application data is read from the buffer's position, which is advanced by len.<br>
+     * <br>
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     *
+     * @param buf The buffer containing application data to send
+     * @param len The number of bytes of application data
+     * @throws IllegalStateException If called before the initial handshake has completed.
+     * @throws IOException           If connection is already closed, or for encryption or transport errors.
+     */
+    public void writeApplicationData(ByteBuffer buf, int len)
+        throws IOException
+    {
+        if (buf == null)
+        {
+            throw new NullPointerException();
+        }
+        if (len < 0 || len > buf.remaining())
+        {
+            throw new IndexOutOfBoundsException();
+        }
+
+        writeApplicationData(null, 0, buf, len);
+    }
+
+    private void writeApplicationData(byte[] buf, int off, ByteBuffer byteBuffer, int len)
+        throws IOException
+    {
         if (!appDataReady)
         {
             throw new IllegalStateException("Cannot write application data until initial handshake completed.");
@@ -1044,7 +1135,7 @@ public void writeApplicationData(byte[] buf, int off, int len)
                     {
                         if (len > 1)
                         {
-                            safeWriteRecord(ContentType.application_data, buf, off, 1);
+                            safeWriteApplicationData(buf, off, byteBuffer, 1);
                             ++off;
                             --len;
                         }
@@ -1066,13 +1157,26 @@ else if (recordStream.needsKeyUpdate())
 
                 // Fragment data according to the current fragment limit.
                 int toWrite = Math.min(len, recordStream.getPlaintextLimit());
-                safeWriteRecord(ContentType.application_data, buf, off, toWrite);
+                safeWriteApplicationData(buf, off, byteBuffer, toWrite);
                 off += toWrite;
                 len -= toWrite;
             }
         }
     }
 
+    private void safeWriteApplicationData(byte[] buf, int off, ByteBuffer byteBuffer, int len)
+        throws IOException
+    {
+        if (null == byteBuffer)
+        {
+            safeWriteRecord(ContentType.application_data, buf, off, len);
+        }
+        else
+        {
+            safeWriteRecord(ContentType.application_data, byteBuffer, len);
+        }
+    }
+
     public int getAppDataSplitMode()
     {
         return appDataSplitMode;
@@ -1380,6 +1484,60 @@ public void offerInput(byte[] input, int inputOff, int inputLen) throws IOExcept
 
         inputBuffers.addBytes(input, inputOff, inputLen);
 
+        processInputBuffers();
+    }
+
+    /**
+     * Offer input from a {@link ByteBuffer}, as for {@link #offerInput(byte[], int, int)}. The input is read from
+     * the buffer's position, which is advanced by inputLen. The contents of the buffer are not modified.<br>
+     * <br>
+     * Input that is exactly one record is decrypted straight from the buffer (if the cipher in use supports
+     * it); other input is copied into the retained input buffer.<br>
+     * <br>
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     *
+     * @param input The input buffer to offer
+     * @param inputLen The number of bytes of input being offered
+     * @throws IOException If an error occurs while decrypting or processing a record
+     */
+    public void offerInput(ByteBuffer input, int inputLen) throws IOException
+    {
+        if (blocking)
+        {
+            throw new IllegalStateException("Cannot use offerInput() in blocking mode! Use getInputStream() instead.");
+        }
+        if (closed)
+        {
+            throw new IOException("Connection is closed, cannot accept any more input");
+        }
+        if (inputLen < 0 || inputLen > input.remaining())
+        {
+            throw new IndexOutOfBoundsException();
+        }
+
+        // Fast path if the input is arriving one record at a time
+        if (inputBuffers.available() == 0 && safeReadFullRecord(input, inputLen))
+        {
+            if (closed)
+            {
+                if (!appDataReady)
+                {
+                    // NOTE: Any close during the handshake should have raised an exception.
+                    throw new TlsFatalAlert(AlertDescription.internal_error);
+                }
+            }
+            return;
+        }
+
+        byte[] buf = new byte[inputLen];
+        input.get(buf, 0, inputLen);
+        inputBuffers.addBytes(buf, 0, inputLen);
+
+        processInputBuffers();
+    }
+
+    private void processInputBuffers() throws IOException
+    {
         // loop while there are enough bytes to read the length of the next record
         while (inputBuffers.available() >= RecordFormat.FRAGMENT_OFFSET)
         {
@@ -1779,6 +1937,12 @@ protected void sendCertificateMessage(Certificate certificate, OutputStream endP
     }
 
     protected void send13CertificateMessage(Certificate certificate) throws IOException
+    {
+        send13CertificateMessage(certificate, null);
+    }
+
+    protected void send13CertificateMessage(Certificate certificate, TlsCertificateCompressor certificateCompressor)
+        throws IOException
     {
         if (null == certificate)
         {
@@ -1792,13 +1956,121 @@ protected void send13CertificateMessage(Certificate certificate) throws IOExcept
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.certificate);
-        certificate.encode(context, message, null);
-        message.send(this);
+        if (null == certificateCompressor || !send13CompressedCertificateMessage(certificate, certificateCompressor))
+        {
+            HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.certificate);
+            certificate.encode(context, message, null);
+            message.send(this);
+        }
 
         securityParameters.localCertificate = certificate;
     }
 
+    /**
+     * @return true if a CompressedCertificate message was sent, or false if compression didn't make the
+     *         message any smaller (and so a regular Certificate message should be sent instead).
+     */
+    private boolean send13CompressedCertificateMessage(Certificate certificate,
+        TlsCertificateCompressor certificateCompressor) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        certificate.encode(getContext(), buf, null);
+        byte[] certificateMessage = buf.toByteArray();
+
+        byte[] compressedCertificateMessage = certificateCompressor.compress(certificateMessage);
+        if (TlsUtils.isNullOrEmpty(compressedCertificateMessage))
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error, "Certificate compression failed");
+        }
+
+        // The CompressedCertificate header (2 + 3 + 3) has to be paid for
+        if (compressedCertificateMessage.length + 8 >= certificateMessage.length)
+        {
+            return false;
+        }
+
+        /*
+         * RFC 8879 4.
+         * 
+         * struct {
+         *     CertificateCompressionAlgorithm algorithm;
+         *     uint24 uncompressed_length;
+         *     opaque compressed_certificate_message<1..2^24-1>;
+         * } CompressedCertificate;
+         */
+        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.compressed_certificate);
+        TlsUtils.writeUint16(certificateCompressor.getAlgorithm(), message);
+        TlsUtils.writeUint24(certificateMessage.length, message);
+        TlsUtils.writeOpaque24(compressedCertificateMessage, message);
+        message.send(this);
+        return true;
+    }
+
+    /**
+     * Decompress a received CompressedCertificate message, returning the Certificate message it contains.
+     *
+     * @param offeredAlgorithms the algorithms offered to the peer in our compress_certificate extension
+     *                          (taken from {@link #certificateCompressors}), or null if none were offered.
+     */
+    protected ByteArrayInputStream receive13CompressedCertificate(ByteArrayInputStream buf,
+        int[] offeredAlgorithms) throws IOException
+    {
+        if (null == offeredAlgorithms)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        int algorithm = TlsUtils.readUint16(buf);
+        int uncompressedLength = TlsUtils.readUint24(buf);
+        byte[] compressedCertificateMessage = TlsUtils.readOpaque24(buf, 1);
+
+        assertEmpty(buf);
+
+        TlsCertificateCompressor certificateCompressor = Arrays.contains(offeredAlgorithms, algorithm)
+            ? TlsUtils.getCertificateCompressor(certificateCompressors, algorithm)
+            : null;
+        if (null == certificateCompressor)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter,
+                "Certificate compressed with unexpected algorithm: " + algorithm);
+        }
+
+        /*
+         * RFC 8879 4. If the received CompressedCertificate message cannot be decompressed, the connection
+         * MUST be terminated with the "bad_certificate" alert.
+         * 
+         * NOTE: The uncompressed message is subject to the same size limit as any other handshake message,
+         * which is checked before any decompression is attempted.
+         */
+        if (uncompressedLength > maxHandshakeMessageSize)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate,
+                "Compressed certificate too large: " + uncompressedLength + " > " + maxHandshakeMessageSize);
+        }
+
+        byte[] certificateMessage;
+        try
+        {
+            certificateMessage = certificateCompressor.decompress(compressedCertificateMessage,
+                uncompressedLength);
+        }
+        catch (TlsFatalAlert e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate, e);
+        }
+
+        if (null == certificateMessage || certificateMessage.length != uncompressedLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate);
+        }
+
+        return new ByteArrayInputStream(certificateMessage);
+    }
+
     protected void send13CertificateVerifyMessage(DigitallySigned certificateVerify)
         throws IOException
     {
@@ -39,6 +39,37 @@
      */
     TlsPSKExternal getExternalPSK(Vector identities);
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return the {@link SessionTicketProtection} used to issue TLS 1.3 session tickets, and to recover
+     * resumption PSKs from the tickets offered in the ClientHello. Tickets are only issued when the client
+     * has offered the psk_dhe_ke PSK key exchange mode.
+     * 
+     * @return the {@link SessionTicketProtection} to use, or null to not issue or accept tickets.
+     */
+    SessionTicketProtection getSessionTicketProtection();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return the max_early_data_size to advertise in TLS 1.3 session tickets, and so the most early data
+     * (0-RTT) that will be accepted with them. Early data is only accepted when
+     * {@link #getEarlyDataReplayCache()} also returns non-null. Note that early data is not protected
+     * against replay in the way the rest of the connection is, see RFC 8446 8.
+     * 
+     * @return the maximum early data size in bytes, or 0 to not accept early data.
+     */
+    long getMaxEarlyDataSize();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * @return the {@link EarlyDataReplayCache} to check ClientHellos carrying early data against, or null
+     *         to not accept early data.
+     */
+    EarlyDataReplayCache getEarlyDataReplayCache();
+
     void notifySession(TlsSession session);
 
     void notifyClientVersion(ProtocolVersion clientVersion) throws IOException;
@@ -9,9 +9,12 @@
 import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsAgreement;
+import org.bouncycastle.tls.crypto.TlsCipher;
 import org.bouncycastle.tls.crypto.TlsCrypto;
 import org.bouncycastle.tls.crypto.TlsDHConfig;
 import org.bouncycastle.tls.crypto.TlsECConfig;
+import org.bouncycastle.tls.crypto.TlsHash;
+import org.bouncycastle.tls.crypto.TlsHashOutputStream;
 import org.bouncycastle.tls.crypto.TlsKemConfig;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.util.Arrays;
@@ -25,6 +28,8 @@
     protected int[] offeredCipherSuites = null;
     protected TlsKeyExchange keyExchange = null;
     protected CertificateRequest certificateRequest = null;
+    protected TlsCipher earlyDataCipher = null;
+    protected long earlyDataRemaining = -1L;
 
     /**
      * Constructor for non-blocking mode.<br>
@@ -103,6 +108,8 @@ protected void cleanupHandshake()
         this.offeredCipherSuites = null;
         this.keyExchange = null;
         this.certificateRequest = null;
+        this.earlyDataCipher = null;
+        this.earlyDataRemaining = -1L;
     }
 
     protected boolean expectCertificateVerifyMessage()
@@ -212,6 +219,15 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
              * padding].
              */
 
+            /*
+             * RFC 8446 4.2.10. A client MUST NOT include the "early_data" extension in its followup
+             * ClientHello.
+             */
+            if (TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+            {
+                throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+            }
+
             byte[] cookie = TlsExtensionsUtils.getCookieExtension(clientHelloExtensions);
             if (!Arrays.areEqual(retryCookie, cookie))
             {
@@ -294,6 +310,20 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
                 TlsUtils.negotiatedCipherSuite(securityParameters, cipherSuite);
             }
 
+            /*
+             * RFC 8446 4.2.11. A PSK can only be used with a cipher suite that has the same hash, so if the
+             * selected cipher suite doesn't match, don't use the PSK and fall back to a full handshake.
+             */
+            if (null != selectedPSK && selectedPSK.psk.getPRFAlgorithm() != securityParameters.getPRFAlgorithm())
+            {
+                selectedPSK = null;
+
+                if (null == securityParameters.getClientSigAlgs())
+                {
+                    throw new TlsFatalAlert(AlertDescription.missing_extension);
+                }
+            }
+
             int[] clientSupportedGroups = securityParameters.getClientSupportedGroups();
             int[] serverSupportedGroups = securityParameters.getServerSupportedGroups();
 
@@ -311,6 +341,11 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
 
                 this.retryCookie = tlsServerContext.getNonceGenerator().generateNonce(16);
 
+                if (TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+                {
+                    recordStream.skipEarlyData(getEarlyDataSkipLimit());
+                }
+
                 return generate13HelloRetryRequest(clientHello);
             }
 
@@ -426,6 +461,27 @@ else if (NamedGroup.refersToASpecificKem(namedGroup))
 
         TlsUtils.establish13PhaseSecrets(tlsServerContext, pskEarlySecret, sharedSecret);
 
+        if (!afterHelloRetryRequest && TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+        {
+            if (acceptEarlyData13(selectedPSK, clientHelloExtensions))
+            {
+                securityParameters.earlyDataAccepted = true;
+
+                TlsExtensionsUtils.addEarlyDataIndication(serverEncryptedExtensions);
+
+                TlsHash hash = crypto.createHash(securityParameters.getPRFCryptoHashAlgorithm());
+                handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+                byte[] clientHelloTranscriptHash = hash.calculateHash();
+
+                this.earlyDataCipher = TlsUtils.establish13PhaseEarly(tlsServerContext, clientHelloTranscriptHash);
+                this.earlyDataRemaining = ((TlsPSKResumption)selectedPSK.psk).getMaxEarlyDataSize();
+            }
+            else
+            {
+                recordStream.skipEarlyData(getEarlyDataSkipLimit());
+            }
+        }
+
         this.serverExtensions = serverEncryptedExtensions;
 
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
@@ -437,6 +493,96 @@ else if (NamedGroup.refersToASpecificKem(namedGroup))
             securityParameters.getCipherSuite(), serverHelloExtensions);
     }
 
+    /**
+     * Decide whether to accept the client's early data, which is only possible when the first offered PSK
+     * is a resumption PSK that was issued with a max_early_data_size, and the anti-replay checks of RFC 8446
+     * 8 pass.
+     */
+    protected boolean acceptEarlyData13(OfferedPsks.SelectedConfig selectedPSK, Hashtable clientHelloExtensions)
+        throws IOException
+    {
+        /*
+         * RFC 8446 4.2.10. In order to accept early data, the server MUST have accepted a PSK cipher suite and
+         * selected the first key offered in the client's "pre_shared_key" extension. In addition, it MUST
+         * verify that the following values are the same as those associated with the selected PSK: [..] The
+         * selected cipher suite [..] The selected ALPN [RFC7301] protocol, if any.
+         */
+        if (null == selectedPSK || 0 != selectedPSK.index || !(selectedPSK.psk instanceof TlsPSKResumption))
+        {
+            return false;
+        }
+
+        TlsPSKResumption psk = (TlsPSKResumption)selectedPSK.psk;
+        if (psk.getMaxEarlyDataSize() < 1 || tlsServer.getMaxEarlyDataSize() < 1)
+        {
+            return false;
+        }
+
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+        if (psk.getCipherSuite() != securityParameters.getCipherSuite())
+        {
+            return false;
+        }
+
+        ProtocolName applicationProtocol = securityParameters.getApplicationProtocol();
+        if (null == applicationProtocol
+            ? null != psk.getApplicationProtocol()
+            : !applicationProtocol.equals(psk.getApplicationProtocol()))
+        {
+            return false;
+        }
+
+        EarlyDataReplayCache replayCache = tlsServer.getEarlyDataReplayCache();
+        if (null == replayCache)
+        {
+            return false;
+        }
+
+        OfferedPsks offeredPsks = TlsExtensionsUtils.getPreSharedKeyClientHello(clientHelloExtensions);
+        PskIdentity pskIdentity = (PskIdentity)offeredPsks.getIdentities().elementAt(0);
+        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(0);
+
+        /*
+         * RFC 8446 8.3. [..] the server can determine an expected_arrival_time for the ClientHello as:
+         * adjusted_creation_time + clients_ticket_age. When a new ClientHello is received, the
+         * expected_arrival_time is then compared against the current server wall clock time and if they
+         * differ by more than a certain amount, 0-RTT is rejected.
+         */
+        long now = System.currentTimeMillis();
+        long clientTicketAge = (pskIdentity.getObfuscatedTicketAge() - psk.getTicketAgeAdd()) & 0xFFFFFFFFL;
+        long expectedArrivalTime = psk.getIssueTime() + clientTicketAge;
+        if (Math.abs(now - expectedArrivalTime) > replayCache.getWindow())
+        {
+            return false;
+        }
+
+        // RFC 8446 8.2. ClientHello recording, keyed on the (unique) binder of the selected PSK.
+        return replayCache.checkAndRecord(binder, now);
+    }
+
+    protected long getEarlyDataSkipLimit()
+    {
+        return Math.max(tlsServer.getMaxEarlyDataSize(), 1 << 14);
+    }
+
+    protected void handleEarlyData(int length) throws IOException
+    {
+        if (!recordStream.isReadingEarlyData())
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        /*
+         * RFC 8446 4.2.10. If the server receives more than max_early_data_size bytes of 0-RTT data, it
+         * SHOULD abort the handshake with an "unexpected_message" alert.
+         */
+        this.earlyDataRemaining -= length;
+        if (earlyDataRemaining < 0L)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Too much early data");
+        }
+    }
+
     protected ServerHello generateServerHello(ClientHello clientHello, HandshakeMessageInput clientHelloMessage)
         throws IOException
     {
@@ -885,12 +1031,21 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         switch (type)
         {
         case HandshakeType.certificate:
+        case HandshakeType.compressed_certificate:
         {
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
             {
-                receive13ClientCertificate(buf);
+                if (HandshakeType.compressed_certificate == type)
+                {
+                    receive13ClientCertificate(receive13CompressedCertificate(buf,
+                        null == certificateRequest ? null : certificateRequest.getCertificateCompressionAlgorithms()));
+                }
+                else
+                {
+                    receive13ClientCertificate(buf);
+                }
                 this.connection_state = CS_CLIENT_CERTIFICATE;
                 break;
             }
@@ -946,6 +1101,14 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
+            {
+                if (tlsServerContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+                // NB: Fall through to next case label
+            }
+            case CS_CLIENT_END_OF_EARLY_DATA:
             {
                 skip13ClientCertificate();
                 // NB: Fall through to next case label
@@ -960,6 +1123,16 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 receive13ClientFinished(buf);
                 this.connection_state = CS_CLIENT_FINISHED;
 
+                boolean issueSessionTicket = isSessionTicketIssued13();
+                if (issueSessionTicket)
+                {
+                    buf.updateHash(handshakeHash);
+
+                    byte[] clientFinishedTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+
+                    TlsUtils.establish13PhaseResumption(tlsServerContext, clientFinishedTranscriptHash);
+                }
+
                 // See RFC 8446 D.4.
                 recordStream.setIgnoreChangeCipherSpec(false);
 
@@ -967,6 +1140,26 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 recordStream.enablePendingCipherRead(false);
 
                 completeHandshake();
+
+                if (issueSessionTicket)
+                {
+                    send13NewSessionTicketMessage();
+                }
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
+        case HandshakeType.end_of_early_data:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_FINISHED:
+            {
+                receive13EndOfEarlyData(buf);
+                this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
                 break;
             }
             default:
@@ -984,9 +1177,7 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         case HandshakeType.certificate_status:
         case HandshakeType.certificate_url:
         case HandshakeType.client_key_exchange:
-        case HandshakeType.compressed_certificate:
         case HandshakeType.encrypted_extensions:
-        case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
         case HandshakeType.message_hash:
@@ -1445,6 +1636,27 @@ protected void notifyClientCertificate(Certificate clientCertificate)
         TlsUtils.processClientCertificate(tlsServerContext, clientCertificate, keyExchange, tlsServer);
     }
 
+    /**
+     * Offer our certificate compression algorithms (if any) in a TLS 1.3 CertificateRequest that doesn't
+     * already include them.
+     */
+    protected CertificateRequest add13CertificateCompression(CertificateRequest certificateRequest)
+        throws IOException
+    {
+        int[] certificateCompressionAlgorithms = TlsUtils.getCertificateCompressionAlgorithms(
+            certificateCompressors);
+        if (null == certificateCompressionAlgorithms
+            || null != certificateRequest.getCertificateCompressionAlgorithms())
+        {
+            return certificateRequest;
+        }
+
+        return new CertificateRequest(certificateRequest.getCertificateRequestContext(),
+            certificateRequest.getSupportedSignatureAlgorithms(),
+            certificateRequest.getSupportedSignatureAlgorithmsCert(), certificateRequest.getCertificateAuthorities(),
+            certificateCompressionAlgorithms);
+    }
+
     protected void receive13ClientCertificate(ByteArrayInputStream buf)
         throws IOException
     {
@@ -1482,6 +1694,16 @@ protected void receive13ClientCertificateVerify(ByteArrayInputStream buf)
         TlsUtils.verify13CertificateVerifyClient(tlsServerContext, handshakeHash, certificateVerify);
     }
 
+    protected void receive13EndOfEarlyData(ByteArrayInputStream buf) throws IOException
+    {
+        // struct {} EndOfEarlyData;
+        assertEmpty(buf);
+
+        recordStream.notifyEndOfEarlyDataReceived();
+
+        this.earlyDataRemaining = -1L;
+    }
+
     protected void receive13ClientFinished(ByteArrayInputStream buf) throws IOException
     {
         process13FinishedMessage(buf);
@@ -1574,7 +1796,15 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
         TlsUtils.establish13PhaseHandshake(tlsServerContext, serverHelloTranscriptHash, recordStream);
 
         recordStream.enablePendingCipherWrite();
-        recordStream.enablePendingCipherRead(true);
+        if (null != earlyDataCipher)
+        {
+            recordStream.enableEarlyDataRead(earlyDataCipher);
+            this.earlyDataCipher = null;
+        }
+        else
+        {
+            recordStream.enablePendingCipherRead(true);
+        }
 
         send13EncryptedExtensionsMessage(serverExtensions);
         this.connection_state = CS_SERVER_ENCRYPTED_EXTENSIONS;
@@ -1587,6 +1817,8 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
         }
         else
         {
+            this.certificateCompressors = tlsServer.getCertificateCompressors();
+
             // CertificateRequest
             {
                 this.certificateRequest = tlsServer.getCertificateRequest();
@@ -1596,6 +1828,8 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
                     {
                         throw new TlsFatalAlert(AlertDescription.internal_error);
                     }
+
+                    this.certificateRequest = add13CertificateCompression(certificateRequest);
     
                     TlsUtils.establishServerSigAlgs(securityParameters, certificateRequest);
     
@@ -1622,7 +1856,9 @@ protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHello
                  */
 
                 Certificate serverCertificate = serverCredentials.getCertificate();
-                send13CertificateMessage(serverCertificate);
+                TlsCertificateCompressor certificateCompressor = TlsUtils.selectCertificateCompressor(
+                    certificateCompressors, TlsExtensionsUtils.getCompressCertificateExtension(clientExtensions));
+                send13CertificateMessage(serverCertificate, certificateCompressor);
                 securityParameters.tlsServerEndPoint = null;
                 this.connection_state = CS_SERVER_CERTIFICATE;
             }
@@ -1685,6 +1921,71 @@ protected void sendNewSessionTicketMessage(NewSessionTicket newSessionTicket)
         message.send(this);
     }
 
+    protected void send13NewSessionTicketMessage()
+        throws IOException
+    {
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersConnection();
+        TlsSecret resumptionMasterSecret = securityParameters.getResumptionMasterSecret();
+        if (null == resumptionMasterSecret)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        try
+        {
+            SessionTicketProtection ticketProtection = tlsServer.getSessionTicketProtection();
+
+            long ticketLifetime = ticketProtection.getTicketLifetime();
+            long ticketAgeAdd = tlsServerContext.getCrypto().getSecureRandom().nextInt() & 0xFFFFFFFFL;
+            byte[] ticketNonce = tlsServerContext.getNonceGenerator().generateNonce(8);
+
+            /*
+             * RFC 8446 8. Early data is only allowed with the tickets when the server has some anti-replay
+             * protection in place.
+             */
+            long maxEarlyDataSize = 0L;
+            if (null != tlsServer.getEarlyDataReplayCache())
+            {
+                maxEarlyDataSize = Math.max(0L, tlsServer.getMaxEarlyDataSize());
+            }
+
+            Hashtable ticketExtensions = new Hashtable();
+            if (maxEarlyDataSize > 0L)
+            {
+                TlsExtensionsUtils.addEarlyDataMaxSize(ticketExtensions, maxEarlyDataSize);
+            }
+
+            byte[] psk = TlsUtils.deriveResumptionPSK(securityParameters, ticketNonce).extract();
+
+            byte[] ticket = ticketProtection.protect(TlsPSKResumption.encodeTicketState(
+                securityParameters.getCipherSuite(), ticketLifetime, ticketAgeAdd, System.currentTimeMillis(),
+                maxEarlyDataSize, securityParameters.getApplicationProtocol(), psk));
+            Arrays.fill(psk, (byte)0);
+
+//            struct {
+//                uint32 ticket_lifetime;
+//                uint32 ticket_age_add;
+//                opaque ticket_nonce<0..255>;
+//                opaque ticket<1..2^16-1>;
+//                Extension extensions<0..2^16-2>;
+//            } NewSessionTicket;
+
+            HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.new_session_ticket);
+            TlsUtils.writeUint32(ticketLifetime, message);
+            TlsUtils.writeUint32(ticketAgeAdd, message);
+            TlsUtils.writeOpaque8(ticketNonce, message);
+            TlsUtils.writeOpaque16(ticket, message);
+            TlsUtils.writeOpaque16(writeExtensionsData(ticketExtensions), message);
+            message.send(this);
+        }
+        finally
+        {
+            // NOTE: Only one ticket is issued, so the secret is no longer needed
+            securityParameters.resumptionMasterSecret = null;
+            resumptionMasterSecret.destroy();
+        }
+    }
+
     protected void sendServerHelloDoneMessage()
         throws IOException
     {
@@ -1705,6 +2006,24 @@ protected void sendServerKeyExchangeMessage(byte[] serverKeyExchange)
         HandshakeMessageOutput.send(this, HandshakeType.server_key_exchange, serverKeyExchange);
     }
 
+    /**
+     * A TLS 1.3 session ticket is issued when the server has a {@link SessionTicketProtection} and the
+     * client has offered the psk_dhe_ke PSK key exchange mode. No ticket is issued after a handshake that
+     * requested a client certificate, since the ticket state doesn't record the client's identity (and a
+     * resumed handshake has no CertificateRequest).
+     */
+    protected boolean isSessionTicketIssued13() throws IOException
+    {
+        if (null == tlsServer.getSessionTicketProtection() || null != certificateRequest)
+        {
+            return false;
+        }
+
+        short[] pskKeyExchangeModes = TlsExtensionsUtils.getPSKKeyExchangeModesExtension(clientExtensions);
+
+        return null != pskKeyExchangeModes && Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke);
+    }
+
     protected void skip13ClientCertificate() throws IOException
     {
         if (null != certificateRequest)
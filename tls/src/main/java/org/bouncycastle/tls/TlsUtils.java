@@ -1872,8 +1872,6 @@ private static void establish13TrafficSecrets(TlsContext context, byte[] transcr
                 transcriptHash);
         }
 
-        // TODO[tls13] Early data (client->server only)
-
         recordStream.setPendingCipher(initCipher(context));
     }
 
@@ -1890,23 +1888,75 @@ static void establish13PhaseApplication(TlsContext context, byte[] serverFinishe
             serverFinishedTranscriptHash);
     }
 
-    static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscriptHash, RecordStream recordStream)
+    /**
+     * Derive the early exporter master secret and return the cipher protecting any early data (RFC 8446
+     * 4.2.10), which only has a client traffic secret.
+     */
+    static TlsCipher establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscriptHash)
         throws IOException
     {
         SecurityParameters securityParameters = context.getSecurityParametersHandshake();
         TlsSecret phaseSecret = securityParameters.getEarlySecret();
 
-        // TODO[tls13] binder_key
+        securityParameters.earlyExporterMasterSecret = deriveSecret(securityParameters, phaseSecret, "e exp master",
+            clientHelloTranscriptHash);
 
-        // TODO[tls13] Early data (client->server only)
-        if (null != recordStream)
+        TlsSecret trafficSecretClient = deriveSecret(securityParameters, phaseSecret, "c e traffic",
+            clientHelloTranscriptHash);
+
+        TlsSecret trafficSecretServer = securityParameters.trafficSecretServer;
+
+        securityParameters.trafficSecretClient = trafficSecretClient;
+        securityParameters.trafficSecretServer = null;
+        try
+        {
+            return initCipher(context);
+        }
+        finally
         {
-            establish13TrafficSecrets(context, clientHelloTranscriptHash, phaseSecret, "c e traffic", null,
-                recordStream);
+            securityParameters.trafficSecretClient = null;
+            securityParameters.trafficSecretServer = trafficSecretServer;
+            trafficSecretClient.destroy();
         }
+    }
 
-        securityParameters.earlyExporterMasterSecret = deriveSecret(securityParameters, phaseSecret, "e exp master",
-            clientHelloTranscriptHash);
+    /**
+     * Client-side counterpart of {@link #establish13PhaseEarly(TlsContext, byte[])}. The handshake parameters
+     * aren't negotiated yet, so the ones the early data PSK was established with are used for the duration.
+     */
+    static TlsCipher establish13EarlyDataClient(TlsClientContext clientContext, TlsPSKResumption psk,
+        TlsSecret pskEarlySecret, byte[] clientHelloTranscriptHash) throws IOException
+    {
+        SecurityParameters securityParameters = clientContext.getSecurityParametersHandshake();
+
+        ProtocolVersion negotiatedVersion = securityParameters.negotiatedVersion;
+        int cipherSuite = securityParameters.cipherSuite;
+        int keyExchangeAlgorithm = securityParameters.keyExchangeAlgorithm;
+        int prfAlgorithm = securityParameters.prfAlgorithm;
+        int prfCryptoHashAlgorithm = securityParameters.prfCryptoHashAlgorithm;
+        int prfHashLength = securityParameters.prfHashLength;
+        int verifyDataLength = securityParameters.verifyDataLength;
+
+        securityParameters.negotiatedVersion = ProtocolVersion.TLSv13;
+        try
+        {
+            negotiatedCipherSuite(securityParameters, psk.getCipherSuite());
+
+            securityParameters.earlySecret = pskEarlySecret;
+
+            return establish13PhaseEarly(clientContext, clientHelloTranscriptHash);
+        }
+        finally
+        {
+            securityParameters.negotiatedVersion = negotiatedVersion;
+            securityParameters.cipherSuite = cipherSuite;
+            securityParameters.keyExchangeAlgorithm = keyExchangeAlgorithm;
+            securityParameters.prfAlgorithm = prfAlgorithm;
+            securityParameters.prfCryptoHashAlgorithm = prfCryptoHashAlgorithm;
+            securityParameters.prfHashLength = prfHashLength;
+            securityParameters.verifyDataLength = verifyDataLength;
+            securityParameters.earlySecret = null;
+        }
     }
 
     static void establish13PhaseHandshake(TlsContext context, byte[] serverHelloTranscriptHash,
@@ -1922,6 +1972,24 @@ static void establish13PhaseHandshake(TlsContext context, byte[] serverHelloTran
         securityParameters.baseKeyServer = securityParameters.getTrafficSecretServer();
     }
 
+    static void establish13PhaseResumption(TlsContext context, byte[] clientFinishedTranscriptHash)
+        throws IOException
+    {
+        SecurityParameters securityParameters = context.getSecurityParametersHandshake();
+        TlsSecret phaseSecret = securityParameters.getMasterSecret();
+
+        securityParameters.resumptionMasterSecret = deriveSecret(securityParameters, phaseSecret, "res master",
+            clientFinishedTranscriptHash);
+    }
+
+    static TlsSecret deriveResumptionPSK(SecurityParameters securityParameters, byte[] ticketNonce)
+        throws IOException
+    {
+        return TlsCryptoUtils.hkdfExpandLabel(securityParameters.getResumptionMasterSecret(),
+            securityParameters.getPRFCryptoHashAlgorithm(), "resumption", ticketNonce,
+            securityParameters.getPRFHashLength());
+    }
+
     static void update13TrafficSecretLocal(TlsContext context) throws IOException
     {
         update13TrafficSecret(context, context.isServer());
@@ -5255,6 +5323,64 @@ static TlsAuthentication receive13ServerCertificate(TlsClientContext clientConte
         return authentication;
     }
 
+    static int[] getCertificateCompressionAlgorithms(Vector certificateCompressors) throws IOException
+    {
+        if (isNullOrEmpty(certificateCompressors))
+        {
+            return null;
+        }
+
+        int count = certificateCompressors.size();
+        int[] algorithms = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            int algorithm = ((TlsCertificateCompressor)certificateCompressors.elementAt(i)).getAlgorithm();
+            if (algorithm < 1 || !isValidUint16(algorithm) || Arrays.contains(algorithms, algorithm))
+            {
+                throw new TlsFatalAlert(AlertDescription.internal_error,
+                    "Invalid or duplicate certificate compression algorithm: " + algorithm);
+            }
+            algorithms[i] = algorithm;
+        }
+        return algorithms;
+    }
+
+    static TlsCertificateCompressor getCertificateCompressor(Vector certificateCompressors, int algorithm)
+    {
+        if (null != certificateCompressors)
+        {
+            for (int i = 0; i < certificateCompressors.size(); ++i)
+            {
+                TlsCertificateCompressor certificateCompressor =
+                    (TlsCertificateCompressor)certificateCompressors.elementAt(i);
+                if (certificateCompressor.getAlgorithm() == algorithm)
+                {
+                    return certificateCompressor;
+                }
+            }
+        }
+        return null;
+    }
+
+    static TlsCertificateCompressor selectCertificateCompressor(Vector certificateCompressors,
+        int[] peerAlgorithms)
+    {
+        if (null != certificateCompressors && null != peerAlgorithms)
+        {
+            // NOTE: Our own order of preference applies
+            for (int i = 0; i < certificateCompressors.size(); ++i)
+            {
+                TlsCertificateCompressor certificateCompressor =
+                    (TlsCertificateCompressor)certificateCompressors.elementAt(i);
+                if (Arrays.contains(peerAlgorithms, certificateCompressor.getAlgorithm()))
+                {
+                    return certificateCompressor;
+                }
+            }
+        }
+        return null;
+    }
+
     static TlsAuthentication skip13ServerCertificate(TlsClientContext clientContext) throws IOException
     {
         SecurityParameters securityParameters = clientContext.getSecurityParametersHandshake();
@@ -5952,23 +6078,31 @@ static void addPreSharedKeyToClientExtensions(TlsPSK[] psks, Hashtable clientExt
         {
             TlsPSK psk = psks[i];
 
-            // TODO[tls13-psk] Handle obfuscated_ticket_age for resumption PSKs
-            identities.add(new PskIdentity(psk.getIdentity(), 0L));
+            long obfuscatedTicketAge = 0L;
+            if (psk instanceof TlsPSKResumption)
+            {
+                obfuscatedTicketAge = ((TlsPSKResumption)psk).getObfuscatedTicketAge(System.currentTimeMillis());
+            }
+
+            identities.add(new PskIdentity(psk.getIdentity(), obfuscatedTicketAge));
         }
 
         TlsExtensionsUtils.addPreSharedKeyClientHello(clientExtensions, new OfferedPsks(identities));
     }
 
     static OfferedPsks.BindersConfig addPreSharedKeyToClientHello(TlsClientContext clientContext, TlsClient client,
-        Hashtable clientExtensions, int[] offeredCipherSuites) throws IOException
+        Hashtable clientExtensions, int[] offeredCipherSuites, byte[] earlyData) throws IOException
     {
+        clientExtensions.remove(TlsExtensionsUtils.EXT_early_data);
+
         if (!isTLSv13(clientContext.getClientVersion()))
         {
             return null;
         }
 
         TlsPSKExternal[] pskExternals = getPSKExternalsClient(client, offeredCipherSuites);
-        if (null == pskExternals)
+        TlsPSKResumption[] pskResumptions = getPSKResumptionsClient(client, offeredCipherSuites);
+        if (null == pskExternals && null == pskResumptions)
         {
             return null;
         }
@@ -5976,18 +6110,106 @@ static OfferedPsks.BindersConfig addPreSharedKeyToClientHello(TlsClientContext c
         short[] pskKeyExchangeModes = client.getPskKeyExchangeModes();
         if (isNullOrEmpty(pskKeyExchangeModes))
         {
+            if (null == pskExternals)
+            {
+                return null;
+            }
+
             throw new TlsFatalAlert(AlertDescription.internal_error,
                 "External PSKs configured but no PskKeyExchangeMode available");
         }
 
-        TlsSecret[] pskEarlySecrets = getPSKEarlySecrets(clientContext.getCrypto(), pskExternals);
+        TlsPSK[] psks;
+        {
+            int externalCount = null == pskExternals ? 0 : pskExternals.length;
+            int resumptionCount = null == pskResumptions ? 0 : pskResumptions.length;
 
-        int bindersSize = OfferedPsks.getBindersSize(pskExternals);
+            psks = new TlsPSK[externalCount + resumptionCount];
+            if (externalCount > 0)
+            {
+                System.arraycopy(pskExternals, 0, psks, 0, externalCount);
+            }
+            if (resumptionCount > 0)
+            {
+                System.arraycopy(pskResumptions, 0, psks, externalCount, resumptionCount);
+            }
+        }
+
+        /*
+         * RFC 8446 4.2.9. Servers SHOULD NOT send NewSessionTicket with tickets that are not compatible with
+         * the advertised modes, so the modes are sent even when there is no PSK to offer yet.
+         */
+        if (psks.length < 1)
+        {
+            TlsExtensionsUtils.addPSKKeyExchangeModesExtension(clientExtensions, pskKeyExchangeModes);
+            return null;
+        }
+
+        /*
+         * RFC 8446 4.2.10. When a PSK is used and early data is allowed for that PSK, the client can send
+         * Application Data in its first flight of messages. [..] the PSK used to encrypt the early data MUST
+         * be the first PSK listed in the client's "pre_shared_key" extension.
+         */
+        boolean offerEarlyData = false;
+        if (null != earlyData && earlyData.length > 0 && null != pskResumptions
+            && Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
+        {
+            int earlyDataIndex = getEarlyDataPSKIndex(clientExtensions, offeredCipherSuites, pskResumptions,
+                earlyData.length);
+            if (earlyDataIndex >= 0)
+            {
+                TlsPSK earlyDataPSK = pskResumptions[earlyDataIndex];
+                int pos = psks.length - pskResumptions.length + earlyDataIndex;
+                System.arraycopy(psks, 0, psks, 1, pos);
+                psks[0] = earlyDataPSK;
+                offerEarlyData = true;
+            }
+        }
 
-        addPreSharedKeyToClientExtensions(pskExternals, clientExtensions);
+        TlsSecret[] pskEarlySecrets = getPSKEarlySecrets(clientContext.getCrypto(), psks);
+
+        int bindersSize = OfferedPsks.getBindersSize(psks);
+
+        addPreSharedKeyToClientExtensions(psks, clientExtensions);
         TlsExtensionsUtils.addPSKKeyExchangeModesExtension(clientExtensions, pskKeyExchangeModes);
 
-        return new OfferedPsks.BindersConfig(pskExternals, pskKeyExchangeModes, pskEarlySecrets, bindersSize);
+        if (offerEarlyData)
+        {
+            TlsExtensionsUtils.addEarlyDataIndication(clientExtensions);
+        }
+
+        return new OfferedPsks.BindersConfig(psks, pskKeyExchangeModes, pskEarlySecrets, bindersSize);
+    }
+
+    private static int getEarlyDataPSKIndex(Hashtable clientExtensions, int[] offeredCipherSuites,
+        TlsPSKResumption[] pskResumptions, int earlyDataLength) throws IOException
+    {
+        Vector protocolNames = TlsExtensionsUtils.getALPNExtensionClient(clientExtensions);
+
+        for (int i = 0; i < pskResumptions.length; ++i)
+        {
+            TlsPSKResumption pskResumption = pskResumptions[i];
+            if (pskResumption.getMaxEarlyDataSize() < earlyDataLength
+                || !Arrays.contains(offeredCipherSuites, pskResumption.getCipherSuite()))
+            {
+                continue;
+            }
+
+            /*
+             * RFC 8446 4.2.10. [..] the client SHOULD NOT include an "early_data" extension along with
+             * application protocols other than the one the ticket was issued for.
+             */
+            ProtocolName applicationProtocol = pskResumption.getApplicationProtocol();
+            if (null != applicationProtocol &&
+                (null == protocolNames || !protocolNames.contains(applicationProtocol)))
+            {
+                continue;
+            }
+
+            return i;
+        }
+
+        return -1;
     }
 
     static OfferedPsks.BindersConfig addPreSharedKeyToClientHelloRetry(TlsClientContext clientContext,
@@ -6048,49 +6270,81 @@ static OfferedPsks.SelectedConfig selectPreSharedKey(TlsServerContext serverCont
             // TODO[tls13] Add support for psk_ke?
             if (Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
             {
-                // TODO[tls13] Prefer to get the exact index from the server?
-                TlsPSKExternal psk = server.getExternalPSK(offeredPsks.getIdentities());
-                if (null != psk)
-                {
-                    int index = offeredPsks.getIndexOfIdentity(new PskIdentity(psk.getIdentity(), 0L));
-                    if (index >= 0)
-                    {
-                        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
+                TlsCrypto crypto = serverContext.getCrypto();
 
-                        TlsCrypto crypto = serverContext.getCrypto();
-                        TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
+                TlsPSK psk = null;
+                int index = -1;
 
-                        // TODO[tls13-psk] Handle resumption PSKs
-                        boolean isExternalPSK = true;
-                        int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
+                SessionTicketProtection ticketProtection = server.getSessionTicketProtection();
+                if (null != ticketProtection)
+                {
+                    long now = System.currentTimeMillis();
 
-                        byte[] transcriptHash;
-                        {
-                            handshakeHashUpdated = true;
-                            int bindersSize = offeredPsks.getBindersSize();
-                            clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
+                    Vector identities = offeredPsks.getIdentities();
+                    for (int i = 0; i < identities.size(); ++i)
+                    {
+                        byte[] ticket = ((PskIdentity)identities.elementAt(i)).getIdentity();
 
-                            if (afterHelloRetryRequest)
-                            {
-                                transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
-                            }
-                            else
+                        byte[] state = ticketProtection.unprotect(ticket);
+                        if (null != state)
+                        {
+                            TlsPSKResumption pskResumption = TlsPSKResumption.parseTicketState(crypto, ticket, state);
+                            if (null != pskResumption && !pskResumption.isExpired(now))
                             {
-                                TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
-                                handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
-                                transcriptHash = hash.calculateHash();
+                                psk = pskResumption;
+                                index = i;
+                                break;
                             }
-
-                            clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
                         }
+                    }
+                }
 
-                        byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
-                            earlySecret, transcriptHash);
+                if (null == psk)
+                {
+                    // TODO[tls13] Prefer to get the exact index from the server?
+                    TlsPSKExternal pskExternal = server.getExternalPSK(offeredPsks.getIdentities());
+                    if (null != pskExternal)
+                    {
+                        psk = pskExternal;
+                        index = offeredPsks.getIndexOfIdentity(new PskIdentity(pskExternal.getIdentity(), 0L));
+                    }
+                }
+
+                if (index >= 0)
+                {
+                    byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
 
-                        if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
+                    TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
+
+                    boolean isExternalPSK = !(psk instanceof TlsPSKResumption);
+                    int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
+
+                    byte[] transcriptHash;
+                    {
+                        handshakeHashUpdated = true;
+                        int bindersSize = offeredPsks.getBindersSize();
+                        clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
+
+                        if (afterHelloRetryRequest)
+                        {
+                            transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
+                        }
+                        else
                         {
-                            return new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
+                            TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
+                            handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+                            transcriptHash = hash.calculateHash();
                         }
+
+                        clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
+                    }
+
+                    byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
+                        earlySecret, transcriptHash);
+
+                    if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
+                    {
+                        return new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
                     }
                 }
             }
@@ -6159,6 +6413,41 @@ static TlsPSKExternal[] getPSKExternalsClient(TlsClient client, int[] offeredCip
         return result;
     }
 
+    static TlsPSKResumption[] getPSKResumptionsClient(TlsClient client, int[] offeredCipherSuites)
+        throws IOException
+    {
+        Vector resumptionPSKs = client.getResumptionPSKs();
+        if (null == resumptionPSKs)
+        {
+            return null;
+        }
+
+        int[] prfAlgorithms = getPRFAlgorithms13(offeredCipherSuites);
+        long now = System.currentTimeMillis();
+
+        Vector v = new Vector(resumptionPSKs.size());
+        for (int i = 0; i < resumptionPSKs.size(); ++i)
+        {
+            Object element = resumptionPSKs.elementAt(i);
+            if (!(element instanceof TlsPSKResumption))
+            {
+                throw new TlsFatalAlert(AlertDescription.internal_error,
+                    "Resumption PSKs element is not a TlsPSKResumption");
+            }
+
+            // NOTE: Unlike external PSKs, tickets that can't be used this time are just left out
+            TlsPSKResumption pskResumption = (TlsPSKResumption)element;
+            if (!pskResumption.isExpired(now) && Arrays.contains(prfAlgorithms, pskResumption.getPRFAlgorithm()))
+            {
+                v.addElement(pskResumption);
+            }
+        }
+
+        TlsPSKResumption[] result = new TlsPSKResumption[v.size()];
+        v.copyInto(result);
+        return result;
+    }
+
     static Vector getPSKIndices(TlsPSK[] psks, int prfAlgorithm)
     {
         Vector v = new Vector(psks.length);
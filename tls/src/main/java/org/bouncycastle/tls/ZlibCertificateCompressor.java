@@ -0,0 +1,109 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * The zlib {@link TlsCertificateCompressor} of RFC 8879, using {@link Deflater}/{@link Inflater}.
+ * </p>
+ */
+public class ZlibCertificateCompressor
+    implements TlsCertificateCompressor
+{
+    protected final int level;
+
+    public ZlibCertificateCompressor()
+    {
+        this(Deflater.BEST_COMPRESSION);
+    }
+
+    /**
+     * @param level the {@link Deflater} compression level to use.
+     */
+    public ZlibCertificateCompressor(int level)
+    {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+        {
+            throw new IllegalArgumentException("'level' is not a valid compression level");
+        }
+
+        this.level = level;
+    }
+
+    public int getAlgorithm()
+    {
+        return CertificateCompressionAlgorithm.zlib;
+    }
+
+    public byte[] compress(byte[] certificateMessage) throws IOException
+    {
+        Deflater deflater = new Deflater(level);
+        try
+        {
+            deflater.setInput(certificateMessage);
+            deflater.finish();
+
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(certificateMessage.length / 2 + 64);
+            byte[] block = new byte[1024];
+            while (!deflater.finished())
+            {
+                int count = deflater.deflate(block);
+                buf.write(block, 0, count);
+            }
+            return buf.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    public byte[] decompress(byte[] compressed, int uncompressedLength) throws IOException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed);
+
+            byte[] output = new byte[uncompressedLength];
+            int pos = 0;
+            while (pos < uncompressedLength)
+            {
+                int count = inflater.inflate(output, pos, uncompressedLength - pos);
+                if (count < 1 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    throw new IOException("Compressed certificate shorter than 'uncompressed_length'");
+                }
+                pos += count;
+            }
+
+            /*
+             * The output is complete, so the stream must now end (after its checksum), with no further
+             * output and no unused input.
+             */
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) > 0 || !inflater.finished()))
+            {
+                throw new IOException("Compressed certificate longer than 'uncompressed_length'");
+            }
+            if (inflater.getRemaining() > 0)
+            {
+                throw new IOException("Unexpected data after compressed certificate");
+            }
+
+            return output;
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Invalid zlib data in compressed certificate: " + e.getMessage());
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
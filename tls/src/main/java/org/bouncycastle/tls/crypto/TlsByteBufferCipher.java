@@ -0,0 +1,50 @@
+package org.bouncycastle.tls.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.bouncycastle.tls.ProtocolVersion;
+
+/**
+ * Optional interface for a {@link TlsCipher} that can encode and decode records held in {@link ByteBuffer}s,
+ * so that callers with (possibly direct) buffers don't have to copy them to or from an array first.<br>
+ * <br>
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ */
+public interface TlsByteBufferCipher
+    extends TlsCipher
+{
+    /**
+     * Encode plaintext read from a buffer using the current bulk cipher.
+     *
+     * @param seqNo sequence number of the message represented by plaintext.
+     * @param contentType content type of the message represented by plaintext.
+     * @param recordVersion {@link ProtocolVersion} used for the record.
+     * @param headerAllocation extra bytes to allocate at start of returned byte array.
+     * @param plaintext buffer holding input plaintext to the cipher, starting at its position. The position
+     *            is advanced by len.
+     * @param len length of the plaintext in the buffer.
+     * @return A {@link TlsEncodeResult} containing the result of encoding (after 'headerAllocation' unused bytes).
+     * @throws IOException
+     */
+    TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, int headerAllocation,
+        ByteBuffer plaintext, int len) throws IOException;
+
+    /**
+     * Decode ciphertext read from a buffer using the current bulk cipher. The contents of the buffer are not
+     * modified.
+     *
+     * @param seqNo sequence number of the message represented by ciphertext.
+     * @param recordType content type used in the record for this message.
+     * @param recordVersion {@link ProtocolVersion} used for the record.
+     * @param ciphertext buffer holding input ciphertext to the cipher, starting at its position. The position
+     *            is advanced by len.
+     * @param len length of the ciphertext in the buffer.
+     * @param output working space of at least len bytes, which the decoded plaintext may be written to.
+     * @param outputOffset offset into output array the working space starts at.
+     * @return A {@link TlsDecodeResult} containing the result of decoding.
+     * @throws IOException
+     */
+    TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion, ByteBuffer ciphertext,
+        int len, byte[] output, int outputOffset) throws IOException;
+}
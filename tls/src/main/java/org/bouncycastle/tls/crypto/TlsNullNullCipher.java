@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.AlertDescription;
 import org.bouncycastle.tls.ProtocolVersion;
@@ -10,7 +11,7 @@
  * The cipher for TLS_NULL_WITH_NULL_NULL.
  */
 public class TlsNullNullCipher
-    implements TlsCipher
+    implements TlsByteBufferCipher
 {
     public static final TlsNullNullCipher INSTANCE = new TlsNullNullCipher();
 
@@ -48,6 +49,21 @@ public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVe
         return new TlsDecodeResult(ciphertext, offset, len, recordType);
     }
 
+    public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
+        int headerAllocation, ByteBuffer plaintext, int len) throws IOException
+    {
+        byte[] result = new byte[headerAllocation + len];
+        plaintext.get(result, headerAllocation, len);
+        return new TlsEncodeResult(result, 0, result.length, contentType);
+    }
+
+    public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
+        ByteBuffer ciphertext, int len, byte[] output, int outputOffset) throws IOException
+    {
+        ciphertext.get(output, outputOffset, len);
+        return new TlsDecodeResult(output, outputOffset, len, recordType);
+    }
+
     public void rekeyDecoder() throws IOException
     {
         throw new TlsFatalAlert(AlertDescription.internal_error);
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.AlertDescription;
 import org.bouncycastle.tls.ContentType;
@@ -8,7 +9,7 @@
 import org.bouncycastle.tls.SecurityParameters;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.TlsUtils;
-import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsByteBufferCipher;
 import org.bouncycastle.tls.crypto.TlsCryptoParameters;
 import org.bouncycastle.tls.crypto.TlsCryptoUtils;
 import org.bouncycastle.tls.crypto.TlsDecodeResult;
@@ -20,7 +21,7 @@
  * A generic TLS 1.2 AEAD cipher.
  */
 public final class TlsAEADCipher
-    implements TlsCipher
+    implements TlsByteBufferCipher
 {
     public static final int AEAD_CCM = 1;
     public static final int AEAD_CHACHA20_POLY1305 = 2;
@@ -91,8 +92,19 @@ public TlsAEADCipher(TlsCryptoParameters cryptoParams, TlsAEADCipherImpl encrypt
         final boolean isServer = cryptoParams.isServer();
         if (isTLSv13)
         {
-            rekeyCipher(securityParameters, decryptCipher, decryptNonce, !isServer);
-            rekeyCipher(securityParameters, encryptCipher, encryptNonce, isServer);
+            /*
+             * An early data cipher (RFC 8446 4.2.10) only has a client traffic secret, and only protects
+             * records sent from client to server.
+             */
+            boolean earlyData = null == securityParameters.getTrafficSecretServer();
+            if (!earlyData || isServer)
+            {
+                rekeyCipher(securityParameters, decryptCipher, decryptNonce, !isServer);
+            }
+            if (!earlyData || !isServer)
+            {
+                rekeyCipher(securityParameters, encryptCipher, encryptNonce, isServer);
+            }
             return;
         }
 
@@ -153,6 +165,49 @@ public int getPlaintextEncodeLimit(int ciphertextLimit)
 
     public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
         int headerAllocation, byte[] plaintext, int plaintextOffset, int plaintextLength) throws IOException
+    {
+        return encodePlaintext(seqNo, contentType, recordVersion, headerAllocation, plaintext, plaintextOffset, null,
+            plaintextLength);
+    }
+
+    public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
+        int headerAllocation, ByteBuffer plaintext, int plaintextLength) throws IOException
+    {
+        return encodePlaintext(seqNo, contentType, recordVersion, headerAllocation, null, 0, plaintext,
+            plaintextLength);
+    }
+
+    public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
+        byte[] ciphertext, int ciphertextOffset, int ciphertextLength) throws IOException
+    {
+        // NOTE: The record is decrypted in place
+        return decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, ciphertextOffset, ciphertextLength,
+            ciphertext, ciphertextOffset + record_iv_length);
+    }
+
+    public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
+        ByteBuffer ciphertext, int ciphertextLength, byte[] output, int outputOffset) throws IOException
+    {
+        int position = ciphertext.position();
+
+        if (ciphertext.hasArray())
+        {
+            // Decrypt straight from the buffer's array, leaving it unmodified
+            ((java.nio.Buffer)ciphertext).position(position + ciphertextLength);
+
+            return decodeCiphertext(seqNo, recordType, recordVersion, ciphertext.array(),
+                ciphertext.arrayOffset() + position, ciphertextLength, output, outputOffset);
+        }
+
+        ciphertext.get(output, outputOffset, ciphertextLength);
+
+        return decodeCiphertext(seqNo, recordType, recordVersion, output, outputOffset, ciphertextLength, output,
+            outputOffset + record_iv_length);
+    }
+
+    private TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
+        int headerAllocation, byte[] plaintext, int plaintextOffset, ByteBuffer plaintextBuffer, int plaintextLength)
+        throws IOException
     {
         byte[] nonce = new byte[encryptNonce.length + record_iv_length];
 
@@ -202,7 +257,14 @@ public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVe
 
         try
         {
-            System.arraycopy(plaintext, plaintextOffset, output, outputPos, plaintextLength);
+            if (null == plaintextBuffer)
+            {
+                System.arraycopy(plaintext, plaintextOffset, output, outputPos, plaintextLength);
+            }
+            else
+            {
+                plaintextBuffer.get(output, outputPos, plaintextLength);
+            }
             if (encryptUseInnerPlaintext)
             {
                 output[outputPos + plaintextLength] = (byte)contentType;
@@ -225,8 +287,13 @@ public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVe
         return new TlsEncodeResult(output, 0, output.length, recordType);
     }
 
-    public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
-        byte[] ciphertext, int ciphertextOffset, int ciphertextLength) throws IOException
+    /*
+     * The plaintext is written to output at outputOffset (which may be where it was read from, for in-place
+     * decryption), after any explicit nonce has been read from the ciphertext.
+     */
+    private TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
+        byte[] ciphertext, int ciphertextOffset, int ciphertextLength, byte[] output, int outputOffset)
+        throws IOException
     {
         if (getPlaintextDecodeLimit(ciphertextLength) < 0)
         {
@@ -264,8 +331,8 @@ public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVe
         int outputPos;
         try
         {
-            outputPos = decryptCipher.doFinal(additionalData, ciphertext, encryptionOffset, encryptionLength,
-                ciphertext, encryptionOffset);
+            outputPos = decryptCipher.doFinal(additionalData, ciphertext, encryptionOffset, encryptionLength, output,
+                outputOffset);
         }
         catch (RuntimeException e)
         {
@@ -291,7 +358,7 @@ public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVe
                     throw new TlsFatalAlert(AlertDescription.unexpected_message);
                 }
 
-                byte octet = ciphertext[encryptionOffset + plaintextLength];
+                byte octet = output[outputOffset + plaintextLength];
                 if (0 != octet)
                 {
                     contentType = (short)(octet & 0xFF);
@@ -300,7 +367,7 @@ public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVe
             }
         }
 
-        return new TlsDecodeResult(ciphertext, encryptionOffset, plaintextLength, contentType);
+        return new TlsDecodeResult(output, outputOffset, plaintextLength, contentType);
     }
 
     public void rekeyDecoder() throws IOException
@@ -381,7 +448,6 @@ private void rekeyCipher(SecurityParameters securityParameters, TlsAEADCipherImp
             ?   securityParameters.getTrafficSecretServer()
             :   securityParameters.getTrafficSecretClient();
 
-        // TODO[tls13] For early data, have to disable server->client
         if (null == secret)
         {
             throw new TlsFatalAlert(AlertDescription.internal_error);
@@ -0,0 +1,260 @@
+package org.bouncycastle.jsse.provider;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.net.ssl.SSLContext;
+
+import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SessionID;
+import org.bouncycastle.tls.SessionParameters;
+import org.bouncycastle.tls.TlsSession;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.util.encoders.Hex;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the segmented CLOCK session cache in {@link ProvSSLSessionContext}.
+ */
+public class ProvSSLSessionContextTest
+    extends TestCase
+{
+    private static final String HOST = "localhost";
+
+    private ProvSSLSessionContext sessionContext;
+    private int nextID;
+
+    // The cache only holds soft references, so keep the sessions reachable for the duration of a test
+    private final List<ProvSSLSession> sessions = new ArrayList<ProvSSLSession>();
+
+    protected void setUp() throws Exception
+    {
+        SSLContext sslContext = SSLContext.getInstance("TLS", new BouncyCastleJsseProvider());
+        sslContext.init(null, null, new SecureRandom());
+
+        this.sessionContext = (ProvSSLSessionContext)sslContext.getClientSessionContext();
+        this.nextID = 0;
+
+        // Unlimited, until a test says otherwise
+        sessionContext.setSessionCacheSize(0);
+    }
+
+    protected void tearDown()
+    {
+        sessions.clear();
+    }
+
+    public void testSizeLimit()
+    {
+        sessionContext.setSessionCacheSize(8);
+
+        byte[] lastID = null;
+        for (int i = 0; i < 40; ++i)
+        {
+            lastID = createID(-1);
+            addSession(lastID, i);
+
+            assertEquals(Math.min(i + 1, 8), getIDs().size());
+        }
+
+        // The session just added is never the one evicted
+        assertNotNull(sessionContext.getSessionImpl(lastID));
+    }
+
+    public void testSizeLimitAcrossSegments()
+    {
+        sessionContext.setSessionCacheSize(2);
+
+        byte[] a = createID(0), b = createID(0), c = createID(1);
+        addSession(a, 1);
+        addSession(b, 2);
+
+        // The only entry in c's segment is c itself, so the oldest entry of another segment must go
+        addSession(c, 3);
+
+        assertEquals(2, getIDs().size());
+        assertNull(sessionContext.getSessionImpl(a));
+        assertNotNull(sessionContext.getSessionImpl(b));
+        assertNotNull(sessionContext.getSessionImpl(c));
+    }
+
+    public void testSetSessionCacheSizeTrims()
+    {
+        for (int i = 0; i < 10; ++i)
+        {
+            addSession(createID(-1), i);
+        }
+        assertEquals(10, getIDs().size());
+
+        sessionContext.setSessionCacheSize(3);
+
+        assertEquals(3, sessionContext.getSessionCacheSize());
+        assertEquals(3, getIDs().size());
+
+        sessionContext.setSessionCacheSize(0);
+
+        addSession(createID(-1), 10);
+        assertEquals(4, getIDs().size());
+    }
+
+    public void testSecondChanceEviction()
+    {
+        sessionContext.setSessionCacheSize(3);
+
+        byte[] a = createID(0), b = createID(0), c = createID(0), d = createID(0), e = createID(0);
+        addSession(a, 1);
+        addSession(b, 2);
+        addSession(c, 3);
+
+        // 'a' is the oldest, but has been used since the CLOCK hand last passed it
+        assertNotNull(sessionContext.getSessionImpl(a));
+
+        addSession(d, 4);
+
+        assertNotNull(sessionContext.getSessionImpl(d));
+        assertNull(sessionContext.getSessionImpl(b));
+        assertEquals(set(a, c, d), getIDs());
+
+        // 'a' has had its second chance, so this time it goes when 'c' and 'd' have been used
+        assertNotNull(sessionContext.getSessionImpl(c));
+        assertNotNull(sessionContext.getSessionImpl(d));
+
+        addSession(e, 5);
+
+        assertEquals(set(c, d, e), getIDs());
+    }
+
+    public void testSessionTimeout() throws Exception
+    {
+        byte[] a = createID(-1);
+        addSession(a, 1);
+
+        sessionContext.setSessionTimeout(1);
+
+        assertNotNull(sessionContext.getSessionImpl(a));
+        assertEquals(1, getIDs().size());
+
+        Thread.sleep(1100L);
+
+        assertNull(sessionContext.getSessionImpl(a));
+        assertNull(sessionContext.getSessionImpl(HOST, 1));
+        assertEquals(0, getIDs().size());
+    }
+
+    public void testExpiredSessionsEvictedFirst() throws Exception
+    {
+        sessionContext.setSessionCacheSize(2);
+        sessionContext.setSessionTimeout(1);
+
+        byte[] a = createID(0), b = createID(0), c = createID(0);
+        addSession(a, 1);
+        assertNotNull(sessionContext.getSessionImpl(a));
+
+        Thread.sleep(1100L);
+
+        addSession(b, 2);
+        addSession(c, 3);
+
+        // 'a' was used, but has expired, so it goes rather than 'b'
+        assertEquals(set(b, c), getIDs());
+    }
+
+    public void testGetIds()
+    {
+        byte[] a = createID(-1), b = createID(-1), c = createID(-1);
+        addSession(a, 1);
+        addSession(b, 2);
+        addSession(c, 3);
+
+        assertEquals(set(a, b, c), getIDs());
+
+        sessionContext.removeSession(b);
+
+        assertEquals(set(a, c), getIDs());
+        assertNull(sessionContext.getSessionImpl(b));
+        assertNull(sessionContext.getSessionImpl(HOST, 2));
+    }
+
+    public void testReplacedSessionID()
+    {
+        byte[] id = createID(-1);
+
+        ProvSSLSession first = addSession(id, 1);
+        assertSame(first, sessionContext.getSessionImpl(HOST, 1));
+
+        // A new session with the same ID (but a different peer) replaces the cached one
+        ProvSSLSession second = addSession(id, 2);
+        assertNotSame(first, second);
+
+        assertSame(second, sessionContext.getSessionImpl(id));
+        assertSame(second, sessionContext.getSessionImpl(HOST, 2));
+        assertNull(sessionContext.getSessionImpl(HOST, 1));
+        assertEquals(1, getIDs().size());
+    }
+
+    /**
+     * @param segmentIndex the cache segment the ID must fall in, or -1 for any.
+     */
+    private byte[] createID(int segmentIndex)
+    {
+        for (;;)
+        {
+            int n = nextID++;
+
+            byte[] id = new byte[32];
+            id[0] = (byte)(n >>> 24);
+            id[1] = (byte)(n >>> 16);
+            id[2] = (byte)(n >>> 8);
+            id[3] = (byte)n;
+
+            if (segmentIndex < 0 || segmentIndex == sessionContext.getSegmentIndex(new SessionID(id)))
+            {
+                return id;
+            }
+        }
+    }
+
+    private ProvSSLSession addSession(byte[] id, int port)
+    {
+        SessionParameters sessionParameters = new SessionParameters.Builder()
+            .setCipherSuite(CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256)
+            .setMasterSecret(sessionContext.getCrypto().createSecret(new byte[48]))
+            .setNegotiatedVersion(ProtocolVersion.TLSv12)
+            .build();
+
+        TlsSession tlsSession = TlsUtils.importSession(id, sessionParameters);
+
+        ProvSSLSession session = sessionContext.reportSession(HOST, port, tlsSession,
+            new JsseSessionParameters(null, null), true);
+        assertTrue(session.isValid());
+
+        sessions.add(session);
+        return session;
+    }
+
+    private Set<String> getIDs()
+    {
+        Set<String> ids = new HashSet<String>();
+        for (byte[] id : Collections.list(sessionContext.getIds()))
+        {
+            assertTrue(ids.add(Hex.toHexString(id)));
+        }
+        return ids;
+    }
+
+    private static Set<String> set(byte[]... ids)
+    {
+        Set<String> result = new HashSet<String>();
+        for (byte[] id : ids)
+        {
+            result.add(Hex.toHexString(id));
+        }
+        return result;
+    }
+}
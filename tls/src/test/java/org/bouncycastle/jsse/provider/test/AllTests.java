@@ -4,6 +4,7 @@
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import org.bouncycastle.jsse.provider.ProvSSLSessionContextTest;
 import org.bouncycastle.test.PrintTestResult;
 
 public class AllTests
@@ -23,10 +24,12 @@ public static Test suite()
         suite.addTestSuite(BasicClientAuthTlsTest.class);
         suite.addTestSuite(BasicTlsTest.class);
         suite.addTestSuite(ConfigTest.class);
+        suite.addTestSuite(EarlyDataEngineTest.class);
         suite.addTestSuite(ECDSACredentialsTest.class);
         suite.addTestSuite(EdDSACredentialsTest.class);
         suite.addTestSuite(InstanceTest.class);
         suite.addTestSuite(KeyManagerFactoryTest.class);
+        suite.addTestSuite(ProvSSLSessionContextTest.class);
         suite.addTestSuite(PSSCredentialsTest.class);
         suite.addTestSuite(SSLServerSocketTest.class);
         suite.addTestSuite(SSLSocketTest.class);
@@ -0,0 +1,273 @@
+package org.bouncycastle.jsse.provider.test;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.bouncycastle.jsse.BCSSLEngine;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+
+import junit.framework.TestCase;
+
+/**
+ * TLS 1.3 0-RTT early data through {@link BCSSLEngine}.
+ */
+public class EarlyDataEngineTest
+    extends TestCase
+{
+    /*
+     * NOTE: These are read once, when the provider's TLS peer classes are loaded, so they have to be set before
+     * any connection is made in this JVM (this class is loaded when AllTests builds its suite).
+     */
+    static
+    {
+        System.setProperty("org.bouncycastle.jsse.client.enableSessionTickets13", "true");
+        System.setProperty("org.bouncycastle.jsse.server.enableSessionTickets13", "true");
+        System.setProperty("org.bouncycastle.jsse.server.maxEarlyDataSize", "16384");
+    }
+
+    private static final byte[] EARLY_DATA = Strings.toUTF8ByteArray("GET / HTTP/1.1\r\n\r\n");
+    private static final byte[] APP_DATA = Strings.toUTF8ByteArray("Dear Prudence, won't you come out to play?");
+
+    private SSLContext clientContext;
+    private SSLContext serverContext;
+
+    protected void setUp() throws Exception
+    {
+        ProviderUtils.setupHighPriority(false);
+
+        KeyPair serverKeyPair = TestUtils.generateECKeyPair();
+        X509Certificate serverCert = TestUtils.generateRootCert(serverKeyPair);
+
+        KeyStore serverKeyStore = KeyStore.getInstance("PKCS12", ProviderUtils.PROVIDER_NAME_BC);
+        serverKeyStore.load(null, null);
+        serverKeyStore.setKeyEntry("server", serverKeyPair.getPrivate(), "password".toCharArray(),
+            new X509Certificate[]{ serverCert });
+
+        KeyStore clientTrustStore = KeyStore.getInstance("PKCS12", ProviderUtils.PROVIDER_NAME_BC);
+        clientTrustStore.load(null, null);
+        clientTrustStore.setCertificateEntry("server", serverCert);
+
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        tmf.init(clientTrustStore);
+
+        this.clientContext = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        kmf.init(serverKeyStore, "password".toCharArray());
+
+        this.serverContext = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        serverContext.init(kmf.getKeyManagers(), null, null);
+    }
+
+    public void testEarlyDataAccepted() throws Exception
+    {
+        // The first connection gets the ticket the early data is sent under
+        BCSSLEngine clientEngine = createClientEngine(null);
+        BCSSLEngine serverEngine = createServerEngine();
+
+        byte[] received = runConnection(clientEngine, serverEngine, ByteBuffer.allocate(0));
+
+        assertFalse(clientEngine.isEarlyDataAccepted());
+        assertFalse(serverEngine.isEarlyDataAccepted());
+        assertTrue(Arrays.areEqual(APP_DATA, received));
+
+        clientEngine = createClientEngine(EARLY_DATA);
+        serverEngine = createServerEngine();
+
+        received = runConnection(clientEngine, serverEngine, ByteBuffer.allocate(0));
+
+        assertTrue(clientEngine.isEarlyDataAccepted());
+        assertTrue(serverEngine.isEarlyDataAccepted());
+        assertTrue(Arrays.areEqual(Arrays.concatenate(EARLY_DATA, APP_DATA), received));
+    }
+
+    public void testEarlyDataReplayRejected() throws Exception
+    {
+        runConnection(createClientEngine(null), createServerEngine(), ByteBuffer.allocate(0));
+
+        BCSSLEngine clientEngine = createClientEngine(EARLY_DATA);
+        ByteBuffer firstFlight = wrapFirstFlight(clientEngine);
+
+        // An attacker captures the client's first flight (ClientHello and early data) and replays it later
+        ByteBuffer replayedFlight = ByteBuffer.allocate(firstFlight.remaining());
+        replayedFlight.put(firstFlight.duplicate());
+        ((java.nio.Buffer)replayedFlight).flip();
+
+        BCSSLEngine serverEngine = createServerEngine();
+        byte[] received = runConnection(clientEngine, serverEngine, firstFlight);
+
+        assertTrue(clientEngine.isEarlyDataAccepted());
+        assertTrue(serverEngine.isEarlyDataAccepted());
+        assertTrue(Arrays.areEqual(Arrays.concatenate(EARLY_DATA, APP_DATA), received));
+
+        // The server has seen this ClientHello before, so must not process the early data a second time
+        byte[] replayReceived = replayFirstFlight(createServerEngine(), replayedFlight);
+
+        assertEquals(0, replayReceived.length);
+    }
+
+    private BCSSLEngine createClientEngine(byte[] earlyData)
+    {
+        // NOTE: Tickets are looked up by peer host and port
+        SSLEngine clientEngine = clientContext.createSSLEngine("localhost", 443);
+        clientEngine.setEnabledProtocols(new String[]{ "TLSv1.3" });
+        clientEngine.setUseClientMode(true);
+
+        BCSSLEngine bcClientEngine = (BCSSLEngine)clientEngine;
+        if (null != earlyData)
+        {
+            bcClientEngine.setEarlyData(earlyData);
+        }
+        return bcClientEngine;
+    }
+
+    private BCSSLEngine createServerEngine()
+    {
+        SSLEngine serverEngine = serverContext.createSSLEngine();
+        serverEngine.setEnabledProtocols(new String[]{ "TLSv1.3" });
+        serverEngine.setUseClientMode(false);
+        return (BCSSLEngine)serverEngine;
+    }
+
+    private static ByteBuffer wrapFirstFlight(BCSSLEngine clientEngine) throws Exception
+    {
+        SSLEngine engine = (SSLEngine)clientEngine;
+        ByteBuffer clientToServer = ByteBuffer.allocate(engine.getSession().getPacketBufferSize() * 2);
+
+        do
+        {
+            SSLEngineResult result = engine.wrap(ByteBuffer.allocate(0), clientToServer);
+            runDelegatedTasks(engine, result);
+        }
+        while (HandshakeStatus.NEED_WRAP == engine.getHandshakeStatus());
+
+        assertEquals(HandshakeStatus.NEED_UNWRAP, engine.getHandshakeStatus());
+
+        ((java.nio.Buffer)clientToServer).flip();
+        return clientToServer;
+    }
+
+    /**
+     * Run a connection until the server has received {@link #APP_DATA}, returning everything the server
+     * received (including any early data).
+     */
+    private static byte[] runConnection(BCSSLEngine bcClientEngine, BCSSLEngine bcServerEngine,
+        ByteBuffer firstFlight) throws Exception
+    {
+        SSLEngine clientEngine = (SSLEngine)bcClientEngine;
+        SSLEngine serverEngine = (SSLEngine)bcServerEngine;
+
+        int netBufSize = clientEngine.getSession().getPacketBufferSize() * 2;
+        int appBufSize = serverEngine.getSession().getApplicationBufferSize() + 64;
+
+        ByteBuffer clientToServer = ByteBuffer.allocate(netBufSize);
+        ByteBuffer serverToClient = ByteBuffer.allocate(netBufSize);
+        ByteBuffer clientIn = ByteBuffer.allocate(appBufSize);
+        ByteBuffer serverIn = ByteBuffer.allocate(appBufSize);
+
+        clientToServer.put(firstFlight);
+
+        ByteBuffer clientOut = ByteBuffer.wrap(APP_DATA);
+        ByteBuffer serverOut = ByteBuffer.allocate(0);
+
+        for (int i = 0; i < 100; ++i)
+        {
+            SSLEngineResult clientResult = clientEngine.wrap(clientOut, clientToServer);
+            runDelegatedTasks(clientEngine, clientResult);
+
+            SSLEngineResult serverResult = serverEngine.wrap(serverOut, serverToClient);
+            runDelegatedTasks(serverEngine, serverResult);
+
+            ((java.nio.Buffer)clientToServer).flip();
+            ((java.nio.Buffer)serverToClient).flip();
+
+            clientResult = clientEngine.unwrap(serverToClient, clientIn);
+            runDelegatedTasks(clientEngine, clientResult);
+
+            serverResult = serverEngine.unwrap(clientToServer, serverIn);
+            runDelegatedTasks(serverEngine, serverResult);
+
+            clientToServer.compact();
+            serverToClient.compact();
+
+            if (!clientOut.hasRemaining()
+                && HandshakeStatus.NOT_HANDSHAKING == clientEngine.getHandshakeStatus()
+                && HandshakeStatus.NOT_HANDSHAKING == serverEngine.getHandshakeStatus()
+                && 0 == clientToServer.position())
+            {
+                return getBytes(serverIn);
+            }
+        }
+
+        fail("Connection didn't complete");
+        return null;
+    }
+
+    /**
+     * Feed a captured client first flight to a server, returning any application data the server releases.
+     */
+    private static byte[] replayFirstFlight(BCSSLEngine bcServerEngine, ByteBuffer firstFlight) throws Exception
+    {
+        SSLEngine serverEngine = (SSLEngine)bcServerEngine;
+
+        ByteBuffer serverToClient = ByteBuffer.allocate(serverEngine.getSession().getPacketBufferSize() * 2);
+        ByteBuffer serverIn = ByteBuffer.allocate(serverEngine.getSession().getApplicationBufferSize() + 64);
+
+        while (firstFlight.hasRemaining())
+        {
+            SSLEngineResult result = serverEngine.unwrap(firstFlight, serverIn);
+            runDelegatedTasks(serverEngine, result);
+
+            while (HandshakeStatus.NEED_WRAP == serverEngine.getHandshakeStatus())
+            {
+                // The attacker doesn't have the keys to use the server's response
+                ((java.nio.Buffer)serverToClient).clear();
+                runDelegatedTasks(serverEngine, serverEngine.wrap(ByteBuffer.allocate(0), serverToClient));
+            }
+
+            if (0 == result.bytesConsumed() && HandshakeStatus.NEED_WRAP != serverEngine.getHandshakeStatus())
+            {
+                fail("Server stopped reading the replayed flight");
+            }
+        }
+
+        assertFalse(bcServerEngine.isEarlyDataAccepted());
+
+        return getBytes(serverIn);
+    }
+
+    private static byte[] getBytes(ByteBuffer buf)
+    {
+        ((java.nio.Buffer)buf).flip();
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine, SSLEngineResult result)
+    {
+        if (HandshakeStatus.NEED_TASK != result.getHandshakeStatus())
+        {
+            return;
+        }
+
+        Runnable runnable;
+        while ((runnable = engine.getDelegatedTask()) != null)
+        {
+            runnable.run();
+        }
+
+        assertTrue(HandshakeStatus.NEED_TASK != engine.getHandshakeStatus());
+    }
+}
@@ -0,0 +1,442 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.Vector;
+
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.generators.Ed25519KeyPairGenerator;
+import org.bouncycastle.crypto.params.Ed25519KeyGenerationParameters;
+import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.bouncycastle.operator.bc.BcEdECContentSignerBuilder;
+import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.CachingCertificateCompressor;
+import org.bouncycastle.tls.Certificate;
+import org.bouncycastle.tls.CertificateCompressionAlgorithm;
+import org.bouncycastle.tls.CertificateEntry;
+import org.bouncycastle.tls.CertificateRequest;
+import org.bouncycastle.tls.DefaultTlsClient;
+import org.bouncycastle.tls.DefaultTlsServer;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SignatureAndHashAlgorithm;
+import org.bouncycastle.tls.TlsAuthentication;
+import org.bouncycastle.tls.TlsCertificateCompressor;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsCredentialedSigner;
+import org.bouncycastle.tls.TlsCredentials;
+import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.TlsServerCertificate;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.tls.ZlibCertificateCompressor;
+import org.bouncycastle.tls.crypto.TlsCertificate;
+import org.bouncycastle.tls.crypto.TlsCryptoParameters;
+import org.bouncycastle.tls.crypto.impl.bc.BcDefaultTlsCredentialedSigner;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13CertificateCompressionTest
+    extends TestCase
+{
+    private static final BcTlsCrypto CRYPTO = new BcTlsCrypto();
+
+    public void testServerCertificateCompressed() throws Exception
+    {
+        CountingCompressor clientCompressor = new CountingCompressor(new ZlibCertificateCompressor());
+        CountingCompressor serverCompressor = new CountingCompressor(new ZlibCertificateCompressor());
+
+        CompressionClient client = new CompressionClient(false, vectorOf(clientCompressor));
+        CompressionServer server = new CompressionServer(false, vectorOf(serverCompressor));
+
+        runClientServer(client, server);
+
+        assertEquals(1, serverCompressor.compressCount);
+        assertEquals(1, clientCompressor.decompressCount);
+        assertEquals(2, client.serverCertificateLength);
+    }
+
+    public void testClientCertificateCompressed() throws Exception
+    {
+        CountingCompressor clientCompressor = new CountingCompressor(new ZlibCertificateCompressor());
+        CountingCompressor serverCompressor = new CountingCompressor(new ZlibCertificateCompressor());
+
+        CompressionClient client = new CompressionClient(true, vectorOf(clientCompressor));
+        CompressionServer server = new CompressionServer(true, vectorOf(serverCompressor));
+
+        runClientServer(client, server);
+
+        assertEquals(1, clientCompressor.compressCount);
+        assertEquals(1, clientCompressor.decompressCount);
+        assertEquals(1, serverCompressor.compressCount);
+        assertEquals(1, serverCompressor.decompressCount);
+        assertEquals(2, server.clientCertificateLength);
+    }
+
+    public void testNoCommonAlgorithm() throws Exception
+    {
+        CountingCompressor clientCompressor = new CountingCompressor(new OtherCompressor());
+        CountingCompressor serverCompressor = new CountingCompressor(new ZlibCertificateCompressor());
+
+        CompressionClient client = new CompressionClient(false, vectorOf(clientCompressor));
+        CompressionServer server = new CompressionServer(false, vectorOf(serverCompressor));
+
+        runClientServer(client, server);
+
+        assertEquals(0, serverCompressor.compressCount);
+        assertEquals(0, clientCompressor.decompressCount);
+        assertEquals(2, client.serverCertificateLength);
+    }
+
+    public void testUncompressedLengthBound() throws Exception
+    {
+        CompressionClient client = new CompressionClient(false, vectorOf(new ZlibCertificateCompressor()))
+        {
+            public int getMaxHandshakeMessageSize()
+            {
+                return 1024;
+            }
+        };
+        CompressionServer server = new CompressionServer(false, vectorOf(new ZlibCertificateCompressor()));
+        server.caCopies = 8;
+
+        try
+        {
+            runClientServer(client, server);
+            fail("oversized compressed certificate accepted");
+        }
+        catch (TlsFatalAlert e)
+        {
+            assertEquals(AlertDescription.bad_certificate, e.getAlertDescription());
+        }
+    }
+
+    public void testZlibCompressor() throws Exception
+    {
+        ZlibCertificateCompressor zlib = new ZlibCertificateCompressor();
+
+        byte[] data = Strings.toByteArray("certificate certificate certificate certificate certificate");
+        byte[] compressed = zlib.compress(data);
+
+        assertTrue(compressed.length < data.length);
+        assertTrue(Arrays.areEqual(data, zlib.decompress(compressed, data.length)));
+
+        checkDecompressFails(zlib, compressed, data.length - 1);
+        checkDecompressFails(zlib, compressed, data.length + 1);
+        checkDecompressFails(zlib, Arrays.append(compressed, (byte)0), data.length);
+
+        // a small uncompressed_length limits the output, however large the compressed data expands
+        byte[] bomb = zlib.compress(new byte[1 << 20]);
+        checkDecompressFails(zlib, bomb, 1024);
+    }
+
+    public void testCachingCompressor() throws Exception
+    {
+        CountingCompressor counter = new CountingCompressor(new ZlibCertificateCompressor());
+        CachingCertificateCompressor cache = new CachingCertificateCompressor(counter, 1);
+
+        assertEquals(CertificateCompressionAlgorithm.zlib, cache.getAlgorithm());
+
+        byte[] a = Strings.toByteArray("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+        byte[] b = Strings.toByteArray("bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb");
+
+        byte[] compressed = cache.compress(a);
+        assertTrue(Arrays.areEqual(compressed, cache.compress(Arrays.clone(a))));
+        assertEquals(1, counter.compressCount);
+
+        cache.compress(b);
+        assertEquals(2, counter.compressCount);
+
+        // only one entry is kept
+        cache.compress(a);
+        assertEquals(3, counter.compressCount);
+
+        assertTrue(Arrays.areEqual(a, cache.decompress(compressed, a.length)));
+    }
+
+    private static void checkDecompressFails(TlsCertificateCompressor compressor, byte[] compressed,
+        int uncompressedLength)
+    {
+        try
+        {
+            compressor.decompress(compressed, uncompressedLength);
+            fail("decompression should fail");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    private static void runClientServer(CompressionClient client, CompressionServer server) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        final TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        final CompressionServer tlsServer = server;
+        Thread serverThread = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    serverProtocol.accept(tlsServer);
+                    Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
+                    serverProtocol.close();
+                }
+                catch (Exception e)
+                {
+                }
+            }
+        };
+        serverThread.start();
+
+        try
+        {
+            clientProtocol.connect(client);
+
+            byte[] data = new byte[100];
+            client.getCrypto().getSecureRandom().nextBytes(data);
+
+            clientProtocol.getOutputStream().write(data);
+
+            byte[] echo = new byte[data.length];
+            int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+            assertEquals(count, data.length);
+            assertTrue(Arrays.areEqual(data, echo));
+        }
+        finally
+        {
+            clientProtocol.close();
+            serverThread.join();
+        }
+    }
+
+    private static Vector vectorOf(TlsCertificateCompressor compressor)
+    {
+        Vector v = new Vector(1);
+        v.addElement(compressor);
+        return v;
+    }
+
+    /**
+     * An end entity certificate and (some copies of) its CA certificate, using Ed25519, created on the fly.
+     */
+    private static TlsCredentialedSigner createCredentials(TlsCryptoParameters cryptoParams, String name,
+        int caCopies) throws Exception
+    {
+        SecureRandom random = CRYPTO.getSecureRandom();
+
+        Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+        kpg.init(new Ed25519KeyGenerationParameters(random));
+
+        AsymmetricCipherKeyPair caKeyPair = kpg.generateKeyPair();
+        AsymmetricCipherKeyPair keyPair = kpg.generateKeyPair();
+
+        X500Name caName = new X500Name("CN=Certificate Compression Test CA, O=The Legion of the Bouncy Castle");
+        X500Name subject = new X500Name("CN=" + name + ", O=The Legion of the Bouncy Castle");
+
+        TlsCertificate caCert = createCertificate(caName, caKeyPair, caName, caKeyPair);
+        TlsCertificate cert = createCertificate(caName, caKeyPair, subject, keyPair);
+
+        CertificateEntry[] certificateEntryList = new CertificateEntry[1 + caCopies];
+        certificateEntryList[0] = new CertificateEntry(cert, null);
+        for (int i = 1; i <= caCopies; ++i)
+        {
+            certificateEntryList[i] = new CertificateEntry(caCert, null);
+        }
+
+        Certificate certificate = new Certificate(TlsUtils.EMPTY_BYTES, certificateEntryList);
+
+        return new BcDefaultTlsCredentialedSigner(cryptoParams, CRYPTO, keyPair.getPrivate(), certificate,
+            SignatureAndHashAlgorithm.ed25519);
+    }
+
+    private static TlsCertificate createCertificate(X500Name issuer, AsymmetricCipherKeyPair issuerKeyPair,
+        X500Name subject, AsymmetricCipherKeyPair keyPair) throws Exception
+    {
+        long now = System.currentTimeMillis();
+
+        X509v3CertificateBuilder builder = new X509v3CertificateBuilder(issuer,
+            BigInteger.valueOf(now), new Date(now - 60 * 60 * 1000L), new Date(now + 60 * 60 * 1000L), subject,
+            SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(keyPair.getPublic()));
+
+        byte[] encoding = builder.build(new BcEdECContentSignerBuilder(
+            new AlgorithmIdentifier(EdECObjectIdentifiers.id_Ed25519)).build(issuerKeyPair.getPrivate())).getEncoded();
+
+        return CRYPTO.createCertificate(encoding);
+    }
+
+    static class CompressionClient
+        extends DefaultTlsClient
+    {
+        private final boolean provideCertificate;
+        private final Vector certificateCompressors;
+
+        int serverCertificateLength = -1;
+
+        CompressionClient(boolean provideCertificate, Vector certificateCompressors)
+        {
+            super(CRYPTO);
+
+            this.provideCertificate = provideCertificate;
+            this.certificateCompressors = certificateCompressors;
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return ProtocolVersion.TLSv13.only();
+        }
+
+        public Vector getCertificateCompressors()
+        {
+            return certificateCompressors;
+        }
+
+        public TlsAuthentication getAuthentication() throws IOException
+        {
+            return new TlsAuthentication()
+            {
+                public void notifyServerCertificate(TlsServerCertificate serverCertificate) throws IOException
+                {
+                    serverCertificateLength = serverCertificate.getCertificate().getLength();
+                }
+
+                public TlsCredentials getClientCredentials(CertificateRequest certificateRequest) throws IOException
+                {
+                    if (!provideCertificate)
+                    {
+                        return null;
+                    }
+
+                    try
+                    {
+                        return createCredentials(new TlsCryptoParameters(context), "Client", 1);
+                    }
+                    catch (Exception e)
+                    {
+                        throw new TlsFatalAlert(AlertDescription.internal_error, e);
+                    }
+                }
+            };
+        }
+    }
+
+    static class CompressionServer
+        extends DefaultTlsServer
+    {
+        private final boolean requestCertificate;
+        private final Vector certificateCompressors;
+
+        int caCopies = 1;
+        int clientCertificateLength = -1;
+
+        CompressionServer(boolean requestCertificate, Vector certificateCompressors)
+        {
+            super(CRYPTO);
+
+            this.requestCertificate = requestCertificate;
+            this.certificateCompressors = certificateCompressors;
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return ProtocolVersion.TLSv13.only();
+        }
+
+        public Vector getCertificateCompressors()
+        {
+            return certificateCompressors;
+        }
+
+        public TlsCredentials getCredentials() throws IOException
+        {
+            try
+            {
+                return createCredentials(new TlsCryptoParameters(context), "Server", caCopies);
+            }
+            catch (Exception e)
+            {
+                throw new TlsFatalAlert(AlertDescription.internal_error, e);
+            }
+        }
+
+        public CertificateRequest getCertificateRequest() throws IOException
+        {
+            if (!requestCertificate)
+            {
+                return null;
+            }
+
+            Vector supportedSignatureAlgorithms = new Vector(1);
+            supportedSignatureAlgorithms.addElement(SignatureAndHashAlgorithm.ed25519);
+
+            return new CertificateRequest(TlsUtils.EMPTY_BYTES, supportedSignatureAlgorithms, null, null);
+        }
+
+        public void notifyClientCertificate(Certificate clientCertificate) throws IOException
+        {
+            this.clientCertificateLength = clientCertificate.getLength();
+        }
+    }
+
+    static class CountingCompressor
+        implements TlsCertificateCompressor
+    {
+        private final TlsCertificateCompressor compressor;
+
+        int compressCount = 0;
+        int decompressCount = 0;
+
+        CountingCompressor(TlsCertificateCompressor compressor)
+        {
+            this.compressor = compressor;
+        }
+
+        public int getAlgorithm()
+        {
+            return compressor.getAlgorithm();
+        }
+
+        public byte[] compress(byte[] certificateMessage) throws IOException
+        {
+            ++compressCount;
+            return compressor.compress(certificateMessage);
+        }
+
+        public byte[] decompress(byte[] compressed, int uncompressedLength) throws IOException
+        {
+            ++decompressCount;
+            return compressor.decompress(compressed, uncompressedLength);
+        }
+    }
+
+    /**
+     * Stands in for a brotli/zstd codec (it is really zlib, registered under another algorithm).
+     */
+    static class OtherCompressor
+        extends ZlibCertificateCompressor
+    {
+        public int getAlgorithm()
+        {
+            return CertificateCompressionAlgorithm.zstd;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Vector;
+
+import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.BasicEarlyDataReplayCache;
+import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.EarlyDataReplayCache;
+import org.bouncycastle.tls.NamedGroup;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.TlsPSKResumption;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13EarlyDataTest
+    extends TestCase
+{
+    private static final byte[] TICKET_KEY = Strings.toByteArray("0123456789abcdef0123456789abcdef");
+
+    public void testEarlyDataAccepted() throws Exception
+    {
+        EarlyDataServer server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100));
+        Vector tickets = getTickets(server);
+
+        TlsPSKResumption ticket = (TlsPSKResumption)tickets.elementAt(0);
+        assertEquals(1024L, ticket.getMaxEarlyDataSize());
+        assertNotNull(ticket.getApplicationProtocol());
+
+        byte[] earlyData = Strings.toByteArray("early data");
+        EarlyDataClient client = new EarlyDataClient(false, tickets, earlyData);
+        byte[] echo = runClientServer(client, server);
+
+        assertTrue(client.resumed);
+        assertTrue(client.earlyDataAccepted);
+        assertTrue(server.earlyDataAccepted);
+        assertTrue(Arrays.areEqual(earlyData, Arrays.copyOfRange(echo, 0, earlyData.length)));
+    }
+
+    public void testEarlyDataReplayRejected() throws Exception
+    {
+        EarlyDataServer server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100));
+        Vector tickets = getTickets(server);
+
+        // every ClientHello looks like a replay to this server
+        EarlyDataServer replayServer = new EarlyDataServer(new ReplayingCache());
+
+        EarlyDataClient client = new EarlyDataClient(false, tickets, Strings.toByteArray("early data"));
+        byte[] echo = runClientServer(client, replayServer);
+
+        assertTrue(client.resumed);
+        assertFalse(client.earlyDataAccepted);
+        assertFalse(replayServer.earlyDataAccepted);
+        assertEquals(100, echo.length);
+    }
+
+    public void testEarlyDataRejectedWithoutReplayCache() throws Exception
+    {
+        EarlyDataServer server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100));
+        Vector tickets = getTickets(server);
+
+        // A server without anti-replay protection has to skip over the early data
+        EarlyDataServer otherServer = new EarlyDataServer(null);
+
+        EarlyDataClient client = new EarlyDataClient(false, tickets, Strings.toByteArray("early data"));
+        byte[] echo = runClientServer(client, otherServer);
+
+        assertTrue(client.resumed);
+        assertFalse(client.earlyDataAccepted);
+        assertFalse(otherServer.earlyDataAccepted);
+        assertEquals(100, echo.length);
+    }
+
+    public void testEarlyDataTooLarge() throws Exception
+    {
+        EarlyDataServer server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100));
+        Vector tickets = getTickets(server);
+
+        EarlyDataClient client = new EarlyDataClient(false, tickets, new byte[1025]);
+        byte[] echo = runClientServer(client, server);
+
+        assertTrue(client.resumed);
+        assertFalse(client.earlyDataAccepted);
+        assertEquals(100, echo.length);
+    }
+
+    public void testEarlyDataSkippedAfterHelloRetryRequest() throws Exception
+    {
+        EarlyDataServer server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100));
+        Vector tickets = getTickets(server);
+
+        // The client's early key share won't be acceptable, so this server must skip the early data records
+        EarlyDataServer retryServer = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100))
+        {
+            public int[] getSupportedGroups() throws IOException
+            {
+                return new int[]{ NamedGroup.secp384r1 };
+            }
+        };
+
+        EarlyDataClient client = new EarlyDataClient(false, tickets, Strings.toByteArray("early data"));
+        byte[] echo = runClientServer(client, retryServer);
+
+        assertTrue(client.resumed);
+        assertFalse(client.earlyDataAccepted);
+        assertFalse(retryServer.earlyDataAccepted);
+        assertEquals(100, echo.length);
+    }
+
+    public void testEarlyDataWithOlderServerVersion() throws Exception
+    {
+        EarlyDataServer server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100));
+        Vector tickets = getTickets(server);
+
+        EarlyDataClient client = new EarlyDataClient(false, tickets, Strings.toByteArray("early data"))
+        {
+            protected int[] getSupportedCipherSuites()
+            {
+                return TlsUtils.getSupportedCipherSuites(getCrypto(), new int[]{ CipherSuite.TLS_AES_128_GCM_SHA256,
+                    CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256 });
+            }
+
+            protected ProtocolVersion[] getSupportedVersions()
+            {
+                return ProtocolVersion.TLSv13.downTo(ProtocolVersion.TLSv12);
+            }
+        };
+
+        EarlyDataServer tls12Server = new EarlyDataServer(new BasicEarlyDataReplayCache(10000L, 100))
+        {
+            protected int[] getSupportedCipherSuites()
+            {
+                return TlsUtils.getSupportedCipherSuites(getCrypto(),
+                    new int[]{ CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256 });
+            }
+
+            protected ProtocolVersion[] getSupportedVersions()
+            {
+                return ProtocolVersion.TLSv12.only();
+            }
+        };
+
+        // RFC 8446 4.2.10. A client that sent early data must not continue with an earlier version
+        try
+        {
+            runClientServer(client, tls12Server);
+            fail("Expected protocol_version alert");
+        }
+        catch (TlsFatalAlert e)
+        {
+            assertEquals(AlertDescription.protocol_version, e.getAlertDescription());
+        }
+    }
+
+    public void testNoEarlyDataWithoutReplayCache() throws Exception
+    {
+        EarlyDataClient client = new EarlyDataClient(true, new Vector(), null);
+        runClientServer(client, new EarlyDataServer(null));
+
+        assertEquals(1, client.tickets.size());
+        assertEquals(0L, ((TlsPSKResumption)client.tickets.elementAt(0)).getMaxEarlyDataSize());
+    }
+
+    public void testReplayCache()
+    {
+        BasicEarlyDataReplayCache cache = new BasicEarlyDataReplayCache(1000L, 2);
+
+        byte[] a = Strings.toByteArray("a"), b = Strings.toByteArray("b"), c = Strings.toByteArray("c");
+
+        assertTrue(cache.checkAndRecord(a, 0L));
+        assertFalse(cache.checkAndRecord(a, 1L));
+        assertTrue(cache.checkAndRecord(b, 1L));
+
+        // full
+        assertFalse(cache.checkAndRecord(c, 2L));
+
+        // 'a' is remembered for twice the window
+        assertFalse(cache.checkAndRecord(a, 1999L));
+        assertTrue(cache.checkAndRecord(a, 2000L));
+        assertFalse(cache.checkAndRecord(a, 2001L));
+        assertTrue(cache.checkAndRecord(c, 2001L));
+    }
+
+    private static Vector getTickets(EarlyDataServer server) throws Exception
+    {
+        EarlyDataClient client = new EarlyDataClient(true, new Vector(), null);
+        runClientServer(client, server);
+
+        assertEquals(1, client.tickets.size());
+        assertFalse(client.resumed);
+        return client.tickets;
+    }
+
+    private static byte[] runClientServer(EarlyDataClient client, EarlyDataServer server) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        Tls13SessionTicketTest.ServerThread serverThread = new Tls13SessionTicketTest.ServerThread(serverProtocol,
+            server);
+        serverThread.start();
+
+        try
+        {
+            clientProtocol.connect(client);
+
+            byte[] data = new byte[100];
+            client.getCrypto().getSecureRandom().nextBytes(data);
+
+            clientProtocol.getOutputStream().write(data);
+
+            byte[] expected = data;
+            if (client.earlyDataAccepted)
+            {
+                expected = Arrays.concatenate(client.getEarlyData(), data);
+            }
+
+            byte[] echo = new byte[expected.length];
+            int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+            assertEquals(count, expected.length);
+            assertTrue(Arrays.areEqual(expected, echo));
+
+            return echo;
+        }
+        finally
+        {
+            clientProtocol.close();
+            serverThread.join();
+        }
+    }
+
+    static class EarlyDataClient
+        extends Tls13SessionTicketTest.TicketClient
+    {
+        private final byte[] earlyData;
+
+        final Vector tickets;
+        boolean earlyDataAccepted = false;
+
+        EarlyDataClient(boolean offerExternalPSK, Vector tickets, byte[] earlyData)
+        {
+            super(offerExternalPSK, tickets);
+
+            this.tickets = tickets;
+            this.earlyData = earlyData;
+        }
+
+        public byte[] getEarlyData()
+        {
+            return earlyData;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.earlyDataAccepted = context.getSecurityParametersConnection().isEarlyDataAccepted();
+        }
+    }
+
+    static class EarlyDataServer
+        extends Tls13SessionTicketTest.TicketServer
+    {
+        private final EarlyDataReplayCache replayCache;
+
+        boolean earlyDataAccepted = false;
+
+        EarlyDataServer(EarlyDataReplayCache replayCache)
+        {
+            super(TICKET_KEY);
+
+            this.replayCache = replayCache;
+        }
+
+        public long getMaxEarlyDataSize()
+        {
+            return 1024L;
+        }
+
+        public EarlyDataReplayCache getEarlyDataReplayCache()
+        {
+            return replayCache;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.earlyDataAccepted = context.getSecurityParametersConnection().isEarlyDataAccepted();
+        }
+    }
+
+    static class ReplayingCache
+        implements EarlyDataReplayCache
+    {
+        public long getWindow()
+        {
+            return 10000L;
+        }
+
+        public boolean checkAndRecord(byte[] clientHelloID, long time)
+        {
+            return false;
+        }
+    }
+}
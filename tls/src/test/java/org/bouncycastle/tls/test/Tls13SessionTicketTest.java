@@ -0,0 +1,308 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Vector;
+
+import org.bouncycastle.tls.SessionTicketProtection;
+import org.bouncycastle.tls.TlsClient;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsPSK;
+import org.bouncycastle.tls.TlsPSKResumption;
+import org.bouncycastle.tls.TlsServer;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13SessionTicketTest
+    extends TestCase
+{
+    private static final byte[] TICKET_KEY = Strings.toByteArray("0123456789abcdef0123456789abcdef");
+
+    public void testResumption() throws Exception
+    {
+        TicketClient client = new TicketClient(true, new Vector());
+        runClientServer(client, new TicketServer(TICKET_KEY));
+
+        assertEquals(1, client.tickets.size());
+        assertFalse(client.resumed);
+
+        // external PSKs aren't offered this time, so the handshake can only succeed using the ticket
+        TicketClient resumingClient = new TicketClient(false, client.tickets);
+        runClientServer(resumingClient, new TicketServer(TICKET_KEY));
+
+        assertTrue(resumingClient.resumed);
+        assertEquals(1, resumingClient.tickets.size());
+    }
+
+    public void testResumptionOtherServer() throws Exception
+    {
+        TicketClient client = new TicketClient(true, new Vector());
+        runClientServer(client, new TicketServer(TICKET_KEY));
+
+        byte[] otherKey = Arrays.clone(TICKET_KEY);
+        otherKey[0] ^= 1;
+
+        try
+        {
+            runClientServer(new TicketClient(false, client.tickets), new TicketServer(otherKey));
+            fail("ticket accepted under different ticket key");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    public void testNoTicketProtection() throws Exception
+    {
+        TicketClient client = new TicketClient(true, new Vector());
+        runClientServer(client, new MockPSKTls13Server());
+
+        assertEquals(0, client.tickets.size());
+    }
+
+    public void testNoTicketAfterClientAuth() throws Exception
+    {
+        AuthTicketClient client = new AuthTicketClient(new Vector());
+        AuthTicketServer server = new AuthTicketServer(TICKET_KEY);
+        runClientServer(client, server);
+
+        assertTrue(server.clientCertificateLength > 0);
+
+        // the ticket state has no client identity, so a resumed connection would skip client authentication
+        assertEquals(0, client.tickets.size());
+
+        AuthTicketClient resumingClient = new AuthTicketClient(client.tickets);
+        AuthTicketServer resumingServer = new AuthTicketServer(TICKET_KEY);
+        runClientServer(resumingClient, resumingServer);
+
+        assertFalse(resumingClient.resumed);
+        assertTrue(resumingServer.clientCertificateLength > 0);
+    }
+
+    public void testKeyRotation() throws Exception
+    {
+        long keyPeriod = 60 * 60 * 1000L;
+
+        TestTicketProtection protection = new TestTicketProtection(keyPeriod, 2);
+        protection.time = 10 * keyPeriod;
+
+        byte[] state = Strings.toByteArray("session state");
+        byte[] ticket = protection.protect(state);
+
+        assertEquals(3 * 60 * 60, protection.getTicketLifetime());
+
+        // another server with the same key, whose clock is slightly behind
+        TestTicketProtection other = new TestTicketProtection(keyPeriod, 2);
+        other.time = protection.time - 1;
+        assertTrue(Arrays.areEqual(state, other.unprotect(ticket)));
+
+        protection.time += 2 * keyPeriod;
+        assertTrue(Arrays.areEqual(state, protection.unprotect(ticket)));
+
+        protection.time += keyPeriod;
+        assertNull(protection.unprotect(ticket));
+
+        protection.time = 10 * keyPeriod;
+        for (int i = 0; i < ticket.length; ++i)
+        {
+            byte[] modified = Arrays.clone(ticket);
+            modified[i] ^= 1;
+            assertNull(protection.unprotect(modified));
+        }
+    }
+
+    private static void runClientServer(TlsClient client, TlsServer server) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
+        serverThread.start();
+
+        try
+        {
+            clientProtocol.connect(client);
+
+            byte[] data = new byte[100];
+            client.getCrypto().getSecureRandom().nextBytes(data);
+
+            OutputStream output = clientProtocol.getOutputStream();
+            output.write(data);
+
+            byte[] echo = new byte[data.length];
+            int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+            assertEquals(count, data.length);
+            assertTrue(Arrays.areEqual(data, echo));
+
+        }
+        finally
+        {
+            clientProtocol.close();
+            serverThread.join();
+        }
+    }
+
+    static class ServerThread
+        extends Thread
+    {
+        private final TlsServerProtocol serverProtocol;
+        private final TlsServer server;
+
+        ServerThread(TlsServerProtocol serverProtocol, TlsServer server)
+        {
+            this.serverProtocol = serverProtocol;
+            this.server = server;
+        }
+
+        public void run()
+        {
+            try
+            {
+                serverProtocol.accept(server);
+                Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
+                serverProtocol.close();
+            }
+            catch (Exception e)
+            {
+            }
+        }
+    }
+
+    static class TicketClient
+        extends MockPSKTls13Client
+    {
+        private final boolean offerExternalPSK;
+        private final Vector tickets;
+
+        boolean resumed = false;
+
+        TicketClient(boolean offerExternalPSK, Vector tickets)
+        {
+            this.offerExternalPSK = offerExternalPSK;
+            this.tickets = tickets;
+        }
+
+        public Vector getExternalPSKs()
+        {
+            return offerExternalPSK ? super.getExternalPSKs() : null;
+        }
+
+        public Vector getResumptionPSKs()
+        {
+            // each ticket is only used once
+            Vector resumptionPSKs = new Vector(tickets);
+            tickets.removeAllElements();
+            return resumptionPSKs;
+        }
+
+        public void notifySelectedPSK(TlsPSK selectedPSK) throws IOException
+        {
+            super.notifySelectedPSK(selectedPSK);
+
+            this.resumed = selectedPSK instanceof TlsPSKResumption;
+        }
+
+        public void notifyResumptionPSK(TlsPSKResumption resumptionPSK) throws IOException
+        {
+            tickets.addElement(resumptionPSK);
+        }
+    }
+
+    static class TicketServer
+        extends MockPSKTls13Server
+    {
+        private final SessionTicketProtection ticketProtection;
+
+        TicketServer(byte[] ticketKey)
+        {
+            this.ticketProtection = new SessionTicketProtection(getCrypto(), ticketKey, 60 * 60 * 1000L, 2);
+        }
+
+        public SessionTicketProtection getSessionTicketProtection()
+        {
+            return ticketProtection;
+        }
+    }
+
+    static class AuthTicketClient
+        extends Tls13CertificateCompressionTest.CompressionClient
+    {
+        private final Vector tickets;
+
+        boolean resumed = false;
+
+        AuthTicketClient(Vector tickets)
+        {
+            super(true, null);
+
+            this.tickets = tickets;
+        }
+
+        public Vector getResumptionPSKs()
+        {
+            Vector resumptionPSKs = new Vector(tickets);
+            tickets.removeAllElements();
+            return resumptionPSKs;
+        }
+
+        public void notifySelectedPSK(TlsPSK selectedPSK) throws IOException
+        {
+            super.notifySelectedPSK(selectedPSK);
+
+            this.resumed = selectedPSK instanceof TlsPSKResumption;
+        }
+
+        public void notifyResumptionPSK(TlsPSKResumption resumptionPSK) throws IOException
+        {
+            tickets.addElement(resumptionPSK);
+        }
+    }
+
+    static class AuthTicketServer
+        extends Tls13CertificateCompressionTest.CompressionServer
+    {
+        private final SessionTicketProtection ticketProtection;
+
+        AuthTicketServer(byte[] ticketKey)
+        {
+            super(true, null);
+
+            this.ticketProtection = new SessionTicketProtection(getCrypto(), ticketKey, 60 * 60 * 1000L, 2);
+        }
+
+        public SessionTicketProtection getSessionTicketProtection()
+        {
+            return ticketProtection;
+        }
+    }
+
+    static class TestTicketProtection
+        extends SessionTicketProtection
+    {
+        long time;
+
+        TestTicketProtection(long keyPeriod, int previousKeys)
+        {
+            super(new BcTlsCrypto(), TICKET_KEY, keyPeriod, previousKeys);
+        }
+
+        protected long currentTimeMillis()
+        {
+            return time;
+        }
+    }
+}